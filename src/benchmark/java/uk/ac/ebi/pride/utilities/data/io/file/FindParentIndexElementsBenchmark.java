@@ -0,0 +1,70 @@
+package uk.ac.ebi.pride.utilities.data.io.file;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Joins 10k to 5M synthetic PSMs, each SpectrumIdentificationResult containing two SpectrumIdentificationItems.
+ * The offset join is a single sweep, so the time divided by the number of PSMs should stay flat as it grows.
+ * <p/>
+ * Run with: mvn -Pbenchmark test-compile exec:exec -Dbenchmark.include=FindParentIndexElementsBenchmark
+ *
+ * @author Rui Wang
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FindParentIndexElementsBenchmark {
+
+    @Param({"10000", "100000", "1000000", "5000000"})
+    public int psms;
+
+    private long[] parentStarts;
+
+    private long[] parentStops;
+
+    private long[] childStarts;
+
+    private long[] childStops;
+
+    @Setup
+    public void setUp() {
+        int results = psms / 2;
+        parentStarts = new long[results];
+        parentStops = new long[results];
+        childStarts = new long[psms];
+        childStops = new long[psms];
+        for (int i = 0; i < psms; i++) {
+            if (i % 2 == 0) {
+                parentStarts[i / 2] = i * 100L;
+                parentStops[i / 2] = i * 100L + 190;
+            }
+            childStarts[i] = i * 100L + 10;
+            childStops[i] = i * 100L + 80;
+        }
+
+        int[] parents = MzIdentMLUnmarshallerAdaptor.findParentIndexElements(parentStarts, parentStops, childStarts, childStops);
+        if (parents[psms - 1] != results - 1) {
+            throw new IllegalStateException("Unexpected parent of the last PSM: " + parents[psms - 1]);
+        }
+    }
+
+    @Benchmark
+    public int[] findParentIndexElements() {
+        return MzIdentMLUnmarshallerAdaptor.findParentIndexElements(parentStarts, parentStops, childStarts, childStops);
+    }
+}
@@ -79,7 +79,7 @@ public final class DataAccessUtilities {
         int numOfPeaks = -1;
         BinaryDataArray mzArr = spectrum.getBinaryDataArrays().get(0);
         if (mzArr != null) {
-            numOfPeaks = mzArr.getDoubleArray().length;
+            numOfPeaks = mzArr.size();
         }
         return numOfPeaks;
     }
@@ -202,9 +202,8 @@ public final class DataAccessUtilities {
         double sum = 0;
         BinaryDataArray intentArr = spectrum.getIntensityBinaryDataArray();
         if (intentArr != null) {
-            double[] originalIntentArr = intentArr.getDoubleArray();
-            for (double intent : originalIntentArr) {
-                sum += intent;
+            for (int i = 0; i < intentArr.size(); i++) {
+                sum += intentArr.get(i);
             }
         }
         return sum;
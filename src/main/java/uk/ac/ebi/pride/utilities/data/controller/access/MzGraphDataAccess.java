@@ -5,8 +5,10 @@ import uk.ac.ebi.pride.utilities.data.core.Chromatogram;
 import uk.ac.ebi.pride.utilities.data.core.Peptide;
 import uk.ac.ebi.pride.utilities.data.core.Spectrum;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * MzGraphDataAccess defines the interface for accessing mzgraph data.
@@ -91,6 +93,34 @@ public interface MzGraphDataAccess {
      */
     public Spectrum getSpectrumById(Comparable id);
 
+    /**
+     * Get a list of spectra in bulk, the spectra are read in file order and
+     * are not added to the cache.
+     * <p/>
+     * By default the spectra are read one at a time using getSpectrumById.
+     *
+     * @param ids spectrum ids
+     * @return List<Spectrum> spectra, in the order of the ids
+     */
+    public default List<Spectrum> getSpectraByIds(Collection<Comparable> ids) {
+        List<Spectrum> spectra = new ArrayList<Spectrum>(ids.size());
+        for (Comparable id : ids) {
+            spectra.add(getSpectrumById(id));
+        }
+        return spectra;
+    }
+
+    /**
+     * Stream all the spectra in file order, the spectra are not added to the cache.
+     * <p/>
+     * By default the spectra are read one at a time using getSpectrumById.
+     *
+     * @return Stream<Spectrum> spectra
+     */
+    public default Stream<Spectrum> streamSpectra() {
+        return getSpectrumIds().stream().map(this::getSpectrumById);
+    }
+
     /**
      * Get a collection of spectra by its index and offset.
      * Note: this method can be used for paging.
@@ -47,6 +47,24 @@ public interface Cache {
      */
     void storeInBatch(CacheEntry type, Collection values);
 
+    /**
+     * Replace the data of a cache category with a ready made content, e.g. a read-only view of a CacheIndexFile,
+     * the content must not be changed by the cache afterwards. This implementation copies the content instead.
+     *
+     * @param type    cache category
+     * @param content a map, a collection or a SpectrumIdSet
+     */
+    default void restore(CacheEntry type, Object content) {
+        clear(type);
+        if (content instanceof Map) {
+            storeInBatch(type, (Map) content);
+        } else if (content instanceof Collection) {
+            storeInBatch(type, (Collection) content);
+        } else {
+            store(type, content);
+        }
+    }
+
     /**
      * Get data from cache using CacheCategory and key
      *
@@ -3,6 +3,8 @@ package uk.ac.ebi.pride.utilities.data.controller.cache;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.ac.ebi.pride.utilities.data.utils.IndexedList;
+import uk.ac.ebi.pride.utilities.util.Tuple;
 
 import java.lang.reflect.Constructor;
 import java.util.*;
@@ -64,6 +66,12 @@ public class CacheAccessor implements Cache {
             }
 
             ((Map) content).put(key, value);
+        } else if (content instanceof SpectrumIdSet) {
+            if (key instanceof SpectrumIdSet) {
+                ((SpectrumIdSet) content).addAll((SpectrumIdSet) key);
+            } else {
+                ((SpectrumIdSet) content).add((Tuple) key);
+            }
         } else if (content instanceof Collection) {
             ((Collection) content).add(key);
         } else {
@@ -121,7 +129,11 @@ public class CacheAccessor implements Cache {
         if (!values.isEmpty()) {
             Object content = createIfNotExist(type);
 
-            if (content instanceof Collection) {
+            if (content instanceof SpectrumIdSet) {
+                for (Object value : values) {
+                    ((SpectrumIdSet) content).add((Tuple) value);
+                }
+            } else if (content instanceof Collection) {
                 ((Collection) content).addAll(values);
             }
         }
@@ -184,6 +196,20 @@ public class CacheAccessor implements Cache {
         return contents.containsKey(type);
     }
 
+    /**
+     * Use the content as the data of a cache category, it is not copied
+     *
+     * @param type    cache category
+     * @param content a map, a collection or a SpectrumIdSet
+     */
+    @Override
+    public void restore(CacheEntry type, Object content) {
+        if (content == null) {
+            throw new IllegalArgumentException("Content cannot be null");
+        }
+        contents.put(type, content);
+    }
+
     /**
      * Clear a cache category
      *
@@ -226,10 +252,10 @@ public class CacheAccessor implements Cache {
                 logger.error("Failed to initialize data structure for caching", e);
             }
 
-            // synchronized wrapping
+            // synchronized wrapping, indexed lists are already synchronized and must keep their type
             if (content != null && content instanceof Map) {
                 content = Collections.synchronizedMap((Map) content);
-            } else if (content instanceof Collection) {
+            } else if (content instanceof Collection && !(content instanceof IndexedList)) {
                 content = Collections.synchronizedCollection((Collection) content);
             }
 
@@ -255,6 +281,9 @@ public class CacheAccessor implements Cache {
             } else {
                 if (content instanceof Map) {
                     result = ((Map) content).get(key);
+                } else if (content instanceof SpectrumIdSet) {
+                    // the key itself when the spectrum is in the set
+                    result = ((SpectrumIdSet) content).contains(key) ? key : null;
                 } else {
                     result = content;
                 }
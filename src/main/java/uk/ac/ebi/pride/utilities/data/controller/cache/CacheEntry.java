@@ -2,6 +2,8 @@ package uk.ac.ebi.pride.utilities.data.controller.cache;
 
 //~--- JDK imports ------------------------------------------------------------
 
+import uk.ac.ebi.pride.utilities.data.utils.IndexedList;
+
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -16,7 +18,7 @@ import java.util.HashSet;
 public enum CacheEntry {
 
     SPECTRUM(CachedMap.class, 10),                             // Map<Spectrum id, Spectrum>
-    SPECTRADATA_TO_SPECTRUMIDS(HashMap.class, null),           // Map<Comparable, List<Comparable>>
+    SPECTRADATA_TO_SPECTRUMIDS(SpectraDataToSpectrumIdsMap.class, null), // Map<Comparable, List<Comparable>>
     PROTEIN_TO_PEPTIDE_EVIDENCES(HashMap.class, null),         //Map<db squence id,List<Spectrum identification item id>>>
     PROTEIN_TO_PROTEIN_GROUP_ID(HashMap.class, null),          // Map<Comparable, Comparable>
     PROTEIN_GROUP_ID(ArrayList.class, null),                   // List of Protein Groups
@@ -31,9 +33,9 @@ public enum CacheEntry {
     SEARCH_ENGINE_TYPE(ArrayList.class, null),                 // List<SearchEngineCvTermReferences>
     PROTEIN_LEVEL_SCORES(ArrayList.class, null),               // List<SearchEngineScoreCvTermReferences>
     PEPTIDE_LEVEL_SCORES(ArrayList.class, null),               // List<SearchEngineScoreCvTermReferences>
-    SPECTRUM_ID(HashSet.class, null),                        // List<Spectrum id>
-    CHROMATOGRAM_ID(ArrayList.class, null),                    // List<Chromatogram id>
-    PROTEIN_ID(ArrayList.class, null),                         // List<Identification id>
+    SPECTRUM_ID(IndexedList.class, null),                      // List<Spectrum id>, in file order
+    CHROMATOGRAM_ID(IndexedList.class, null),                  // List<Chromatogram id>, in file order
+    PROTEIN_ID(IndexedList.class, null),                       // List<Identification id>, in file order
     MS_LEVEL(HashMap.class, null),                             // Map<Spectrum id, Ms level>
     SPECTRUM_LEVEL_PRECURSOR_CHARGE(CachedMap.class, 10),      // Map<Spectrum id, Precursor charge>
     PEPTIDE_PRECURSOR_CHARGE(CachedMap.class, 40),             // Map<ProteinID, PeptideID, charge>
@@ -55,8 +57,9 @@ public enum CacheEntry {
     PEPTIDE_RANK(CachedMap.class, 40),                         // Map<Tuple<ProteinID, PetideID>, rank>
     PEPTIDE_START(CachedMap.class, 40),                        // Map<Peptide Id, peptide start location>
     PEPTIDE_END(CachedMap.class, 40),                          // Map<Peptide Id, peptide end location>
-    PEPTIDE_TO_SPECTRUM(HashMap.class, null),                  // Map<Peptide Id, spectrum id>  in mzidentml the spectrum have two
-    QUANTPEPTIDE_TO_SPECTREUM(HashMap.class, null),            // Map<Peptide Id, spectreum ID> in mztab we will have a Map for quanttative peptides
+    SPECTRUM_TO_PEPTIDES(SpectrumToPeptidesMap.class, null),   // Map<Tuple<spectrum id, spectra data id>, List<Tuple<Protein id, Peptide id>>>, reverse of PEPTIDE_TO_SPECTRUM
+    PEPTIDE_TO_SPECTRUM(PeptideToSpectrumMap.class, null),     // Map<Peptide Id, spectrum id>  in mzidentml the spectrum have two
+    QUANTPEPTIDE_TO_SPECTREUM(PeptideToSpectrumMap.class, null), // Map<Peptide Id, spectreum ID> in mztab we will have a Map for quanttative peptides
     PROTEIN_TO_QUANTPEPTIDES(HashMap.class, null),             // Map<db squence id,List<Spectrum identification item id>>>
     // components the spectrum id and the file id, then is Ma<Peptide Id, String[]>
     PEPTIDE_TO_PARAM(CachedMap.class, 40),                     // Map<Peptide Id, ParamGroup>
@@ -76,7 +79,7 @@ public enum CacheEntry {
     MGF_INDEX_TITLE(HashMap.class, null),                      // In some cases it would be interesting to retrieve the file instead of using index using the title.
     SPECTRA_DATA_MGF_TITLE(ArrayList.class, null),
     TITLE_MGF_INDEX(HashMap.class, null),
-    SPECTRUM_IDENTIFIED(ArrayList.class, 10000);
+    SPECTRUM_IDENTIFIED(SpectrumIdSet.class, null);            // Tuple<spectrum id, spectra data id> set of the identified spectra
 
     private final Class dataStructType;
     private final Integer size;
@@ -0,0 +1,797 @@
+package uk.ac.ebi.pride.utilities.data.controller.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.ebi.pride.utilities.data.core.MassSpecObject;
+import uk.ac.ebi.pride.utilities.util.Tuple;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * CacheIndexFile persists the id maps built by a caching strategy in a sidecar file, next to the data file,
+ * so they do not need to be rebuilt from the XML the next time the same file is opened.
+ * <p/>
+ * The sidecar is keyed by the size, the last modification time and a content hash of the data file. The
+ * content hash is computed over the beginning and the end of the file, it does not require reading the whole file.
+ * A sidecar which does not match the data file is ignored. An optional variant, e.g. the options used to build
+ * the id maps, is part of the key, so a sidecar built with different options is ignored as well.
+ * <p/>
+ * Format: a header, a table of all the distinct strings, then one section per cache category where
+ * every string is stored as an int reference into the table. The sidecar is memory-mapped when it is read,
+ * and the lists and maps returned by read are read-only views of the mapped file: the strings are decoded
+ * when an element is read, and every map section carries its own hash table, so a lookup only reads the
+ * entries of its hash slot. Only the spectrum id sets and the serialized maps are copied onto the heap.
+ * <p/>
+ * Supported cache contents: lists of strings, lists of string tuples, maps from string to list of strings,
+ * maps from string to string tuple, maps from string tuple to string, maps from string tuple to list of
+ * string tuples, spectrum id sets, and small maps from string to core objects (e.g. the CV lookup), which
+ * are serialized.
+ * <p/>
+ * @author Rui Wang
+ * @author Yasset Perez-Riverol
+ */
+public class CacheIndexFile {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheIndexFile.class);
+
+    public static final String INDEX_FILE_EXTENSION = ".pride.idx";
+
+    private static final long MAGIC = 0x5052494445494458L; // PRIDEIDX
+
+    private static final int VERSION = 3;
+
+    private static final int HASH_SAMPLE_SIZE = 1024 * 1024;
+
+    private static final int NULL_REFERENCE = -1;
+
+    private static final byte STRING_LIST = 0;
+    private static final byte TUPLE_LIST = 1;
+    private static final byte STRING_TO_STRING_LIST_MAP = 2;
+    private static final byte STRING_TO_TUPLE_MAP = 3;
+    private static final byte TUPLE_TO_STRING_MAP = 4;
+    private static final byte SPECTRUM_ID_SET = 5;
+    private static final byte TUPLE_TO_TUPLE_LIST_MAP = 6;
+    private static final byte SERIALIZED_MAP = 7;
+
+    /**
+     * magic, version, length, last modification time and hash of the data file
+     */
+    private static final int HEADER_SIZE = 8 + 4 + 8 + 8 + 16;
+
+    private final File dataFile;
+
+    private final File indexFile;
+
+    private final String variant;
+
+    /**
+     * Create an index using the default sidecar file, e.g. data.mzid.pride.idx
+     *
+     * @param dataFile data file
+     */
+    public CacheIndexFile(File dataFile) {
+        this(dataFile, null);
+    }
+
+    /**
+     * Create an index using the default sidecar file, e.g. data.mzid.pride.idx
+     *
+     * @param dataFile data file
+     * @param variant  options used to build the id maps, can be null
+     */
+    public CacheIndexFile(File dataFile, String variant) {
+        this(dataFile, new File(dataFile.getPath() + INDEX_FILE_EXTENSION), variant);
+    }
+
+    public CacheIndexFile(File dataFile, File indexFile, String variant) {
+        this.dataFile = dataFile;
+        this.indexFile = indexFile;
+        this.variant = variant;
+    }
+
+    public File getDataFile() {
+        return dataFile;
+    }
+
+    public File getIndexFile() {
+        return indexFile;
+    }
+
+    /**
+     * Read the cache contents from the sidecar file. The lists and maps are read-only views of the mapped file,
+     * they stay valid after the sidecar is deleted or replaced.
+     *
+     * @return Map<CacheEntry, Object> cache contents, null if the sidecar does not exist,
+     * does not match the data file or cannot be read.
+     */
+    public Map<CacheEntry, Object> read() {
+        if (!indexFile.isFile()) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getLong() != MAGIC || buffer.getInt() != VERSION) {
+                logger.info("Ignoring index file with unknown format: " + indexFile.getAbsolutePath());
+                return null;
+            }
+
+            byte[] hash = new byte[16];
+            long length = buffer.getLong();
+            long lastModified = buffer.getLong();
+            buffer.get(hash);
+            if (length != dataFile.length() || lastModified != dataFile.lastModified() || !Arrays.equals(hash, computeHash())) {
+                logger.info("Ignoring index file out of date: " + indexFile.getAbsolutePath());
+                return null;
+            }
+
+            MappedStrings strings = new MappedStrings(buffer, buffer.position());
+            buffer.position(buffer.getInt(buffer.position() + 4));
+
+            Map<CacheEntry, Object> contents = new EnumMap<CacheEntry, Object>(CacheEntry.class);
+            int numberOfSections = buffer.getInt();
+            for (int i = 0; i < numberOfSections; i++) {
+                CacheEntry type = CacheEntry.valueOf(strings.get(buffer.getInt()));
+                byte shape = buffer.get();
+                int sectionLength = buffer.getInt();
+
+                ByteBuffer section = buffer.duplicate();
+                section.limit(buffer.position() + sectionLength);
+                section = section.slice();
+                buffer.position(buffer.position() + sectionLength);
+
+                contents.put(type, readSection(shape, section, strings));
+            }
+            return contents;
+        } catch (Exception e) {
+            logger.warn("Failed to read index file: " + indexFile.getAbsolutePath(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Write the cache contents to the sidecar file, replacing the existing one.
+     * Empty contents are skipped, nothing is written if any content is not supported.
+     *
+     * @param contents cache contents
+     * @return boolean true if the sidecar was written
+     */
+    public boolean write(Map<CacheEntry, Object> contents) {
+        // intern all the strings first, the table is written before the sections
+        Map<String, Integer> stringTable = new LinkedHashMap<String, Integer>();
+        Map<CacheEntry, Byte> sections = new LinkedHashMap<CacheEntry, Byte>();
+        for (Map.Entry<CacheEntry, Object> entry : contents.entrySet()) {
+            Object content = entry.getValue();
+            if (content == null || (content instanceof Collection && ((Collection) content).isEmpty())
+                    || (content instanceof Map && ((Map) content).isEmpty())
+                    || (content instanceof SpectrumIdSet && ((SpectrumIdSet) content).isEmpty())) {
+                continue;
+            }
+            Byte shape = getShape(content);
+            if (shape == null) {
+                // a partial index would restore an incomplete cache
+                logger.warn("Content not supported by the index file, the index is not written: " + entry.getKey());
+                return false;
+            }
+            sections.put(entry.getKey(), shape);
+            intern(stringTable, entry.getKey().name());
+            if (shape != SERIALIZED_MAP) {
+                internAll(stringTable, entry.getValue());
+            }
+        }
+
+        File tmpFile = new File(indexFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            out.writeLong(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(dataFile.length());
+            out.writeLong(dataFile.lastModified());
+            out.write(computeHash());
+
+            // number of strings, the position of the sections, the position of each string, then the strings
+            List<byte[]> encodedStrings = new ArrayList<byte[]>(stringTable.size());
+            for (String value : stringTable.keySet()) {
+                encodedStrings.add(value.getBytes(StandardCharsets.UTF_8));
+            }
+            long position = HEADER_SIZE + 8 + 4L * encodedStrings.size();
+            long[] positions = new long[encodedStrings.size()];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = position;
+                position += 4 + encodedStrings.get(i).length;
+            }
+            if (position > Integer.MAX_VALUE) {
+                throw new IOException("String table too large for the index file");
+            }
+
+            out.writeInt(encodedStrings.size());
+            out.writeInt((int) position);
+            for (long stringPosition : positions) {
+                out.writeInt((int) stringPosition);
+            }
+            for (byte[] bytes : encodedStrings) {
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            out.writeInt(sections.size());
+            for (Map.Entry<CacheEntry, Byte> section : sections.entrySet()) {
+                byte[] body = writeSection(section.getValue(), contents.get(section.getKey()), stringTable);
+                out.writeInt(stringTable.get(section.getKey().name()));
+                out.writeByte(section.getValue());
+                out.writeInt(body.length);
+                out.write(body);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to write index file: " + indexFile.getAbsolutePath(), e);
+            tmpFile.delete();
+            return false;
+        }
+
+        try {
+            Files.move(tmpFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Failed to write index file: " + indexFile.getAbsolutePath(), e);
+            tmpFile.delete();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Delete the sidecar file
+     *
+     * @return boolean true if the sidecar was deleted
+     */
+    public boolean delete() {
+        return indexFile.delete();
+    }
+
+    private static Object readSection(byte shape, ByteBuffer section, MappedStrings strings) throws IOException, ClassNotFoundException {
+        switch (shape) {
+            case STRING_LIST:
+            case TUPLE_LIST:
+                return new MappedList(section, strings, shape == TUPLE_LIST);
+            case STRING_TO_STRING_LIST_MAP:
+            case STRING_TO_TUPLE_MAP:
+            case TUPLE_TO_STRING_MAP:
+            case TUPLE_TO_TUPLE_LIST_MAP:
+                return new MappedMap(section, strings, shape);
+            case SPECTRUM_ID_SET: {
+                int size = section.getInt();
+                List<Comparable> spectraDataIds = new ArrayList<Comparable>(size);
+                for (int i = 0; i < size; i++) {
+                    spectraDataIds.add(strings.get(section.getInt()));
+                }
+                long[] keys = new long[section.getInt()];
+                section.asLongBuffer().get(keys);
+                return new SpectrumIdSet(spectraDataIds, keys);
+            }
+            case SERIALIZED_MAP: {
+                byte[] bytes = new byte[section.remaining()];
+                section.get(bytes);
+                try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    return in.readObject();
+                }
+            }
+            default:
+                throw new IllegalStateException("Unknown section type: " + shape);
+        }
+    }
+
+    /**
+     * Write the body of a section. A map section is its size, the size of its hash table, the hash table with
+     * the position of the entry in each slot, then the entries.
+     */
+    private static byte[] writeSection(byte shape, Object content, Map<String, Integer> stringTable) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(body);
+        switch (shape) {
+            case STRING_LIST:
+            case TUPLE_LIST: {
+                Collection<?> collection = (Collection<?>) content;
+                out.writeInt(collection.size());
+                for (Object element : collection) {
+                    writeElement(out, element, stringTable);
+                }
+                break;
+            }
+            case SPECTRUM_ID_SET: {
+                SpectrumIdSet spectrumIdSet = (SpectrumIdSet) content;
+                List<Comparable> spectraDataIds = spectrumIdSet.getSpectraDataIds();
+                long[] keys = spectrumIdSet.getKeys();
+                out.writeInt(spectraDataIds.size());
+                for (Comparable spectraDataId : spectraDataIds) {
+                    writeElement(out, spectraDataId, stringTable);
+                }
+                out.writeInt(keys.length);
+                for (long key : keys) {
+                    out.writeLong(key);
+                }
+                break;
+            }
+            case SERIALIZED_MAP: {
+                try (ObjectOutputStream objectOut = new ObjectOutputStream(body)) {
+                    objectOut.writeObject(new HashMap<Object, Object>((Map<?, ?>) content));
+                }
+                break;
+            }
+            default: {
+                Map<?, ?> map = (Map<?, ?>) content;
+                int tableSize = MappedMap.tableSize(map.size());
+                int entriesStart = 8 + 4 * tableSize;
+
+                ByteArrayOutputStream entries = new ByteArrayOutputStream();
+                DataOutputStream entriesOut = new DataOutputStream(entries);
+                int[] slots = new int[tableSize];
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    int slot = MappedMap.hash(entry.getKey()) & (tableSize - 1);
+                    while (slots[slot] != 0) {
+                        slot = (slot + 1) & (tableSize - 1);
+                    }
+                    slots[slot] = entriesStart + entriesOut.size();
+
+                    writeElement(entriesOut, entry.getKey(), stringTable);
+                    if (shape == STRING_TO_STRING_LIST_MAP || shape == TUPLE_TO_TUPLE_LIST_MAP) {
+                        Collection<?> values = (Collection<?>) entry.getValue();
+                        entriesOut.writeInt(values == null ? NULL_REFERENCE : values.size());
+                        if (values != null) {
+                            for (Object value : values) {
+                                writeElement(entriesOut, value, stringTable);
+                            }
+                        }
+                    } else {
+                        writeElement(entriesOut, entry.getValue(), stringTable);
+                    }
+                }
+
+                out.writeInt(map.size());
+                out.writeInt(tableSize);
+                for (int slot : slots) {
+                    out.writeInt(slot);
+                }
+                entriesOut.flush();
+                entries.writeTo(out);
+            }
+        }
+        out.flush();
+        return body.toByteArray();
+    }
+
+    private static void writeElement(DataOutputStream out, Object element, Map<String, Integer> stringTable) throws IOException {
+        if (element instanceof Tuple) {
+            writeElement(out, ((Tuple) element).getKey(), stringTable);
+            writeElement(out, ((Tuple) element).getValue(), stringTable);
+        } else {
+            out.writeInt(element == null ? NULL_REFERENCE : stringTable.get(element.toString()));
+        }
+    }
+
+    /**
+     * Add all the strings of a supported content to the string table
+     */
+    private static void internAll(Map<String, Integer> stringTable, Object content) {
+        if (content instanceof Collection) {
+            for (Object element : (Collection<?>) content) {
+                intern(stringTable, element);
+            }
+        } else if (content instanceof SpectrumIdSet) {
+            for (Comparable spectraDataId : ((SpectrumIdSet) content).getSpectraDataIds()) {
+                intern(stringTable, spectraDataId);
+            }
+        } else {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) content).entrySet()) {
+                intern(stringTable, entry.getKey());
+                if (entry.getValue() instanceof Collection) {
+                    for (Object value : (Collection<?>) entry.getValue()) {
+                        intern(stringTable, value);
+                    }
+                } else {
+                    intern(stringTable, entry.getValue());
+                }
+            }
+        }
+    }
+
+    private static void intern(Map<String, Integer> stringTable, Object element) {
+        if (element instanceof Tuple) {
+            intern(stringTable, ((Tuple) element).getKey());
+            intern(stringTable, ((Tuple) element).getValue());
+        } else if (element != null && !stringTable.containsKey(element.toString())) {
+            stringTable.put(element.toString(), stringTable.size());
+        }
+    }
+
+    /**
+     * Find the section type of a cache content, checking all its elements
+     *
+     * @return Byte section type, null if the content is empty or not supported
+     */
+    private static Byte getShape(Object content) {
+        if (content instanceof Collection) {
+            Collection<?> collection = (Collection<?>) content;
+            if (collection.isEmpty()) {
+                return null;
+            } else if (allMatch(collection, false)) {
+                return STRING_LIST;
+            } else if (allMatch(collection, true)) {
+                return TUPLE_LIST;
+            }
+        } else if (content instanceof Map && !((Map) content).isEmpty()) {
+            Map<?, ?> map = (Map<?, ?>) content;
+            if (allMatch(map.keySet(), false)) {
+                if (allListsMatch(map.values(), false)) {
+                    return STRING_TO_STRING_LIST_MAP;
+                } else if (allMatch(map.values(), true)) {
+                    return STRING_TO_TUPLE_MAP;
+                } else if (allSerializable(map.values())) {
+                    return SERIALIZED_MAP;
+                }
+            } else if (allMatch(map.keySet(), true)) {
+                if (allMatch(map.values(), false)) {
+                    return TUPLE_TO_STRING_MAP;
+                } else if (allListsMatch(map.values(), true)) {
+                    return TUPLE_TO_TUPLE_LIST_MAP;
+                }
+            }
+        } else if (content instanceof SpectrumIdSet && !((SpectrumIdSet) content).isEmpty()) {
+            if (allMatch(((SpectrumIdSet) content).getSpectraDataIds(), false)) {
+                return SPECTRUM_ID_SET;
+            }
+        }
+        return null;
+    }
+
+    private static boolean allMatch(Collection<?> collection, boolean tuples) {
+        for (Object element : collection) {
+            if (tuples) {
+                if (!(element instanceof Tuple) || !isString(((Tuple) element).getKey()) || !isString(((Tuple) element).getValue())) {
+                    return false;
+                }
+            } else if (!isString(element)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return boolean true if every value is a list of strings, or of string tuples, lists of tuples can be null
+     */
+    private static boolean allListsMatch(Collection<?> values, boolean tuples) {
+        for (Object value : values) {
+            if (!(value instanceof Collection ? allMatch((Collection<?>) value, tuples) : value == null && tuples)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean allSerializable(Collection<?> values) {
+        for (Object value : values) {
+            if (!(value instanceof MassSpecObject)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isString(Object element) {
+        return element == null || element instanceof String;
+    }
+
+    /**
+     * MD5 of the variant, the length, the first and the last megabyte of the data file
+     */
+    private byte[] computeHash() throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("MD5 is not available", e);
+        }
+
+        if (variant != null) {
+            digest.update(variant.getBytes(StandardCharsets.UTF_8));
+        }
+
+        try (FileChannel channel = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            digest.update(ByteBuffer.allocate(8).putLong(0, size));
+
+            ByteBuffer sample = ByteBuffer.allocate((int) Math.min(HASH_SAMPLE_SIZE, size));
+            readFully(channel, sample, 0);
+            digest.update(sample);
+
+            if (size > HASH_SAMPLE_SIZE) {
+                sample.clear();
+                readFully(channel, sample, Math.max(HASH_SAMPLE_SIZE, size - HASH_SAMPLE_SIZE));
+                digest.update(sample);
+            }
+        }
+        return digest.digest();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+        }
+        buffer.flip();
+    }
+
+    /**
+     * The string table of a mapped sidecar: the number of strings, the position of the sections, the position
+     * of each string, then the strings, each one is its length and its UTF-8 bytes. Only absolute reads are
+     * used, so it can be read by several threads.
+     */
+    private static class MappedStrings {
+
+        private final ByteBuffer buffer;
+
+        private final int positions;
+
+        private MappedStrings(ByteBuffer buffer, int start) {
+            this.buffer = buffer;
+            this.positions = start + 8;
+        }
+
+        private String get(int reference) {
+            if (reference == NULL_REFERENCE) {
+                return null;
+            }
+            int position = buffer.getInt(positions + 4 * reference);
+            byte[] bytes = new byte[buffer.getInt(position)];
+            ByteBuffer string = buffer.duplicate();
+            string.position(position + 4);
+            string.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Compare a string of the table with the UTF-8 bytes of a string, without decoding it
+         */
+        private boolean matches(int reference, byte[] bytes) {
+            if (reference == NULL_REFERENCE || bytes == null) {
+                return reference == NULL_REFERENCE && bytes == null;
+            }
+            int position = buffer.getInt(positions + 4 * reference);
+            if (buffer.getInt(position) != bytes.length) {
+                return false;
+            }
+            for (int i = 0; i < bytes.length; i++) {
+                if (buffer.get(position + 4 + i) != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Read-only list of strings, or string tuples, of a mapped section: the size, then the string references
+     */
+    private static class MappedList extends AbstractList<Object> implements RandomAccess {
+
+        private final ByteBuffer section;
+
+        private final MappedStrings strings;
+
+        private final boolean tuples;
+
+        private final int size;
+
+        private MappedList(ByteBuffer section, MappedStrings strings, boolean tuples) {
+            this.section = section;
+            this.strings = strings;
+            this.tuples = tuples;
+            this.size = section.getInt(0);
+        }
+
+        @Override
+        public Object get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+            }
+            if (tuples) {
+                int position = 4 + 8 * index;
+                return new Tuple<String, String>(strings.get(section.getInt(position)), strings.get(section.getInt(position + 4)));
+            }
+            return strings.get(section.getInt(4 + 4 * index));
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Read-only map of a mapped section, keyed by strings or string tuples. A lookup hashes the key, then
+     * compares the bytes of the keys of the entries of the slot, the entries are decoded when they are read.
+     */
+    private static class MappedMap extends AbstractMap<Object, Object> {
+
+        private final ByteBuffer section;
+
+        private final MappedStrings strings;
+
+        private final boolean tupleKeys;
+
+        private final boolean listValues;
+
+        private final boolean tupleValues;
+
+        private final int size;
+
+        private final int tableSize;
+
+        private Set<Entry<Object, Object>> entrySet;
+
+        private MappedMap(ByteBuffer section, MappedStrings strings, byte shape) {
+            this.section = section;
+            this.strings = strings;
+            this.tupleKeys = shape == TUPLE_TO_STRING_MAP || shape == TUPLE_TO_TUPLE_LIST_MAP;
+            this.listValues = shape == STRING_TO_STRING_LIST_MAP || shape == TUPLE_TO_TUPLE_LIST_MAP;
+            this.tupleValues = shape == STRING_TO_TUPLE_MAP || shape == TUPLE_TO_TUPLE_LIST_MAP;
+            this.size = section.getInt(0);
+            this.tableSize = section.getInt(4);
+        }
+
+        /**
+         * @return int number of slots of the hash table of a map, a power of two at least twice its size
+         */
+        private static int tableSize(int size) {
+            return Integer.highestOneBit(Math.max(1, size) * 2 - 1) << 1;
+        }
+
+        /**
+         * Hash of a string or a string tuple, from String.hashCode which does not change between JVMs
+         */
+        private static int hash(Object key) {
+            int hash;
+            if (key instanceof Tuple) {
+                Object first = ((Tuple) key).getKey();
+                Object second = ((Tuple) key).getValue();
+                hash = 31 * (first == null ? 0 : first.hashCode()) + (second == null ? 0 : second.hashCode());
+            } else {
+                hash = key == null ? 0 : key.hashCode();
+            }
+            return hash ^ (hash >>> 16);
+        }
+
+        @Override
+        public Object get(Object key) {
+            int entry = find(key);
+            return entry < 0 ? null : readValue(entry + (tupleKeys ? 8 : 4));
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return find(key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Set<Entry<Object, Object>> entrySet() {
+            if (entrySet == null) {
+                entrySet = new AbstractSet<Entry<Object, Object>>() {
+                    @Override
+                    public Iterator<Entry<Object, Object>> iterator() {
+                        return new Iterator<Entry<Object, Object>>() {
+                            private int position = 8 + 4 * tableSize;
+
+                            private int remaining = size;
+
+                            @Override
+                            public boolean hasNext() {
+                                return remaining > 0;
+                            }
+
+                            @Override
+                            public Entry<Object, Object> next() {
+                                if (remaining == 0) {
+                                    throw new NoSuchElementException();
+                                }
+                                Object key = tupleKeys ? readTuple(position) : strings.get(section.getInt(position));
+                                int valuePosition = position + (tupleKeys ? 8 : 4);
+                                Object value = readValue(valuePosition);
+                                position = valuePosition + valueLength(valuePosition);
+                                remaining--;
+                                return new SimpleImmutableEntry<Object, Object>(key, value);
+                            }
+
+                            @Override
+                            public void remove() {
+                                throw new UnsupportedOperationException("The index file is read-only");
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return size;
+                    }
+                };
+            }
+            return entrySet;
+        }
+
+        /**
+         * @return int position of the entry of a key, -1 if the key is not in the map
+         */
+        private int find(Object key) {
+            byte[] first;
+            byte[] second = null;
+            if (tupleKeys) {
+                if (!(key instanceof Tuple) || !isString(((Tuple) key).getKey()) || !isString(((Tuple) key).getValue())) {
+                    return -1;
+                }
+                first = encode(((Tuple) key).getKey());
+                second = encode(((Tuple) key).getValue());
+            } else if (isString(key)) {
+                first = encode(key);
+            } else {
+                return -1;
+            }
+
+            int slot = hash(key) & (tableSize - 1);
+            int entry;
+            while ((entry = section.getInt(8 + 4 * slot)) != 0) {
+                if (strings.matches(section.getInt(entry), first)
+                        && (!tupleKeys || strings.matches(section.getInt(entry + 4), second))) {
+                    return entry;
+                }
+                slot = (slot + 1) & (tableSize - 1);
+            }
+            return -1;
+        }
+
+        private Object readValue(int position) {
+            if (!listValues) {
+                return tupleValues ? readTuple(position) : strings.get(section.getInt(position));
+            }
+
+            int length = section.getInt(position);
+            if (length == NULL_REFERENCE) {
+                return null;
+            }
+            List<Object> values = new ArrayList<Object>(length);
+            for (int i = 0; i < length; i++) {
+                values.add(tupleValues ? readTuple(position + 4 + 8 * i) : strings.get(section.getInt(position + 4 + 4 * i)));
+            }
+            return values;
+        }
+
+        private int valueLength(int position) {
+            if (!listValues) {
+                return tupleValues ? 8 : 4;
+            }
+            int length = section.getInt(position);
+            return 4 + (length == NULL_REFERENCE ? 0 : length * (tupleValues ? 8 : 4));
+        }
+
+        private Tuple<String, String> readTuple(int position) {
+            return new Tuple<String, String>(strings.get(section.getInt(position)), strings.get(section.getInt(position + 4)));
+        }
+
+        private static byte[] encode(Object value) {
+            return value == null ? null : value.toString().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package uk.ac.ebi.pride.utilities.data.controller.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CacheStatistics keeps the hit, miss and eviction counters of one cache category.
+ * <p/>
+ * All the counters can be updated concurrently without locking.
+ * <p/>
+ * @author Rui Wang
+ * @author Yasset Perez-Riverol
+ */
+public class CacheStatistics {
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    void recordHit() {
+        hitCount.increment();
+    }
+
+    void recordMiss() {
+        missCount.increment();
+    }
+
+    void recordEviction() {
+        evictionCount.increment();
+    }
+
+    /**
+     * Get the number of lookups which found a value
+     *
+     * @return long number of hits
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Get the number of lookups which did not find a value
+     *
+     * @return long number of misses
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Get the number of entries removed to keep the cache within its bounds
+     *
+     * @return long number of evictions
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * Get the ratio of hits over all the lookups, 1.0 if there was no lookup.
+     *
+     * @return double hit rate
+     */
+    public double getHitRate() {
+        long hits = getHitCount();
+        long total = hits + getMissCount();
+        return total == 0 ? 1.0 : (double) hits / total;
+    }
+
+    /**
+     * Reset all the counters
+     */
+    public void reset() {
+        hitCount.reset();
+        missCount.reset();
+        evictionCount.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStatistics{" +
+                "hitCount=" + getHitCount() +
+                ", missCount=" + getMissCount() +
+                ", evictionCount=" + getEvictionCount() +
+                '}';
+    }
+}
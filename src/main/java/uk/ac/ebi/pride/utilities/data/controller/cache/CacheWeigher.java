@@ -0,0 +1,20 @@
+package uk.ac.ebi.pride.utilities.data.controller.cache;
+
+/**
+ * CacheWeigher computes the weight of a cached entry, it is used by the cache
+ * categories bounded by a total weight instead of a number of entries.
+ * <p/>
+ * @author Rui Wang
+ * @author Yasset Perez-Riverol
+ */
+public interface CacheWeigher {
+
+    /**
+     * Get the weight of a cached entry, it must not change while the entry is cached.
+     *
+     * @param key   key
+     * @param value value
+     * @return long weight, must not be negative
+     */
+    long weigh(Object key, Object value);
+}
@@ -0,0 +1,519 @@
+package uk.ac.ebi.pride.utilities.data.controller.cache;
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.ebi.pride.utilities.data.utils.IndexedList;
+import uk.ac.ebi.pride.utilities.util.Tuple;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * ConcurrentCacheAccessor is a thread safe implementation of cache, meant to be shared
+ * by several threads reading from the same data access controller.
+ * <p/>
+ * Unlike CacheAccessor, there is no global lock:
+ * <p/>
+ * 1. bounded categories (CachedMap in CacheEntry) are stored in lock-striped LRU maps.
+ * 2. unbounded map categories are stored in ConcurrentHashMap, the compact id tables keep their own type.
+ * 3. set categories are stored in concurrent key sets, list categories keep their order in synchronized lists.
+ * <p/>
+ * The size bound of each category defaults to CacheEntry, and can be changed using setMaximumSize before
+ * the category is first populated. Alternatively, a bounded category can be given a memory budget in bytes
+ * using setMaximumWeight, its entries are then weighted using HeapSizeEstimator (or the CacheWeigher given
+ * to the constructor) and evicted by total weight. Hits, misses and evictions are counted per category.
+ * <p/>
+ * Note: ConcurrentHashMap does not accept null, storing a null value removes the key,
+ * a lookup returns null in both cases.
+ * <p/>
+ * @author Rui Wang
+ * @author Yasset Perez-Riverol
+ */
+public class ConcurrentCacheAccessor implements Cache {
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrentCacheAccessor.class);
+
+    /**
+     * All data are stored in here.
+     */
+    private final ConcurrentMap<CacheEntry, Object> contents;
+
+    /**
+     * Maximum sizes which override the default sizes in CacheEntry
+     */
+    private final ConcurrentMap<CacheEntry, Integer> maximumSizes;
+
+    /**
+     * Memory budgets, in bytes, of the categories bounded by weight
+     */
+    private final ConcurrentMap<CacheEntry, Long> maximumWeights;
+
+    /**
+     * Computes the weight of the entries of the categories bounded by weight
+     */
+    private final CacheWeigher weigher;
+
+    /**
+     * Hit, miss and eviction counters, one per cache category
+     */
+    private final Map<CacheEntry, CacheStatistics> statistics;
+
+    /**
+     * Number of lock stripes used by the bounded categories
+     */
+    private final int concurrencyLevel;
+
+    /**
+     * ConcurrentCacheAccessor constructor
+     */
+    public ConcurrentCacheAccessor() {
+        this(ConcurrentCachedMap.DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * ConcurrentCacheAccessor constructor
+     *
+     * @param concurrencyLevel expected number of threads updating the bounded categories at the same time
+     */
+    public ConcurrentCacheAccessor(int concurrencyLevel) {
+        this(concurrencyLevel, new HeapSizeEstimator());
+    }
+
+    /**
+     * ConcurrentCacheAccessor constructor
+     *
+     * @param concurrencyLevel expected number of threads updating the bounded categories at the same time
+     * @param weigher          computes the weight of the entries of the categories bounded by weight
+     */
+    public ConcurrentCacheAccessor(int concurrencyLevel, CacheWeigher weigher) {
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("Concurrency level must be positive");
+        }
+
+        if (weigher == null) {
+            throw new IllegalArgumentException("Weigher cannot be null");
+        }
+
+        this.concurrencyLevel = concurrencyLevel;
+        this.weigher = weigher;
+        this.contents = new ConcurrentHashMap<CacheEntry, Object>();
+        this.maximumSizes = new ConcurrentHashMap<CacheEntry, Integer>();
+        this.maximumWeights = new ConcurrentHashMap<CacheEntry, Long>();
+
+        // the map is never modified after construction, safe to read from any thread
+        Map<CacheEntry, CacheStatistics> stats = new EnumMap<CacheEntry, CacheStatistics>(CacheEntry.class);
+        for (CacheEntry type : CacheEntry.values()) {
+            stats.put(type, new CacheStatistics());
+        }
+        this.statistics = Collections.unmodifiableMap(stats);
+    }
+
+    /**
+     * Set the maximum number of entries of a bounded cache category.
+     * It only takes effect if the category has not been created yet, i.e. before populating the cache,
+     * or after clearing the category.
+     *
+     * @param type    cache category, must be a bounded category
+     * @param maxSize maximum number of entries
+     */
+    public void setMaximumSize(CacheEntry type, int maxSize) {
+        if (!isBounded(type)) {
+            String errMsg = "Cache category is not bounded: " + type;
+
+            logger.error(errMsg);
+
+            throw new IllegalArgumentException(errMsg);
+        }
+
+        if (maxSize <= 0) {
+            String errMsg = "Maximum size must be positive: " + maxSize;
+
+            logger.error(errMsg);
+
+            throw new IllegalArgumentException(errMsg);
+        }
+
+        maximumSizes.put(type, maxSize);
+        maximumWeights.remove(type);
+    }
+
+    /**
+     * Bound a cache category by the total weight of its entries instead of their number,
+     * e.g. set a memory budget of 256MB for SPECTRUM. It only takes effect if the category has not
+     * been created yet, i.e. before populating the cache, or after clearing the category.
+     *
+     * @param type      cache category, must be a bounded category
+     * @param maxWeight maximum total weight, in bytes when using HeapSizeEstimator
+     */
+    public void setMaximumWeight(CacheEntry type, long maxWeight) {
+        if (!isBounded(type)) {
+            String errMsg = "Cache category is not bounded: " + type;
+
+            logger.error(errMsg);
+
+            throw new IllegalArgumentException(errMsg);
+        }
+
+        if (maxWeight <= 0) {
+            String errMsg = "Maximum weight must be positive: " + maxWeight;
+
+            logger.error(errMsg);
+
+            throw new IllegalArgumentException(errMsg);
+        }
+
+        maximumWeights.put(type, maxWeight);
+        maximumSizes.remove(type);
+    }
+
+    /**
+     * Get the maximum total weight of a cache category
+     *
+     * @param type cache category
+     * @return Long maximum weight, null if the category is not bounded by weight
+     */
+    public Long getMaximumWeight(CacheEntry type) {
+        return maximumWeights.get(type);
+    }
+
+    /**
+     * Get the current total weight of a cache category bounded by weight,
+     * or the number of entries of a category bounded by size.
+     *
+     * @param type cache category
+     * @return long current weight, 0 if the category is not bounded or does not exist
+     */
+    public long getWeight(CacheEntry type) {
+        Object content = contents.get(type);
+        return content instanceof ConcurrentCachedMap ? ((ConcurrentCachedMap) content).getWeight() : 0;
+    }
+
+    /**
+     * Get the maximum number of entries of a bounded cache category
+     *
+     * @param type cache category
+     * @return Integer maximum size, null if the category is not bounded
+     */
+    public Integer getMaximumSize(CacheEntry type) {
+        Integer size = maximumSizes.get(type);
+        return size == null ? type.getSize() : size;
+    }
+
+    /**
+     * Get the hit, miss and eviction counters of a cache category
+     *
+     * @param type cache category
+     * @return CacheStatistics statistics
+     */
+    public CacheStatistics getStatistics(CacheEntry type) {
+        return statistics.get(type);
+    }
+
+    /**
+     * Store key into cache, type should be a collection type.
+     *
+     * @param type cache type
+     * @param key  key
+     */
+    @Override
+    public void store(CacheEntry type, Object key) {
+        store(type, key, null);
+    }
+
+    /**
+     * Store a key-value pair into cache, type should be a map type.
+     *
+     * @param type  cache type
+     * @param key   key
+     * @param value value
+     */
+    @Override
+    @SuppressWarnings(value = "unchecked")
+    public void store(CacheEntry type, Object key, Object value) {
+        Object content = createIfNotExist(type);
+
+        // put into a map if underlying data structure is map
+        if (content instanceof Map) {
+
+            // must do this check here
+            if (key == null) {
+                String errMsg = "Key and value cannot be null (key: " + null + ", value: " + value + ")";
+
+                logger.error(errMsg);
+
+                throw new IllegalArgumentException(errMsg);
+            }
+
+            putValue((Map) content, key, value);
+        } else if (content instanceof SpectrumIdSet) {
+            if (key instanceof SpectrumIdSet) {
+                ((SpectrumIdSet) content).addAll((SpectrumIdSet) key);
+            } else {
+                ((SpectrumIdSet) content).add((Tuple) key);
+            }
+        } else if (content instanceof Collection) {
+            addElement((Collection) content, key);
+        } else {
+            String errMsg = "Cannot store key-value pair to a data structure other than map";
+
+            logger.error(errMsg);
+
+            throw new IllegalArgumentException(errMsg);
+        }
+    }
+
+    /**
+     * Store a map of values
+     *
+     * @param type   cache type
+     * @param values a map of values
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void storeInBatch(CacheEntry type, Map values) {
+        if (values == null) {
+            String errMsg = "Map values cannot be null";
+
+            logger.error(errMsg);
+
+            throw new IllegalArgumentException(errMsg);
+        }
+
+        if (!values.isEmpty()) {
+            Object content = createIfNotExist(type);
+
+            if (content instanceof Map) {
+                for (Object entry : values.entrySet()) {
+                    Map.Entry mapEntry = (Map.Entry) entry;
+                    if (mapEntry.getKey() != null) {
+                        putValue((Map) content, mapEntry.getKey(), mapEntry.getValue());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Store a collection of values
+     *
+     * @param type   cache category
+     * @param values a collection of data
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void storeInBatch(CacheEntry type, Collection values) {
+        if (values == null) {
+            String errMsg = "Collection values cannot be null";
+
+            logger.error(errMsg);
+
+            throw new IllegalArgumentException(errMsg);
+        }
+
+        if (!values.isEmpty()) {
+            Object content = createIfNotExist(type);
+
+            if (content instanceof SpectrumIdSet) {
+                for (Object value : values) {
+                    ((SpectrumIdSet) content).add((Tuple) value);
+                }
+            } else if (content instanceof Set) {
+                for (Object value : values) {
+                    addElement((Collection) content, value);
+                }
+            } else if (content instanceof Collection) {
+                ((Collection) content).addAll(values);
+            }
+        }
+    }
+
+    /**
+     * Get the stored data using a key.
+     *
+     * @param type cache category
+     * @param key  key
+     * @return Object data
+     */
+    @Override
+    public Object get(CacheEntry type, Object key) {
+        return retrieveContent(type, key);
+    }
+
+    /**
+     * Get a collection of values using a collection of keys.
+     * Note: keys with no matching value will automatically be ignored.
+     *
+     * @param type cache category
+     * @param keys keys
+     * @return Collection   value collection
+     */
+    @Override
+    public Collection getInBatch(CacheEntry type, Collection keys) {
+        Collection<Object> results = new ArrayList<Object>();
+
+        for (Object key : keys) {
+            Object val = retrieveContent(type, key);
+
+            if (val != null) {
+                results.add(val);
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Get the stored data set using a type.
+     *
+     * @param type cache category
+     * @return Object   data
+     */
+    @Override
+    public Object get(CacheEntry type) {
+        return retrieveContent(type, null);
+    }
+
+    /**
+     * Check the cachecategory availability
+     *
+     * @param type CacheCategory
+     * @return boolean  true if exists.
+     */
+    @Override
+    public boolean hasCacheEntry(CacheEntry type) {
+        return contents.containsKey(type);
+    }
+
+    /**
+     * Use the content as the data of a cache category, it is not copied
+     *
+     * @param type    cache category
+     * @param content a map, a collection or a SpectrumIdSet
+     */
+    @Override
+    public void restore(CacheEntry type, Object content) {
+        if (content == null) {
+            throw new IllegalArgumentException("Content cannot be null");
+        }
+        contents.put(type, content);
+    }
+
+    /**
+     * Clear a cache category
+     *
+     * @param type cache category
+     */
+    @Override
+    public void clear(CacheEntry type) {
+        contents.remove(type);
+    }
+
+    /**
+     * Clear all cache
+     */
+    @Override
+    public void clear() {
+        contents.clear();
+    }
+
+    private static boolean isBounded(CacheEntry type) {
+        return CachedMap.class.isAssignableFrom(type.getDataStructType()) && type.getSize() != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void putValue(Map content, Object key, Object value) {
+        if (value == null && content instanceof ConcurrentMap) {
+            content.remove(key);
+        } else {
+            content.put(key, value);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addElement(Collection content, Object element) {
+        if (element != null || !(content instanceof Set)) {
+            content.add(element);
+        }
+    }
+
+    private Object createIfNotExist(CacheEntry type) {
+        Object content = contents.get(type);
+
+        if (content == null) {
+            // only one thread creates the data structure of a category
+            content = contents.computeIfAbsent(type, this::createContent);
+        }
+
+        return content;
+    }
+
+    private Object createContent(CacheEntry type) {
+        Class className = type.getDataStructType();
+        Integer size = getMaximumSize(type);
+
+        Long maxWeight = maximumWeights.get(type);
+
+        if (isBounded(type) && maxWeight != null) {
+            return new ConcurrentCachedMap<Object, Object>(maxWeight, weigher, concurrencyLevel, statistics.get(type));
+        } else if (isBounded(type)) {
+            return new ConcurrentCachedMap<Object, Object>(size, concurrencyLevel, statistics.get(type));
+        } else if (PeptideToSpectrumMap.class.isAssignableFrom(className)) {
+            return new PeptideToSpectrumMap();
+        } else if (SpectraDataToSpectrumIdsMap.class.isAssignableFrom(className)) {
+            return new SpectraDataToSpectrumIdsMap();
+        } else if (SpectrumToPeptidesMap.class.isAssignableFrom(className)) {
+            return new SpectrumToPeptidesMap();
+        } else if (Map.class.isAssignableFrom(className)) {
+            return new ConcurrentHashMap<Object, Object>();
+        } else if (IndexedList.class.isAssignableFrom(className)) {
+            return new IndexedList<Object>();
+        } else if (SpectrumIdSet.class.isAssignableFrom(className)) {
+            return new SpectrumIdSet();
+        } else if (Set.class.isAssignableFrom(className)) {
+            return ConcurrentHashMap.newKeySet();
+        } else if (Collection.class.isAssignableFrom(className)) {
+            // lists keep the insertion order
+            return Collections.synchronizedList(size == null ? new ArrayList<Object>() : new ArrayList<Object>(size));
+        }
+
+        String errMsg = "Unsupported data structure for caching: " + className;
+
+        logger.error(errMsg);
+
+        throw new IllegalArgumentException(errMsg);
+    }
+
+    private Object retrieveContent(CacheEntry type, Object key) {
+        Object content = contents.get(type);
+
+        if (key == null || content == null) {
+            if (key != null) {
+                statistics.get(type).recordMiss();
+            }
+            return content;
+        }
+
+        if (content instanceof Map) {
+            Object result = ((Map) content).get(key);
+            if (result == null) {
+                statistics.get(type).recordMiss();
+            } else {
+                statistics.get(type).recordHit();
+            }
+            return result;
+        }
+
+        if (content instanceof SpectrumIdSet) {
+            // the key itself when the spectrum is in the set
+            if (((SpectrumIdSet) content).contains(key)) {
+                statistics.get(type).recordHit();
+                return key;
+            }
+            statistics.get(type).recordMiss();
+            return null;
+        }
+
+        return content;
+    }
+}
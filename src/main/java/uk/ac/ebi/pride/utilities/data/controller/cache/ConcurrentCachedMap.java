@@ -0,0 +1,327 @@
+package uk.ac.ebi.pride.utilities.data.controller.cache;
+
+//~--- JDK imports ------------------------------------------------------------
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ConcurrentCachedMap is a thread safe LRU map for caching.
+ * <p/>
+ * The keys are spread over a number of segments, each segment is a small LRU map guarded by its own lock,
+ * so threads working on different keys rarely wait on each other. The least recently used entry is evicted
+ * per segment, the eviction order is therefore an approximation of a global LRU order.
+ * <p/>
+ * Small maps get fewer segments, so that every segment holds at least MIN_ENTRIES_PER_SEGMENT entries and
+ * the eviction stays close to LRU. The bound is split over the segments, their capacities add up to it.
+ * <p/>
+ * The map is bounded either by a number of entries, or by a total weight computed using a CacheWeigher,
+ * e.g. the estimated heap size of the cached objects. The weight is not split: it is counted for the whole map,
+ * and when it exceeds the bound the eldest entries of the segments are evicted in turn. The entry just stored
+ * is never evicted, so the map can exceed its weight by at most that entry.
+ * <p/>
+ * Note: the views returned by entrySet, keySet and values are read-only snapshots.
+ * <p/>
+ * @author Rui Wang
+ * @author Yasset Perez-Riverol
+ */
+public class ConcurrentCachedMap<K, V> extends AbstractMap<K, V> {
+    public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    public static final int MIN_ENTRIES_PER_SEGMENT = 16;
+
+    private final Segment<K, V>[] segments;
+
+    private final int maxCapacity;
+
+    private final long maxWeight;
+
+    private final CacheWeigher weigher;
+
+    private final CacheStatistics statistics;
+
+    /**
+     * total weight of the entries of all the segments
+     */
+    private final AtomicLong weight = new AtomicLong();
+
+    /**
+     * next segment to evict from when the map is too heavy
+     */
+    private final AtomicInteger evictionCursor = new AtomicInteger();
+
+    public ConcurrentCachedMap(int maxCapacity) {
+        this(maxCapacity, DEFAULT_CONCURRENCY_LEVEL, new CacheStatistics());
+    }
+
+    /**
+     * Create a map bounded by a number of entries
+     *
+     * @param maxCapacity      maximum number of entries
+     * @param concurrencyLevel number of segments
+     * @param statistics       eviction counter
+     */
+    public ConcurrentCachedMap(int maxCapacity, int concurrencyLevel, CacheStatistics statistics) {
+        this(maxCapacity, Long.MAX_VALUE, null,
+                Math.max(1, Math.min(concurrencyLevel, maxCapacity / MIN_ENTRIES_PER_SEGMENT)), statistics);
+    }
+
+    /**
+     * Create a map bounded by the total weight of its entries
+     *
+     * @param maxWeight        maximum total weight
+     * @param weigher          computes the weight of each entry
+     * @param concurrencyLevel number of segments
+     * @param statistics       eviction counter
+     */
+    public ConcurrentCachedMap(long maxWeight, CacheWeigher weigher, int concurrencyLevel, CacheStatistics statistics) {
+        this(Integer.MAX_VALUE, maxWeight, weigher, concurrencyLevel, statistics);
+
+        if (weigher == null) {
+            throw new IllegalArgumentException("Weigher cannot be null");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ConcurrentCachedMap(int maxCapacity, long maxWeight, CacheWeigher weigher,
+                                int numberOfSegments, CacheStatistics statistics) {
+        if (maxCapacity <= 0 || maxWeight <= 0 || numberOfSegments <= 0) {
+            throw new IllegalArgumentException("Capacity, weight and concurrency level must be positive");
+        }
+
+        this.maxCapacity = maxCapacity;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.statistics = statistics;
+
+        // split the capacity so that the capacities of the segments add up to it,
+        // the first segments take the remainder, the weight is bounded for the whole map
+        this.segments = new Segment[numberOfSegments];
+        for (int i = 0; i < numberOfSegments; i++) {
+            int segmentCapacity = maxCapacity == Integer.MAX_VALUE ?
+                    Integer.MAX_VALUE : maxCapacity / numberOfSegments + (i < maxCapacity % numberOfSegments ? 1 : 0);
+            segments[i] = new Segment<K, V>(segmentCapacity, weight, statistics);
+        }
+    }
+
+    public int getMaxCapacity() {
+        return maxCapacity;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Get the total weight of the entries, the number of entries if the map is not weighted
+     *
+     * @return long total weight
+     */
+    public long getWeight() {
+        return weigher == null ? size() : weight.get();
+    }
+
+    @Override
+    public V get(Object key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.containsKey(key);
+        }
+    }
+
+    @Override
+    public V put(K key, V value) {
+        // weigh outside of the lock, it may walk a large object graph
+        long weight = weigher == null ? 1 : weigher.weigh(key, value);
+        Segment<K, V> segment = segmentFor(key);
+        V previous;
+        synchronized (segment) {
+            previous = segment.put(key, value, weight);
+        }
+
+        if (this.weight.get() > maxWeight) {
+            evictToMaxWeight(key);
+        }
+        return previous;
+    }
+
+    @Override
+    public V remove(Object key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.remove(key);
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        Map<K, V> snapshot = new LinkedHashMap<K, V>();
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.copyTo(snapshot);
+            }
+        }
+        return Collections.unmodifiableMap(snapshot).entrySet();
+    }
+
+    /**
+     * Evict the eldest entry of each segment in turn until the map is within its weight, one segment lock is held
+     * at a time. It stops when no segment has anything left to evict but the entry just stored.
+     *
+     * @param keep key of the entry just stored
+     */
+    private void evictToMaxWeight(Object keep) {
+        int emptySegments = 0;
+        while (weight.get() > maxWeight && emptySegments < segments.length) {
+            Segment<K, V> segment = segments[(evictionCursor.getAndIncrement() & 0x7fffffff) % segments.length];
+            synchronized (segment) {
+                emptySegments = segment.evictEldest(keep) ? 0 : emptySegments + 1;
+            }
+        }
+    }
+
+    private Segment<K, V> segmentFor(Object key) {
+        int hash = key == null ? 0 : key.hashCode();
+        // spread the higher bits, same as HashMap does
+        hash ^= (hash >>> 16);
+        return segments[(hash & 0x7fffffff) % segments.length];
+    }
+
+    /**
+     * One LRU segment of the map, it must only be accessed while holding its monitor.
+     */
+    private static class Segment<K, V> {
+
+        private final LinkedHashMap<K, Weighted<V>> entries;
+
+        private final int maxCapacity;
+
+        /**
+         * total weight of the map, shared by all its segments
+         */
+        private final AtomicLong totalWeight;
+
+        private final CacheStatistics statistics;
+
+        private Segment(int maxCapacity, AtomicLong totalWeight, CacheStatistics statistics) {
+            // true indicates the access order
+            this.entries = new LinkedHashMap<K, Weighted<V>>(16, .75F, true);
+            this.maxCapacity = maxCapacity;
+            this.totalWeight = totalWeight;
+            this.statistics = statistics;
+        }
+
+        private V get(Object key) {
+            Weighted<V> entry = entries.get(key);
+            return entry == null ? null : entry.value;
+        }
+
+        private boolean containsKey(Object key) {
+            return entries.containsKey(key);
+        }
+
+        private V put(K key, V value, long weight) {
+            Weighted<V> previous = entries.put(key, new Weighted<V>(value, weight));
+            totalWeight.addAndGet(previous == null ? weight : weight - previous.weight);
+
+            // evict the least recently used entries, but never the one just stored
+            Iterator<Weighted<V>> eldest = entries.values().iterator();
+            while (entries.size() > 1 && entries.size() > maxCapacity) {
+                totalWeight.addAndGet(-eldest.next().weight);
+                eldest.remove();
+                statistics.recordEviction();
+            }
+
+            return previous == null ? null : previous.value;
+        }
+
+        /**
+         * Evict the least recently used entry of the segment
+         *
+         * @param keep key of an entry which must not be evicted
+         * @return boolean true if an entry has been evicted
+         */
+        private boolean evictEldest(Object keep) {
+            Iterator<Map.Entry<K, Weighted<V>>> eldest = entries.entrySet().iterator();
+            while (eldest.hasNext()) {
+                Map.Entry<K, Weighted<V>> entry = eldest.next();
+                if (!Objects.equals(entry.getKey(), keep)) {
+                    totalWeight.addAndGet(-entry.getValue().weight);
+                    eldest.remove();
+                    statistics.recordEviction();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private V remove(Object key) {
+            Weighted<V> previous = entries.remove(key);
+            if (previous == null) {
+                return null;
+            }
+            totalWeight.addAndGet(-previous.weight);
+            return previous.value;
+        }
+
+        private int size() {
+            return entries.size();
+        }
+
+        private void clear() {
+            for (Weighted<V> entry : entries.values()) {
+                totalWeight.addAndGet(-entry.weight);
+            }
+            entries.clear();
+        }
+
+        private void copyTo(Map<K, V> map) {
+            for (Map.Entry<K, Weighted<V>> entry : entries.entrySet()) {
+                map.put(entry.getKey(), entry.getValue().value);
+            }
+        }
+    }
+
+    private static class Weighted<V> {
+        private final V value;
+        private final long weight;
+
+        private Weighted(V value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package uk.ac.ebi.pride.utilities.data.controller.cache;
+
+import uk.ac.ebi.pride.utilities.data.core.*;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * HeapSizeEstimator estimates the retained heap size in bytes of the objects stored in the cache:
+ * Spectrum and Chromatogram (binary arrays, precursors, param groups), Protein (database sequence, peptides)
+ * and Peptide (evidence, spectrum identification, fragment ions, attached spectrum).
+ * <p/>
+ * The estimation assumes a 64-bit JVM with compressed references, it is meant to be fast rather than exact.
+ * Other objects are given a fixed weight.
+ * <p/>
+ * @author Rui Wang
+ * @author Yasset Perez-Riverol
+ */
+public class HeapSizeEstimator implements CacheWeigher {
+
+    static final long OBJECT_HEADER = 16;
+
+    static final long REFERENCE = 4;
+
+    static final long ARRAY_HEADER = 16;
+
+    static final long LIST_OVERHEAD = 40;
+
+    /**
+     * Weight given to any object not known by the estimator
+     */
+    static final long DEFAULT_WEIGHT = 64;
+
+    @Override
+    public long weigh(Object key, Object value) {
+        return OBJECT_HEADER + estimate(value);
+    }
+
+    /**
+     * Estimate the retained size of an object
+     *
+     * @param value object
+     * @return long size in bytes
+     */
+    public long estimate(Object value) {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof Spectrum) {
+            return estimateSpectrum((Spectrum) value, true);
+        } else if (value instanceof MzGraph) {
+            return estimateMzGraph((MzGraph) value);
+        } else if (value instanceof Protein) {
+            return estimateProtein((Protein) value);
+        } else if (value instanceof Peptide) {
+            return estimatePeptide((Peptide) value, true);
+        } else if (value instanceof ParamGroup) {
+            return estimateParamGroup((ParamGroup) value);
+        } else if (value instanceof CharSequence) {
+            return estimateString(value.toString());
+        } else if (value instanceof double[]) {
+            return ARRAY_HEADER + 8L * ((double[]) value).length;
+        } else if (value instanceof Collection) {
+            long size = LIST_OVERHEAD;
+            for (Object element : (Collection) value) {
+                size += REFERENCE + estimate(element);
+            }
+            return size;
+        }
+        return DEFAULT_WEIGHT;
+    }
+
+    private long estimateSpectrum(Spectrum spectrum, boolean includePeptides) {
+        long size = estimateMzGraph(spectrum) + 7 * REFERENCE;
+
+        List<Precursor> precursors = spectrum.getPrecursors();
+        if (precursors != null) {
+            size += LIST_OVERHEAD;
+            for (Precursor precursor : precursors) {
+                size += OBJECT_HEADER + 6 * REFERENCE
+                        + estimateParamGroup(precursor.getActivation())
+                        + estimateParamGroup(precursor.getIsolationWindow())
+                        + estimateString(precursor.getExternalSpectrumID())
+                        + estimateParamGroups(precursor.getSelectedIons());
+            }
+        }
+        size += estimateParamGroups(spectrum.getProducts());
+        size += estimateParamGroup(spectrum.getScanList());
+
+        List<Peptide> peptides = spectrum.getPeptide();
+        if (includePeptides && peptides != null) {
+            size += LIST_OVERHEAD;
+            for (Peptide peptide : peptides) {
+                size += REFERENCE + estimatePeptide(peptide, false);
+            }
+        }
+        return size;
+    }
+
+    private long estimateMzGraph(MzGraph mzGraph) {
+        long size = estimateIdentifiableParamGroup(mzGraph) + 4 * REFERENCE + 8;
+
+        List<BinaryDataArray> arrays = mzGraph.getBinaryDataArrays();
+        if (arrays != null) {
+            size += LIST_OVERHEAD;
+            for (BinaryDataArray array : arrays) {
+                size += REFERENCE + estimateParamGroup(array) + 2 * REFERENCE
+                        + ARRAY_HEADER + (array.isCompact() ? 4L : 8L) * array.size();
+            }
+        }
+        return size;
+    }
+
+    private long estimateProtein(Protein protein) {
+        long size = estimateIdentifiableParamGroup(protein) + 8 * REFERENCE + 24;
+
+        DBSequence dbSequence = protein.getDbSequence();
+        if (dbSequence != null) {
+            size += estimateIdentifiableParamGroup(dbSequence) + 5 * REFERENCE + 4
+                    + estimateString(dbSequence.getAccession())
+                    + estimateString(dbSequence.getAccessionVersion())
+                    + estimateString(dbSequence.getSequence())
+                    + estimateString(dbSequence.getSpliceIsoform());
+        }
+
+        List<Peptide> peptides = protein.getPeptides();
+        if (peptides != null) {
+            size += LIST_OVERHEAD;
+            for (Peptide peptide : peptides) {
+                size += REFERENCE + estimatePeptide(peptide, true);
+            }
+        }
+        return size;
+    }
+
+    private long estimatePeptide(Peptide peptide, boolean includeSpectrum) {
+        long size = OBJECT_HEADER + 2 * REFERENCE + 4;
+
+        PeptideEvidence evidence = peptide.getPeptideEvidence();
+        if (evidence != null) {
+            size += estimateIdentifiableParamGroup(evidence) + 8 * REFERENCE + 4
+                    + estimatePeptideSequence(evidence.getPeptideSequence());
+        }
+
+        SpectrumIdentification identification = peptide.getSpectrumIdentification();
+        if (identification != null) {
+            size += estimateIdentifiableParamGroup(identification) + 10 * REFERENCE + 44
+                    + estimateString(identification.getRetentionTime());
+            // the peptide sequence is usually shared with the evidence
+            if (evidence == null || identification.getPeptideSequence() != evidence.getPeptideSequence()) {
+                size += estimatePeptideSequence(identification.getPeptideSequence());
+            }
+            List<FragmentIon> fragmentIons = identification.getFragmentation();
+            if (fragmentIons != null) {
+                size += LIST_OVERHEAD;
+                for (FragmentIon fragmentIon : fragmentIons) {
+                    size += REFERENCE + estimateParamGroup(fragmentIon) + 2 * REFERENCE + 48;
+                }
+            }
+            List<PeptideEvidence> evidences = identification.getPeptideEvidenceList();
+            if (evidences != null) {
+                size += LIST_OVERHEAD + (long) evidences.size() * REFERENCE;
+            }
+            Spectrum spectrum = identification.getSpectrum();
+            if (includeSpectrum && spectrum != null) {
+                size += estimateSpectrum(spectrum, false);
+            }
+        }
+        return size;
+    }
+
+    private long estimatePeptideSequence(PeptideSequence sequence) {
+        if (sequence == null) {
+            return 0;
+        }
+
+        long size = estimateIdentifiableParamGroup(sequence) + 3 * REFERENCE
+                + estimateString(sequence.getSequence());
+
+        List<Modification> modifications = sequence.getModifications();
+        if (modifications != null) {
+            size += LIST_OVERHEAD;
+            for (Modification modification : modifications) {
+                size += REFERENCE + estimateIdentifiableParamGroup(modification) + 6 * REFERENCE + 4
+                        + estimateString(modification.getModDatabase())
+                        + estimateString(modification.getModDatabaseVersion())
+                        + 3 * LIST_OVERHEAD;
+            }
+        }
+        return size;
+    }
+
+    private long estimateIdentifiableParamGroup(IdentifiableParamGroup paramGroup) {
+        long size = estimateParamGroup(paramGroup) + 2 * REFERENCE + estimateString(paramGroup.getName());
+        Comparable id = paramGroup.getId();
+        if (id instanceof String) {
+            size += estimateString((String) id);
+        } else if (id != null) {
+            size += OBJECT_HEADER + 8;
+        }
+        return size;
+    }
+
+    private long estimateParamGroups(List<? extends ParamGroup> paramGroups) {
+        long size = 0;
+        if (paramGroups != null) {
+            size += LIST_OVERHEAD;
+            for (ParamGroup paramGroup : paramGroups) {
+                size += REFERENCE + estimateParamGroup(paramGroup);
+            }
+        }
+        return size;
+    }
+
+    private long estimateParamGroup(ParamGroup paramGroup) {
+        if (paramGroup == null) {
+            return 0;
+        }
+
+        long size = OBJECT_HEADER + 2 * REFERENCE + 2 * LIST_OVERHEAD;
+
+        List<CvParam> cvParams = paramGroup.getCvParams();
+        if (cvParams != null) {
+            for (CvParam cvParam : cvParams) {
+                size += REFERENCE + estimateParameter(cvParam) + 2 * REFERENCE
+                        + estimateString(cvParam.getAccession())
+                        + estimateString(cvParam.getCvLookupID());
+            }
+        }
+
+        List<UserParam> userParams = paramGroup.getUserParams();
+        if (userParams != null) {
+            for (UserParam userParam : userParams) {
+                size += REFERENCE + estimateParameter(userParam) + REFERENCE
+                        + estimateString(userParam.getType());
+            }
+        }
+        return size;
+    }
+
+    private long estimateParameter(Parameter parameter) {
+        return OBJECT_HEADER + 5 * REFERENCE
+                + estimateString(parameter.getName())
+                + estimateString(parameter.getValue())
+                + estimateString(parameter.getUnitAcc())
+                + estimateString(parameter.getUnitName())
+                + estimateString(parameter.getUnitCVLookupID());
+    }
+
+    private static long estimateString(String value) {
+        // String object plus its backing array
+        return value == null ? 0 : 24 + ARRAY_HEADER + 2L * value.length();
+    }
+}
@@ -0,0 +1,97 @@
+package uk.ac.ebi.pride.utilities.data.controller.cache;
+
+import java.util.Arrays;
+
+/**
+ * IdPool interns ids to consecutive int ordinals, so the id tables of the cache can store ints instead of
+ * references to ids and tuples of ids.
+ * <p/>
+ * The ids are kept in an array in the order they were interned, and found using an open addressing
+ * table of ordinals. Null is a valid id. Ids are never removed from a pool.
+ * <p/>
+ * IdPool is not synchronized, it is guarded by the id table which owns it.
+ * <p/>
+ * @author Rui Wang
+ * @author Yasset Perez-Riverol
+ */
+final class IdPool {
+
+    private Object[] ids = new Object[16];
+
+    /**
+     * ordinal plus one of the id in each slot, 0 for an empty slot
+     */
+    private int[] slots = new int[32];
+
+    private int size;
+
+    /**
+     * @param id id
+     * @return int ordinal of the id, the id is added to the pool when it is not in the pool yet
+     */
+    int intern(Object id) {
+        int slot = find(id);
+        if (slots[slot] != 0) {
+            return slots[slot] - 1;
+        }
+
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        ids[size] = id;
+        slots[slot] = ++size;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return size - 1;
+    }
+
+    /**
+     * @param id id
+     * @return int ordinal of the id, -1 if the id is not in the pool
+     */
+    int indexOf(Object id) {
+        return slots[find(id)] - 1;
+    }
+
+    Object get(int ordinal) {
+        return ids[ordinal];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Find the slot of an id, or the empty slot where it would be added
+     */
+    private int find(Object id) {
+        int mask = slots.length - 1;
+        int slot = hash(id) & mask;
+        while (slots[slot] != 0) {
+            Object other = ids[slots[slot] - 1];
+            if (id == null ? other == null : id.equals(other)) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            int slot = hash(ids[ordinal]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = ordinal + 1;
+        }
+    }
+
+    private static int hash(Object id) {
+        int hash = id == null ? 0 : id.hashCode();
+        return (hash ^ (hash >>> 16)) * 0x9E3779B9;
+    }
+}
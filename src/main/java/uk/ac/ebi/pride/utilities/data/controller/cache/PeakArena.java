@@ -0,0 +1,312 @@
+package uk.ac.ebi.pride.utilities.data.controller.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.ebi.pride.utilities.data.controller.DataAccessException;
+import uk.ac.ebi.pride.utilities.data.controller.DataAccessUtilities;
+import uk.ac.ebi.pride.utilities.data.core.*;
+import uk.ac.ebi.pride.utilities.term.CvTermReference;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+/**
+ * PeakArena keeps the peaks of many spectra outside of the java heap, so a whole run can stay resident
+ * without long garbage collection pauses.
+ * <p/>
+ * The peaks are written into large direct (or memory-mapped) buffer segments, the m/z values of a spectrum
+ * followed by its intensities, and an offset/length index is kept per spectrum id. Spectra are read back
+ * as flyweight Spectrum views, whose binary data arrays read the values straight from the segments.
+ * <p/>
+ * A view only carries the id, the index, the ms level and the peaks of the spectrum.
+ * <p/>
+ * @author Rui Wang
+ * @author Yasset Perez-Riverol
+ */
+public class PeakArena implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PeakArena.class);
+
+    /**
+     * default size of a segment, a segment is bigger when a single spectrum does not fit
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private final int segmentSize;
+
+    /**
+     * backing file of the memory-mapped segments, null for direct buffers
+     */
+    private final File file;
+
+    private RandomAccessFile randomAccessFile;
+
+    private final List<ByteBuffer> segments = new ArrayList<ByteBuffer>();
+
+    /**
+     * position of the next free byte in the last segment
+     */
+    private int segmentPosition;
+
+    /**
+     * spectrum id to slot in the index columns
+     */
+    private final Map<Comparable, Integer> slots = new HashMap<Comparable, Integer>();
+
+    private final List<Comparable> spectrumIds = new ArrayList<Comparable>();
+
+    private int[] segmentIndexes = new int[1024];
+
+    private int[] offsets = new int[1024];
+
+    private int[] numberOfPeaks = new int[1024];
+
+    private int[] indexes = new int[1024];
+
+    private int[] msLevels = new int[1024];
+
+    /**
+     * Create an arena of direct buffers
+     */
+    public PeakArena() {
+        this(null, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Create an arena of memory-mapped segments, the file is overwritten and deleted when the arena is closed
+     *
+     * @param file backing file
+     */
+    public PeakArena(File file) {
+        this(file, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param file        backing file, null to use direct buffers
+     * @param segmentSize size of a segment in bytes
+     */
+    public PeakArena(File file, int segmentSize) {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("Segment size must be positive: " + segmentSize);
+        }
+        this.file = file;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Copy the peaks of a spectrum into the arena, replacing any previous peaks of the same spectrum id
+     *
+     * @param spectrum spectrum
+     * @return boolean false if the spectrum has no m/z or intensity array
+     */
+    public synchronized boolean add(Spectrum spectrum) {
+        BinaryDataArray mz = spectrum.getMzBinaryDataArray();
+        BinaryDataArray intensity = spectrum.getIntensityBinaryDataArray();
+        if (mz == null || intensity == null) {
+            return false;
+        }
+
+        int peaks = Math.min(mz.size(), intensity.size());
+        if ((long) peaks * 16 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Spectrum is too large for the arena: " + spectrum.getId());
+        }
+
+        int length = peaks * 16;
+        ByteBuffer segment = reserve(length);
+        DoubleBuffer values = view(segment, segmentPosition, length);
+        for (int i = 0; i < peaks; i++) {
+            values.put(i, mz.get(i));
+            values.put(peaks + i, intensity.get(i));
+        }
+
+        Integer slot = slots.get(spectrum.getId());
+        if (slot == null) {
+            slot = spectrumIds.size();
+            growColumns(slot + 1);
+            slots.put(spectrum.getId(), slot);
+            spectrumIds.add(spectrum.getId());
+        }
+        segmentIndexes[slot] = segments.size() - 1;
+        offsets[slot] = segmentPosition;
+        numberOfPeaks[slot] = peaks;
+        indexes[slot] = spectrum.getIndex();
+        msLevels[slot] = getMsLevel(spectrum);
+        segmentPosition += length;
+
+        return true;
+    }
+
+    /**
+     * Get a flyweight view of a spectrum, its peaks are not copied onto the heap
+     *
+     * @param id spectrum id
+     * @return Spectrum spectrum view, null if the spectrum is not in the arena
+     */
+    public Spectrum getSpectrum(Comparable id) {
+        int segmentIndex;
+        int offset;
+        int peaks;
+        int index;
+        int msLevel;
+        ByteBuffer segment;
+
+        synchronized (this) {
+            Integer slot = slots.get(id);
+            if (slot == null) {
+                return null;
+            }
+            segmentIndex = segmentIndexes[slot];
+            offset = offsets[slot];
+            peaks = numberOfPeaks[slot];
+            index = indexes[slot];
+            msLevel = msLevels[slot];
+            segment = segments.get(segmentIndex);
+        }
+
+        DoubleBuffer values = view(segment, offset, peaks * 16);
+        values.limit(peaks);
+        BinaryDataArray mz = new BinaryDataArray(null, values, createParamGroup(CvTermReference.MZ_ARRAY, null));
+        values.position(peaks).limit(peaks * 2);
+        BinaryDataArray intensity = new BinaryDataArray(null, values, createParamGroup(CvTermReference.INTENSITY_ARRAY, null));
+
+        ParamGroup params = msLevel > 0 ? createParamGroup(CvTermReference.MS_LEVEL, String.valueOf(msLevel)) : null;
+
+        return new Spectrum(params, id, null, index, null, peaks, Arrays.asList(mz, intensity),
+                null, null, null, null, null);
+    }
+
+    /**
+     * @param id spectrum id
+     * @return boolean true if the peaks of the spectrum are in the arena
+     */
+    public synchronized boolean contains(Comparable id) {
+        return slots.containsKey(id);
+    }
+
+    /**
+     * @param id spectrum id
+     * @return int number of peaks, -1 if the spectrum is not in the arena
+     */
+    public synchronized int getNumberOfPeaks(Comparable id) {
+        Integer slot = slots.get(id);
+        return slot == null ? -1 : numberOfPeaks[slot];
+    }
+
+    /**
+     * @return List<Comparable>   spectrum ids, in the order they were added
+     */
+    public synchronized List<Comparable> getSpectrumIds() {
+        return new ArrayList<Comparable>(spectrumIds);
+    }
+
+    public synchronized int size() {
+        return spectrumIds.size();
+    }
+
+    /**
+     * @return long number of bytes reserved outside of the heap
+     */
+    public synchronized long getAllocatedBytes() {
+        long bytes = 0;
+        for (ByteBuffer segment : segments) {
+            bytes += segment.capacity();
+        }
+        return bytes;
+    }
+
+    /**
+     * Release the segments, the views already returned stay readable until they are garbage collected
+     */
+    @Override
+    public synchronized void close() {
+        segments.clear();
+        slots.clear();
+        spectrumIds.clear();
+        segmentPosition = 0;
+
+        if (randomAccessFile != null) {
+            try {
+                randomAccessFile.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close peak arena file: " + file.getAbsolutePath(), e);
+            }
+            randomAccessFile = null;
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Get a segment with enough free space, a new segment is allocated when the last one is full
+     */
+    private ByteBuffer reserve(int length) {
+        if (!segments.isEmpty()) {
+            ByteBuffer last = segments.get(segments.size() - 1);
+            if (last.capacity() - segmentPosition >= length) {
+                return last;
+            }
+        }
+
+        int capacity = Math.max(segmentSize, length);
+        ByteBuffer segment;
+        if (file == null) {
+            segment = ByteBuffer.allocateDirect(capacity);
+        } else {
+            try {
+                if (randomAccessFile == null) {
+                    randomAccessFile = new RandomAccessFile(file, "rw");
+                    randomAccessFile.setLength(0);
+                }
+                FileChannel channel = randomAccessFile.getChannel();
+                segment = channel.map(FileChannel.MapMode.READ_WRITE, channel.size(), capacity);
+            } catch (IOException e) {
+                String msg = "Failed to map peak arena segment: " + file.getAbsolutePath();
+                logger.error(msg, e);
+                throw new DataAccessException(msg, e);
+            }
+        }
+
+        segments.add(segment);
+        segmentPosition = 0;
+        return segment;
+    }
+
+    private void growColumns(int size) {
+        if (size > offsets.length) {
+            int capacity = Math.max(size, offsets.length * 2);
+            segmentIndexes = Arrays.copyOf(segmentIndexes, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            numberOfPeaks = Arrays.copyOf(numberOfPeaks, capacity);
+            indexes = Arrays.copyOf(indexes, capacity);
+            msLevels = Arrays.copyOf(msLevels, capacity);
+        }
+    }
+
+    private static DoubleBuffer view(ByteBuffer segment, int offset, int length) {
+        ByteBuffer buffer = segment.duplicate();
+        buffer.position(offset);
+        buffer.limit(offset + length);
+        return buffer.slice().order(ByteOrder.nativeOrder()).asDoubleBuffer();
+    }
+
+    private static int getMsLevel(Spectrum spectrum) {
+        try {
+            return DataAccessUtilities.getMsLevel(spectrum);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static ParamGroup createParamGroup(CvTermReference cvTerm, String value) {
+        CvParam cvParam = new CvParam(cvTerm.getAccession(), cvTerm.getName(), cvTerm.getCvLabel(), value, null, null, null);
+        return new ParamGroup(cvParam, null);
+    }
+}
@@ -0,0 +1,190 @@
+package uk.ac.ebi.pride.utilities.data.controller.cache;
+
+import uk.ac.ebi.pride.utilities.util.Tuple;
+
+import java.util.*;
+
+/**
+ * PeptideToSpectrumMap is a compact map from peptide (spectrum identification item) id to the spectrum
+ * it identifies, the Tuple<spectrum id, spectra data id> of PEPTIDE_TO_SPECTRUM.
+ * <p/>
+ * The peptide ids are interned to ordinals, and the spectrum of each ordinal is kept as a long spectrum
+ * reference (see SpectrumIdCodec) in a primitive array. There is no entry object, no tuple and no copy of
+ * the spectrum ids per peptide: a peptide costs its id plus about 20 bytes. The tuples are created when
+ * the map is read.
+ * <p/>
+ * The values of the map are read only, the entries cannot be changed through setValue.
+ * All the methods are synchronized, so the map can be filled and read by different threads.
+ * <p/>
+ * @author Rui Wang
+ * @author Yasset Perez-Riverol
+ */
+public class PeptideToSpectrumMap extends AbstractMap<Comparable, Tuple<String, String>> {
+
+    private static final long NULL_SPECTRUM = 0L;
+
+    private static final long NO_ENTRY = -1L;
+
+    private final SpectrumIdCodec codec = new SpectrumIdCodec();
+
+    private final IdPool peptideIds = new IdPool();
+
+    /**
+     * spectrum reference of each peptide ordinal
+     */
+    private long[] spectra = new long[16];
+
+    private int size;
+
+    private Set<Entry<Comparable, Tuple<String, String>>> entrySet;
+
+    public PeptideToSpectrumMap() {
+        Arrays.fill(spectra, NO_ENTRY);
+    }
+
+    public PeptideToSpectrumMap(Map<? extends Comparable, ? extends Tuple<String, String>> map) {
+        this();
+        putAll(map);
+    }
+
+    @Override
+    public synchronized Tuple<String, String> put(Comparable peptideId, Tuple<String, String> spectrum) {
+        int ordinal = peptideIds.intern(peptideId);
+        if (ordinal == spectra.length) {
+            int length = spectra.length;
+            spectra = Arrays.copyOf(spectra, length * 2);
+            Arrays.fill(spectra, length, spectra.length, NO_ENTRY);
+        }
+
+        long previous = spectra[ordinal];
+        spectra[ordinal] = spectrum == null ? NULL_SPECTRUM : codec.encode(spectrum.getKey(), spectrum.getValue());
+        if (previous == NO_ENTRY) {
+            size++;
+        }
+        return decode(previous);
+    }
+
+    @Override
+    public synchronized Tuple<String, String> get(Object peptideId) {
+        int ordinal = peptideIds.indexOf(peptideId);
+        return ordinal < 0 ? null : decode(spectra[ordinal]);
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object peptideId) {
+        int ordinal = peptideIds.indexOf(peptideId);
+        return ordinal >= 0 && spectra[ordinal] != NO_ENTRY;
+    }
+
+    /**
+     * The peptide id stays in the pool, a peptide which is put again gets its ordinal back
+     */
+    @Override
+    public synchronized Tuple<String, String> remove(Object peptideId) {
+        int ordinal = peptideIds.indexOf(peptideId);
+        if (ordinal < 0 || spectra[ordinal] == NO_ENTRY) {
+            return null;
+        }
+
+        long previous = spectra[ordinal];
+        spectra[ordinal] = NO_ENTRY;
+        size--;
+        return decode(previous);
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void clear() {
+        Arrays.fill(spectra, NO_ENTRY);
+        size = 0;
+    }
+
+    @Override
+    public synchronized Set<Entry<Comparable, Tuple<String, String>>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    private Tuple<String, String> decode(long spectrum) {
+        return spectrum == NULL_SPECTRUM || spectrum == NO_ENTRY ? null : codec.decode(spectrum);
+    }
+
+    /**
+     * Entries are read one at a time, the map can be filled while it is iterated
+     */
+    private class EntrySet extends AbstractSet<Entry<Comparable, Tuple<String, String>>> {
+
+        @Override
+        public Iterator<Entry<Comparable, Tuple<String, String>>> iterator() {
+            return new Iterator<Entry<Comparable, Tuple<String, String>>>() {
+
+                private int next = findNext(0);
+
+                private int current = -1;
+
+                @Override
+                public boolean hasNext() {
+                    return next >= 0;
+                }
+
+                @Override
+                public Entry<Comparable, Tuple<String, String>> next() {
+                    if (next < 0) {
+                        throw new NoSuchElementException();
+                    }
+
+                    Entry<Comparable, Tuple<String, String>> entry;
+                    synchronized (PeptideToSpectrumMap.this) {
+                        entry = new SimpleImmutableEntry<Comparable, Tuple<String, String>>(
+                                (Comparable) peptideIds.get(next), decode(spectra[next]));
+                    }
+                    current = next;
+                    next = findNext(next + 1);
+                    return entry;
+                }
+
+                @Override
+                public void remove() {
+                    if (current < 0) {
+                        throw new IllegalStateException();
+                    }
+                    synchronized (PeptideToSpectrumMap.this) {
+                        if (spectra[current] != NO_ENTRY) {
+                            spectra[current] = NO_ENTRY;
+                            size--;
+                        }
+                    }
+                    current = -1;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return PeptideToSpectrumMap.this.size();
+        }
+
+        @Override
+        public void clear() {
+            PeptideToSpectrumMap.this.clear();
+        }
+
+        private int findNext(int from) {
+            synchronized (PeptideToSpectrumMap.this) {
+                int numberOfPeptides = peptideIds.size();
+                for (int ordinal = from; ordinal < numberOfPeptides; ordinal++) {
+                    if (spectra[ordinal] != NO_ENTRY) {
+                        return ordinal;
+                    }
+                }
+                return -1;
+            }
+        }
+    }
+}
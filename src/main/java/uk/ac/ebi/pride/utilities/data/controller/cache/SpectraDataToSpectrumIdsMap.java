@@ -0,0 +1,250 @@
+package uk.ac.ebi.pride.utilities.data.controller.cache;
+
+import java.util.*;
+
+/**
+ * SpectraDataToSpectrumIdsMap is a compact map from spectra data id to the ids of its identified spectra,
+ * the List<Comparable> of SPECTRADATA_TO_SPECTRUMIDS.
+ * <p/>
+ * The spectra data ids are interned to small ordinals, and the spectrum ids of each spectra data are kept
+ * as encoded ints (see SpectrumIdCodec) in a primitive array: the number itself for numeric ids, a
+ * reference into a shared string pool for the others.
+ * <p/>
+ * The lists returned by the map are views decoding the ids as strings, ids can be appended to them but not
+ * removed. All the methods are synchronized, so the map can be filled and read by different threads.
+ * <p/>
+ * @author Rui Wang
+ * @author Yasset Perez-Riverol
+ */
+public class SpectraDataToSpectrumIdsMap extends AbstractMap<Comparable, List<Comparable>> {
+
+    private static final int[] NO_ENTRY = new int[0];
+
+    private final SpectrumIdCodec codec = new SpectrumIdCodec();
+
+    /**
+     * encoded spectrum ids of each spectra data ordinal, NO_ENTRY when the spectra data is not in the map
+     * and null for a null list
+     */
+    private int[][] spectrumIds = new int[4][];
+
+    private int[] sizes = new int[4];
+
+    /**
+     * incremented when the list of a spectra data is replaced or removed
+     */
+    private int[] versions = new int[4];
+
+    private int size;
+
+    private Set<Entry<Comparable, List<Comparable>>> entrySet;
+
+    public SpectraDataToSpectrumIdsMap() {
+        Arrays.fill(spectrumIds, NO_ENTRY);
+    }
+
+    public SpectraDataToSpectrumIdsMap(Map<? extends Comparable, ? extends List<? extends Comparable>> map) {
+        this();
+        for (Map.Entry<? extends Comparable, ? extends List<? extends Comparable>> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue() == null ? null : new ArrayList<Comparable>(entry.getValue()));
+        }
+    }
+
+    /**
+     * Append a spectrum id to the list of a spectra data, the list is created when needed
+     *
+     * @param spectraDataId spectra data id
+     * @param spectrumId    spectrum id
+     */
+    public synchronized void add(Comparable spectraDataId, Comparable spectrumId) {
+        int ordinal = getOrdinal(spectraDataId);
+        if (spectrumIds[ordinal] == NO_ENTRY || spectrumIds[ordinal] == null) {
+            if (spectrumIds[ordinal] == NO_ENTRY) {
+                size++;
+            }
+            spectrumIds[ordinal] = new int[8];
+            sizes[ordinal] = 0;
+            versions[ordinal]++;
+        }
+        append(ordinal, spectrumId);
+    }
+
+    @Override
+    public synchronized List<Comparable> put(Comparable spectraDataId, List<Comparable> ids) {
+        int ordinal = getOrdinal(spectraDataId);
+        List<Comparable> previous = view(ordinal) == null ? null : new ArrayList<Comparable>(view(ordinal));
+        if (spectrumIds[ordinal] == NO_ENTRY) {
+            size++;
+        }
+
+        if (ids == null) {
+            spectrumIds[ordinal] = null;
+            sizes[ordinal] = 0;
+        } else {
+            int[] codes = new int[Math.max(ids.size(), 8)];
+            int i = 0;
+            for (Comparable id : ids) {
+                codes[i++] = codec.encodeSpectrumId(id);
+            }
+            spectrumIds[ordinal] = codes;
+            sizes[ordinal] = i;
+        }
+        versions[ordinal]++;
+        return previous;
+    }
+
+    @Override
+    public synchronized List<Comparable> get(Object spectraDataId) {
+        int ordinal = codec.indexOfSpectraData(spectraDataId);
+        return ordinal < 0 ? null : view(ordinal);
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object spectraDataId) {
+        int ordinal = codec.indexOfSpectraData(spectraDataId);
+        return ordinal >= 0 && spectrumIds[ordinal] != NO_ENTRY;
+    }
+
+    @Override
+    public synchronized List<Comparable> remove(Object spectraDataId) {
+        int ordinal = codec.indexOfSpectraData(spectraDataId);
+        if (ordinal < 0 || spectrumIds[ordinal] == NO_ENTRY) {
+            return null;
+        }
+
+        List<Comparable> previous = view(ordinal) == null ? null : new ArrayList<Comparable>(view(ordinal));
+        spectrumIds[ordinal] = NO_ENTRY;
+        sizes[ordinal] = 0;
+        versions[ordinal]++;
+        size--;
+        return previous;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void clear() {
+        Arrays.fill(spectrumIds, NO_ENTRY);
+        Arrays.fill(sizes, 0);
+        for (int i = 0; i < versions.length; i++) {
+            versions[i]++;
+        }
+        size = 0;
+    }
+
+    @Override
+    public synchronized Set<Entry<Comparable, List<Comparable>>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Entry<Comparable, List<Comparable>>>() {
+                @Override
+                public Iterator<Entry<Comparable, List<Comparable>>> iterator() {
+                    return snapshot().iterator();
+                }
+
+                @Override
+                public int size() {
+                    return SpectraDataToSpectrumIdsMap.this.size();
+                }
+
+                @Override
+                public void clear() {
+                    SpectraDataToSpectrumIdsMap.this.clear();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    /**
+     * There are only a few spectra data, the entries are listed upfront
+     */
+    private synchronized List<Entry<Comparable, List<Comparable>>> snapshot() {
+        List<Entry<Comparable, List<Comparable>>> entries = new ArrayList<Entry<Comparable, List<Comparable>>>(size);
+        for (int ordinal = 0; ordinal < codec.getNumberOfSpectraData(); ordinal++) {
+            if (spectrumIds[ordinal] != NO_ENTRY) {
+                entries.add(new SimpleImmutableEntry<Comparable, List<Comparable>>(codec.getSpectraData(ordinal), view(ordinal)));
+            }
+        }
+        return entries;
+    }
+
+    private int getOrdinal(Comparable spectraDataId) {
+        int ordinal = codec.internSpectraData(spectraDataId);
+        if (ordinal == spectrumIds.length) {
+            int length = spectrumIds.length;
+            spectrumIds = Arrays.copyOf(spectrumIds, length * 2);
+            sizes = Arrays.copyOf(sizes, length * 2);
+            versions = Arrays.copyOf(versions, length * 2);
+            Arrays.fill(spectrumIds, length, spectrumIds.length, NO_ENTRY);
+        }
+        return ordinal;
+    }
+
+    private void append(int ordinal, Comparable spectrumId) {
+        int[] codes = spectrumIds[ordinal];
+        if (sizes[ordinal] == codes.length) {
+            codes = Arrays.copyOf(codes, codes.length * 2);
+            spectrumIds[ordinal] = codes;
+        }
+        codes[sizes[ordinal]++] = codec.encodeSpectrumId(spectrumId);
+    }
+
+    private List<Comparable> view(int ordinal) {
+        if (spectrumIds[ordinal] == NO_ENTRY || spectrumIds[ordinal] == null) {
+            return null;
+        }
+        return new SpectrumIdList(ordinal, versions[ordinal]);
+    }
+
+    /**
+     * View of the spectrum ids of a spectra data, it becomes empty when the list of the spectra data is
+     * replaced or removed
+     */
+    private class SpectrumIdList extends AbstractList<Comparable> implements RandomAccess {
+
+        private final int ordinal;
+
+        private final int version;
+
+        private SpectrumIdList(int ordinal, int version) {
+            this.ordinal = ordinal;
+            this.version = version;
+        }
+
+        @Override
+        public Comparable get(int index) {
+            synchronized (SpectraDataToSpectrumIdsMap.this) {
+                if (index < 0 || index >= size()) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+                }
+                return codec.decodeSpectrumId(spectrumIds[ordinal][index]);
+            }
+        }
+
+        @Override
+        public int size() {
+            synchronized (SpectraDataToSpectrumIdsMap.this) {
+                return isCurrent() ? sizes[ordinal] : 0;
+            }
+        }
+
+        @Override
+        public boolean add(Comparable spectrumId) {
+            synchronized (SpectraDataToSpectrumIdsMap.this) {
+                if (!isCurrent()) {
+                    throw new IllegalStateException("The spectrum id list has been replaced");
+                }
+                append(ordinal, spectrumId);
+                modCount++;
+                return true;
+            }
+        }
+
+        private boolean isCurrent() {
+            return versions[ordinal] == version;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package uk.ac.ebi.pride.utilities.data.controller.cache;
+
+import uk.ac.ebi.pride.utilities.util.Tuple;
+
+/**
+ * SpectrumIdCodec encodes the spectrum references of the id tables into primitives.
+ * <p/>
+ * A spectrum id is encoded into an int: the id itself when it is a number written without sign or leading
+ * zeros (e.g. the index of a spectrum), otherwise the ordinal of the id in a string pool. A spectrum
+ * reference, a spectrum id and the id of its spectra data, is encoded into a long: the ordinal of the
+ * spectra data plus one in the upper 32 bits and the encoded spectrum id in the lower 32 bits, so a
+ * reference is never 0.
+ * <p/>
+ * The ids are decoded as strings, as they are stored in the Tuple<String, String> of the cache.
+ * <p/>
+ * SpectrumIdCodec is not synchronized, it is guarded by the id table which owns it.
+ * <p/>
+ * @author Rui Wang
+ * @author Yasset Perez-Riverol
+ */
+final class SpectrumIdCodec {
+
+    private static final int NULL_ID = Integer.MIN_VALUE;
+
+    private static final int MAX_NUMERIC_ID_LENGTH = 9;
+
+    private final IdPool spectraDataIds = new IdPool();
+
+    private final IdPool spectrumIds = new IdPool();
+
+    /**
+     * @param spectrumId    spectrum id
+     * @param spectraDataId spectra data id
+     * @return long spectrum reference
+     */
+    long encode(Comparable spectrumId, Comparable spectraDataId) {
+        return ((long) (internSpectraData(spectraDataId) + 1) << 32) | (encodeSpectrumId(spectrumId) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @param reference spectrum reference
+     * @return Tuple<String, String>   spectrum id and spectra data id
+     */
+    Tuple<String, String> decode(long reference) {
+        int spectraDataOrdinal = (int) (reference >>> 32) - 1;
+        return new Tuple<String, String>(decodeSpectrumId((int) reference), getSpectraData(spectraDataOrdinal));
+    }
+
+    /**
+     * Find the reference of a spectrum without adding its ids to the pools
+     *
+     * @param spectrumId    spectrum id
+     * @param spectraDataId spectra data id
+     * @return long spectrum reference, -1 if the spectrum id or the spectra data is not in the pools
+     */
+    long indexOf(Object spectrumId, Object spectraDataId) {
+        int spectraDataOrdinal = indexOfSpectraData(spectraDataId);
+        if (spectraDataOrdinal < 0) {
+            return -1;
+        }
+
+        int code;
+        if (spectrumId == null) {
+            code = NULL_ID;
+        } else {
+            String id = spectrumId.toString();
+            code = parseNumber(id);
+            if (code < 0) {
+                int ordinal = spectrumIds.indexOf(id);
+                if (ordinal < 0) {
+                    return -1;
+                }
+                code = -(ordinal + 1);
+            }
+        }
+        return ((long) (spectraDataOrdinal + 1) << 32) | (code & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @param spectrumId spectrum id
+     * @return int encoded spectrum id, the string is added to the pool when it is not numeric
+     */
+    int encodeSpectrumId(Comparable spectrumId) {
+        if (spectrumId == null) {
+            return NULL_ID;
+        }
+
+        String id = spectrumId.toString();
+        int number = parseNumber(id);
+        return number >= 0 ? number : -(spectrumIds.intern(id) + 1);
+    }
+
+    String decodeSpectrumId(int code) {
+        if (code == NULL_ID) {
+            return null;
+        }
+        return code >= 0 ? Integer.toString(code) : (String) spectrumIds.get(-code - 1);
+    }
+
+    int internSpectraData(Comparable spectraDataId) {
+        return spectraDataIds.intern(spectraDataId == null ? null : spectraDataId.toString());
+    }
+
+    /**
+     * @param spectraDataId spectra data id
+     * @return int ordinal of the spectra data, -1 if it is unknown
+     */
+    int indexOfSpectraData(Object spectraDataId) {
+        return spectraDataIds.indexOf(spectraDataId == null ? null : spectraDataId.toString());
+    }
+
+    String getSpectraData(int ordinal) {
+        return (String) spectraDataIds.get(ordinal);
+    }
+
+    int getNumberOfSpectraData() {
+        return spectraDataIds.size();
+    }
+
+    /**
+     * @return int the number, -1 if the id is not a number which prints back to the same id
+     */
+    private static int parseNumber(String id) {
+        int length = id.length();
+        if (length == 0 || length > MAX_NUMERIC_ID_LENGTH || (length > 1 && id.charAt(0) == '0')) {
+            return -1;
+        }
+
+        int number = 0;
+        for (int i = 0; i < length; i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+}
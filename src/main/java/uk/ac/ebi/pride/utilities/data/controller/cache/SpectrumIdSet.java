@@ -0,0 +1,279 @@
+package uk.ac.ebi.pride.utilities.data.controller.cache;
+
+import uk.ac.ebi.pride.utilities.util.Tuple;
+
+import java.util.*;
+
+/**
+ * SpectrumIdSet is a compact set of identified spectra, each spectrum is a spectrum id and the id of its
+ * spectra data (spectrum file), as in the Tuple<String, String> of the identification caches.
+ * <p/>
+ * The spectra data ids are interned to small ordinals, and each spectrum is stored as a single long made of
+ * the ordinal of its spectra data and a 48 bit hash of its spectrum id, in an open addressing hash table.
+ * Membership checks take constant time and about 16 bytes per spectrum. The spectrum ids themselves are not
+ * kept, so the set cannot be iterated, and two spectrum ids of the same spectra data with the same 48 bit
+ * hash are the same spectrum for the set (about one false positive per 10^7 checks with 10^7 spectra).
+ * <p/>
+ * All the methods are synchronized, so the set can be filled and read by different threads.
+ * <p/>
+ * @author Rui Wang
+ * @author Yasset Perez-Riverol
+ */
+public class SpectrumIdSet {
+
+    private static final int MAX_SPECTRA_DATA = 0xFFFF;
+
+    private static final long HASH_MASK = 0xFFFFFFFFFFFFL;
+
+    private static final long EMPTY = 0L;
+
+    /**
+     * spectra data ids in the order of their ordinals
+     */
+    private final List<Comparable> spectraDataIds = new ArrayList<Comparable>();
+
+    private final Map<Comparable, Integer> ordinals = new HashMap<Comparable, Integer>();
+
+    private long[] table = new long[64];
+
+    private int size;
+
+    public SpectrumIdSet() {
+    }
+
+    /**
+     * Create a set from the keys of another set, see getSpectraDataIds and getKeys
+     *
+     * @param spectraDataIds spectra data ids in the order of their ordinals
+     * @param keys           keys of the spectra
+     */
+    public SpectrumIdSet(List<? extends Comparable> spectraDataIds, long[] keys) {
+        for (Comparable spectraDataId : spectraDataIds) {
+            getOrdinal(spectraDataId, true);
+        }
+        for (long key : keys) {
+            addKey(key);
+        }
+    }
+
+    /**
+     * @param spectrumId    spectrum id
+     * @param spectraDataId spectra data id
+     * @return boolean true if the spectrum was not in the set
+     */
+    public synchronized boolean add(Comparable spectrumId, Comparable spectraDataId) {
+        return addKey(toKey(getOrdinal(spectraDataId, true), spectrumId));
+    }
+
+    /**
+     * @param spectrum Tuple of spectrum id and spectra data id
+     * @return boolean true if the spectrum was not in the set
+     */
+    public boolean add(Tuple<? extends Comparable, ? extends Comparable> spectrum) {
+        return add(spectrum.getKey(), spectrum.getValue());
+    }
+
+    /**
+     * Add all the spectra of another set
+     *
+     * @param spectra spectrum set
+     */
+    public void addAll(SpectrumIdSet spectra) {
+        List<Comparable> otherSpectraDataIds;
+        long[] otherKeys;
+        synchronized (spectra) {
+            otherSpectraDataIds = new ArrayList<Comparable>(spectra.spectraDataIds);
+            otherKeys = spectra.getKeys();
+        }
+
+        synchronized (this) {
+            for (long key : otherKeys) {
+                int ordinal = getOrdinal(otherSpectraDataIds.get(getOrdinal(key)), true);
+                addKey(withOrdinal(key, ordinal));
+            }
+        }
+    }
+
+    /**
+     * @param spectrumId    spectrum id
+     * @param spectraDataId spectra data id
+     * @return boolean true if the spectrum is in the set
+     */
+    public synchronized boolean contains(Comparable spectrumId, Comparable spectraDataId) {
+        int ordinal = getOrdinal(spectraDataId, false);
+        return ordinal >= 0 && table[find(toKey(ordinal, spectrumId))] != EMPTY;
+    }
+
+    /**
+     * @param spectrum Tuple of spectrum id and spectra data id
+     * @return boolean true if the spectrum is in the set, false for any other object
+     */
+    public boolean contains(Object spectrum) {
+        if (spectrum instanceof Tuple) {
+            Object spectrumId = ((Tuple) spectrum).getKey();
+            Object spectraDataId = ((Tuple) spectrum).getValue();
+            if ((spectrumId == null || spectrumId instanceof Comparable) && (spectraDataId == null || spectraDataId instanceof Comparable)) {
+                return contains((Comparable) spectrumId, (Comparable) spectraDataId);
+            }
+        }
+        return false;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Two sets are equal when they hold the same spectra, whatever the ordinals of their spectra data
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SpectrumIdSet)) return false;
+
+        SpectrumIdSet spectra = (SpectrumIdSet) o;
+        List<Comparable> otherSpectraDataIds;
+        long[] otherKeys;
+        synchronized (spectra) {
+            otherSpectraDataIds = new ArrayList<Comparable>(spectra.spectraDataIds);
+            otherKeys = spectra.getKeys();
+        }
+
+        synchronized (this) {
+            if (size != otherKeys.length) {
+                return false;
+            }
+            for (long key : otherKeys) {
+                int ordinal = getOrdinal(otherSpectraDataIds.get(getOrdinal(key)), false);
+                if (ordinal < 0 || table[find(withOrdinal(key, ordinal))] == EMPTY) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized int hashCode() {
+        int result = 0;
+        for (long key : table) {
+            if (key != EMPTY) {
+                Comparable spectraDataId = spectraDataIds.get(getOrdinal(key));
+                result += 31 * (spectraDataId == null ? 0 : spectraDataId.hashCode()) + Long.hashCode(key & HASH_MASK);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return List<Comparable>   spectra data ids in the order of their ordinals
+     */
+    public synchronized List<Comparable> getSpectraDataIds() {
+        return new ArrayList<Comparable>(spectraDataIds);
+    }
+
+    /**
+     * @return long[]  keys of all the spectra, to store the set
+     */
+    public synchronized long[] getKeys() {
+        long[] keys = new long[size];
+        int i = 0;
+        for (long key : table) {
+            if (key != EMPTY) {
+                keys[i++] = key;
+            }
+        }
+        return keys;
+    }
+
+    private int getOrdinal(Comparable spectraDataId, boolean create) {
+        Integer ordinal = ordinals.get(spectraDataId);
+        if (ordinal == null) {
+            if (!create) {
+                return -1;
+            }
+            if (spectraDataIds.size() == MAX_SPECTRA_DATA) {
+                throw new IllegalStateException("Too many spectra data, the maximum is " + MAX_SPECTRA_DATA);
+            }
+            ordinal = spectraDataIds.size();
+            ordinals.put(spectraDataId, ordinal);
+            spectraDataIds.add(spectraDataId);
+        }
+        return ordinal;
+    }
+
+    private boolean addKey(long key) {
+        int slot = find(key);
+        if (table[slot] != EMPTY) {
+            return false;
+        }
+
+        table[slot] = key;
+        size++;
+        if (size * 4 > table.length * 3) {
+            rehash();
+        }
+        return true;
+    }
+
+    /**
+     * Find the slot of a key, or the empty slot where it would be added
+     */
+    private int find(long key) {
+        int mask = table.length - 1;
+        int slot = (int) (key ^ (key >>> 32)) & mask;
+        while (table[slot] != EMPTY && table[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        long[] oldTable = table;
+        table = new long[oldTable.length * 2];
+        for (long key : oldTable) {
+            if (key != EMPTY) {
+                table[find(key)] = key;
+            }
+        }
+    }
+
+    private static int getOrdinal(long key) {
+        return (int) (key >>> 48) - 1;
+    }
+
+    private static long withOrdinal(long key, int ordinal) {
+        return ((long) (ordinal + 1) << 48) | (key & HASH_MASK);
+    }
+
+    /**
+     * The ordinal is stored plus one in the upper 16 bits, so a key is never EMPTY
+     */
+    private static long toKey(int ordinal, Comparable spectrumId) {
+        return withOrdinal(hash(spectrumId), ordinal);
+    }
+
+    /**
+     * 64 bit FNV-1a hash of the characters of the id, followed by a final mix of the bits
+     */
+    private static long hash(Comparable spectrumId) {
+        if (spectrumId == null) {
+            return 0;
+        }
+
+        String id = spectrumId.toString();
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            hash ^= id.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
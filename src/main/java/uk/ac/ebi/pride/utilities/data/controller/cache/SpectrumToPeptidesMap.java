@@ -0,0 +1,329 @@
+package uk.ac.ebi.pride.utilities.data.controller.cache;
+
+import uk.ac.ebi.pride.utilities.util.Tuple;
+
+import java.util.*;
+
+/**
+ * SpectrumToPeptidesMap is a compact map from identified spectrum to the peptides identifying it, the
+ * List<Tuple<protein id, peptide id>> of SPECTRUM_TO_PEPTIDES, keyed by Tuple<spectrum id, spectra data id>.
+ * <p/>
+ * Each spectrum is kept as a long spectrum reference (see SpectrumIdCodec), found through an open addressing
+ * table of spectrum ordinals. The protein and peptide ids are interned to ordinals, and the peptides of each
+ * spectrum are kept as pairs of ordinals in a primitive array. The tuples and lists are created when the map
+ * is read.
+ * <p/>
+ * The lists returned by the map are copies, changing them does not change the map.
+ * All the methods are synchronized, so the map can be filled and read by different threads.
+ * <p/>
+ * @author Rui Wang
+ * @author Yasset Perez-Riverol
+ */
+public class SpectrumToPeptidesMap extends AbstractMap<Tuple<String, String>, List<Tuple<Comparable, Comparable>>> {
+
+    private static final int[] NO_ENTRY = new int[0];
+
+    private static final int[] NO_PEPTIDES = new int[0];
+
+    private final SpectrumIdCodec codec = new SpectrumIdCodec();
+
+    private final IdPool proteinIds = new IdPool();
+
+    private final IdPool peptideIds = new IdPool();
+
+    /**
+     * spectrum reference of each spectrum ordinal
+     */
+    private long[] references = new long[16];
+
+    /**
+     * spectrum ordinal plus one in each slot, 0 for an empty slot
+     */
+    private int[] slots = new int[32];
+
+    private int numberOfSpectra;
+
+    /**
+     * protein and peptide ordinal pairs of each spectrum ordinal, NO_ENTRY when the spectrum is not in the map
+     * and null for a null list
+     */
+    private int[][] peptides = new int[16][];
+
+    private int[] sizes = new int[16];
+
+    private int size;
+
+    private Set<Entry<Tuple<String, String>, List<Tuple<Comparable, Comparable>>>> entrySet;
+
+    public SpectrumToPeptidesMap() {
+        Arrays.fill(peptides, NO_ENTRY);
+    }
+
+    public SpectrumToPeptidesMap(Map<? extends Tuple<String, String>, ? extends List<Tuple<Comparable, Comparable>>> map) {
+        this();
+        putAll(map);
+    }
+
+    /**
+     * Add an identified spectrum, with an empty list of peptides if it is not in the map yet
+     *
+     * @param spectrumId    spectrum id
+     * @param spectraDataId spectra data id
+     */
+    public synchronized void addSpectrum(Comparable spectrumId, Comparable spectraDataId) {
+        getEntry(spectrumId, spectraDataId);
+    }
+
+    /**
+     * Append a peptide to the list of a spectrum, the spectrum is added when needed
+     *
+     * @param spectrumId    spectrum id
+     * @param spectraDataId spectra data id
+     * @param proteinId     protein id
+     * @param peptideId     peptide id
+     */
+    public synchronized void addPeptide(Comparable spectrumId, Comparable spectraDataId, Comparable proteinId, Comparable peptideId) {
+        append(getEntry(spectrumId, spectraDataId), proteinId, peptideId);
+    }
+
+    @Override
+    public synchronized List<Tuple<Comparable, Comparable>> put(Tuple<String, String> spectrum,
+                                                              List<Tuple<Comparable, Comparable>> proteinPeptideIds) {
+        int ordinal = internSpectrum(codec.encode(spectrum.getKey(), spectrum.getValue()));
+        List<Tuple<Comparable, Comparable>> previous = decode(ordinal);
+        if (peptides[ordinal] == NO_ENTRY) {
+            size++;
+        }
+
+        if (proteinPeptideIds == null) {
+            peptides[ordinal] = null;
+        } else {
+            peptides[ordinal] = NO_PEPTIDES;
+            sizes[ordinal] = 0;
+            for (Tuple<Comparable, Comparable> proteinPeptideId : proteinPeptideIds) {
+                append(ordinal, proteinPeptideId.getKey(), proteinPeptideId.getValue());
+            }
+        }
+        return previous;
+    }
+
+    @Override
+    public synchronized List<Tuple<Comparable, Comparable>> get(Object spectrum) {
+        int ordinal = indexOfSpectrum(spectrum);
+        return ordinal < 0 ? null : decode(ordinal);
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object spectrum) {
+        int ordinal = indexOfSpectrum(spectrum);
+        return ordinal >= 0 && peptides[ordinal] != NO_ENTRY;
+    }
+
+    /**
+     * The spectrum stays in the table, a spectrum which is put again gets its ordinal back
+     */
+    @Override
+    public synchronized List<Tuple<Comparable, Comparable>> remove(Object spectrum) {
+        int ordinal = indexOfSpectrum(spectrum);
+        if (ordinal < 0 || peptides[ordinal] == NO_ENTRY) {
+            return null;
+        }
+
+        List<Tuple<Comparable, Comparable>> previous = decode(ordinal);
+        peptides[ordinal] = NO_ENTRY;
+        size--;
+        return previous;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void clear() {
+        Arrays.fill(peptides, NO_ENTRY);
+        size = 0;
+    }
+
+    @Override
+    public synchronized Set<Entry<Tuple<String, String>, List<Tuple<Comparable, Comparable>>>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    /**
+     * @return int ordinal of the spectrum, the spectrum is added with an empty list when it is not in the map
+     */
+    private int getEntry(Comparable spectrumId, Comparable spectraDataId) {
+        int ordinal = internSpectrum(codec.encode(spectrumId, spectraDataId));
+        if (peptides[ordinal] == NO_ENTRY || peptides[ordinal] == null) {
+            if (peptides[ordinal] == NO_ENTRY) {
+                size++;
+            }
+            peptides[ordinal] = NO_PEPTIDES;
+            sizes[ordinal] = 0;
+        }
+        return ordinal;
+    }
+
+    private void append(int ordinal, Comparable proteinId, Comparable peptideId) {
+        int[] pairs = peptides[ordinal];
+        if (sizes[ordinal] == pairs.length) {
+            pairs = Arrays.copyOf(pairs, Math.max(2, pairs.length * 2));
+            peptides[ordinal] = pairs;
+        }
+        pairs[sizes[ordinal]++] = proteinIds.intern(proteinId);
+        pairs[sizes[ordinal]++] = peptideIds.intern(peptideId);
+    }
+
+    private List<Tuple<Comparable, Comparable>> decode(int ordinal) {
+        int[] pairs = peptides[ordinal];
+        if (pairs == NO_ENTRY || pairs == null) {
+            return null;
+        }
+
+        List<Tuple<Comparable, Comparable>> proteinPeptideIds = new ArrayList<Tuple<Comparable, Comparable>>(sizes[ordinal] / 2);
+        for (int i = 0; i < sizes[ordinal]; i += 2) {
+            proteinPeptideIds.add(new Tuple<Comparable, Comparable>((Comparable) proteinIds.get(pairs[i]), (Comparable) peptideIds.get(pairs[i + 1])));
+        }
+        return proteinPeptideIds;
+    }
+
+    /**
+     * @return int ordinal of the spectrum, -1 if the spectrum has never been added
+     */
+    private int indexOfSpectrum(Object spectrum) {
+        if (!(spectrum instanceof Tuple)) {
+            return -1;
+        }
+
+        Tuple<?, ?> tuple = (Tuple<?, ?>) spectrum;
+        long reference = codec.indexOf(tuple.getKey(), tuple.getValue());
+        return reference < 0 ? -1 : slots[find(reference)] - 1;
+    }
+
+    private int internSpectrum(long reference) {
+        int slot = find(reference);
+        if (slots[slot] != 0) {
+            return slots[slot] - 1;
+        }
+
+        if (numberOfSpectra == references.length) {
+            int length = references.length;
+            references = Arrays.copyOf(references, length * 2);
+            peptides = Arrays.copyOf(peptides, length * 2);
+            sizes = Arrays.copyOf(sizes, length * 2);
+            Arrays.fill(peptides, length, peptides.length, NO_ENTRY);
+        }
+        references[numberOfSpectra] = reference;
+        slots[slot] = ++numberOfSpectra;
+        if (numberOfSpectra * 2 > slots.length) {
+            rehash();
+        }
+        return numberOfSpectra - 1;
+    }
+
+    /**
+     * Find the slot of a spectrum reference, or the empty slot where it would be added
+     */
+    private int find(long reference) {
+        int mask = slots.length - 1;
+        int slot = hash(reference) & mask;
+        while (slots[slot] != 0 && references[slots[slot] - 1] != reference) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int ordinal = 0; ordinal < numberOfSpectra; ordinal++) {
+            int slot = hash(references[ordinal]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = ordinal + 1;
+        }
+    }
+
+    private static int hash(long reference) {
+        int hash = (int) (reference ^ (reference >>> 32));
+        return (hash ^ (hash >>> 16)) * 0x9E3779B9;
+    }
+
+    /**
+     * Entries are read one at a time, the map can be filled while it is iterated
+     */
+    private class EntrySet extends AbstractSet<Entry<Tuple<String, String>, List<Tuple<Comparable, Comparable>>>> {
+
+        @Override
+        public Iterator<Entry<Tuple<String, String>, List<Tuple<Comparable, Comparable>>>> iterator() {
+            return new Iterator<Entry<Tuple<String, String>, List<Tuple<Comparable, Comparable>>>>() {
+
+                private int next = findNext(0);
+
+                private int current = -1;
+
+                @Override
+                public boolean hasNext() {
+                    return next >= 0;
+                }
+
+                @Override
+                public Entry<Tuple<String, String>, List<Tuple<Comparable, Comparable>>> next() {
+                    if (next < 0) {
+                        throw new NoSuchElementException();
+                    }
+
+                    Entry<Tuple<String, String>, List<Tuple<Comparable, Comparable>>> entry;
+                    synchronized (SpectrumToPeptidesMap.this) {
+                        entry = new SimpleImmutableEntry<Tuple<String, String>, List<Tuple<Comparable, Comparable>>>(
+                                codec.decode(references[next]), decode(next));
+                    }
+                    current = next;
+                    next = findNext(next + 1);
+                    return entry;
+                }
+
+                @Override
+                public void remove() {
+                    if (current < 0) {
+                        throw new IllegalStateException();
+                    }
+                    synchronized (SpectrumToPeptidesMap.this) {
+                        if (peptides[current] != NO_ENTRY) {
+                            peptides[current] = NO_ENTRY;
+                            size--;
+                        }
+                    }
+                    current = -1;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return SpectrumToPeptidesMap.this.size();
+        }
+
+        @Override
+        public void clear() {
+            SpectrumToPeptidesMap.this.clear();
+        }
+
+        private int findNext(int from) {
+            synchronized (SpectrumToPeptidesMap.this) {
+                for (int ordinal = from; ordinal < numberOfSpectra; ordinal++) {
+                    if (peptides[ordinal] != NO_ENTRY) {
+                        return ordinal;
+                    }
+                }
+                return -1;
+            }
+        }
+    }
+}
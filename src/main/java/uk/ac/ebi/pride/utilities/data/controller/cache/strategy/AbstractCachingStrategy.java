@@ -2,7 +2,12 @@ package uk.ac.ebi.pride.utilities.data.controller.cache.strategy;
 
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessController;
 import uk.ac.ebi.pride.utilities.data.controller.cache.Cache;
+import uk.ac.ebi.pride.utilities.data.controller.cache.CacheEntry;
 import uk.ac.ebi.pride.utilities.data.controller.cache.CachingStrategy;
+import uk.ac.ebi.pride.utilities.data.controller.cache.SpectrumToPeptidesMap;
+import uk.ac.ebi.pride.utilities.util.Tuple;
+
+import java.util.*;
 
 /**
  * @author Rui Wang
@@ -33,4 +38,39 @@ public abstract class AbstractCachingStrategy implements CachingStrategy {
     public void setController(DataAccessController controller) {
         this.controller = controller;
     }
+
+    /**
+     * Cache the reverse of PEPTIDE_TO_SPECTRUM and PROTEIN_TO_PEPTIDE_EVIDENCES: for each identified spectrum,
+     * the protein and peptide ids identified by the spectrum. It must be called once both maps are cached.
+     */
+    protected void cacheSpectrumToPeptides() {
+        Map<Comparable, Tuple<String, String>> peptideToSpectrum = (Map<Comparable, Tuple<String, String>>) cache.get(CacheEntry.PEPTIDE_TO_SPECTRUM);
+        if (peptideToSpectrum == null) {
+            return;
+        }
+
+        SpectrumToPeptidesMap spectrumToPeptides = new SpectrumToPeptidesMap();
+
+        // spectra identified by peptides without any protein are identified as well
+        for (Tuple<String, String> spectrum : peptideToSpectrum.values()) {
+            if (spectrum != null) {
+                spectrumToPeptides.addSpectrum(spectrum.getKey(), spectrum.getValue());
+            }
+        }
+
+        Map<Comparable, List<Comparable>> proteinToPeptides = (Map<Comparable, List<Comparable>>) cache.get(CacheEntry.PROTEIN_TO_PEPTIDE_EVIDENCES);
+        if (proteinToPeptides != null) {
+            for (Map.Entry<Comparable, List<Comparable>> proteinEntry : proteinToPeptides.entrySet()) {
+                for (Comparable peptideId : proteinEntry.getValue()) {
+                    Tuple<String, String> spectrum = peptideToSpectrum.get(peptideId);
+                    if (spectrum != null) {
+                        spectrumToPeptides.addPeptide(spectrum.getKey(), spectrum.getValue(), proteinEntry.getKey(), peptideId);
+                    }
+                }
+            }
+        }
+
+        cache.clear(CacheEntry.SPECTRUM_TO_PEPTIDES);
+        cache.storeInBatch(CacheEntry.SPECTRUM_TO_PEPTIDES, spectrumToPeptides);
+    }
 }
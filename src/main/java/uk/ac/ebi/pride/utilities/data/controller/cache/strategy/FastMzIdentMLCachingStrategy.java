@@ -3,7 +3,7 @@ package uk.ac.ebi.pride.utilities.data.controller.cache.strategy;
 import uk.ac.ebi.pride.utilities.data.controller.cache.CacheEntry;
 import uk.ac.ebi.pride.utilities.data.controller.impl.ControllerImpl.FastMzIdentMLController;
 import uk.ac.ebi.pride.utilities.data.controller.impl.Transformer.LightModelsTransformer;
-import uk.ac.ebi.pride.utilities.data.io.file.FastMzIdentMLUnmarshallerAdaptor;
+import uk.ac.ebi.pride.utilities.data.io.file.StreamingMzIdentMLUnmarshaller;
 import uk.ac.ebi.pride.utilities.data.lightModel.SpectraData;
 
 import java.util.*;
@@ -20,13 +20,17 @@ public class FastMzIdentMLCachingStrategy extends AbstractCachingStrategy {
      */
     @Override
     public void cache() {
-        FastMzIdentMLUnmarshallerAdaptor unmarshaller = ((FastMzIdentMLController) controller).getUnmarshaller();
-        cacheSpectraData(unmarshaller);
+        FastMzIdentMLController fastMzIdentMLController = (FastMzIdentMLController) controller;
+        // in streaming mode the SpectraData are read without loading the whole file
+        StreamingMzIdentMLUnmarshaller streamingUnmarshaller = fastMzIdentMLController.getStreamingUnmarshaller();
+        cacheSpectraData(streamingUnmarshaller != null ?
+                streamingUnmarshaller.getSpectraDataMap() : fastMzIdentMLController.getUnmarshaller().getSpectraDataMap());
     }
 
-    protected void cacheSpectraData(FastMzIdentMLUnmarshallerAdaptor unmarshaller) {
-        // Map<"SD_1", SpectraData>
-        Map<Comparable, SpectraData> oldSpectraDataMap = unmarshaller.getSpectraDataMap();
+    /**
+     * @param oldSpectraDataMap Map<"SD_1", SpectraData>
+     */
+    protected void cacheSpectraData(Map<Comparable, SpectraData> oldSpectraDataMap) {
 
         if (oldSpectraDataMap != null && !oldSpectraDataMap.isEmpty()) {
             Map<Comparable, uk.ac.ebi.pride.utilities.data.core.SpectraData> spectraDataMapResult = new HashMap<>();
@@ -8,6 +8,10 @@ import uk.ac.ebi.jmzidml.model.mzidml.SpectraData;
 import uk.ac.ebi.jmzidml.model.mzidml.SpectrumIdentificationResult;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessException;
 import uk.ac.ebi.pride.utilities.data.controller.cache.CacheEntry;
+import uk.ac.ebi.pride.utilities.data.controller.cache.CacheIndexFile;
+import uk.ac.ebi.pride.utilities.data.controller.cache.PeptideToSpectrumMap;
+import uk.ac.ebi.pride.utilities.data.controller.cache.SpectraDataToSpectrumIdsMap;
+import uk.ac.ebi.pride.utilities.data.controller.cache.SpectrumIdSet;
 import uk.ac.ebi.pride.utilities.data.controller.impl.ControllerImpl.MzIdentMLControllerImpl;
 import uk.ac.ebi.pride.utilities.data.controller.impl.Transformer.MzIdentMLTransformer;
 import uk.ac.ebi.pride.utilities.data.core.CVLookup;
@@ -20,6 +24,10 @@ import uk.ac.ebi.pride.utilities.util.Tuple;
 import javax.naming.ConfigurationException;
 import javax.xml.bind.JAXBException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * The MzIdentMLCacheBuilder initialize the cache for mzidentml file  reading.
@@ -33,12 +41,75 @@ public class MzIdentMLCachingStrategy extends AbstractCachingStrategy {
 
     private static final int INIT_BIG_HASH = 10000;
 
+    /**
+     * Cache categories built when the file is opened, these are persisted in the CacheIndexFile, so that
+     * the file does not need to be read at all when the cache is restored
+     */
+    private static final CacheEntry[] PRESCAN_ENTRIES = {
+            CacheEntry.FRAGMENTATION_TABLE,
+            CacheEntry.CV_LOOKUP,
+            CacheEntry.PROTEIN_GROUP_ID,
+            CacheEntry.PROTEIN_ID,
+            CacheEntry.PROTEIN_TO_PEPTIDE_EVIDENCES,
+            CacheEntry.SPECTRADATA_TO_SPECTRUMIDS,
+            CacheEntry.PEPTIDE_TO_SPECTRUM,
+            CacheEntry.SPECTRUM_IDENTIFIED,
+            CacheEntry.SPECTRUM_TO_PEPTIDES,
+            CacheEntry.MGF_INDEX_TITLE,
+            CacheEntry.SPECTRA_DATA_MGF_TITLE,
+            CacheEntry.SPECTRA_DATA
+    };
+
+    /**
+     * Minimum number of SpectrumIdentificationResults in a shard of the parallel pre-scan
+     */
+    private static final int MIN_SHARD_SIZE = 64;
+
+    private final CacheIndexFile indexFile;
+
+    /**
+     * Number of threads used to pre-scan the file
+     */
+    private final int parallelism;
+
+    public MzIdentMLCachingStrategy() {
+        this(null);
+    }
+
+    /**
+     * Create a caching strategy which restores the pre-scan id maps from an index file,
+     * the index file is written after the pre-scan if it is missing or out of date.
+     *
+     * @param indexFile index file, null to always pre-scan the file
+     */
+    public MzIdentMLCachingStrategy(CacheIndexFile indexFile) {
+        this(indexFile, 1);
+    }
+
+    /**
+     * Create a caching strategy which pre-scans the SpectrumIdentificationResults of the file with several threads.
+     *
+     * @param indexFile   index file, null to always pre-scan the file
+     * @param parallelism number of threads of the pre-scan, 1 to pre-scan the file in the calling thread
+     */
+    public MzIdentMLCachingStrategy(CacheIndexFile indexFile, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.indexFile = indexFile;
+        this.parallelism = parallelism;
+    }
 
     /**
      * Spectrum ids and identification ids are cached.
      */
     @Override
     public void cache() {
+        // the index file holds everything cached here, the unmarshaller is not even created when it is restored
+        if (restorePrescanIdMaps()) {
+            return;
+        }
+
         MzIdentMLUnmarshallerAdaptor unmarshaller = ((MzIdentMLControllerImpl) controller).getUnmarshaller();
         boolean proteinGroupPresent = hasProteinGroup(unmarshaller);
 
@@ -65,8 +136,54 @@ public class MzIdentMLCachingStrategy extends AbstractCachingStrategy {
             throw new DataAccessException("Failed to Prescan id maps for mzIdentML file", e);
         }
 
+        // spectrum to peptides index
+        cacheSpectrumToPeptides();
+
         // cache spectra data
         cacheSpectraData(unmarshaller);
+
+        persistPrescanIdMaps();
+    }
+
+    /**
+     * Restore the pre-scan id maps from the index file, the maps are read-only views of the mapped index file
+     *
+     * @return boolean true if the id maps have been restored
+     */
+    private boolean restorePrescanIdMaps() {
+        if (indexFile == null) {
+            return false;
+        }
+
+        long date = System.currentTimeMillis();
+        Map<CacheEntry, Object> contents = indexFile.read();
+        if (contents == null) {
+            return false;
+        }
+
+        for (Map.Entry<CacheEntry, Object> entry : contents.entrySet()) {
+            cache.restore(entry.getKey(), entry.getValue());
+        }
+        logger.info("Pre-scan id maps restored from " + indexFile.getIndexFile().getName() + " in " + (System.currentTimeMillis() - date) + " ms");
+        return true;
+    }
+
+    /**
+     * Write the pre-scan id maps to the index file
+     */
+    private void persistPrescanIdMaps() {
+        if (indexFile == null) {
+            return;
+        }
+
+        Map<CacheEntry, Object> contents = new EnumMap<CacheEntry, Object>(CacheEntry.class);
+        for (CacheEntry type : PRESCAN_ENTRIES) {
+            Object content = cache.get(type);
+            if (content != null) {
+                contents.put(type, content);
+            }
+        }
+        indexFile.write(contents);
     }
 
     private boolean hasProteinGroup(MzIdentMLUnmarshallerAdaptor unmarshaller) {
@@ -166,107 +283,139 @@ public class MzIdentMLCachingStrategy extends AbstractCachingStrategy {
 
         long date = System.currentTimeMillis();
 
-        boolean mgfTitleReference = false;
-
-        Map<Tuple<String,String>, Comparable> mgfTitleReferenceMap = new HashMap<Tuple<String,String>, Comparable>(INIT_BIG_HASH);
-
-        Map<Comparable, Tuple<String, String>> identSpectrumMap = new HashMap<Comparable, Tuple<String,String>>(INIT_BIG_HASH);
-
-        Set<String> spectrumIdentResultIds = unmarshaller.getIDsForElement(MzIdentMLElement.SpectrumIdentificationResult);
+        PrescanShard prescan = prescan(unmarshaller, false);
 
-        Map<Comparable, SpectraData> spectraDataIds = unmarshaller.getSpectraDataMap();
-
-        List<Comparable> possibleMGMTitleReferenced = unmarshaller.getTitleReferenceFile(spectraDataIds);
-
-        List<Comparable> spectraDataToMGF    = new ArrayList<Comparable>();
-
-        List<Tuple<String, String>> spectrumIdentified = new ArrayList<>(INIT_BIG_HASH);
+        cache.clear(CacheEntry.SPECTRADATA_TO_SPECTRUMIDS);
+        cache.storeInBatch(CacheEntry.SPECTRADATA_TO_SPECTRUMIDS, prescan.spectraDataMap);
 
-        if(spectrumIdentResultIds != null && possibleMGMTitleReferenced.size() > 0 ){
-            mgfTitleReference = true;
-        }
+        cache.clear(CacheEntry.PEPTIDE_TO_SPECTRUM);
+        cache.storeInBatch(CacheEntry.PEPTIDE_TO_SPECTRUM, prescan.identSpectrumMap);
 
-        Map<Comparable, List<Comparable>> spectraDataMap = new HashMap<Comparable, List<Comparable>>(spectraDataIds.size());
+        cache.store(CacheEntry.SPECTRUM_IDENTIFIED, prescan.spectrumIdentified);
 
-        for (String spectrumIdentResultId : spectrumIdentResultIds != null ? spectrumIdentResultIds : null) {
+        cacheMgfTitleReferences(prescan);
+        logger.debug(Long.toString(System.currentTimeMillis() - date));
+    }
 
-            Map<String, String> spectrumIdentificationResultAttributes = unmarshaller.getElementAttributes(spectrumIdentResultId, SpectrumIdentificationResult.class);
-            String spectrumDataReference = spectrumIdentificationResultAttributes.get("spectraData_ref");
+    /**
+     * This function try to Map in memory ids mapping and relation for an mzidentml file. The structure of the
+     * mzidentml files is from spectrum->peptide->protein, but most for the end users is more interesting to
+     * have an information structure from protein->peptide->spectrum. The function take the information from
+     * spectrumItems and read the Peptide Evidences and the Proteins related with these peptideEvidence. Finally
+     * the function construct a map in from proteins to spectra named identProteinsMap.
+     *
+     * @throws javax.naming.ConfigurationException
+     *
+     */
+    private void cachePrescanIdMaps(MzIdentMLUnmarshallerAdaptor unmarshaller) throws ConfigurationException, JAXBException {
 
-            String spectrumID = spectrumIdentificationResultAttributes.get("spectrumID");
-            SpectraData spectraData = spectraDataIds.get(spectrumDataReference);
+        PrescanShard prescan = prescan(unmarshaller, true);
 
-            // fill the SpectraDataMap
-            // for the currently referenced spectra file, retrieve the List (if it exists already) that is to store all the spectra IDs
-            List<Comparable> spectrumIds = spectraDataMap.get(spectrumDataReference);
-            // if there is no spectra ID list for the spectrum file yet, then create one and add it to the map
-            if (spectrumIds == null) {
-                spectrumIds = new ArrayList<Comparable>();
-                spectraDataMap.put(spectrumDataReference, spectrumIds);
-            }
-            // add the spectrum ID to the list of spectrum IDs for the current spectrum file
-            spectrumIds.add(spectrumID);
-
-            // proceed to populate the identSpectrumMap
-            Set<String> spectrumIdentItemIds = unmarshaller.getSpectrumIdentificationItemIds(spectrumIdentResultId);
-            for (String spectrumIdentItemId : spectrumIdentItemIds) {
-                Tuple<String, String> spectrumFeatures = null;
-                if(mgfTitleReference && possibleMGMTitleReferenced.contains(spectrumDataReference)){
-                    Comparable title = unmarshaller.getMGFTitleReference(spectrumIdentResultId);
-                    if(title != null){
-                        spectrumFeatures = new Tuple<String, String>(title.toString(), spectrumDataReference);
-                        identSpectrumMap.put(spectrumIdentItemId, spectrumFeatures);
-                        mgfTitleReferenceMap.put(spectrumFeatures, unmarshaller.getMGFTitleReference(spectrumIdentResultId));
-                        if(!spectraDataToMGF.contains(spectrumDataReference))
-                            spectraDataToMGF.add(spectrumDataReference);
-                    }
-                }else{
-                    // extract the spectrum ID from the provided identifier
-                    String formattedSpectrumID = MzIdentMLUtils.getSpectrumId(spectraData, spectrumID);
-                    spectrumFeatures = new Tuple<String, String>(formattedSpectrumID, spectrumDataReference);
-                    identSpectrumMap.put(spectrumIdentItemId, spectrumFeatures);
-                }
-                if(spectrumFeatures != null)
-                   spectrumIdentified.add(spectrumFeatures);
+        // Protein To to Peptides Evidences, It retrieve the peptides per Proteins
+        cache.clear(CacheEntry.PROTEIN_TO_PEPTIDE_EVIDENCES);
+        cache.storeInBatch(CacheEntry.PROTEIN_TO_PEPTIDE_EVIDENCES, prescan.identProteinsMap);
+        cache.store(CacheEntry.SPECTRUM_IDENTIFIED, prescan.spectrumIdentified);
 
-            }
-        }
+        cache.clear(CacheEntry.PROTEIN_ID);
+        cache.storeInBatch(CacheEntry.PROTEIN_ID, new ArrayList<Comparable>(prescan.identProteinsMap.keySet()));
 
         cache.clear(CacheEntry.SPECTRADATA_TO_SPECTRUMIDS);
-        cache.storeInBatch(CacheEntry.SPECTRADATA_TO_SPECTRUMIDS, spectraDataMap);
+        cache.storeInBatch(CacheEntry.SPECTRADATA_TO_SPECTRUMIDS, prescan.spectraDataMap);
 
         cache.clear(CacheEntry.PEPTIDE_TO_SPECTRUM);
-        cache.storeInBatch(CacheEntry.PEPTIDE_TO_SPECTRUM, identSpectrumMap);
+        cache.storeInBatch(CacheEntry.PEPTIDE_TO_SPECTRUM, prescan.identSpectrumMap);
 
-        cache.storeInBatch(CacheEntry.SPECTRUM_IDENTIFIED, spectrumIdentified);
+        cacheMgfTitleReferences(prescan);
+    }
 
-        if(mgfTitleReference && mgfTitleReferenceMap.size() > 0){
+    private void cacheMgfTitleReferences(PrescanShard prescan) {
+        if (prescan.mgfTitleReference && prescan.mgfTitleReferenceMap.size() > 0) {
             cache.clear(CacheEntry.MGF_INDEX_TITLE);
-            cache.storeInBatch(CacheEntry.MGF_INDEX_TITLE, mgfTitleReferenceMap);
+            cache.storeInBatch(CacheEntry.MGF_INDEX_TITLE, prescan.mgfTitleReferenceMap);
 
             cache.clear(CacheEntry.SPECTRA_DATA_MGF_TITLE);
-            cache.storeInBatch(CacheEntry.SPECTRA_DATA_MGF_TITLE, spectraDataToMGF);
+            cache.storeInBatch(CacheEntry.SPECTRA_DATA_MGF_TITLE, new ArrayList<Comparable>(prescan.spectraDataToMGF));
         }
-        logger.debug(Long.toString(System.currentTimeMillis() - date));
     }
 
     /**
-     * This function try to Map in memory ids mapping and relation for an mzidentml file. The structure of the
-     * mzidentml files is from spectrum->peptide->protein, but most for the end users is more interesting to
-     * have an information structure from protein->peptide->spectrum. The function take the information from
-     * spectrumItems and read the Peptide Evidences and the Proteins related with these peptideEvidence. Finally
-     * the function construct a map in from proteins to spectra named identProteinsMap.
-     *
-     * @throws javax.naming.ConfigurationException
+     * Scan all the SpectrumIdentificationResults of the file. With a parallelism above one the results are split
+     * in contiguous shards, each shard is scanned into its own maps by a different thread and the shards are merged
+     * in file order, so the result is the same as the one of the serial scan.
      *
+     * @param unmarshaller mzIdentML unmarshaller
+     * @param mapProteins  true to map the proteins to their SpectrumIdentificationItems
+     * @return PrescanShard scan of the whole file
      */
-    private void cachePrescanIdMaps(MzIdentMLUnmarshallerAdaptor unmarshaller) throws ConfigurationException, JAXBException {
+    private PrescanShard prescan(final MzIdentMLUnmarshallerAdaptor unmarshaller, final boolean mapProteins) throws ConfigurationException, JAXBException {
 
         /**
          * Map of IDs to SpectraData, e.g. IDs to spectra files
          */
-        Map<Comparable, SpectraData> spectraDataIds = unmarshaller.getSpectraDataMap();
+        final Map<Comparable, SpectraData> spectraDataIds = unmarshaller.getSpectraDataMap();
+
+        /**
+         * List of PSMs, e.g. SpectrumIdentificationResult IDs
+         */
+        Set<String> spectrumIdentResultIds = unmarshaller.getIDsForElement(MzIdentMLElement.SpectrumIdentificationResult);
+        final List<String> resultIds = spectrumIdentResultIds != null ? new ArrayList<String>(spectrumIdentResultIds) : Collections.<String>emptyList();
+
+        /*
+          Check is the file is using a different reference way
+         */
+        final List<Comparable> possibleMGMTitleReferenced = unmarshaller.getTitleReferenceFile(spectraDataIds);
+        final boolean mgfTitleReference = spectrumIdentResultIds != null && possibleMGMTitleReferenced.size() > 0;
+
+        int shards = Math.min(parallelism, resultIds.size() / MIN_SHARD_SIZE);
+        if (shards <= 1) {
+            PrescanShard prescan = new PrescanShard(mgfTitleReference);
+            prescan.scan(unmarshaller, resultIds, spectraDataIds, possibleMGMTitleReferenced, mapProteins);
+            return prescan;
+        }
 
+        long date = System.currentTimeMillis();
+        // the id mappings are scanned once, before the shards read them
+        unmarshaller.getSpectrumIdentificationItemIds(resultIds.get(0));
+
+        final int shardSize = (resultIds.size() + shards - 1) / shards;
+        ForkJoinPool pool = new ForkJoinPool(shards);
+        try {
+            List<PrescanShard> scans = pool.submit(() -> IntStream.range(0, (resultIds.size() + shardSize - 1) / shardSize).parallel().mapToObj(shard -> {
+                List<String> shardIds = resultIds.subList(shard * shardSize, Math.min(resultIds.size(), (shard + 1) * shardSize));
+                PrescanShard prescan = new PrescanShard(mgfTitleReference);
+                try {
+                    prescan.scan(unmarshaller, shardIds, spectraDataIds, possibleMGMTitleReferenced, mapProteins);
+                } catch (ConfigurationException | JAXBException e) {
+                    throw new DataAccessException("Failed to Prescan id maps for mzIdentML file", e);
+                }
+                return prescan;
+            }).collect(Collectors.toList())).get();
+
+            PrescanShard prescan = new PrescanShard(mgfTitleReference);
+            for (PrescanShard scan : scans) {
+                prescan.merge(scan);
+            }
+            logger.debug("Pre-scan of " + resultIds.size() + " results in " + scans.size() + " shards: " + (System.currentTimeMillis() - date) + " ms");
+            return prescan;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Interrupted while pre-scanning mzIdentML file", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new DataAccessException("Failed to Prescan id maps for mzIdentML file", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Id maps of a range of SpectrumIdentificationResults
+     */
+    private static class PrescanShard {
+
+        private final boolean mgfTitleReference;
 
         /**
          * First Map is the Relation between an Spectrum file and all the Spectrums ids in the file
@@ -275,142 +424,117 @@ public class MzIdentMLCachingStrategy extends AbstractCachingStrategy {
          * shows the number of missing spectrum for an mzidentml file.
          * Map of SpectraData IDs to List of spectrum IDs, e.g. which spectra come from which file
          */
-        Map<Comparable, List<Comparable>> spectraDataMap = new HashMap<Comparable, List<Comparable>>(spectraDataIds.size());
+        private final SpectraDataToSpectrumIdsMap spectraDataMap = new SpectraDataToSpectrumIdsMap();
 
         /**
          * The relation between the peptide evidence and the spectrumIdentificationItem.
          * This map allow the access to the peptide evidence and spectrum information
          * without the Protein information.
-         * ???? PeptideEvidence ????
          *
          * Map of SII IDs to a Tuple< of spectrum ID, spectrum file ID>
          */
-        Map<Comparable, Tuple<String, String>> identSpectrumMap = new HashMap<Comparable, Tuple<String, String>>(INIT_BIG_HASH);
-
-
-        /**
-         * List of PSMs, e.g. SpectrumIdentificationResult IDs
-         */
-        Set<String> spectrumIdentResultIds = unmarshaller.getIDsForElement(MzIdentMLElement.SpectrumIdentificationResult);
+        private final PeptideToSpectrumMap identSpectrumMap = new PeptideToSpectrumMap();
 
         /**
          * This Protein Map represents the Protein identification in the DBSequence Section that contains SpectrumIdentification Items
-         * Each key is the Protein Id, the Map related with each key is a Peptide Evidence Map. Each Peptide Evidence Map contains a key
-         * of the for a PeptideEvidence and a list of SpectrumIdentificationItems. Each Sepctrum Identification Item is that contains
-         * the original id of the spectrum in the Spectrum file and the id of the spectrum file.
-         *
+         * Each key is the Protein Id, the value is the list of SpectrumIdentificationItems of the protein.
+         * The proteins are kept in the order of the file, so the merged shards give the same protein order.
          */
-        Map<Comparable, List<Comparable>> identProteinsMap = new HashMap<Comparable, List<Comparable>>(INIT_BIG_HASH);
+        private final Map<Comparable, List<Comparable>> identProteinsMap = new LinkedHashMap<Comparable, List<Comparable>>(INIT_BIG_HASH);
 
-        List<Tuple<String,String>> spectrumIdentified = new ArrayList<Tuple<String, String>>(INIT_BIG_HASH);
+        private final SpectrumIdSet spectrumIdentified = new SpectrumIdSet();
 
-        /*
-          Check is the file is using a different reference way
-         */
-        boolean mgfTitleReference = false;
+        private final Map<Tuple<String, String>, Comparable> mgfTitleReferenceMap = new HashMap<Tuple<String, String>, Comparable>();
 
-        List<Comparable> possibleMGMTitleReferenced = unmarshaller.getTitleReferenceFile(spectraDataIds);
+        private final Set<Comparable> spectraDataToMGF = new LinkedHashSet<Comparable>();
 
-        if(spectrumIdentResultIds != null && possibleMGMTitleReferenced.size() > 0 ){
-            mgfTitleReference = true;
+        private PrescanShard(boolean mgfTitleReference) {
+            this.mgfTitleReference = mgfTitleReference;
         }
 
-        Map<Tuple<String, String>, Comparable> mgfTitleReferenceMap = new HashMap<Tuple<String, String>, Comparable>();
-        List<Comparable> spectraDataToMGF    = new ArrayList<Comparable>();
+        private void scan(MzIdentMLUnmarshallerAdaptor unmarshaller, List<String> spectrumIdentResultIds,
+                          Map<Comparable, SpectraData> spectraDataIds, List<Comparable> possibleMGMTitleReferenced,
+                          boolean mapProteins) throws ConfigurationException, JAXBException {
 
-        /*
-         Do the preScan
-         */
+            for (String spectrumIdentResultId : spectrumIdentResultIds) {
 
-        for (String spectrumIdentResultId : spectrumIdentResultIds) {
+                Map<String, String> spectrumIdentificationResultAttributes = unmarshaller.getElementAttributes(spectrumIdentResultId, SpectrumIdentificationResult.class);
+                String spectrumDataReference = spectrumIdentificationResultAttributes.get("spectraData_ref");
+                String spectrumID = spectrumIdentificationResultAttributes.get("spectrumID");
 
-            Map<String, String> spectrumIdentificationResultAttributes = unmarshaller.getElementAttributes(spectrumIdentResultId, SpectrumIdentificationResult.class);
-            String spectrumDataReference = spectrumIdentificationResultAttributes.get("spectraData_ref");
-            String spectrumID = spectrumIdentificationResultAttributes.get("spectrumID");
-
-            // fill the SpectraDataMap
-            // for the currently referenced spectra file, retrieve the List (if it exists already) that is to store all the spectra IDs
-            List<Comparable> spectrumIds = spectraDataMap.get(spectrumDataReference);
-            // if there is no spectra ID list for the spectrum file yet, then create one and add it to the map
-            if (spectrumIds == null) {
-                spectrumIds = new ArrayList<Comparable>();
-                spectraDataMap.put(spectrumDataReference, spectrumIds);
-            }
-            // add the spectrum ID to the list of spectrum IDs for the current spectrum file
-            spectrumIds.add(spectrumID);
+                // fill the SpectraDataMap
+                // add the spectrum ID to the list of spectrum IDs for the currently referenced spectra file
+                spectraDataMap.add(spectrumDataReference, spectrumID);
 
-            // proceed to populate the identSpectrumMap
-            Set<String> spectrumIdentItemIds = unmarshaller.getSpectrumIdentificationItemIds(spectrumIdentResultId);
+                // proceed to populate the identSpectrumMap
+                Set<String> spectrumIdentItemIds = unmarshaller.getSpectrumIdentificationItemIds(spectrumIdentResultId);
 
-            for (String spectrumIdentItemId : spectrumIdentItemIds) {
-                Tuple<String, String> spectrumFeatures = null;
+                for (String spectrumIdentItemId : spectrumIdentItemIds) {
+                    Tuple<String, String> spectrumFeatures = null;
 
-                if(mgfTitleReference && possibleMGMTitleReferenced.contains(spectrumDataReference)){
-                    Comparable title = unmarshaller.getMGFTitleReference(spectrumIdentResultId);
-                    if(title != null){
-                         spectrumFeatures = new Tuple<>(title.toString(), spectrumDataReference);
-                        identSpectrumMap.put(spectrumIdentItemId, spectrumFeatures);
-                        mgfTitleReferenceMap.put(spectrumFeatures, unmarshaller.getMGFTitleReference(spectrumIdentResultId));
-                        if(!spectraDataToMGF.contains(spectrumDataReference))
+                    if (mgfTitleReference && possibleMGMTitleReferenced.contains(spectrumDataReference)) {
+                        Comparable title = unmarshaller.getMGFTitleReference(spectrumIdentResultId);
+                        if (title != null) {
+                            spectrumFeatures = new Tuple<String, String>(title.toString(), spectrumDataReference);
+                            identSpectrumMap.put(spectrumIdentItemId, spectrumFeatures);
+                            mgfTitleReferenceMap.put(spectrumFeatures, title);
                             spectraDataToMGF.add(spectrumDataReference);
+                        }
+                    } else {
+                        // fill the SpectrumIdentification and the Spectrum information
+                        SpectraData spectraData = spectraDataIds.get(spectrumDataReference);
+
+                        // extract the spectrum ID from the provided identifier
+                        String formattedSpectrumID = MzIdentMLUtils.getSpectrumId(spectraData, spectrumID);
+                        spectrumFeatures = new Tuple<String, String>(formattedSpectrumID, spectrumDataReference);
+                        identSpectrumMap.put(spectrumIdentItemId, spectrumFeatures);
                     }
-                }else{
-                    // fill the SpectrumIdentification and the Spectrum information
-                    SpectraData spectraData = spectraDataIds.get(spectrumDataReference);
-
-                    // extract the spectrum ID from the provided identifier
-                    String formattedSpectrumID = MzIdentMLUtils.getSpectrumId(spectraData, spectrumID);
-                    spectrumFeatures = new Tuple<>(formattedSpectrumID, spectrumDataReference);
-
-                    identSpectrumMap.put(spectrumIdentItemId, spectrumFeatures);
-                }
 
-                if(spectrumFeatures != null)
-                    spectrumIdentified.add(spectrumFeatures);
+                    if (spectrumFeatures != null)
+                        spectrumIdentified.add(spectrumFeatures);
 
-                Set<Comparable> idProteins = new HashSet<Comparable>();
-                Set<String> peptideEvidenceReferences = unmarshaller.getPeptideEvidenceReferences(spectrumIdentResultId, spectrumIdentItemId);
+                    if (mapProteins) {
+                        Set<Comparable> idProteins = new HashSet<Comparable>();
+                        Set<String> peptideEvidenceReferences = unmarshaller.getPeptideEvidenceReferences(spectrumIdentResultId, spectrumIdentItemId);
 
+                        for (String peptideEvidenceReference : peptideEvidenceReferences) {
+                            Map<String, String> attributes = unmarshaller.getElementAttributes(peptideEvidenceReference, PeptideEvidence.class);
+                            idProteins.add(attributes.get("dBSequence_ref"));
+                        }
 
-                for (String peptideEvidenceReference : peptideEvidenceReferences) {
-                    Map<String, String> attributes = unmarshaller.getElementAttributes(peptideEvidenceReference, PeptideEvidence.class);
-                    idProteins.add(attributes.get("dBSequence_ref"));
-                }
-
-                for (Comparable idProtein : idProteins) {
-                    List<Comparable> spectrumIdentifications = identProteinsMap.get(idProtein);
-                    if (spectrumIdentifications == null) {
-                        spectrumIdentifications = new ArrayList<Comparable>();
-                        identProteinsMap.put(idProtein, spectrumIdentifications);
+                        for (Comparable idProtein : idProteins) {
+                            addAll(identProteinsMap, idProtein, Collections.<Comparable>singletonList(spectrumIdentItemId));
+                        }
                     }
-                    spectrumIdentifications.add(spectrumIdentItemId);
                 }
             }
         }
 
-        // Protein To to Peptides Evidences, It retrieve the peptides per Proteins
-        cache.clear(CacheEntry.PROTEIN_TO_PEPTIDE_EVIDENCES);
-        cache.storeInBatch(CacheEntry.PROTEIN_TO_PEPTIDE_EVIDENCES, identProteinsMap);
-        cache.storeInBatch(CacheEntry.SPECTRUM_IDENTIFIED, spectrumIdentified);
-
-        cache.clear(CacheEntry.PROTEIN_ID);
-        cache.storeInBatch(CacheEntry.PROTEIN_ID, new ArrayList<Comparable>(identProteinsMap.keySet()));
-
-        cache.clear(CacheEntry.SPECTRADATA_TO_SPECTRUMIDS);
-        cache.storeInBatch(CacheEntry.SPECTRADATA_TO_SPECTRUMIDS, spectraDataMap);
-
-        cache.clear(CacheEntry.PEPTIDE_TO_SPECTRUM);
-        cache.storeInBatch(CacheEntry.PEPTIDE_TO_SPECTRUM, identSpectrumMap);
-
-        if(mgfTitleReference && mgfTitleReferenceMap.size() > 0){
-            cache.clear(CacheEntry.MGF_INDEX_TITLE);
-            cache.storeInBatch(CacheEntry.MGF_INDEX_TITLE, mgfTitleReferenceMap);
+        /**
+         * Append the id maps of the next shard
+         */
+        private void merge(PrescanShard shard) {
+            for (Map.Entry<Comparable, List<Comparable>> entry : shard.spectraDataMap.entrySet()) {
+                for (Comparable spectrumId : entry.getValue()) {
+                    spectraDataMap.add(entry.getKey(), spectrumId);
+                }
+            }
+            for (Map.Entry<Comparable, List<Comparable>> entry : shard.identProteinsMap.entrySet()) {
+                addAll(identProteinsMap, entry.getKey(), entry.getValue());
+            }
+            identSpectrumMap.putAll(shard.identSpectrumMap);
+            spectrumIdentified.addAll(shard.spectrumIdentified);
+            mgfTitleReferenceMap.putAll(shard.mgfTitleReferenceMap);
+            spectraDataToMGF.addAll(shard.spectraDataToMGF);
+        }
 
-            cache.clear(CacheEntry.SPECTRA_DATA_MGF_TITLE);
-            cache.storeInBatch(CacheEntry.SPECTRA_DATA_MGF_TITLE, spectraDataToMGF);
+        private static void addAll(Map<Comparable, List<Comparable>> map, Comparable key, List<Comparable> values) {
+            List<Comparable> list = map.get(key);
+            if (list == null) {
+                list = new ArrayList<Comparable>(values.size());
+                map.put(key, list);
+            }
+            list.addAll(values);
         }
     }
 }
-
-
-
@@ -5,10 +5,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.ac.ebi.pride.jmztab.model.*;
 import uk.ac.ebi.pride.utilities.data.controller.cache.CacheEntry;
+import uk.ac.ebi.pride.utilities.data.controller.cache.PeptideToSpectrumMap;
+import uk.ac.ebi.pride.utilities.data.controller.cache.SpectraDataToSpectrumIdsMap;
+import uk.ac.ebi.pride.utilities.data.controller.cache.SpectrumIdSet;
 import uk.ac.ebi.pride.utilities.data.controller.impl.ControllerImpl.MzTabControllerImpl;
 import uk.ac.ebi.pride.utilities.data.controller.impl.Transformer.MzTabTransformer;
 import uk.ac.ebi.pride.utilities.data.core.SpectraData;
 import uk.ac.ebi.pride.utilities.data.io.file.MzTabUnmarshallerAdaptor;
+import uk.ac.ebi.pride.utilities.data.utils.AccessionIndex;
 import uk.ac.ebi.pride.utilities.data.utils.MzTabUtils;
 
 import uk.ac.ebi.pride.utilities.util.Tuple;
@@ -42,7 +46,7 @@ public class MzTabCachingStrategy extends AbstractCachingStrategy {
          * Quatitative Section.
          */
 
-        Map<String, String> proteinAccession = cacheSpectrumIds(unmarshaller);
+        LinkedHashMap<String, String> proteinAccession = cacheSpectrumIds(unmarshaller);
 
         if(unmarshaller.hasQuantitationData())
             cacheQuantPeptideIds(unmarshaller, proteinAccession);
@@ -54,6 +58,8 @@ public class MzTabCachingStrategy extends AbstractCachingStrategy {
         if (hasProteinGroup(unmarshaller)) {
             cacheProteinGroups(unmarshaller);
         }
+
+        cacheSpectrumToPeptides();
     }
     /**
      * Check if the MzTab File contrains Protein Group Information
@@ -99,23 +105,28 @@ public class MzTabCachingStrategy extends AbstractCachingStrategy {
     /**
      * Cache all spectra and Spectrum Identification Items. It also returns the set of Proteins with accessions that will be use to cache the quantitative peptides
      * if the information is provided.
+     * <p/>
+     * The proteins are indexed by accession once, and each PSM is joined to its proteins with a lookup in the index.
      *
      * @param unmarshaller the Mztab Unmarshaller
      */
-    private Map<String, String> cacheSpectrumIds(MzTabUnmarshallerAdaptor unmarshaller){
+    private LinkedHashMap<String, String> cacheSpectrumIds(MzTabUnmarshallerAdaptor unmarshaller){
 
-        Map<Comparable, Tuple<String, String>> identSpectrumMap    = new HashMap<Comparable, Tuple<String, String>>(INIT_BIG_HASH);
+        PeptideToSpectrumMap identSpectrumMap = new PeptideToSpectrumMap();
 
-        Map<Comparable, List<String>> spectraDataMap  = new HashMap<Comparable, List<String>>();
+        SpectraDataToSpectrumIdsMap spectraDataMap = new SpectraDataToSpectrumIdsMap();
 
         Map<String, List<String>> proteinPSMIds = new HashMap<String, List<String>>(INIT_BIG_HASH);
 
-        Map<String, String> proteinAccessions    = new HashMap<String, String>(INIT_BIG_HASH);
+        LinkedHashMap<String, String> proteinAccessions = new LinkedHashMap<String, String>(INIT_BIG_HASH);
 
-        List<Tuple<String, String>> spectrumIdentified = new ArrayList<Tuple<String, String>>();
+        SpectrumIdSet spectrumIdentified = new SpectrumIdSet();
 
         Map<Comparable, SpectraData> spectraDataIds   = MzTabTransformer.transformMsRunMap(unmarshaller.getMRunMap());
 
+        // created with the first spectra reference, the accessions are only returned if there is one
+        AccessionIndex proteinIndex = null;
+
         for (Map.Entry psmEntry : unmarshaller.getPSMs().entrySet()) {
 
             String psmId = psmEntry.getKey().toString();
@@ -135,32 +146,20 @@ public class MzTabCachingStrategy extends AbstractCachingStrategy {
 
                 String currentPSMId = psmId + "!" + count;
 
-                if(spectraDataMap.containsKey(msRunId))
-                    spectraDataMap.get(msRunId).add(currentPSMId);
-                else{
-                    List<String> psmIDs = new ArrayList<String>();
-                    psmIDs.add(currentPSMId);
-                    spectraDataMap.put(msRunId, psmIDs);
-                }
+                spectraDataMap.add(msRunId, currentPSMId);
                 // extract the spectrum ID from the provided identifier
                 String formattedSpectrumID = MzTabUtils.getSpectrumId(spectraDataIds.get(msRunId), reference);
                 Tuple<String, String> spectrumFeatures = new Tuple<String, String>(formattedSpectrumID, msRunId);
                 identSpectrumMap.put(currentPSMId, spectrumFeatures);
                 spectrumIdentified.add(spectrumFeatures);
 
-                for(Map.Entry proteinEntry: unmarshaller.getAllProteins().entrySet()){
-                    Protein protein = (Protein) proteinEntry.getValue();
-                    String proteinId = proteinEntry.getKey().toString();
-                    List<String> psmIds = new ArrayList<String>();
-                    if(psm.getAccession().equalsIgnoreCase(protein.getAccession())){
-                        if(proteinPSMIds.containsKey(proteinId))
-                            psmIds = proteinPSMIds.get(proteinId);
-                        psmIds.add(currentPSMId);
-                        proteinPSMIds.put(proteinId,psmIds);
+                if(proteinIndex == null){
+                    for(Map.Entry<Integer, String> proteinEntry: unmarshaller.getProteinAccessions().entrySet()){
+                        proteinAccessions.put(proteinEntry.getKey().toString(), proteinEntry.getValue());
                     }
-                    if(!proteinAccessions.containsKey(proteinId))
-                        proteinAccessions.put(proteinId, protein.getAccession());
+                    proteinIndex = AccessionIndex.create(proteinAccessions);
                 }
+                proteinIndex.join(psm.getAccession(), currentPSMId, proteinPSMIds);
 
                 count++;
             }
@@ -172,7 +171,7 @@ public class MzTabCachingStrategy extends AbstractCachingStrategy {
         cache.clear(CacheEntry.PEPTIDE_TO_SPECTRUM);
         cache.storeInBatch(CacheEntry.PEPTIDE_TO_SPECTRUM, identSpectrumMap);
 
-        cache.storeInBatch(CacheEntry.SPECTRUM_IDENTIFIED, spectrumIdentified);
+        cache.store(CacheEntry.SPECTRUM_IDENTIFIED, spectrumIdentified);
 
         cache.clear(CacheEntry.SPECTRA_DATA);
         cache.storeInBatch(CacheEntry.SPECTRA_DATA, spectraDataIds);
@@ -218,15 +217,17 @@ public class MzTabCachingStrategy extends AbstractCachingStrategy {
      * @param unmarshaller mzTab Unmarshaller
      */
 
-    private void cacheQuantPeptideIds(MzTabUnmarshallerAdaptor unmarshaller, Map<String, String> proteinAccession) {
+    private void cacheQuantPeptideIds(MzTabUnmarshallerAdaptor unmarshaller, LinkedHashMap<String, String> proteinAccession) {
 
-        Map<Comparable, Tuple<String, String>> identSpectrumMap    = new HashMap<Comparable, Tuple<String, String>>();
+        PeptideToSpectrumMap identSpectrumMap = new PeptideToSpectrumMap();
 
         Map<Comparable, SpectraData> spectraDataIds   = MzTabTransformer.transformMsRunMap(unmarshaller.getMRunMap());
 
         Map<String, List<String>> proteinPeptides     = new HashMap<String, List<String>>();
 
-        List<Tuple<String, String>> spectrumIdentified = new ArrayList<Tuple<String, String>>();
+        SpectrumIdSet spectrumIdentified = new SpectrumIdSet();
+
+        AccessionIndex proteinIndex = AccessionIndex.create(proteinAccession);
 
         for (Map.Entry peptideEntry : unmarshaller.getPeptides().entrySet()) {
 
@@ -255,32 +256,12 @@ public class MzTabCachingStrategy extends AbstractCachingStrategy {
                     identSpectrumMap.put(currentPeptideId, spectrumFeatures);
                     spectrumIdentified.add(spectrumFeatures);
                     count++;
-                    for(Map.Entry proteinEntry: proteinAccession.entrySet()){
-                        String proteinID = proteinEntry.getKey().toString();
-                        String accession = proteinEntry.getValue().toString();
-                        List<String> peptideIds = new ArrayList<String>();
-                        if(peptide.getAccession().equalsIgnoreCase(accession)){
-                            if(proteinPeptides.containsKey(proteinID))
-                                peptideIds = proteinPeptides.get(proteinID);
-                            peptideIds.add(currentPeptideId);
-                            proteinPeptides.put(proteinID, peptideIds);
-                        }
-                    }
+                    proteinIndex.join(peptide.getAccession(), currentPeptideId, proteinPeptides);
 
                 }
             }else{
                 identSpectrumMap.put(peptideId + "!" + count, null);
-                for(Map.Entry proteinEntry: proteinAccession.entrySet()){
-                    String proteinID = proteinEntry.getKey().toString();
-                    String accession = proteinEntry.getValue().toString();
-                    List<String> peptideIds = new ArrayList<String>();
-                    if(peptide.getAccession().equalsIgnoreCase(accession)){
-                        if(proteinPeptides.containsKey(proteinID))
-                            peptideIds = proteinPeptides.get(proteinID);
-                        peptideIds.add(peptideId + "!" + count);
-                        proteinPeptides.put(proteinID, peptideIds);
-                    }
-                }
+                proteinIndex.join(peptide.getAccession(), peptideId + "!" + count, proteinPeptides);
             }
 
         }
@@ -288,7 +269,7 @@ public class MzTabCachingStrategy extends AbstractCachingStrategy {
         cache.clear(CacheEntry.QUANTPEPTIDE_TO_SPECTREUM);
         cache.storeInBatch(CacheEntry.QUANTPEPTIDE_TO_SPECTREUM, identSpectrumMap);
 
-        cache.storeInBatch(CacheEntry.SPECTRUM_IDENTIFIED, spectrumIdentified);
+        cache.store(CacheEntry.SPECTRUM_IDENTIFIED, spectrumIdentified);
 
         cache.clear(CacheEntry.PROTEIN_TO_QUANTPEPTIDES);
         cache.storeInBatch(CacheEntry.PROTEIN_TO_QUANTPEPTIDES, proteinPeptides);
@@ -1,16 +1,19 @@
 package uk.ac.ebi.pride.utilities.data.controller.cache.strategy;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import uk.ac.ebi.pride.tools.jmzreader.JMzReaderException;
 import uk.ac.ebi.pride.tools.mgf_parser.MgfFile;
 import uk.ac.ebi.pride.tools.mgf_parser.model.Ms2Query;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessException;
 import uk.ac.ebi.pride.utilities.data.controller.cache.CacheEntry;
 import uk.ac.ebi.pride.utilities.data.controller.impl.ControllerImpl.PeakControllerImpl;
+import uk.ac.ebi.pride.utilities.data.io.file.MgfIndex;
 import uk.ac.ebi.pride.utilities.data.io.file.PeakUnmarshallerAdaptor;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
 
 /**
  * PeakCacheBuilder provides the methods to initialize the Cache Categories
@@ -22,6 +25,8 @@ import java.util.Map;
  */
 public class PeakCachingStrategy extends AbstractCachingStrategy {
 
+    private static final Logger logger = LoggerFactory.getLogger(PeakCachingStrategy.class);
+
     /**
      * For the moment, MzXmlCacheBuilder only caches spectrum ids and chromatogram ids.
      */
@@ -34,13 +39,11 @@ public class PeakCachingStrategy extends AbstractCachingStrategy {
         cache.clear(CacheEntry.SPECTRUM_ID);
         cache.storeInBatch(CacheEntry.SPECTRUM_ID, new ArrayList<Comparable>(unmarshaller.getSpectrumIds()));
         if(unmarshaller.isUseTitle() && unmarshaller.getUnmarshaller() instanceof MgfFile){
-            Map<Comparable, Comparable> titleToIndex = new HashMap<Comparable, Comparable>();
-            for(Comparable idSpec: unmarshaller.getSpectrumIds()){
-                try {
-                   Ms2Query spectrum = (Ms2Query) unmarshaller.getSpectrumById(idSpec.toString());
-                   titleToIndex.put(spectrum.getTitle(), idSpec);
-                } catch (JMzReaderException e) {
-                    throw new DataAccessException("Failed to cache the mgf peak list file ", e);
+            Map<Comparable, Comparable> titleToIndex = getTitlesFromIndex(unmarshaller);
+            if (titleToIndex == null) {
+                titleToIndex = new HashMap<Comparable, Comparable>();
+                for(Comparable idSpec: unmarshaller.getSpectrumIds()){
+                    titleToIndex.put(getTitle(unmarshaller, idSpec), idSpec);
                 }
             }
             cache.clear(CacheEntry.TITLE_MGF_INDEX);
@@ -48,4 +51,46 @@ public class PeakCachingStrategy extends AbstractCachingStrategy {
         }
 
     }
+
+    /**
+     * Read the titles with a byte level scan of the MGF file, without parsing the peak lists.
+     *
+     * @return Map<Comparable, Comparable>  title to spectrum id, null if the scan does not match the spectra
+     * of the MGF reader, then every spectrum has to be parsed
+     */
+    private Map<Comparable, Comparable> getTitlesFromIndex(PeakUnmarshallerAdaptor unmarshaller) {
+        File file = (File) controller.getSource();
+        List<String> spectrumIds = unmarshaller.getSpectrumIds();
+
+        long date = System.currentTimeMillis();
+        MgfIndex index;
+        try {
+            index = MgfIndex.scan(file);
+        } catch (IOException e) {
+            logger.warn("Failed to scan the titles of the mgf peak list file: " + file.getAbsolutePath(), e);
+            return null;
+        }
+
+        // the spectrum ids of the reader are in file order, the first title must be the same as the parsed one
+        if (index.size() != spectrumIds.size() || (index.size() > 0
+                && !Objects.equals(index.getTitle(0), getTitle(unmarshaller, spectrumIds.get(0))))) {
+            logger.warn("The scanned titles do not match the spectra of the mgf peak list file: " + file.getAbsolutePath());
+            return null;
+        }
+
+        Map<Comparable, Comparable> titleToIndex = new HashMap<Comparable, Comparable>(index.size() * 2);
+        for (int i = 0; i < index.size(); i++) {
+            titleToIndex.put(index.getTitle(i), spectrumIds.get(i));
+        }
+        logger.debug("Titles of " + index.size() + " spectra scanned in " + (System.currentTimeMillis() - date) + " ms");
+        return titleToIndex;
+    }
+
+    private static String getTitle(PeakUnmarshallerAdaptor unmarshaller, Comparable spectrumId) {
+        try {
+            return ((Ms2Query) unmarshaller.getSpectrumById(spectrumId.toString())).getTitle();
+        } catch (JMzReaderException e) {
+            throw new DataAccessException("Failed to cache the mgf peak list file ", e);
+        }
+    }
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import uk.ac.ebi.pride.utilities.data.controller.DataAccessController;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessUtilities;
 import uk.ac.ebi.pride.utilities.data.core.*;
 import uk.ac.ebi.pride.utilities.data.utils.CollectionUtils;
+import uk.ac.ebi.pride.utilities.data.utils.IndexedList;
 import uk.ac.ebi.pride.utilities.term.QuantCvTermReference;
 import uk.ac.ebi.pride.utilities.term.SearchEngineCvTermReference;
 import uk.ac.ebi.pride.utilities.term.SearchEngineScoreCvTermReference;
@@ -43,6 +44,16 @@ public abstract class AbstractDataAccessController implements DataAccessControll
      * Data source, such as: File
      */
     private Object source;
+    /**
+     * Keep 32-bit peak arrays in single precision, instead of widening them to double
+     */
+    private boolean compactPeakStorage;
+    /**
+     * Index over the spectrum ids, kept as long as getSpectrumIds returns the same collection
+     */
+    private IndexedList<Comparable> spectrumIdIndex;
+    private Collection<Comparable> spectrumIdIndexSource;
+    private int spectrumIdIndexSourceSize;
 
     /**
      * the inferred protein groups, if they are not listed in the file but inferred by e.g. PIA
@@ -109,6 +120,21 @@ public abstract class AbstractDataAccessController implements DataAccessControll
         this.source = src;
     }
 
+    /**
+     * Whether 32-bit peak arrays are kept in single precision, this halves the memory used by
+     * cached spectra and chromatograms. Only honoured by controllers whose files store the precision
+     * of the arrays (mzML and PRIDE XML).
+     *
+     * @return boolean true if compact peak storage is used
+     */
+    public boolean isCompactPeakStorage() {
+        return compactPeakStorage;
+    }
+
+    public void setCompactPeakStorage(boolean compactPeakStorage) {
+        this.compactPeakStorage = compactPeakStorage;
+    }
+
     @Override
     public void close() {
     }
@@ -170,26 +196,65 @@ public abstract class AbstractDataAccessController implements DataAccessControll
         return 0;
     }
 
+    /**
+     * Get the spectrum ids as an ordered, random access index, in file order.
+     * The ids can be looked up by position and by id in constant time.
+     * <p/>
+     * An index is built from getSpectrumIds when the ids are not already indexed, it is rebuilt only
+     * when getSpectrumIds returns another collection or the collection changes size.
+     *
+     * @return IndexedList<Comparable> spectrum id index
+     */
+    public IndexedList<Comparable> getSpectrumIdIndex() {
+        Collection<Comparable> spectrumIds = getSpectrumIds();
+        if (spectrumIds == null || spectrumIds instanceof IndexedList) {
+            return IndexedList.of(spectrumIds);
+        }
+        return getSpectrumIdIndex(spectrumIds);
+    }
+
+    private synchronized IndexedList<Comparable> getSpectrumIdIndex(Collection<Comparable> spectrumIds) {
+        if (spectrumIdIndex == null || spectrumIdIndexSource != spectrumIds || spectrumIdIndexSourceSize != spectrumIds.size()) {
+            spectrumIdIndex = IndexedList.of(spectrumIds);
+            spectrumIdIndexSource = spectrumIds;
+            spectrumIdIndexSourceSize = spectrumIds.size();
+        }
+        return spectrumIdIndex;
+    }
+
+    /**
+     * Get the chromatogram ids as an ordered, random access index, in file order.
+     *
+     * @return IndexedList<Comparable> chromatogram id index
+     */
+    public IndexedList<Comparable> getChromatogramIdIndex() {
+        return IndexedList.of(getChromatogramIds());
+    }
+
+    /**
+     * Get the protein ids as an ordered, random access index, in file order.
+     *
+     * @return IndexedList<Comparable> protein id index
+     */
+    public IndexedList<Comparable> getProteinIdIndex() {
+        return IndexedList.of(getProteinIds());
+    }
+
     @Override
     public int getSpectrumIndex(Comparable id) {
-        int index = -1;
-        Collection<Comparable> ids = getSpectrumIds();
-        if (ids != null) {
-            index = CollectionUtils.getIndex(ids, id);
-        }
-        return index;
+        return getSpectrumIdIndex().indexOf(id);
     }
 
     @Override
     public Collection<Spectrum> getSpectraByIndex(int index, int offset) {
         List<Spectrum> spectra = new ArrayList<Spectrum>();
-        Collection<Comparable> specIds = getSpectrumIds();
-        if (specIds != null && index < specIds.size()) {
+        IndexedList<Comparable> specIds = getSpectrumIdIndex();
+        if (index < specIds.size()) {
             int stopIndex = index + offset;
             int idSize = specIds.size();
             stopIndex = stopIndex >= idSize ? idSize : stopIndex;
             for (int i = index; i < stopIndex; i++) {
-                Comparable specId = CollectionUtils.getElement(specIds, i);
+                Comparable specId = specIds.get(i);
                 spectra.add(getSpectrumById(specId));
             }
         }
@@ -346,24 +411,19 @@ public abstract class AbstractDataAccessController implements DataAccessControll
 
     @Override
     public int getChromatogramIndex(Comparable chromaId) {
-        int index = -1;
-        Collection<Comparable> ids = getChromatogramIds();
-        if (ids != null) {
-            index = CollectionUtils.getIndex(ids, chromaId);
-        }
-        return index;
+        return getChromatogramIdIndex().indexOf(chromaId);
     }
 
     @Override
     public Collection<Chromatogram> getChromatogramByIndex(int index, int offset) {
         List<Chromatogram> chromas = new ArrayList<Chromatogram>();
-        Collection<Comparable> chromatogramIds = getChromatogramIds();
-        if (chromatogramIds != null && index < chromatogramIds.size()) {
+        IndexedList<Comparable> chromatogramIds = getChromatogramIdIndex();
+        if (index < chromatogramIds.size()) {
             int stopIndex = index + offset;
             int idSize = chromatogramIds.size();
             stopIndex = stopIndex >= idSize ? idSize : stopIndex;
             for (int i = index; i < stopIndex; i++) {
-                Comparable chromaId = CollectionUtils.getElement(chromatogramIds, i);
+                Comparable chromaId = chromatogramIds.get(i);
                 chromas.add(getChromatogramById(chromaId));
             }
         }
@@ -438,23 +498,18 @@ public abstract class AbstractDataAccessController implements DataAccessControll
 
     @Override
     public int indexOfProtein(Comparable proteinId) {
-        int index = -1;
-        Collection<Comparable> ids = getProteinIds();
-        if (ids != null) {
-            index = CollectionUtils.getIndex(ids, proteinId);
-        }
-        return index;
+        return getProteinIdIndex().indexOf(proteinId);
     }
 
     public Collection<Protein> getProteinByIndex(int index, int offset) {
         List<Protein> proteins = new ArrayList<Protein>();
-        Collection<Comparable> proteinIds = getProteinIds();
-        if (proteinIds != null && index < proteinIds.size()) {
+        IndexedList<Comparable> proteinIds = getProteinIdIndex();
+        if (index < proteinIds.size()) {
             int stopIndex = index + offset;
             int idSize = proteinIds.size();
             stopIndex = stopIndex >= idSize ? idSize : stopIndex;
             for (int i = index; i < stopIndex; i++) {
-                Comparable intentId = CollectionUtils.getElement(proteinIds, i);
+                Comparable intentId = proteinIds.get(i);
                 proteins.add(getProteinById(intentId));
             }
         }
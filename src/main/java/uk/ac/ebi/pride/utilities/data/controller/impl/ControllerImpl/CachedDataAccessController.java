@@ -9,14 +9,22 @@ import uk.ac.ebi.pride.utilities.data.controller.cache.Cache;
 import uk.ac.ebi.pride.utilities.data.controller.cache.CacheAccessor;
 import uk.ac.ebi.pride.utilities.data.controller.cache.CacheEntry;
 import uk.ac.ebi.pride.utilities.data.controller.cache.CachingStrategy;
+import uk.ac.ebi.pride.utilities.data.controller.cache.PeakArena;
 import uk.ac.ebi.pride.utilities.data.core.*;
 import uk.ac.ebi.pride.utilities.data.utils.CollectionUtils;
+import uk.ac.ebi.pride.utilities.data.utils.IndexedList;
 import uk.ac.ebi.pride.utilities.term.QuantCvTermReference;
 import uk.ac.ebi.pride.utilities.term.SearchEngineCvTermReference;
 import uk.ac.ebi.pride.utilities.term.SearchEngineScoreCvTermReference;
 import uk.ac.ebi.pride.utilities.util.Tuple;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * CachedDataAccessController is abstract class, which enables caching for DataAccessController.
@@ -33,6 +41,10 @@ import java.util.*;
 public abstract class CachedDataAccessController extends AbstractDataAccessController {
 
     private static final Logger logger = LoggerFactory.getLogger(CachedDataAccessController.class);
+    /**
+     * number of spectra read ahead by the bulk methods, while the previous ones are transformed
+     */
+    private static final int SPECTRUM_BATCH_SIZE = 64;
     /**
      * data access mode
      */
@@ -45,6 +57,10 @@ public abstract class CachedDataAccessController extends AbstractDataAccessContr
      * builder is responsible for initializing the Cache
      */
     private CachingStrategy cachingStrategy;
+    /**
+     * executor transforming the spectra read ahead by the bulk methods
+     */
+    private Executor spectrumExecutor = ForkJoinPool.commonPool();
 
     public CachedDataAccessController() {
         this(null, DataAccessMode.CACHE_AND_SOURCE);
@@ -55,9 +71,21 @@ public abstract class CachedDataAccessController extends AbstractDataAccessContr
     }
 
     public CachedDataAccessController(Object source, DataAccessMode mode) {
+        this(source, mode, new CacheAccessor());
+    }
+
+    /**
+     * Create a controller using the given cache implementation, for example
+     * a ConcurrentCacheAccessor when the controller is shared by several threads.
+     *
+     * @param source data source
+     * @param mode   data access mode
+     * @param cache  cache implementation
+     */
+    public CachedDataAccessController(Object source, DataAccessMode mode, Cache cache) {
         super(source);
         this.mode = mode;
-        this.cache = new CacheAccessor();
+        this.cache = cache == null ? new CacheAccessor() : cache;
     }
 
     public Cache getCache() {
@@ -88,6 +116,17 @@ public abstract class CachedDataAccessController extends AbstractDataAccessContr
         }
     }
 
+    /**
+     * Set the executor transforming the spectra read ahead by getSpectraByIds and streamSpectra().
+     * The transformations are short and CPU bound, so they run on the common ForkJoinPool by default,
+     * a dedicated executor keeps them apart from the other tasks of the common pool.
+     *
+     * @param executor executor to transform the spectra, null for the common ForkJoinPool
+     */
+    public void setSpectrumExecutor(Executor executor) {
+        this.spectrumExecutor = executor == null ? ForkJoinPool.commonPool() : executor;
+    }
+
     /**
      * Get the runtime mode
      *
@@ -174,6 +213,194 @@ public abstract class CachedDataAccessController extends AbstractDataAccessContr
     }
 
 
+    /**
+     * Copy the peaks of the spectra into an off-heap arena, the spectra are read in bulk with streamSpectra,
+     * they are not added to the cache, so they can be garbage collected straight away.
+     *
+     * @param arena   peak arena to fill
+     * @param msLevel only add the spectra of this ms level, -1 for all the spectra
+     * @return int number of spectra added
+     */
+    public int fillPeakArena(PeakArena arena, int msLevel) {
+        int count = 0;
+        try (Stream<Spectrum> spectra = streamSpectra()) {
+            Iterator<Spectrum> iterator = spectra.iterator();
+            while (iterator.hasNext()) {
+                Spectrum spectrum = iterator.next();
+                if (spectrum != null && (msLevel < 0 || DataAccessUtilities.getMsLevel(spectrum) == msLevel)
+                        && arena.add(spectrum)) {
+                    count++;
+                }
+            }
+        }
+        logger.debug("Added {} spectra to the peak arena", count);
+        return count;
+    }
+
+    /**
+     * Read a spectrum from the data source without transforming it, for the bulk methods.
+     * It is always called from a single thread at a time.
+     * <p/>
+     * Overriding it is optional: by default it returns null, and the bulk methods fall back to
+     * getSpectrumById.
+     *
+     * @param id spectrum id
+     * @return Object raw spectrum, null if the controller does not support reading raw spectra
+     */
+    Object getRawSpectrumById(Comparable id) {
+        return null;
+    }
+
+    /**
+     * Transform a spectrum read by getRawSpectrumById, it can be called from several threads at a time.
+     * <p/>
+     * By default the raw spectrum is expected to be a Spectrum already, and it is returned as it is.
+     *
+     * @param rawSpectrum raw spectrum
+     * @return Spectrum spectrum
+     */
+    Spectrum transformSpectrum(Object rawSpectrum) {
+        if (rawSpectrum instanceof Spectrum) {
+            return (Spectrum) rawSpectrum;
+        }
+        throw new DataAccessException(getClass().getSimpleName() + " reads raw spectra of type "
+                + rawSpectrum.getClass().getName() + " but does not transform them");
+    }
+
+    /**
+     * Get a list of spectra in bulk, the spectra which are not in the cache are read in file order
+     * and transformed on a worker pool, they are not added to the cache.
+     *
+     * @param ids spectrum ids
+     * @return List<Spectrum> spectra, in the order of the ids
+     */
+    @Override
+    public List<Spectrum> getSpectraByIds(Collection<Comparable> ids) {
+        Map<Comparable, Spectrum> spectra = new HashMap<Comparable, Spectrum>();
+        List<Comparable> missingIds = new ArrayList<Comparable>();
+        for (Comparable id : ids) {
+            Spectrum spectrum = (Spectrum) cache.get(CacheEntry.SPECTRUM, id);
+            if (spectrum != null) {
+                spectra.put(id, spectrum);
+            } else if (!spectra.containsKey(id)) {
+                spectra.put(id, null);
+                missingIds.add(id);
+            }
+        }
+
+        // read in file order, ids which are not in the index go last
+        final IndexedList<Comparable> index = getSpectrumIdIndex();
+        Collections.sort(missingIds, new Comparator<Comparable>() {
+            @Override
+            public int compare(Comparable id1, Comparable id2) {
+                return Integer.compareUnsigned(index.indexOf(id1), index.indexOf(id2));
+            }
+        });
+
+        Iterator<Comparable> idIterator = missingIds.iterator();
+        Iterator<Spectrum> spectrumIterator = new SpectrumBatchIterator(missingIds.iterator());
+        while (idIterator.hasNext()) {
+            spectra.put(idIterator.next(), spectrumIterator.next());
+        }
+
+        List<Spectrum> results = new ArrayList<Spectrum>(ids.size());
+        for (Comparable id : ids) {
+            results.add(spectra.get(id));
+        }
+        return results;
+    }
+
+    /**
+     * Stream all the spectra in file order, the spectra are read ahead and transformed on a worker pool,
+     * they are not added to the cache.
+     *
+     * @return Stream<Spectrum> spectra
+     */
+    @Override
+    public Stream<Spectrum> streamSpectra() {
+        IndexedList<Comparable> ids = getSpectrumIdIndex();
+        Iterator<Spectrum> iterator = new SpectrumBatchIterator(ids.iterator());
+        return StreamSupport.stream(Spliterators.spliterator(iterator, ids.size(), Spliterator.ORDERED), false);
+    }
+
+    /**
+     * Stream all the spectra through a two stage pipeline: a reader thread reads the raw spectra in file order,
+     * and the executor decodes and transforms them. The spectra are not added to the cache.
+     * <p/>
+     * The stream must be closed when it is not fully consumed, to stop the reader thread.
+     * The controller must not be used by other threads while the stream is open.
+     *
+     * @param executor executor to transform the spectra, for example a ForkJoinPool
+     * @param capacity maximum number of spectra read ahead of the consumer
+     * @param ordered  true to return the spectra in file order, false to return them as soon as they are transformed
+     * @return Stream<Spectrum> spectra
+     */
+    public Stream<Spectrum> streamSpectra(Executor executor, int capacity, boolean ordered) {
+        IndexedList<Comparable> ids = getSpectrumIdIndex();
+        SpectrumPipeline pipeline = new SpectrumPipeline(this, ids, executor, capacity, ordered);
+        int characteristics = ordered ? Spliterator.ORDERED : 0;
+        return StreamSupport.stream(Spliterators.spliterator(pipeline, ids.size(), characteristics), false)
+                .onClose(pipeline::close);
+    }
+
+    /**
+     * Iterate over spectra, reading the next batch from the data source while the current batch
+     * is transformed by the worker pool.
+     */
+    private class SpectrumBatchIterator implements Iterator<Spectrum> {
+
+        private final Iterator<Comparable> ids;
+
+        private List<CompletableFuture<Spectrum>> nextBatch;
+
+        private Iterator<CompletableFuture<Spectrum>> currentBatch = Collections.<CompletableFuture<Spectrum>>emptyList().iterator();
+
+        private SpectrumBatchIterator(Iterator<Comparable> ids) {
+            this.ids = ids;
+            this.nextBatch = readBatch();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!currentBatch.hasNext() && !nextBatch.isEmpty()) {
+                currentBatch = nextBatch.iterator();
+                nextBatch = readBatch();
+            }
+            return currentBatch.hasNext();
+        }
+
+        @Override
+        public Spectrum next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            try {
+                return currentBatch.next().join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) ex.getCause();
+                }
+                throw new DataAccessException("Failed to transform spectrum", ex.getCause());
+            }
+        }
+
+        private List<CompletableFuture<Spectrum>> readBatch() {
+            List<CompletableFuture<Spectrum>> batch = new ArrayList<CompletableFuture<Spectrum>>(SPECTRUM_BATCH_SIZE);
+            while (batch.size() < SPECTRUM_BATCH_SIZE && ids.hasNext()) {
+                Comparable id = ids.next();
+                Spectrum spectrum = (Spectrum) cache.get(CacheEntry.SPECTRUM, id);
+                final Object rawSpectrum = spectrum == null ? getRawSpectrumById(id) : null;
+                if (rawSpectrum != null) {
+                    batch.add(CompletableFuture.supplyAsync(() -> transformSpectrum(rawSpectrum), spectrumExecutor));
+                } else {
+                    batch.add(CompletableFuture.completedFuture(spectrum != null ? spectrum : getSpectrumById(id, false)));
+                }
+            }
+            return batch;
+        }
+    }
+
     public Object getObjectByID(CacheEntry cacheEntry, Comparable id, boolean useCache){
         return useCache ? cache.get(cacheEntry, id): null;
     }
@@ -4,6 +4,7 @@ import lombok.extern.slf4j.Slf4j;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessController;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessException;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessMode;
+import uk.ac.ebi.pride.utilities.data.controller.cache.Cache;
 import uk.ac.ebi.pride.utilities.data.controller.cache.CacheEntry;
 import uk.ac.ebi.pride.utilities.data.controller.cache.strategy.FastMzIdentMLCachingStrategy;
 import uk.ac.ebi.pride.utilities.data.controller.impl.Transformer.LightModelsTransformer;
@@ -15,6 +16,7 @@ import uk.ac.ebi.pride.utilities.data.core.Provider;
 import uk.ac.ebi.pride.utilities.data.core.Sample;
 import uk.ac.ebi.pride.utilities.data.core.SourceFile;
 import uk.ac.ebi.pride.utilities.data.io.file.FastMzIdentMLUnmarshallerAdaptor;
+import uk.ac.ebi.pride.utilities.data.io.file.StreamingMzIdentMLUnmarshaller;
 import uk.ac.ebi.pride.utilities.data.lightModel.*;
 import uk.ac.ebi.pride.utilities.data.lightModel.CvParam;
 import uk.ac.ebi.pride.utilities.data.lightModel.Peptide;
@@ -28,6 +30,8 @@ import java.io.File;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 /**
  * FastMzIdentMLController is a controller supporting for fast access of mzIdentML file designed for
@@ -35,17 +39,30 @@ import java.util.*;
  *
  * NOTE: Do not forget to call "doSpectraValidation" method before you retrieve any data from this class
  *
+ * In streaming mode, doSpectraValidation and getSampleDeltaMzErrorRate read the file with a
+ * StreamingMzIdentMLUnmarshaller and only keep a bounded sample of the PSMs. The other methods still
+ * load the whole file the first time they are called.
+ *
  * @author Suresh Hewapathirana
  */
 @Slf4j
 public class FastMzIdentMLController extends ReferencedIdentificationController {
+  /** Maximum number of PSMs kept per spectra file for getSampleDeltaMzErrorRate in streaming mode */
+  private static final int PSM_SAMPLE_SIZE = 10000;
+
   private int numberOfIdentifiedSpectra = 0;
   private double deltaMzErrorRate = 0.0;
   private DataAccessController dataAccessController;
   private FastMzIdentMLUnmarshallerAdaptor unmarshaller;
+  private StreamingMzIdentMLUnmarshaller streamingUnmarshaller;
+  private final boolean streaming;
   private Set<Comparable> missingIdentifiedSpectraIds;
   private Map<String, List<SpectrumIdentificationResult>> SpectrumIdentResultsGroupedBySpectraIDs;
-  private static boolean hasProteinAmbiguityGroup;
+  private Map<String, Integer> numberOfPSMsBySpectraIDs;
+  private final Random random = new Random();
+  /** Normalised spectrum ids of the peak file of each SpectraData, see getNormalisedSpectrumId */
+  private Map<Comparable, Set<String>> spectrumIdIndexes;
+  private Boolean hasProteinAmbiguityGroup;
 
   /**
    * This constructor forces to cache objects that are required for later use
@@ -53,7 +70,41 @@ public class FastMzIdentMLController extends ReferencedIdentificationController
    * @param inputFile MzIdentML file
    */
   public FastMzIdentMLController(File inputFile) {
+    this(inputFile, false);
+  }
+
+  /**
+   * This constructor forces to cache objects that are required for later use
+   *
+   * @param inputFile MzIdentML file
+   * @param streaming true to validate the spectra without loading the whole file in memory
+   */
+  public FastMzIdentMLController(File inputFile, boolean streaming) {
     super(inputFile, DataAccessMode.CACHE_AND_SOURCE);
+    this.streaming = streaming;
+    initialize();
+  }
+
+  /**
+   * This constructor forces to cache objects that are required for later use, in the given cache implementation
+   *
+   * @param inputFile MzIdentML file
+   * @param cache cache implementation, e.g. ConcurrentCacheAccessor to share the controller between threads
+   */
+  public FastMzIdentMLController(File inputFile, Cache cache) {
+    this(inputFile, cache, false);
+  }
+
+  /**
+   * This constructor forces to cache objects that are required for later use, in the given cache implementation
+   *
+   * @param inputFile MzIdentML file
+   * @param cache cache implementation, e.g. ConcurrentCacheAccessor to share the controller between threads
+   * @param streaming true to validate the spectra without loading the whole file in memory
+   */
+  public FastMzIdentMLController(File inputFile, Cache cache, boolean streaming) {
+    super(inputFile, DataAccessMode.CACHE_AND_SOURCE, cache);
+    this.streaming = streaming;
     initialize();
   }
 
@@ -64,6 +115,9 @@ public class FastMzIdentMLController extends ReferencedIdentificationController
   protected void initialize() {
     File file = (File) getSource();
     unmarshaller = new FastMzIdentMLUnmarshallerAdaptor(file);
+    if (streaming) {
+      streamingUnmarshaller = new StreamingMzIdentMLUnmarshaller(file);
+    }
     msDataAccessControllers = new HashMap<>();
     setName(file.getName());
     setType(Type.MZIDENTML);
@@ -71,7 +125,6 @@ public class FastMzIdentMLController extends ReferencedIdentificationController
     setCachingStrategy(new FastMzIdentMLCachingStrategy());
     populateCache();
     setCvlookupMap();
-    setHasProteinAmbiguityGroup();
   }
 
   /**
@@ -80,45 +133,151 @@ public class FastMzIdentMLController extends ReferencedIdentificationController
    * Number of calculations such as Number of missing spectra, identified spectra will be performed.
    */
   public void doSpectraValidation() {
+    long start = System.currentTimeMillis();
+    int numberOfValidatedSpectra = numberOfIdentifiedSpectra;
     missingIdentifiedSpectraIds = new HashSet<>();
     SpectrumIdentResultsGroupedBySpectraIDs = new Hashtable<>();
+    numberOfPSMsBySpectraIDs = new HashMap<>();
 
     /* Spectra details extracted from MzIdentML -> DataCollection -> Inputs
     eg:  <SpectraData location="file:///Carbamoyl-phosphate synthase small chain-47029-41-G2-4-biotools.mgf" id="SD_1"></SpectraData> */
-    Map<Comparable, SpectraData> spectraDataMap = unmarshaller.getSpectraDataMap();
-    List<SpectrumIdentificationList> spectrumIdentificationLists = unmarshaller.getSpectrumIdentificationList();
-
-    for (SpectrumIdentificationList spectrumIdentificationList : spectrumIdentificationLists) {
-      // eg: <SpectrumIdentificationResult id="SIR_12" spectrumID="index=35"
-      // spectraData_ref="SD_1">...</SpectrumIdentificationResult>
-      for (SpectrumIdentificationResult spectrumIdentificationResult :
-          spectrumIdentificationList.getSpectrumIdentificationResult()) {
-        numberOfIdentifiedSpectra++;
-        String spectrumDataRef =
-            spectrumIdentificationResult.getSpectraDataRef(); // eg: spectraData_ref="SD_1"
-        String spectrumID =
-            spectrumIdentificationResult.getSpectrumID(); // eg: spectrumID="index=35"
-
-        SpectraData spectraData =
-            spectraDataMap.get(spectrumDataRef); // eg: mgf file location, file format etc
-        String formattedSpectrumID =
-            MzIdentMLUtils.getSpectrumId(spectraData, spectrumID); // eg: 35
-        spectrumIdentificationResult.setFormattedSpectrumID(formattedSpectrumID);
-        SpectrumIdentResultsGroupedBySpectraIDs.computeIfAbsent(
-                spectrumDataRef, value -> new ArrayList<>())
-            .add(spectrumIdentificationResult);
-        // check the spectra referenced in the mzIdentML also available in the peak files
-        dataAccessController = msDataAccessControllers.get(spectrumDataRef);
-        if (!isSpectraInPeakFile(dataAccessController, formattedSpectrumID)) {
-          missingIdentifiedSpectraIds.add(formattedSpectrumID);
+    Map<Comparable, SpectraData> spectraDataMap = isStreaming() ?
+        streamingUnmarshaller.getSpectraDataMap() : unmarshaller.getSpectraDataMap();
+    spectrumIdIndexes = buildSpectrumIdIndexes(spectraDataMap);
+
+    if (isStreaming()) {
+      streamingUnmarshaller.readSpectrumIdentificationResults(
+          spectrumIdentificationResult -> validateSpectrumIdentificationResult(spectrumIdentificationResult, spectraDataMap));
+    } else {
+      for (SpectrumIdentificationList spectrumIdentificationList : unmarshaller.getSpectrumIdentificationList()) {
+        // eg: <SpectrumIdentificationResult id="SIR_12" spectrumID="index=35"
+        // spectraData_ref="SD_1">...</SpectrumIdentificationResult>
+        for (SpectrumIdentificationResult spectrumIdentificationResult :
+            spectrumIdentificationList.getSpectrumIdentificationResult()) {
+          validateSpectrumIdentificationResult(spectrumIdentificationResult, spectraDataMap);
         }
       }
+      // all the PSMs are kept, so they are checked against the peak files in parallel, one task per SpectraData
+      List<Set<Comparable>> missingIds = SpectrumIdentResultsGroupedBySpectraIDs.entrySet().parallelStream()
+          .map(entry -> findMissingSpectra(entry.getKey(), entry.getValue()))
+          .collect(Collectors.toList());
+      missingIds.forEach(missingIdentifiedSpectraIds::addAll);
+    }
+
+    numberOfValidatedSpectra = numberOfIdentifiedSpectra - numberOfValidatedSpectra;
+    long time = Math.max(1, System.currentTimeMillis() - start);
+    log.info("Validated " + numberOfValidatedSpectra + " PSMs in " + time + " ms ("
+        + (numberOfValidatedSpectra * 1000L / time) + " PSMs/sec), missing spectra: " + missingIdentifiedSpectraIds.size());
+  }
+
+  /**
+   * Index the spectrum ids of the peak file of every SpectraData, the peak files are indexed in parallel
+   *
+   * @param spectraDataMap SpectraData grouped by SpectraData ID
+   * @return Normalised spectrum ids by SpectraData ID
+   */
+  private Map<Comparable, Set<String>> buildSpectrumIdIndexes(Map<Comparable, SpectraData> spectraDataMap) {
+    Map<Comparable, Set<String>> indexes = new ConcurrentHashMap<>();
+    if (spectraDataMap == null) {
+      return indexes;
+    }
+    msDataAccessControllers.entrySet().parallelStream()
+        .filter(entry -> entry.getValue() != null && spectraDataMap.containsKey(entry.getKey()))
+        .forEach(entry -> {
+          SpectraData spectraData = spectraDataMap.get(entry.getKey());
+          Collection<Comparable> spectrumIds = entry.getValue().getSpectrumIds();
+          Set<String> index = new HashSet<>(spectrumIds.size() * 4 / 3 + 1);
+          for (Comparable id : spectrumIds) {
+            index.add(getNormalisedSpectrumId(spectraData, id));
+          }
+          indexes.put(entry.getKey(), index);
+        });
+    return indexes;
+  }
+
+  /**
+   * Normalise a spectrum id of a peak file the way the identified spectrum ids are formatted, using
+   * MzIdentMLUtils.getSpectrumId with the SpectraData of the peak file, eg: "scan=35" becomes "35".
+   * The ids of peak list files, eg: MGF, are already numbers or titles and are kept as they are.
+   *
+   * @param spectraData SpectraData of the peak file
+   * @param spectrumId spectrum id in the peak file
+   * @return normalised spectrum id
+   */
+  private static String getNormalisedSpectrumId(SpectraData spectraData, Comparable spectrumId) {
+    String id = spectrumId.toString();
+    if (id.indexOf('=') < 0) {
+      return id;
+    }
+    String formattedId = MzIdentMLUtils.getSpectrumId(spectraData, id);
+    return formattedId == null ? id : formattedId;
+  }
+
+  /**
+   * Find the identified spectra which are not in a peak file
+   *
+   * @param spectrumDataRef SpectraData ID of the peak file
+   * @param spectrumIdentificationResults SpectrumIdentificationResults referencing the peak file
+   * @return formatted ids of the missing spectra
+   */
+  private Set<Comparable> findMissingSpectra(String spectrumDataRef,
+                                             List<SpectrumIdentificationResult> spectrumIdentificationResults) {
+    Set<Comparable> missingIds = new HashSet<>();
+    for (SpectrumIdentificationResult spectrumIdentificationResult : spectrumIdentificationResults) {
+      String formattedSpectrumID = spectrumIdentificationResult.getFormattedSpectrumID();
+      if (!isSpectraInPeakFile(spectrumDataRef, formattedSpectrumID)) {
+        missingIds.add(formattedSpectrumID);
+      }
+    }
+    return missingIds;
+  }
+
+  /**
+   * Check a single SpectrumIdentificationResult against the peak files, and keep it for the
+   * random PSM selection
+   *
+   * @param spectrumIdentificationResult SpectrumIdentificationResult
+   * @param spectraDataMap SpectraData grouped by SpectraData ID
+   */
+  private void validateSpectrumIdentificationResult(SpectrumIdentificationResult spectrumIdentificationResult,
+                                                    Map<Comparable, SpectraData> spectraDataMap) {
+    numberOfIdentifiedSpectra++;
+    String spectrumDataRef =
+        spectrumIdentificationResult.getSpectraDataRef(); // eg: spectraData_ref="SD_1"
+    String spectrumID =
+        spectrumIdentificationResult.getSpectrumID(); // eg: spectrumID="index=35"
+
+    SpectraData spectraData =
+        spectraDataMap.get(spectrumDataRef); // eg: mgf file location, file format etc
+    String formattedSpectrumID =
+        MzIdentMLUtils.getSpectrumId(spectraData, spectrumID); // eg: 35
+    spectrumIdentificationResult.setFormattedSpectrumID(formattedSpectrumID);
+
+    List<SpectrumIdentificationResult> psms =
+        SpectrumIdentResultsGroupedBySpectraIDs.computeIfAbsent(spectrumDataRef, value -> new ArrayList<>());
+    int numberOfPSMs = numberOfPSMsBySpectraIDs.merge(spectrumDataRef, 1, Integer::sum);
+    if (!isStreaming() || psms.size() < PSM_SAMPLE_SIZE) {
+      psms.add(spectrumIdentificationResult);
+    } else {
+      // reservoir sampling, every PSM of the spectra file has the same chance to be kept
+      int index = random.nextInt(numberOfPSMs);
+      if (index < PSM_SAMPLE_SIZE) {
+        psms.set(index, spectrumIdentificationResult);
+      }
+    }
+
+    // check the spectra referenced in the mzIdentML also available in the peak files, only the
+    // sample of the PSMs is kept in streaming mode, so they are checked here instead of after the scan
+    dataAccessController = msDataAccessControllers.get(spectrumDataRef);
+    if (isStreaming() && !isSpectraInPeakFile(spectrumDataRef, formattedSpectrumID)) {
+      missingIdentifiedSpectraIds.add(formattedSpectrumID);
     }
   }
 
   /** Load Cv from CvList from MzIdentML */
   private void setCvlookupMap() {
-    List<CVLookup> cvLookupList = LightModelsTransformer.transformCVList(unmarshaller.getCvList());
+    List<CVLookup> cvLookupList = LightModelsTransformer.transformCVList(
+        isStreaming() ? streamingUnmarshaller.getCvList() : unmarshaller.getCvList());
     if (cvLookupList != null && !cvLookupList.isEmpty()) {
       Map<String, CVLookup> cvLookupMap = new HashMap<>();
       for (CVLookup cvLookup : cvLookupList) {
@@ -139,6 +298,37 @@ public class FastMzIdentMLController extends ReferencedIdentificationController
     return unmarshaller;
   }
 
+  /**
+   * Get the StreamingMzIdentMLUnmarshaller used in streaming mode
+   *
+   * @return StreamingMzIdentMLUnmarshaller, null if the controller is not in streaming mode
+   */
+  public StreamingMzIdentMLUnmarshaller getStreamingUnmarshaller() {
+    return streamingUnmarshaller;
+  }
+
+  /**
+   * Check if the spectra validation streams the file instead of loading it in memory
+   *
+   * @return boolean value
+   */
+  public boolean isStreaming() {
+    return streaming;
+  }
+
+  /**
+   * Release the unmarshalled mzIdentML object of this file, other controllers are not affected
+   */
+  @Override
+  public void close() {
+    if (unmarshaller != null) {
+      unmarshaller.close();
+      unmarshaller = null;
+    }
+    streamingUnmarshaller = null;
+    super.close();
+  }
+
   /**
    * Get the number of Proteins reported in the MzIdentML file
    *
@@ -379,7 +569,8 @@ public class FastMzIdentMLController extends ReferencedIdentificationController
     Integer charge = spectrumIdentItem.getChargeState();
     double mz = spectrumIdentItem.getExperimentalMassToCharge();
     String peptideRef = spectrumIdentItem.getPeptideRef();
-    Peptide peptide = unmarshaller.getPeptideById(peptideRef);
+    Peptide peptide = isStreaming() ?
+        streamingUnmarshaller.getPeptideById(peptideRef) : unmarshaller.getPeptideById(peptideRef);
     if (peptide == null) {
       log.error("Random peptide is null! peptideRef:" + peptideRef);
       isDeltaMassThresholdPassed = false;
@@ -404,22 +595,13 @@ public class FastMzIdentMLController extends ReferencedIdentificationController
    * Checks if the spectra available in the peak list. If it is not available, missing spectrumIDs
    * will be collected to the assayFileValidationSummary.
    *
-   * @param dataAccessController DataAccessController
+   * @param spectrumDataRef SpectraData ID of the peak file
    * @param formattedSpectrumID SpectrumID formatted based on the peak list file type
    * @return boolean value, false - if spectra cannot be found in the peak file
    */
-  private boolean isSpectraInPeakFile(
-      DataAccessController dataAccessController, String formattedSpectrumID) {
-    boolean spectraFound = false;
-    if (dataAccessController != null) {
-      for(Comparable id: dataAccessController.getSpectrumIds()){
-        if(id.toString().substring(id.toString().lastIndexOf("=") + 1).equals(formattedSpectrumID)){
-          spectraFound = true;
-          break;
-        }
-      }
-    }
-    return spectraFound;
+  private boolean isSpectraInPeakFile(String spectrumDataRef, String formattedSpectrumID) {
+    Set<String> spectrumIds = spectrumIdIndexes.get(spectrumDataRef);
+    return spectrumIds != null && spectrumIds.contains(formattedSpectrumID);
   }
 
   /**
@@ -785,23 +967,20 @@ public class FastMzIdentMLController extends ReferencedIdentificationController
   }
 
   /**
-   * Returns false of mzIdentML object does not contains any protein ambiguity groups. This has been
-   * pre-calculated with the initiation of the class and it is available as a static variable
+   * Returns false of mzIdentML object does not contains any protein ambiguity groups. This is
+   * calculated the first time it is requested
    *
    * @return boolean value
    */
   @Override
   public boolean hasProteinAmbiguityGroup() {
+    if (hasProteinAmbiguityGroup == null) {
+      hasProteinAmbiguityGroup = isStreaming() ?
+          streamingUnmarshaller.isProteinAmbiguityGroupsAvailable() : unmarshaller.isProteinAmbiguityGroupsAvailable();
+    }
     return hasProteinAmbiguityGroup;
   }
 
-  /**
-   * set the value to a static variable
-   */
-  private void setHasProteinAmbiguityGroup() {
-    hasProteinAmbiguityGroup = unmarshaller.isProteinAmbiguityGroupsAvailable();
-  }
-
   /**
    * Get number of decoy proteins
    *
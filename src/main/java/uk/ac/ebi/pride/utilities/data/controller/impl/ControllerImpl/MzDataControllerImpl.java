@@ -5,29 +5,26 @@ import org.slf4j.LoggerFactory;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessController;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessException;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessMode;
+import uk.ac.ebi.pride.utilities.data.controller.cache.Cache;
 import uk.ac.ebi.pride.utilities.data.controller.cache.CacheEntry;
 import uk.ac.ebi.pride.utilities.data.controller.cache.strategy.MzDataCachingStrategy;
 import uk.ac.ebi.pride.utilities.data.controller.impl.Transformer.MzDataTransformer;
 import uk.ac.ebi.pride.utilities.data.core.*;
 import uk.ac.ebi.pride.utilities.data.io.file.MzDataUnmarshallerAdaptor;
 import uk.ac.ebi.pride.utilities.data.utils.MD5Utils;
+import uk.ac.ebi.pride.utilities.data.utils.FileFormatSniffer;
 import uk.ac.ebi.pride.tools.jmzreader.JMzReaderException;
 import uk.ac.ebi.pride.tools.mzdata_parser.MzDataFile;
 import uk.ac.ebi.pride.tools.mzdata_parser.mzdata.model.Admin;
 import uk.ac.ebi.pride.tools.mzdata_parser.mzdata.model.CvLookup;
 import uk.ac.ebi.pride.tools.mzdata_parser.mzdata.model.InstrumentDescription;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * This controller is used to retrieve the information from mzData files. It uses the jmzReader
@@ -42,10 +39,6 @@ import java.util.regex.Pattern;
 public class MzDataControllerImpl extends CachedDataAccessController {
 
     private static final Logger logger = LoggerFactory.getLogger(MzDataControllerImpl.class);
-    /**
-     * Pattern for validating mzData format
-     */
-    private static final Pattern mzDataHeaderPattern = Pattern.compile("^[^<]*(<\\?xml [^>]*>\\s*(<!--[^>]*-->\\s*)*)?<(mzData) version=.*", Pattern.MULTILINE);
 
     /**
      * Reader for getting information from mzData file
@@ -57,6 +50,17 @@ public class MzDataControllerImpl extends CachedDataAccessController {
         initialize();
     }
 
+    /**
+     * Construct a data access controller using a given mzData file and cache implementation
+     *
+     * @param file  mzData file
+     * @param cache cache implementation, e.g. ConcurrentCacheAccessor to share the controller between threads
+     */
+    public MzDataControllerImpl(File file, Cache cache) {
+        super(file, DataAccessMode.CACHE_AND_SOURCE, cache);
+        initialize();
+    }
+
     private void initialize() {
         File file = (File) this.getSource();
         // create unmarshaller
@@ -307,20 +311,29 @@ public class MzDataControllerImpl extends CachedDataAccessController {
     Spectrum getSpectrumById(Comparable id, boolean useCache) {
         Spectrum spectrum = super.getSpectrumById(id, useCache);
         if (spectrum == null) {
-            try {
-                uk.ac.ebi.pride.tools.jmzreader.model.Spectrum rawSpec = unmarshaller.getSpectrumById(id.toString());
-                spectrum = MzDataTransformer.transformSpectrum(rawSpec);
-                if (useCache) {
-                    getCache().store(CacheEntry.SPECTRUM, id, spectrum);
-                }
-            } catch (JMzReaderException ex) {
-                logger.error("Get spectrum by id", ex);
-                throw new DataAccessException("Exception while trying to read Spectrum using Spectrum ID", ex);
+            spectrum = transformSpectrum(getRawSpectrumById(id));
+            if (useCache) {
+                getCache().store(CacheEntry.SPECTRUM, id, spectrum);
             }
         }
         return spectrum;
     }
 
+    @Override
+    Object getRawSpectrumById(Comparable id) {
+        try {
+            return unmarshaller.getSpectrumById(id.toString());
+        } catch (JMzReaderException ex) {
+            logger.error("Get spectrum by id", ex);
+            throw new DataAccessException("Exception while trying to read Spectrum using Spectrum ID", ex);
+        }
+    }
+
+    @Override
+    Spectrum transformSpectrum(Object rawSpectrum) {
+        return MzDataTransformer.transformSpectrum((uk.ac.ebi.pride.tools.jmzreader.model.Spectrum) rawSpectrum);
+    }
+
     /**
      * Get chromatogram using a chromatogram id, gives the option to choose whether to use cache.
      * This implementation provides a way of by passing the cache.
@@ -403,32 +416,7 @@ public class MzDataControllerImpl extends CachedDataAccessController {
      * @return boolean true means mzML
      */
     public static boolean isValidFormat(File file) {
-        boolean valid = false;
-        BufferedReader reader = null;
-        try {
-            reader = new BufferedReader(new FileReader(file));
-            // read the first ten lines
-            StringBuilder content = new StringBuilder();
-            for (int i = 0; i < 10; i++) {
-                content.append(reader.readLine());
-            }
-
-            Matcher matcher = mzDataHeaderPattern.matcher(content);
-
-            valid = matcher.find();
-        } catch (Exception e) {
-            logger.error("Failed to read file", e);
-        } finally {
-            if (reader != null) {
-                try {
-                    reader.close();
-                } catch (IOException e) {
-                    // do nothing here
-                }
-            }
-        }
-
-        return valid;
+        return FileFormatSniffer.isFormat(file, FileFormatSniffer.FileFormat.MZDATA, false);
     }
 
 
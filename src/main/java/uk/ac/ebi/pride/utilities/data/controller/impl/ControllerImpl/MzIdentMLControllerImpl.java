@@ -8,7 +8,9 @@ import uk.ac.ebi.jmzidml.model.mzidml.DBSequence;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessController;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessException;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessMode;
+import uk.ac.ebi.pride.utilities.data.controller.cache.Cache;
 import uk.ac.ebi.pride.utilities.data.controller.cache.CacheEntry;
+import uk.ac.ebi.pride.utilities.data.controller.cache.CacheIndexFile;
 import uk.ac.ebi.pride.utilities.data.controller.cache.strategy.MzIdentMLCachingStrategy;
 import uk.ac.ebi.pride.utilities.data.controller.impl.Transformer.MzIdentMLTransformer;
 import uk.ac.ebi.pride.utilities.data.core.*;
@@ -23,17 +25,13 @@ import uk.ac.ebi.pride.utilities.data.core.SpectraData;
 import uk.ac.ebi.pride.utilities.data.core.SpectrumIdentificationProtocol;
 import uk.ac.ebi.pride.utilities.data.io.file.MzIdentMLUnmarshallerAdaptor;
 import uk.ac.ebi.pride.utilities.data.utils.MD5Utils;
+import uk.ac.ebi.pride.utilities.data.utils.FileFormatSniffer;
 
 import javax.naming.ConfigurationException;
 import javax.xml.bind.JAXBException;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * The MzIdentMLControllerImpl is the controller that retrieve the information from
@@ -50,11 +48,14 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
     // Logger property to trace the Errors
     private static final Logger logger = LoggerFactory.getLogger(MzIdentMLControllerImpl.class);
 
-    //The unmarshller class that retrieve the information from the mzidentml files
-    private MzIdentMLUnmarshallerAdaptor unmarshaller;
+    //The unmarshller class that retrieve the information from the mzidentml files, it is created on first use
+    private volatile MzIdentMLUnmarshallerAdaptor unmarshaller;
 
-    // The Match pattern for a valid mzidentml file, its support now the version 1.1.
-    private static final Pattern mzIdentMLHeaderPattern = Pattern.compile("^[^<]*(<\\?xml [^>]*>\\s*(<!--[^>]*-->\\s*)*)?<(MzIdentML)|(indexedmzIdentML) xmlns=.*", Pattern.MULTILINE);
+    private boolean inMemory;
+
+    private boolean avoidProteinInference;
+
+    private volatile boolean closed;
 
     public MzIdentMLControllerImpl(File file) {
         this(file, false);
@@ -70,20 +71,68 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
         initialize(inMemory, avoidProteinInference);
     }
 
+    /**
+     * Construct a data access controller using a given mzIdentML file and cache implementation
+     *
+     * @param file                  mzIdentML file
+     * @param inMemory              true to read the whole file in memory
+     * @param avoidProteinInference true to ignore the protein inference
+     * @param cache                 cache implementation, e.g. ConcurrentCacheAccessor to share the controller between threads
+     */
+    public MzIdentMLControllerImpl(File file, boolean inMemory, boolean avoidProteinInference, Cache cache) {
+        this(file, inMemory, avoidProteinInference, cache, false);
+    }
+
+    /**
+     * Construct a data access controller which keeps the pre-scan id maps in an index file next to the
+     * mzIdentML file (see CacheIndexFile), the next time the file is opened the id maps are read from the
+     * index instead of scanning the file again.
+     *
+     * @param file                  mzIdentML file
+     * @param inMemory              true to read the whole file in memory
+     * @param avoidProteinInference true to ignore the protein inference
+     * @param cache                 cache implementation, null for the default one
+     * @param usePrescanIndex       true to read and write the index file
+     */
+    public MzIdentMLControllerImpl(File file, boolean inMemory, boolean avoidProteinInference, Cache cache, boolean usePrescanIndex) {
+        this(file, inMemory, avoidProteinInference, cache, usePrescanIndex, 1);
+    }
+
+    /**
+     * Construct a data access controller which pre-scans the mzIdentML file with several threads,
+     * the SpectrumIdentificationResults are split in shards which are scanned concurrently.
+     *
+     * @param file                  mzIdentML file
+     * @param inMemory              true to read the whole file in memory
+     * @param avoidProteinInference true to ignore the protein inference
+     * @param cache                 cache implementation, null for the default one
+     * @param usePrescanIndex       true to read and write the index file
+     * @param prescanParallelism    number of threads of the pre-scan, e.g. Runtime.getRuntime().availableProcessors()
+     */
+    public MzIdentMLControllerImpl(File file, boolean inMemory, boolean avoidProteinInference, Cache cache, boolean usePrescanIndex, int prescanParallelism) {
+        super(file, DataAccessMode.CACHE_AND_SOURCE, cache);
+        initialize(inMemory, avoidProteinInference, usePrescanIndex, prescanParallelism);
+    }
+
+    protected void initialize(boolean inMemory, boolean avoidProteinInference) {
+        initialize(inMemory, avoidProteinInference, false);
+    }
+
+    protected void initialize(boolean inMemory, boolean avoidProteinInference, boolean usePrescanIndex) {
+        initialize(inMemory, avoidProteinInference, usePrescanIndex, 1);
+    }
+
     /**
      * This function initialize all the Categories in which the Controller
      * used the Cache System. In this case it wil be use cache for PROTEIN,
      * PEPTIDE, SAMPLE and SOFTWARE.
      */
-    protected void initialize(boolean inMemory, boolean avoidProteinInference) {
-        // create pride access utils
+    protected void initialize(boolean inMemory, boolean avoidProteinInference, boolean usePrescanIndex, int prescanParallelism) {
+        // the unmarshaller indexes the whole file, it is only created when the XML is read,
+        // which is not needed when the cache is restored from the index file
         File file = (File) getSource();
-        try {
-            unmarshaller = new MzIdentMLUnmarshallerAdaptor(file, inMemory, avoidProteinInference);
-        } catch (ConfigurationException e) {
-            String msg = "Failed to create XML unmarshaller for mzIdentML file: " + file.getAbsolutePath();
-            throw new DataAccessException(msg, e);
-        }
+        this.inMemory = inMemory;
+        this.avoidProteinInference = avoidProteinInference;
 
         // init ms data accession controller map
         this.msDataAccessControllers = new HashMap<Comparable, DataAccessController>();
@@ -104,7 +153,9 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
                 ContentCategory.SPECTRUM
         );
 
-        setCachingStrategy(new MzIdentMLCachingStrategy());
+        // the id maps depend on the protein inference option
+        CacheIndexFile indexFile = usePrescanIndex ? new CacheIndexFile(file, "avoidProteinInference=" + avoidProteinInference) : null;
+        setCachingStrategy(new MzIdentMLCachingStrategy(indexFile, prescanParallelism));
         populateCache();
 
         Object cvLookup = getCache().get(CacheEntry.CV_LOOKUP);
@@ -123,7 +174,26 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
      * @return MzIdentMLUnmarshallerAdaptor
      */
     public MzIdentMLUnmarshallerAdaptor getUnmarshaller() {
-        return unmarshaller;
+        MzIdentMLUnmarshallerAdaptor result = unmarshaller;
+        if (result == null) {
+            synchronized (this) {
+                if (closed) {
+                    throw new IllegalStateException("The mzIdentML controller is closed: " + getName());
+                }
+                result = unmarshaller;
+                if (result == null) {
+                    File file = (File) getSource();
+                    try {
+                        result = new MzIdentMLUnmarshallerAdaptor(file, inMemory, avoidProteinInference);
+                    } catch (ConfigurationException e) {
+                        String msg = "Failed to create XML unmarshaller for mzIdentML file: " + file.getAbsolutePath();
+                        throw new DataAccessException(msg, e);
+                    }
+                    unmarshaller = result;
+                }
+            }
+        }
+        return result;
     }
 
     /**
@@ -153,7 +223,7 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
      * @return List<CVLookup>   a list of cvlookup objects.
      */
     public List<CVLookup> getCvLookups() {
-        return MzIdentMLTransformer.transformCVList(unmarshaller.getCvList());
+        return MzIdentMLTransformer.transformCVList(getUnmarshaller().getCvList());
     }
 
     /**
@@ -167,7 +237,7 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
         List<SourceFile> sourceFiles;
 
         try {
-            sourceFiles = MzIdentMLTransformer.transformToSourceFile(unmarshaller.getSourceFiles());
+            sourceFiles = MzIdentMLTransformer.transformToSourceFile(getUnmarshaller().getSourceFiles());
         } catch (Exception ex) {
             throw new DataAccessException("Failed to retrieve source files", ex);
         }
@@ -184,7 +254,7 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
         List<Organization> organizationList;
 
         try {
-            organizationList = MzIdentMLTransformer.transformToOrganization(unmarshaller.getOrganizationContacts());
+            organizationList = MzIdentMLTransformer.transformToOrganization(getUnmarshaller().getOrganizationContacts());
         } catch (Exception ex) {
             throw new DataAccessException("Failed to retrieve organization contacts", ex);
         }
@@ -200,7 +270,7 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
     public List<Person> getPersonContacts() {
         List<Person> personList;
         try {
-            personList = MzIdentMLTransformer.transformToPerson(unmarshaller.getPersonContacts());
+            personList = MzIdentMLTransformer.transformToPerson(getUnmarshaller().getPersonContacts());
         } catch (Exception ex) {
             throw new DataAccessException("Failed to retrieve person contacts", ex);
         }
@@ -218,7 +288,7 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
 
         if (metaData == null) {
             try {
-                return MzIdentMLTransformer.transformToSample(unmarshaller.getSampleList());
+                return MzIdentMLTransformer.transformToSample(getUnmarshaller().getSampleList());
             } catch (Exception ex) {
                 throw new DataAccessException("Failed to retrieve samples", ex);
             }
@@ -235,7 +305,7 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
     public Provider getProvider() {
         ExperimentMetaData metaData = super.getExperimentMetaData();
         if (metaData == null) {
-            return MzIdentMLTransformer.transformToProvider(unmarshaller.getProvider());
+            return MzIdentMLTransformer.transformToProvider(getUnmarshaller().getProvider());
         }
         return metaData.getProvider();
     }
@@ -250,7 +320,7 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
 
         if (metaData == null) {
             try {
-                return MzIdentMLTransformer.transformToSoftware(unmarshaller.getSoftwares());
+                return MzIdentMLTransformer.transformToSoftware(getUnmarshaller().getSoftwares());
             } catch (Exception ex) {
                 throw new DataAccessException("Failed to retrieve software", ex);
             }
@@ -267,7 +337,7 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
     public List<Reference> getReferences() {
         List<Reference> refs;
         try {
-            refs = MzIdentMLTransformer.transformToReference(unmarshaller.getReferences());
+            refs = MzIdentMLTransformer.transformToReference(getUnmarshaller().getReferences());
         } catch (Exception ex) {
             throw new DataAccessException("Failed to retrieve references", ex);
         }
@@ -289,7 +359,7 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
         ParamGroup additionals = null;
         // Take information from provider !!!
         Provider provider = getProvider();
-        Date date = unmarshaller.getCreationDate();
+        Date date = getUnmarshaller().getCreationDate();
         List<SpectraData> spectraDataList = getSpectraDataFiles();
 
         if ((provider != null && provider.getSoftware() != null) || date != null || !spectraDataList.isEmpty()) {
@@ -299,8 +369,8 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
                 additionals.addCvParams(provider.getSoftware().getCvParams());
 
             // Get the information of the creation file
-            if (unmarshaller.getCreationDate() != null) {
-                additionals.addCvParam(MzIdentMLTransformer.transformDateToCvParam(unmarshaller.getCreationDate()));
+            if (getUnmarshaller().getCreationDate() != null) {
+                additionals.addCvParam(MzIdentMLTransformer.transformDateToCvParam(getUnmarshaller().getCreationDate()));
             }
             //Get spectra information as additional
             if (!spectraDataList.isEmpty()) {
@@ -340,9 +410,9 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
         if (metaData == null) {
             try {
                 // Get Accession for MzIdentML Object
-                String accession = unmarshaller.getMzIdentMLId();
+                String accession = getUnmarshaller().getMzIdentMLId();
                 // Get the Version of the MzIdentML File.
-                String version = unmarshaller.getMzIdentMLVersion();
+                String version = getUnmarshaller().getMzIdentMLVersion();
                 //Get Source File List
                 List<SourceFile> sources = getSourceFiles();
                 //Get Sample List
@@ -356,7 +426,7 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
                 // Get Additional Information Related with the Project
                 ParamGroup additional = getAdditional();
                 // Get the Experiment Title
-                String title = unmarshaller.getMzIdentMLName();
+                String title = getUnmarshaller().getMzIdentMLName();
                 // Get The Experiment Short Label, in case of mzidentml this date is not provided.
                 String shortLabel = null;
                 //Get Experiment Protocol in case of mzidentml Experiment Protocol is empty.
@@ -366,7 +436,7 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
                 // Get the provider object of the MzIdentMl file
                 Provider provider = getProvider();
                 //Get Creation Date
-                Date creationDate = unmarshaller.getCreationDate();
+                Date creationDate = getUnmarshaller().getCreationDate();
                 //Get SpectraData Files
                 List<SpectraData> spectraData = getSpectraDataFiles();
                 //Create the ExperimentMetaData Object
@@ -394,7 +464,7 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
         IdentificationMetaData identificationMetaData = super.getIdentificationMetaData();
 
         if (identificationMetaData == null) {
-            return MzIdentMLTransformer.transformToSpectrumIdentificationProtocol(unmarshaller.getSpectrumIdentificationProtocol());
+            return MzIdentMLTransformer.transformToSpectrumIdentificationProtocol(getUnmarshaller().getSpectrumIdentificationProtocol());
         }
         return identificationMetaData.getSpectrumIdentificationProtocols();
     }
@@ -408,7 +478,7 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
     public Protocol getProteinDetectionProtocol() {
         IdentificationMetaData identificationMetaData = super.getIdentificationMetaData();
         if (identificationMetaData == null) {
-            return MzIdentMLTransformer.transformToProteinDetectionProtocol(unmarshaller.getProteinDetectionProtocol());
+            return MzIdentMLTransformer.transformToProteinDetectionProtocol(getUnmarshaller().getProteinDetectionProtocol());
         }
         return identificationMetaData.getProteinDetectionProtocol();
     }
@@ -421,7 +491,7 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
     public List<SearchDataBase> getSearchDataBases() {
         IdentificationMetaData identificationMetaData = super.getIdentificationMetaData();
         if (identificationMetaData == null) {
-            return MzIdentMLTransformer.transformToSearchDataBase(unmarshaller.getSearchDatabases());
+            return MzIdentMLTransformer.transformToSearchDataBase(getUnmarshaller().getSearchDatabases());
         }
         return identificationMetaData.getSearchDataBases();
     }
@@ -456,7 +526,7 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
         if (metaData == null) {
             if(isSpectrumBasedOnTitle())
                 basedOnTitle = getSpectraDataBasedOnTitle();
-            return MzIdentMLTransformer.transformToSpectraData(unmarshaller.getSpectraData(), basedOnTitle);
+            return MzIdentMLTransformer.transformToSpectraData(getUnmarshaller().getSpectraData(), basedOnTitle);
 
         }
         return metaData.getSpectraDatas();
@@ -495,17 +565,17 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
                     // when protein groups are not present or inferred from all proteins
                     uk.ac.ebi.jmzidml.model.mzidml.DBSequence dbSequence = (DBSequence) super.getObjectByID(CacheEntry.DB_SEQUENCE,proteinId, true);
                     if(dbSequence == null){
-                        dbSequence = unmarshaller.getDBSequenceById(proteinId);
+                        dbSequence = getUnmarshaller().getDBSequenceById(proteinId);
                         getCache().store(CacheEntry.DB_SEQUENCE, proteinId, dbSequence);
                     }
-                    dbSequence = unmarshaller.getDBSequenceById(proteinId);
+                    dbSequence = getUnmarshaller().getDBSequenceById(proteinId);
                     List<SpectrumIdentificationItem> spectrumIdentificationItems = getScannedSpectrumIdentificationItems(proteinId);
                     Iterator<SpectrumIdentificationItem> itSpec = spectrumIdentificationItems.iterator();
                     List<Peptide> peptides = new ArrayList<Peptide>();
                     while(itSpec.hasNext()){
                         SpectrumIdentificationItem item = itSpec.next();
                         for(PeptideEvidenceRef ref: item.getPeptideEvidenceRef()){
-                            uk.ac.ebi.jmzidml.model.mzidml.PeptideEvidence evidence = unmarshaller.getPeptideEvidenceById(ref.getPeptideEvidenceRef());
+                            uk.ac.ebi.jmzidml.model.mzidml.PeptideEvidence evidence = getUnmarshaller().getPeptideEvidenceById(ref.getPeptideEvidenceRef());
                             peptides.add(MzIdentMLTransformer.transformToPeptideFromSpectrumItemAndPeptideEvidence(item,evidence,peptides.size()));
                         }
                     }
@@ -515,7 +585,7 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
                 } else {
 
                     List<Peptide> peptides = new ArrayList<Peptide>();
-                    uk.ac.ebi.jmzidml.model.mzidml.ProteinDetectionHypothesis proteinHypothesis = unmarshaller.getIdentificationById(proteinId);
+                    uk.ac.ebi.jmzidml.model.mzidml.ProteinDetectionHypothesis proteinHypothesis = getUnmarshaller().getIdentificationById(proteinId);
                     // when protein groups are present
                     for(PeptideHypothesis peptideHypothesis: proteinHypothesis.getPeptideHypothesis()){
 
@@ -524,13 +594,13 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
                                 !peptideHypothesis.getSpectrumIdentificationItemRef().isEmpty()){
                             uk.ac.ebi.jmzidml.model.mzidml.PeptideEvidence peptideEvidence = (uk.ac.ebi.jmzidml.model.mzidml.PeptideEvidence) super.getObjectByID(CacheEntry.PEPTIDE_EVIDENCE, peptideHypothesis.getPeptideEvidenceRef(), true);
                             if(peptideEvidence == null){
-                                peptideEvidence = unmarshaller.getPeptideEvidenceById(peptideHypothesis.getPeptideEvidenceRef());
+                                peptideEvidence = getUnmarshaller().getPeptideEvidenceById(peptideHypothesis.getPeptideEvidenceRef());
                                 getCache().store(CacheEntry.PEPTIDE_EVIDENCE, peptideHypothesis.getPeptideEvidenceRef(), peptideEvidence);
                             }
                             for(SpectrumIdentificationItemRef ref: peptideHypothesis.getSpectrumIdentificationItemRef()){
                                 uk.ac.ebi.jmzidml.model.mzidml.SpectrumIdentificationItem spectrumID = (uk.ac.ebi.jmzidml.model.mzidml.SpectrumIdentificationItem) super.getObjectByID(CacheEntry.SPECTRUM_ID_ITEM, ref.getSpectrumIdentificationItemRef(), true);
                                 if(spectrumID == null){
-                                    spectrumID = unmarshaller.getSpectrumIdentificationsById(ref.getSpectrumIdentificationItemRef());
+                                    spectrumID = getUnmarshaller().getSpectrumIdentificationsById(ref.getSpectrumIdentificationItemRef());
                                     getCache().store(CacheEntry.SPECTRUM_ID_ITEM, ref.getSpectrumIdentificationItemRef(), spectrumID);
                                 }
                                 if(spectrumID != null && peptideEvidence != null)
@@ -540,7 +610,7 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
                     }
                     uk.ac.ebi.jmzidml.model.mzidml.DBSequence dbSequence = (uk.ac.ebi.jmzidml.model.mzidml.DBSequence)super.getObjectByID(CacheEntry.DB_SEQUENCE, proteinHypothesis.getDBSequenceRef(), true);
                     if(dbSequence == null){
-                        dbSequence = unmarshaller.getDBSequenceById(proteinHypothesis.getDBSequenceRef());
+                        dbSequence = getUnmarshaller().getDBSequenceById(proteinHypothesis.getDBSequenceRef());
                         getCache().store(CacheEntry.DB_SEQUENCE, proteinHypothesis.getDBSequenceRef(), dbSequence);
                     }
                     proteinHypothesis.setDBSequence(dbSequence);
@@ -565,7 +635,7 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
             spectrumIdentIds = ((Map<Comparable, List<Comparable>>) getCache().get(CacheEntry.PROTEIN_TO_PEPTIDE_EVIDENCES)).get(proteinId);
         }
 
-        return unmarshaller.getSpectrumIdentificationsByIds(spectrumIdentIds);
+        return getUnmarshaller().getSpectrumIdentificationsByIds(spectrumIdentIds);
     }
 
     /**
@@ -578,7 +648,7 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
         int num;
         try {
             // this method is overridden to use the reader directly
-            num = unmarshaller.getNumIdentifiedPeptides();
+            num = getUnmarshaller().getNumIdentifiedPeptides();
         } catch (Exception ex) {
             throw new DataAccessException("Failed to retrieve number of peptides", ex);
         }
@@ -587,7 +657,10 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
 
     @Override
     public void close() {
-        unmarshaller = null;
+        synchronized (this) {
+            closed = true;
+            unmarshaller = null;
+        }
         super.close();
 
     }
@@ -600,31 +673,7 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
      * @return boolean true means MZIdentML XML
      */
     public static boolean isValidFormat(File file) {
-        boolean valid = false;
-        BufferedReader reader = null;
-        try {
-            reader = new BufferedReader(new FileReader(file));
-            // read the first ten lines
-            StringBuilder content = new StringBuilder();
-            for (int i = 0; i < 10; i++) {
-                content.append(reader.readLine());
-            }
-            // check file type
-            Matcher matcher = mzIdentMLHeaderPattern.matcher(content);
-            valid = matcher.find();
-        } catch (Exception e) {
-            logger.error("Failed to read file", e);
-        } finally {
-            if (reader != null) {
-                try {
-                    reader.close();
-                } catch (IOException e) {
-                    // do nothing here
-                }
-            }
-        }
-
-        return valid;
+        return FileFormatSniffer.isFormat(file, FileFormatSniffer.FileFormat.MZIDENTML, false);
     }
 
     /**
@@ -639,7 +688,7 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
         if (proteinGroup == null) {
 
             try {
-                ProteinAmbiguityGroup proteinAmbiguityGroup = unmarshaller.getProteinAmbiguityGroup(proteinGroupId);
+                ProteinAmbiguityGroup proteinAmbiguityGroup = getUnmarshaller().getProteinAmbiguityGroup(proteinGroupId);
                 List<Protein> proteins = new ArrayList<>();
 
                 for (ProteinDetectionHypothesis proteinDetectionHypothesis : proteinAmbiguityGroup.getProteinDetectionHypothesis()) {
@@ -672,7 +721,7 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
     @Override
     public boolean hasProteinSequence() {
         try {
-            return unmarshaller.hasProteinSequence();
+            return getUnmarshaller().hasProteinSequence();
         } catch (ConfigurationException ex) {
             String msg = "Error while reading the mzidentml file";
             logger.error(msg, ex);
@@ -687,7 +736,7 @@ public class MzIdentMLControllerImpl extends ReferencedIdentificationController
     @Override
     public boolean hasDecoyInformation() {
         try {
-            return unmarshaller.hasDecoyInformation();
+            return getUnmarshaller().hasDecoyInformation();
         } catch (ConfigurationException ex) {
             String msg = "Error while reading the mzidentml file";
             logger.error(msg, ex);
@@ -8,6 +8,7 @@ import uk.ac.ebi.pride.utilities.data.controller.DataAccessController;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessException;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessMode;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessUtilities;
+import uk.ac.ebi.pride.utilities.data.controller.cache.Cache;
 import uk.ac.ebi.pride.utilities.data.controller.cache.CacheEntry;
 import uk.ac.ebi.pride.utilities.data.controller.cache.strategy.MzMlCachingStrategy;
 import uk.ac.ebi.pride.utilities.data.controller.impl.Transformer.MzMLTransformer;
@@ -23,16 +24,12 @@ import uk.ac.ebi.pride.utilities.data.core.SourceFile;
 import uk.ac.ebi.pride.utilities.data.core.Spectrum;
 import uk.ac.ebi.pride.utilities.data.io.file.MzMLUnmarshallerAdaptor;
 import uk.ac.ebi.pride.utilities.data.utils.MD5Utils;
+import uk.ac.ebi.pride.utilities.data.utils.FileFormatSniffer;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * MzMlControllerImpl provides methods to access mzML files.
@@ -43,10 +40,6 @@ import java.util.regex.Pattern;
 public class MzMLControllerImpl extends CachedDataAccessController {
 
     private static final Logger logger = LoggerFactory.getLogger(MzMLControllerImpl.class);
-    /**
-     * Pattern for validating mzML format
-     */
-    private static final Pattern mzMLHeaderPattern = Pattern.compile("^[^<]*(<\\?xml [^>]*>\\s*(<!--[^>]*-->\\s*)*)?<(mzML)|(indexedmzML) xmlns=.*", Pattern.MULTILINE);
 
     /**
      * Reader for getting information from mzML file
@@ -63,6 +56,17 @@ public class MzMLControllerImpl extends CachedDataAccessController {
         initialize();
     }
 
+    /**
+     * Construct a data access controller using a given mzML file and cache implementation
+     *
+     * @param file  mzML file
+     * @param cache cache implementation, e.g. ConcurrentCacheAccessor to share the controller between threads
+     */
+    public MzMLControllerImpl(File file, Cache cache) {
+        super(file, DataAccessMode.CACHE_AND_SOURCE, cache);
+        initialize();
+    }
+
     private void initialize() {
         File file = (File) this.getSource();
         // create unmarshaller
@@ -369,24 +373,30 @@ public class MzMLControllerImpl extends CachedDataAccessController {
     Spectrum getSpectrumById(Comparable id, boolean useCache) {
         Spectrum spectrum = super.getSpectrumById(id, useCache);
         if (spectrum == null) {
-            try {
-//                System.out.println(id);
-                uk.ac.ebi.jmzml.model.mzml.Spectrum
-                        rawSpec = unmarshaller.getSpectrumById(id.toString());
-
-                spectrum = MzMLTransformer.transformSpectrum(rawSpec);
-                if (useCache) {
-                    getCache().store(CacheEntry.SPECTRUM, id, spectrum);
-                    getCache().store(CacheEntry.SPECTRUM_LEVEL_PRECURSOR_CHARGE,id, DataAccessUtilities.getPrecursorCharge(spectrum.getPrecursors()));
-                }
-            } catch (MzMLUnmarshallerException ex) {
-                logger.error("Get spectrum by id", ex);
-                throw new DataAccessException("Exception while trying to read Spectrum using Spectrum ID", ex);
+            spectrum = transformSpectrum(getRawSpectrumById(id));
+            if (useCache) {
+                getCache().store(CacheEntry.SPECTRUM, id, spectrum);
+                getCache().store(CacheEntry.SPECTRUM_LEVEL_PRECURSOR_CHARGE,id, DataAccessUtilities.getPrecursorCharge(spectrum.getPrecursors()));
             }
         }
         return spectrum;
     }
 
+    @Override
+    Object getRawSpectrumById(Comparable id) {
+        try {
+            return unmarshaller.getSpectrumById(id.toString());
+        } catch (MzMLUnmarshallerException ex) {
+            logger.error("Get spectrum by id", ex);
+            throw new DataAccessException("Exception while trying to read Spectrum using Spectrum ID", ex);
+        }
+    }
+
+    @Override
+    Spectrum transformSpectrum(Object rawSpectrum) {
+        return MzMLTransformer.transformSpectrum((uk.ac.ebi.jmzml.model.mzml.Spectrum) rawSpectrum, isCompactPeakStorage());
+    }
+
     /**
      * Get chromatogram using a chromatogram id, gives the option to choose whether to use cache.
      * This implementation provides a way of by passing the cache.
@@ -402,7 +412,7 @@ public class MzMLControllerImpl extends CachedDataAccessController {
             try {
                 uk.ac.ebi.jmzml.model.mzml.Chromatogram
                         rawChroma = unmarshaller.getChromatogramById(id.toString());
-                chroma = MzMLTransformer.transformChromatogram(rawChroma);
+                chroma = MzMLTransformer.transformChromatogram(rawChroma, isCompactPeakStorage());
                 if (useCache) {
                     getCache().store(CacheEntry.CHROMATOGRAM, id, chroma);
                 }
@@ -501,32 +511,7 @@ public class MzMLControllerImpl extends CachedDataAccessController {
      * @return boolean true means mzML
      */
     public static boolean isValidFormat(File file) {
-        boolean valid = false;
-        BufferedReader reader = null;
-        try {
-            reader = new BufferedReader(new FileReader(file));
-            // read the first ten lines
-            StringBuilder content = new StringBuilder();
-            for (int i = 0; i < 10; i++) {
-                content.append(reader.readLine());
-            }
-
-            Matcher matcher = mzMLHeaderPattern.matcher(content);
-
-            valid = matcher.find();
-        } catch (Exception e) {
-            logger.error("Failed to read file", e);
-        } finally {
-            if (reader != null) {
-                try {
-                    reader.close();
-                } catch (IOException e) {
-                    // do nothing here
-                }
-            }
-        }
-
-        return valid;
+        return FileFormatSniffer.isFormat(file, FileFormatSniffer.FileFormat.MZML, false);
     }
 
 
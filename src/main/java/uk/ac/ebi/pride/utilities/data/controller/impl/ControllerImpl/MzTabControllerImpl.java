@@ -5,6 +5,7 @@ import org.slf4j.LoggerFactory;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessController;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessException;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessMode;
+import uk.ac.ebi.pride.utilities.data.controller.cache.Cache;
 import uk.ac.ebi.pride.utilities.data.controller.cache.CacheEntry;
 import uk.ac.ebi.pride.utilities.data.controller.cache.strategy.MzTabCachingStrategy;
 import uk.ac.ebi.pride.utilities.data.controller.impl.Transformer.MzTabTransformer;
@@ -13,6 +14,7 @@ import uk.ac.ebi.pride.utilities.data.io.file.MzTabUnmarshallerAdaptor;
 import uk.ac.ebi.pride.utilities.data.utils.Constants;
 import uk.ac.ebi.pride.utilities.data.utils.CvUtilities;
 import uk.ac.ebi.pride.utilities.data.utils.MD5Utils;
+import uk.ac.ebi.pride.utilities.data.utils.FileFormatSniffer;
 import uk.ac.ebi.pride.utilities.term.CvTermReference;
 import uk.ac.ebi.pride.utilities.util.Tuple;
 
@@ -35,14 +37,6 @@ public class MzTabControllerImpl extends ReferencedIdentificationController{
 
     private static final Logger logger = LoggerFactory.getLogger(MzTabControllerImpl.class);
 
-    private static Pattern mzTabVersion              = Pattern.compile(".*(mzTab-version).*(1.0)");
-
-    private static Pattern mzTabProteinSection       = Pattern.compile(".*(protein_search_engine_score).*");
-
-    private static Pattern mzTabPSMSection           = Pattern.compile(".*(psm_search_engine_score).*");
-
-    private static Pattern mzTabPeptideSection       = Pattern.compile(".*(peptide_search_engine_score).*");
-
     private static Pattern mzTabQuantitationSection  = Pattern.compile(".*(quantification_method).*");
 
 
@@ -51,6 +45,16 @@ public class MzTabControllerImpl extends ReferencedIdentificationController{
      */
     private MzTabUnmarshallerAdaptor reader;
 
+    /**
+     * True to index the mzTab file and read the rows on demand instead of parsing the whole file into memory
+     */
+    private boolean indexed;
+
+    /**
+     * Output of the errors of the parser, only opened when the whole file is parsed into memory
+     */
+    private OutputStream errorOutput;
+
     /*
       * This is a set of controllers related with the MS information in the mzTab file
       * one or more controllers can be related with the same file formats. The Comparable
@@ -59,7 +63,39 @@ public class MzTabControllerImpl extends ReferencedIdentificationController{
      */
 
    public MzTabControllerImpl(File file) {
-        super(file, DataAccessMode.CACHE_AND_SOURCE);
+        this(file, null);
+    }
+
+    /**
+     * Construct a data access controller using a given mzTab file and cache implementation
+     *
+     * @param file  mzTab file
+     * @param cache cache implementation, e.g. ConcurrentCacheAccessor to share the controller between threads
+     */
+    public MzTabControllerImpl(File file, Cache cache) {
+        this(file, cache, false);
+    }
+
+    /**
+     * Construct a data access controller using a given mzTab file
+     *
+     * @param file    mzTab file
+     * @param indexed true to keep only the metadata in memory and read the proteins, peptides and PSMs from the file on demand
+     */
+    public MzTabControllerImpl(File file, boolean indexed) {
+        this(file, null, indexed);
+    }
+
+    /**
+     * Construct a data access controller using a given mzTab file and cache implementation
+     *
+     * @param file    mzTab file
+     * @param cache   cache implementation, e.g. ConcurrentCacheAccessor to share the controller between threads
+     * @param indexed true to keep only the metadata in memory and read the proteins, peptides and PSMs from the file on demand
+     */
+    public MzTabControllerImpl(File file, Cache cache, boolean indexed) {
+        super(file, DataAccessMode.CACHE_AND_SOURCE, cache);
+        this.indexed = indexed;
         try {
             initialize();
         } catch (IOException e) {
@@ -76,7 +112,17 @@ public class MzTabControllerImpl extends ReferencedIdentificationController{
     protected void initialize() throws IOException {
         // create MzTab access utils
         File file = (File) getSource();
-        reader = new MzTabUnmarshallerAdaptor(file, new FileOutputStream(file.getAbsolutePath() + "errors.out"));
+        if (indexed) {
+            reader = new MzTabUnmarshallerAdaptor(file, null, true);
+        } else {
+            errorOutput = new FileOutputStream(file.getAbsolutePath() + "errors.out");
+            try {
+                reader = new MzTabUnmarshallerAdaptor(file, errorOutput, false);
+            } catch (IOException e) {
+                closeErrorOutput();
+                throw e;
+            }
+        }
         // set data source description
         this.setName(file.getName());
         // set the type
@@ -486,9 +532,21 @@ public class MzTabControllerImpl extends ReferencedIdentificationController{
     @Override
     public void close() {
         reader = null;
+        closeErrorOutput();
         super.close();
     }
 
+    private void closeErrorOutput() {
+        if (errorOutput != null) {
+            try {
+                errorOutput.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close the mzTab error output", e);
+            }
+            errorOutput = null;
+        }
+    }
+
     public List<SearchDataBase> getSearchDataBases() {
 
         IdentificationMetaData metaData = super.getIdentificationMetaData();
@@ -544,45 +602,7 @@ public class MzTabControllerImpl extends ReferencedIdentificationController{
      * @return boolean true means the file is an mztab
      */
     public static boolean isValidFormat(File file) {
-        boolean valid = false;
-        BufferedReader reader = null;
-        int quantitationCount = 0;
-        int identificationCount = 0;
-        if(!file.getName().toLowerCase().endsWith(Constants.MZTAB_EXT))
-            return false;
-
-        /**
-         * To validate  the mzTab if is supported or not we will read the header line by line until the type appear
-         * It should contains Proteins and PSMs to be a supported file.
-         */
-        try {
-            reader = new BufferedReader(new FileReader(file));
-            // read the first 200 lines
-            for (int i = 0; i < 200; i++) {
-                String line = reader.readLine();
-                if (mzTabProteinSection.matcher(line).find() || mzTabVersion.matcher(line).find()) {
-                    quantitationCount++;
-                    identificationCount++;
-                }
-                if (mzTabPSMSection.matcher(line).find())
-                    identificationCount++;
-                if (mzTabPeptideSection.matcher(line).find())
-                    quantitationCount++;
-            }
-        } catch (Exception e) {
-            logger.error("Failed to read file", e);
-        } finally {
-            if (reader != null) {
-                try {
-                    reader.close();
-                } catch (IOException e) {
-                    // do nothing here
-                }
-            }
-        }
-        String filename = file.getName().toLowerCase();
-        return filename.endsWith(Constants.MZTAB_EXT) && (quantitationCount >= 3 || identificationCount >= 3) || valid;
-
+        return FileFormatSniffer.isFormat(file, FileFormatSniffer.FileFormat.MZTAB, false);
     }
 
     /**
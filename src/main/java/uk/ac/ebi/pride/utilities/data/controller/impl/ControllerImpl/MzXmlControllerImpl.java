@@ -5,12 +5,14 @@ import org.slf4j.LoggerFactory;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessController;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessException;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessMode;
+import uk.ac.ebi.pride.utilities.data.controller.cache.Cache;
 import uk.ac.ebi.pride.utilities.data.controller.cache.CacheEntry;
 import uk.ac.ebi.pride.utilities.data.controller.cache.strategy.MzXmlCachingStrategy;
 import uk.ac.ebi.pride.utilities.data.controller.impl.Transformer.MzXmlTransformer;
 import uk.ac.ebi.pride.utilities.data.core.*;
 import uk.ac.ebi.pride.utilities.data.io.file.MzXmlUnmarshallerAdaptor;
 import uk.ac.ebi.pride.utilities.data.utils.MD5Utils;
+import uk.ac.ebi.pride.utilities.data.utils.FileFormatSniffer;
 import uk.ac.ebi.pride.utilities.term.CvTermReference;
 import uk.ac.ebi.pride.tools.jmzreader.JMzReaderException;
 import uk.ac.ebi.pride.tools.mzxml_parser.MzXMLFile;
@@ -21,17 +23,12 @@ import uk.ac.ebi.pride.tools.mzxml_parser.mzxml.model.ParentFile;
 
 import javax.xml.datatype.DatatypeConfigurationException;
 import javax.xml.datatype.Duration;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * This class is the controller to parse an retrieve the information from mzXML files,
@@ -46,10 +43,6 @@ import java.util.regex.Pattern;
 public class MzXmlControllerImpl extends CachedDataAccessController {
 
     private static final Logger logger = LoggerFactory.getLogger(MzXmlControllerImpl.class);
-    /**
-     * Pattern for validating mzXML format
-     */
-    private static final Pattern mzXmlHeaderPattern = Pattern.compile("^[^<]*(<\\?xml [^>]*>\\s*(<!--[^>]*-->\\s*)*)?<(mzXML) xmlns=.*", Pattern.MULTILINE);
 
     /**
      * Reader for getting information from mzXML file
@@ -61,6 +54,17 @@ public class MzXmlControllerImpl extends CachedDataAccessController {
         initialize();
     }
 
+    /**
+     * Construct a data access controller using a given mzXML file and cache implementation
+     *
+     * @param file  mzXML file
+     * @param cache cache implementation, e.g. ConcurrentCacheAccessor to share the controller between threads
+     */
+    public MzXmlControllerImpl(File file, Cache cache) {
+        super(file, DataAccessMode.CACHE_AND_SOURCE, cache);
+        initialize();
+    }
+
     private void initialize()  {
 
         File file = (File) this.getSource();
@@ -297,22 +301,29 @@ public class MzXmlControllerImpl extends CachedDataAccessController {
     Spectrum getSpectrumById(Comparable id, boolean useCache)  {
         Spectrum spectrum = super.getSpectrumById(id, useCache);
         if (spectrum == null) {
-            uk.ac.ebi.pride.tools.jmzreader.model.Spectrum rawSpec;
-            try {
-                rawSpec = unmarshaller.getSpectrumById(id.toString());
-                spectrum = MzXmlTransformer.transformSpectrum(rawSpec);
-                if (useCache) {
-                    getCache().store(CacheEntry.SPECTRUM, id, spectrum);
-                }
-            } catch (JMzReaderException ex) {
-                logger.error("Get spectrum by id", ex);
-                throw new DataAccessException("Exception while trying to read Spectrum using Spectrum ID", ex);
+            spectrum = transformSpectrum(getRawSpectrumById(id));
+            if (useCache) {
+                getCache().store(CacheEntry.SPECTRUM, id, spectrum);
             }
-
         }
         return spectrum;
     }
 
+    @Override
+    Object getRawSpectrumById(Comparable id) {
+        try {
+            return unmarshaller.getSpectrumById(id.toString());
+        } catch (JMzReaderException ex) {
+            logger.error("Get spectrum by id", ex);
+            throw new DataAccessException("Exception while trying to read Spectrum using Spectrum ID", ex);
+        }
+    }
+
+    @Override
+    Spectrum transformSpectrum(Object rawSpectrum) {
+        return MzXmlTransformer.transformSpectrum((uk.ac.ebi.pride.tools.jmzreader.model.Spectrum) rawSpectrum);
+    }
+
     /**
      * Get chromatogram using a chromatogram id, gives the option to choose whether to use cache.
      * This implementation provides a way of by passing the cache.
@@ -412,31 +423,6 @@ public class MzXmlControllerImpl extends CachedDataAccessController {
      * @return boolean true means mzML
      */
     public static boolean isValidFormat(File file) {
-        boolean valid = false;
-        BufferedReader reader = null;
-        try {
-            reader = new BufferedReader(new FileReader(file));
-            // read the first ten lines
-            StringBuilder content = new StringBuilder();
-            for (int i = 0; i < 10; i++) {
-                content.append(reader.readLine());
-            }
-
-            Matcher matcher = mzXmlHeaderPattern.matcher(content);
-
-            valid = matcher.find();
-        } catch (Exception e) {
-            logger.error("Failed to read file", e);
-        } finally {
-            if (reader != null) {
-                try {
-                    reader.close();
-                } catch (IOException e) {
-                    // do nothing here
-                }
-            }
-        }
-
-        return valid;
+        return FileFormatSniffer.isFormat(file, FileFormatSniffer.FileFormat.MZXML, false);
     }
 }
@@ -5,12 +5,14 @@ import org.slf4j.LoggerFactory;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessController;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessException;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessMode;
+import uk.ac.ebi.pride.utilities.data.controller.cache.Cache;
 import uk.ac.ebi.pride.utilities.data.controller.cache.CacheEntry;
 import uk.ac.ebi.pride.utilities.data.controller.cache.strategy.PeakCachingStrategy;
 import uk.ac.ebi.pride.utilities.data.controller.impl.Transformer.PeakTransformer;
 import uk.ac.ebi.pride.utilities.data.core.*;
 import uk.ac.ebi.pride.utilities.data.io.file.PeakUnmarshallerAdaptor;
-import uk.ac.ebi.pride.utilities.data.utils.Constants;
+import uk.ac.ebi.pride.utilities.data.utils.FileFormatSniffer;
+import uk.ac.ebi.pride.utilities.data.utils.IndexedList;
 import uk.ac.ebi.pride.utilities.data.utils.MD5Utils;
 import uk.ac.ebi.pride.tools.apl_parser.AplFile;
 import uk.ac.ebi.pride.tools.dta_parser.DtaFile;
@@ -25,6 +27,7 @@ import java.security.NoSuchAlgorithmException;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 
 /**
@@ -44,6 +47,18 @@ public class PeakControllerImpl extends CachedDataAccessController {
      */
     private PeakUnmarshallerAdaptor unmarshaller;
 
+    /**
+     * Titles in file order, used as spectrum ids when the spectra are referenced by title
+     */
+    private IndexedList<Comparable> titleIndex;
+
+    /**
+     * The title map the title index was built from
+     */
+    private Map<Comparable, Comparable> titleIndexSource;
+
+    private int titleIndexSourceSize;
+
     /**
      * Construct a data access controller using a given mzML file
      *
@@ -61,6 +76,18 @@ public class PeakControllerImpl extends CachedDataAccessController {
         initialize(useTitle);
     }
 
+    /**
+     * Construct a data access controller using a given peak list file and cache implementation
+     *
+     * @param file     jmzReader file
+     * @param useTitle true to index the MGF spectra using their titles
+     * @param cache    cache implementation, e.g. ConcurrentCacheAccessor to share the controller between threads
+     */
+    public PeakControllerImpl(File file, boolean useTitle, Cache cache){
+        super(file, DataAccessMode.CACHE_AND_SOURCE, cache);
+        initialize(useTitle);
+    }
+
     /**
      * Initialize the data access controller
      */
@@ -68,20 +95,21 @@ public class PeakControllerImpl extends CachedDataAccessController {
 
         File file = (File) this.getSource();
         JMzReader um = null;
-        if (isValidFormat(file) != null) {
+        Class format = isValidFormat(file);
+        if (format != null) {
             try {
-                if (isValidFormat(file) == MgfFile.class) {
+                if (format == MgfFile.class) {
                     um = new MgfFile(file, true);
                 }
-                if (isValidFormat(file) == DtaFile.class) {
+                if (format == DtaFile.class) {
                     um = new DtaFile(file);
                 }
-                if (isValidFormat(file) == PklFile.class) {
+                if (format == PklFile.class) {
                     um = new PklFile(file);
                 }
-                if (isValidFormat(file) == Ms2File.class) {
+                if (format == Ms2File.class) {
                     um = new Ms2File(file);
-                }if(isValidFormat(file) == AplFile.class){
+                }if(format == AplFile.class){
                     um = new AplFile(file);
                 }
             } catch (JMzReaderException e) {
@@ -163,21 +191,37 @@ public class PeakControllerImpl extends CachedDataAccessController {
             if((ids != null && !ids.isEmpty())){
                 id = ids.get(id);
             }
-            uk.ac.ebi.pride.tools.jmzreader.model.Spectrum rawSpec;
-            try {
-                rawSpec = unmarshaller.getSpectrumById(id.toString());
-                spectrum = PeakTransformer.transformSpectrum(rawSpec);
-                if (useCache) {
-                    getCache().store(CacheEntry.SPECTRUM, id, spectrum);
-                }
-            } catch (JMzReaderException ex) {
-                logger.error("Get spectrum by id", ex);
-                throw new DataAccessException("Exception while trying to read Spectrum using Spectrum ID", ex);
+            spectrum = transformSpectrum(readSpectrum(id));
+            if (useCache) {
+                getCache().store(CacheEntry.SPECTRUM, id, spectrum);
             }
         }
         return spectrum;
     }
 
+    @Override
+    Object getRawSpectrumById(Comparable id) {
+        Map<Comparable, Comparable> ids = (Map<Comparable, Comparable>) getCache().get(CacheEntry.TITLE_MGF_INDEX);
+        if (ids != null && !ids.isEmpty()) {
+            id = ids.get(id);
+        }
+        return readSpectrum(id);
+    }
+
+    @Override
+    Spectrum transformSpectrum(Object rawSpectrum) {
+        return PeakTransformer.transformSpectrum((uk.ac.ebi.pride.tools.jmzreader.model.Spectrum) rawSpectrum);
+    }
+
+    private uk.ac.ebi.pride.tools.jmzreader.model.Spectrum readSpectrum(Comparable id) {
+        try {
+            return unmarshaller.getSpectrumById(id.toString());
+        } catch (JMzReaderException ex) {
+            logger.error("Get spectrum by id", ex);
+            throw new DataAccessException("Exception while trying to read Spectrum using Spectrum ID", ex);
+        }
+    }
+
     /**
      * Get chromatogram using a chromatogram id, gives the option to choose whether to use cache.
      * This implementation provides a way of by passing the cache.
@@ -248,16 +292,25 @@ public class PeakControllerImpl extends CachedDataAccessController {
      */
     public static Class isValidFormat(File file) {
 
-        String filename = file.getName().toLowerCase();
-        if (filename.endsWith(Constants.DTA_EXT)) {
+        if (!file.isFile() || !file.canRead()) {
+            logger.debug("Not a readable peak file: {}", file);
+            return null;
+        }
+
+        if (FileFormatSniffer.isCompressed(file)) {
+            return null;
+        }
+
+        Set<FileFormatSniffer.FileFormat> formats = FileFormatSniffer.getFormats(file);
+        if (formats.contains(FileFormatSniffer.FileFormat.DTA)) {
             return DtaFile.class;
-        } else if (filename.endsWith(Constants.MGF_EXT)) {
+        } else if (formats.contains(FileFormatSniffer.FileFormat.MGF)) {
             return MgfFile.class;
-        } else if (filename.endsWith(Constants.MS2_EXT)) {
+        } else if (formats.contains(FileFormatSniffer.FileFormat.MS2)) {
             return Ms2File.class;
-        } else if (filename.endsWith(Constants.PKL_EXT)) {
+        } else if (formats.contains(FileFormatSniffer.FileFormat.PKL)) {
             return PklFile.class;
-        } else if (filename.endsWith(Constants.APL_EXT)){
+        } else if (formats.contains(FileFormatSniffer.FileFormat.APL)){
             return AplFile.class;
         }
         return null;
@@ -278,8 +331,39 @@ public class PeakControllerImpl extends CachedDataAccessController {
         Map<Comparable, Comparable> ids = (Map<Comparable, Comparable>) getCache().get(CacheEntry.TITLE_MGF_INDEX);
 
         if(ids != null && ids.size() > 0)
-            return ids.keySet();
+            return getTitleIndex(ids);
 
         return super.getSpectrumIds();
     }
+
+    /**
+     * Get the titles in the order of the spectra in the file. The index is built once from the title map,
+     * and rebuilt only when the cache holds another title map or the map changes size.
+     *
+     * @param titleToId map of title to spectrum id
+     * @return IndexedList<Comparable> ordered titles
+     */
+    private synchronized IndexedList<Comparable> getTitleIndex(Map<Comparable, Comparable> titleToId) {
+        if (titleIndex == null || titleIndexSource != titleToId || titleIndexSourceSize != titleToId.size()) {
+            IndexedList<Comparable> spectrumIds = IndexedList.of(super.getSpectrumIds());
+            Comparable[] titles = new Comparable[spectrumIds.size()];
+            for (Map.Entry<Comparable, Comparable> entry : titleToId.entrySet()) {
+                int position = spectrumIds.indexOf(entry.getValue());
+                if (position >= 0) {
+                    titles[position] = entry.getKey();
+                }
+            }
+
+            IndexedList<Comparable> index = new IndexedList<Comparable>(titles.length);
+            for (Comparable title : titles) {
+                if (title != null) {
+                    index.add(title);
+                }
+            }
+            titleIndex = index;
+            titleIndexSource = titleToId;
+            titleIndexSourceSize = titleToId.size();
+        }
+        return titleIndex;
+    }
 }
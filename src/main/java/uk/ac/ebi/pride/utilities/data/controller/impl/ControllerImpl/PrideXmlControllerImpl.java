@@ -6,21 +6,18 @@ import uk.ac.ebi.pride.utilities.util.Tuple;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessException;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessMode;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessUtilities;
+import uk.ac.ebi.pride.utilities.data.controller.cache.Cache;
 import uk.ac.ebi.pride.utilities.data.controller.cache.CacheEntry;
 import uk.ac.ebi.pride.utilities.data.controller.cache.strategy.PrideXmlCachingStrategy;
 import uk.ac.ebi.pride.utilities.data.controller.impl.Transformer.PrideXmlTransformer;
 import uk.ac.ebi.pride.utilities.data.core.*;
 import uk.ac.ebi.pride.utilities.data.utils.MD5Utils;
+import uk.ac.ebi.pride.utilities.data.utils.FileFormatSniffer;
 import uk.ac.ebi.pride.jaxb.xml.PrideXmlReader;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * PrideXmlControllerImpl is responsible for reading Pride Xml files.
@@ -32,10 +29,6 @@ import java.util.regex.Pattern;
 public class PrideXmlControllerImpl extends ResultFileController {
     private static final Logger logger = LoggerFactory.getLogger(PrideXmlControllerImpl.class);
 
-    /**
-     * Pattern for match pride xml format
-     */
-    private static final Pattern prideXmlHeaderPattern = Pattern.compile("^[^<]*(<\\?xml [^>]*>\\s*(<!--[^>]*-->\\s*)*)?<ExperimentCollection [^>]*>", Pattern.MULTILINE);
 
     /**
      * Reader to get information from pride xml file
@@ -47,6 +40,17 @@ public class PrideXmlControllerImpl extends ResultFileController {
         initialize();
     }
 
+    /**
+     * Construct a data access controller using a given PRIDE XML file and cache implementation
+     *
+     * @param file  PRIDE XML file
+     * @param cache cache implementation, e.g. ConcurrentCacheAccessor to share the controller between threads
+     */
+    public PrideXmlControllerImpl(File file, Cache cache) {
+        super(file, DataAccessMode.CACHE_AND_SOURCE, cache);
+        initialize();
+    }
+
     protected void initialize() {
         // create pride access utils
         File file = (File) getSource();
@@ -428,7 +432,7 @@ public class PrideXmlControllerImpl extends ResultFileController {
         if (spectrum == null && id != null) {
             logger.debug("Get new spectrum from file: {}", id);
             try {
-                spectrum = PrideXmlTransformer.transformSpectrum(reader.getSpectrumById(id.toString()));
+                spectrum = PrideXmlTransformer.transformSpectrum(reader.getSpectrumById(id.toString()), isCompactPeakStorage());
                 if (useCache && spectrum != null) {
                     getCache().store(CacheEntry.SPECTRUM, id, spectrum);
                 }
@@ -567,31 +571,7 @@ public class PrideXmlControllerImpl extends ResultFileController {
      * @return boolean true means PRIDE XML
      */
     public static boolean isValidFormat(File file) {
-        boolean valid = false;
-        BufferedReader reader = null;
-        try {
-            reader = new BufferedReader(new FileReader(file));
-            // read the first ten lines
-            StringBuilder content = new StringBuilder();
-            for (int i = 0; i < 10; i++) {
-                content.append(reader.readLine());
-            }
-            // check file type
-            Matcher matcher = prideXmlHeaderPattern.matcher(content);
-            valid = matcher.find();
-        } catch (Exception e) {
-            logger.error("Failed to read file", e);
-        } finally {
-            if (reader != null) {
-                try {
-                    reader.close();
-                } catch (IOException e) {
-                    // do nothing here
-                }
-            }
-        }
-
-        return valid;
+        return FileFormatSniffer.isFormat(file, FileFormatSniffer.FileFormat.PRIDE_XML, false);
     }
 
 }
@@ -6,9 +6,11 @@ import uk.ac.ebi.pride.utilities.data.controller.DataAccessController;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessException;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessMode;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessUtilities;
+import uk.ac.ebi.pride.utilities.data.controller.cache.Cache;
 import uk.ac.ebi.pride.utilities.data.controller.cache.CacheEntry;
 import uk.ac.ebi.pride.utilities.data.core.*;
 import uk.ac.ebi.pride.utilities.data.utils.Constants;
+import uk.ac.ebi.pride.utilities.data.utils.IndexedList;
 import uk.ac.ebi.pride.utilities.data.utils.MzIdentMLUtils;
 import uk.ac.ebi.pride.utilities.util.Tuple;
 
@@ -42,6 +44,10 @@ public abstract class ReferencedIdentificationController extends ResultFileContr
         super(file, cacheAndSource);
     }
 
+    public ReferencedIdentificationController(File file, DataAccessMode cacheAndSource, Cache cache) {
+        super(file, cacheAndSource, cache);
+    }
+
     /**
      * Return the number of Spectra in the DataAccessController
      * @return The number of Spectra for DataAccessController
@@ -340,16 +346,15 @@ public abstract class ReferencedIdentificationController extends ResultFileContr
      */
     @Override
     public boolean isIdentifiedSpectrum(Comparable specId) {
-        String[] array = specId.toString().split("!");
-        if(array.length < 2){
-            if(getCache().get(CacheEntry.PEPTIDE_TO_SPECTRUM, specId) != null)
-                return true;
-        }else{
-            Tuple<String, String> specTuple = new Tuple<String, String>(array[0], array[1]);
-            if(getCache().get(CacheEntry.SPECTRUM_IDENTIFIED,specTuple) != null)
-                return true;
+        Tuple<String, String> specTuple = getSpectrumTuple(specId);
+        if (specTuple == null) {
+            return getCache().get(CacheEntry.PEPTIDE_TO_SPECTRUM, specId) != null;
         }
-        return false;
+        if (getCache().get(CacheEntry.SPECTRUM_TO_PEPTIDES, specTuple) != null) {
+            return true;
+        }
+        // spectra of quantified peptides are not in the spectrum to peptides index
+        return getCache().get(CacheEntry.SPECTRUM_IDENTIFIED, specTuple) != null;
     }
 
     /**
@@ -358,34 +363,37 @@ public abstract class ReferencedIdentificationController extends ResultFileContr
      * @return java.lang.List<Peptide> A list of peptides identified by this Spectrum
      */
     public List<Peptide> getPeptidesBySpectrum(Comparable specId){
-        Map<Comparable, Tuple<String,String>> peptideToSpectrum = ((Map<Comparable, Tuple<String,String>>) getCache().get(CacheEntry.PEPTIDE_TO_SPECTRUM));
-        Map<Comparable, List<Comparable>> proteinToPeptide  = ((Map<Comparable, List<Comparable>>) getCache().get(CacheEntry.PROTEIN_TO_PEPTIDE_EVIDENCES));
         List<Peptide> peptides = new ArrayList<Peptide>();
+        Tuple<String, String> specTuple = getSpectrumTuple(specId);
+        if (specTuple == null) {
+            return peptides;
+        }
 
-        for(Map.Entry spectrumIDEntry: peptideToSpectrum.entrySet()){
-            Comparable peptideID = (Comparable) spectrumIDEntry.getKey();
-            Tuple<String,String> spectrumID  = (Tuple<String,String>) spectrumIDEntry.getValue();
-            String spectrumIDString = spectrumID.getKey() + "!" + spectrumID.getValue();
-            if(spectrumIDString.equalsIgnoreCase(specId.toString()) && proteinToPeptide != null){
-                for(Map.Entry proteinEntry: proteinToPeptide.entrySet()){
-                    Comparable proteinId = (Comparable) proteinEntry.getKey();
-                    List<Comparable> peptidePerProtein = (List<Comparable>) proteinEntry.getValue();
-                    if(peptidePerProtein.contains(peptideID)){
-                        Peptide peptideIdentified = getPeptideByIndex(proteinId, peptideID);
-                        peptides.add(peptideIdentified);
-                    }
-                }
+        List<Tuple<Comparable, Comparable>> proteinPeptideIds = (List<Tuple<Comparable, Comparable>>) getCache().get(CacheEntry.SPECTRUM_TO_PEPTIDES, specTuple);
+        if (proteinPeptideIds != null) {
+            for (Tuple<Comparable, Comparable> proteinPeptideId : proteinPeptideIds) {
+                peptides.add(getPeptideByIndex(proteinPeptideId.getKey(), proteinPeptideId.getValue()));
             }
         }
-
         return peptides;
     }
 
+    /**
+     * Split a spectrum id of the form spectrum id!spectra data id
+     *
+     * @param specId spectrum id
+     * @return Tuple<String, String> spectrum id and spectra data id, null if the id does not reference a spectra data
+     */
+    private static Tuple<String, String> getSpectrumTuple(Comparable specId) {
+        String[] array = specId.toString().split("!");
+        return array.length < 2 ? null : new Tuple<String, String>(array[0], array[1]);
+    }
+
     @Override
     public Collection<Comparable> getSpectrumIds() {
         Collection<Comparable> spectrumIds = super.getSpectrumIds();
         if (spectrumIds.size() == 0 && hasSpectrum()) {
-            spectrumIds = new HashSet<Comparable>();
+            spectrumIds = new IndexedList<Comparable>();
             for (Comparable id : msDataAccessControllers.keySet()) {
                 if (msDataAccessControllers.get(id) != null)
                     for (Comparable idSpectrum : msDataAccessControllers.get(id).getSpectrumIds()) {
@@ -413,7 +421,7 @@ public abstract class ReferencedIdentificationController extends ResultFileContr
         if(spectrum == null){
             Tuple<String,String> spectrumIdArray;
             if (((String) id).split("!").length != 2) {
-                spectrumIdArray = ((Map<Comparable, Tuple<String,String>>) getCache().get(CacheEntry.PEPTIDE_TO_SPECTRUM)).get(id);
+                spectrumIdArray = (Tuple<String, String>) getCache().get(CacheEntry.PEPTIDE_TO_SPECTRUM, id);
             }else{
                 spectrumIdArray = new Tuple<>(((String) id).split("!")[0], ((String) id).split("!")[1]);
             }
@@ -3,6 +3,7 @@ package uk.ac.ebi.pride.utilities.data.controller.impl.ControllerImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessMode;
+import uk.ac.ebi.pride.utilities.data.controller.cache.Cache;
 import uk.ac.ebi.pride.utilities.data.core.Modification;
 import uk.ac.ebi.pride.utilities.data.core.Peptide;
 import uk.ac.ebi.pride.utilities.data.core.Protein;
@@ -22,6 +23,10 @@ public class ResultFileController extends CachedDataAccessController {
     super(file, mode);
   }
 
+  public ResultFileController(File file, DataAccessMode mode, Cache cache) {
+    super(file, mode, cache);
+  }
+
   /**
    * This function check randomly if the spectra is well referenced for a couple of spectra
    * for that it is using the the number of Spectra to be check.
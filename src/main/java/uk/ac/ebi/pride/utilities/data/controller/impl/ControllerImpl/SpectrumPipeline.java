@@ -0,0 +1,154 @@
+package uk.ac.ebi.pride.utilities.data.controller.impl.ControllerImpl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.ebi.pride.utilities.data.controller.DataAccessException;
+import uk.ac.ebi.pride.utilities.data.controller.cache.CacheEntry;
+import uk.ac.ebi.pride.utilities.data.core.Spectrum;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * SpectrumPipeline reads and transforms spectra in two stages, so a whole file scan can use all the cores.
+ * <p/>
+ * A single reader thread reads the raw spectra from the data source in id order, and hands each raw spectrum
+ * to an executor (a fork/join pool, or any other executor) which decodes the binary arrays and builds the
+ * Spectrum objects. The spectra are returned either in id order or in the order they are transformed.
+ * <p/>
+ * At most capacity spectra are read but not yet consumed at any time, the reader waits when the consumer
+ * falls behind.
+ * <p/>
+ * @author Rui Wang
+ * @author Yasset Perez-Riverol
+ */
+class SpectrumPipeline implements Iterator<Spectrum>, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpectrumPipeline.class);
+
+    private final CachedDataAccessController controller;
+
+    private final Executor executor;
+
+    private final boolean ordered;
+
+    /**
+     * read spectra waiting to be consumed, in id order or in completion order
+     */
+    private final BlockingQueue<CompletableFuture<Spectrum>> queue = new LinkedBlockingQueue<CompletableFuture<Spectrum>>();
+
+    /**
+     * one permit per spectrum which can be read ahead of the consumer
+     */
+    private final Semaphore permits;
+
+    private final Thread reader;
+
+    private int remaining;
+
+    private volatile boolean closed = false;
+
+    /**
+     * @param controller controller to read the spectra from
+     * @param ids        spectrum ids
+     * @param executor   executor to transform the spectra
+     * @param capacity   maximum number of spectra read ahead of the consumer
+     * @param ordered    true to return the spectra in the order of the ids
+     */
+    SpectrumPipeline(CachedDataAccessController controller, Collection<Comparable> ids,
+                     Executor executor, int capacity, boolean ordered) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Pipeline capacity must be positive: " + capacity);
+        }
+        this.controller = controller;
+        this.executor = executor;
+        this.ordered = ordered;
+        this.permits = new Semaphore(capacity);
+        this.remaining = ids.size();
+
+        final List<Comparable> spectrumIds = new ArrayList<Comparable>(ids);
+        this.reader = new Thread(() -> read(spectrumIds), "spectrum-pipeline-reader");
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return remaining > 0 && !closed;
+    }
+
+    @Override
+    public Spectrum next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        CompletableFuture<Spectrum> future;
+        try {
+            future = queue.take();
+        } catch (InterruptedException e) {
+            close();
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Interrupted while waiting for spectrum", e);
+        }
+        remaining--;
+        permits.release();
+
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            close();
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new DataAccessException("Failed to transform spectrum", ex.getCause());
+        }
+    }
+
+    /**
+     * Stop reading, the spectra which are being transformed are discarded
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            reader.interrupt();
+            queue.clear();
+        }
+    }
+
+    private void read(List<Comparable> ids) {
+        try {
+            for (Comparable id : ids) {
+                permits.acquire();
+                if (closed) {
+                    return;
+                }
+                submit(id);
+            }
+        } catch (InterruptedException e) {
+            logger.debug("Spectrum pipeline reader stopped");
+        } catch (Throwable e) {
+            // the consumer rethrows the failure when it reaches it, instead of waiting for spectra which are never read
+            CompletableFuture<Spectrum> failure = new CompletableFuture<Spectrum>();
+            failure.completeExceptionally(e);
+            queue.add(failure);
+        }
+    }
+
+    private void submit(Comparable id) {
+        Spectrum spectrum = (Spectrum) controller.getCache().get(CacheEntry.SPECTRUM, id);
+        final Object rawSpectrum = spectrum == null ? controller.getRawSpectrumById(id) : null;
+
+        final CompletableFuture<Spectrum> future = rawSpectrum != null
+                ? CompletableFuture.supplyAsync(() -> controller.transformSpectrum(rawSpectrum), executor)
+                : CompletableFuture.completedFuture(spectrum != null ? spectrum : controller.getSpectrumById(id, false));
+
+        if (ordered) {
+            queue.add(future);
+        } else {
+            future.whenComplete((result, ex) -> queue.add(future));
+        }
+    }
+}
@@ -21,6 +21,7 @@ import uk.ac.ebi.pride.utilities.data.core.UserParam;
 import uk.ac.ebi.pride.utilities.data.utils.BinaryDataUtils;
 import uk.ac.ebi.pride.utilities.term.CvTermReference;
 
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.*;
 
@@ -46,6 +47,17 @@ public final class MzMLTransformer {
      * @return Spectrum spectrum
      */
     public static Spectrum transformSpectrum(uk.ac.ebi.jmzml.model.mzml.Spectrum spectrum) {
+        return transformSpectrum(spectrum, false);
+    }
+
+    /**
+     * Convert spectrum
+     *
+     * @param spectrum jmzML spectrum object
+     * @param compact  true to keep 32-bit arrays in single precision
+     * @return Spectrum spectrum
+     */
+    public static Spectrum transformSpectrum(uk.ac.ebi.jmzml.model.mzml.Spectrum spectrum, boolean compact) {
         Spectrum newSpec = null;
         if (spectrum != null) {
 
@@ -58,7 +70,7 @@ public final class MzMLTransformer {
             ScanList scans = transformScanList(spectrum.getScanList());
             List<Precursor> precursors = transformPrecursorList(spectrum.getPrecursorList());
             List<ParamGroup> products = transformProductList(spectrum.getProductList());
-            List<BinaryDataArray> binaryArray = transformBinaryDataArrayList(spectrum.getBinaryDataArrayList());
+            List<BinaryDataArray> binaryArray = transformBinaryDataArrayList(spectrum.getBinaryDataArrayList(), compact);
             ParamGroup paramGroup = transformParamGroup(spectrum);
 
             CvTermReference cvTerm = CvTermReference.ION_SELECTION_CHARGE_STATE;
@@ -267,9 +279,11 @@ public final class MzMLTransformer {
      * Convert a list of binary data array
      *
      * @param binaryDataArrayList jmzml binary data array list
+     * @param compact             true to keep 32-bit arrays in single precision
      * @return List<BinaryDataArray>   a list of binary data array
      */
-    private static List<BinaryDataArray> transformBinaryDataArrayList(uk.ac.ebi.jmzml.model.mzml.BinaryDataArrayList binaryDataArrayList) {
+    private static List<BinaryDataArray> transformBinaryDataArrayList(uk.ac.ebi.jmzml.model.mzml.BinaryDataArrayList binaryDataArrayList,
+                                                                      boolean compact) {
         List<BinaryDataArray> dataArrs = null;
 
         if (binaryDataArrayList != null) {
@@ -277,7 +291,7 @@ public final class MzMLTransformer {
             List<uk.ac.ebi.jmzml.model.mzml.BinaryDataArray> oldDataArrs = binaryDataArrayList.getBinaryDataArray();
 
             for (uk.ac.ebi.jmzml.model.mzml.BinaryDataArray oldBinaryArr : oldDataArrs) {
-                dataArrs.add(transformBinaryDataArray(oldBinaryArr));
+                dataArrs.add(transformBinaryDataArray(oldBinaryArr, compact));
             }
         }
 
@@ -288,15 +302,15 @@ public final class MzMLTransformer {
      * Convert binary data array
      *
      * @param oldBinaryArr jmzml binary data array
+     * @param compact      true to keep 32-bit arrays in single precision
      * @return BinaryDataArray binary data array
      */
-    private static BinaryDataArray transformBinaryDataArray(uk.ac.ebi.jmzml.model.mzml.BinaryDataArray oldBinaryArr) {
+    private static BinaryDataArray transformBinaryDataArray(uk.ac.ebi.jmzml.model.mzml.BinaryDataArray oldBinaryArr,
+                                                            boolean compact) {
         BinaryDataArray newBinaryArr = null;
 
         if (oldBinaryArr != null) {
 
-            byte[] binary = oldBinaryArr.getBinary();
-
             ParamGroup paramGroup = transformParamGroup(oldBinaryArr);
 
             CvTermReference binaryDataType = null;
@@ -311,14 +325,19 @@ public final class MzMLTransformer {
                 }
             }
 
-            if (isCompressed) {
-                binary = BinaryDataUtils.decompress(binary);
-            }
+            // decompress into a reusable buffer, the values are decoded straight into the final double array
+            ByteBuffer binary = isCompressed ? BinaryDataUtils.inflate(oldBinaryArr.getBinary())
+                    : ByteBuffer.wrap(oldBinaryArr.getBinary());
 
-            double[] binaryDoubleArr = BinaryDataUtils.toDoubleArray(binary, binaryDataType, ByteOrder.LITTLE_ENDIAN);
             DataProcessing dataProcessing = transformDataProcessing(oldBinaryArr.getDataProcessing());
 
-            newBinaryArr = new BinaryDataArray(dataProcessing, binaryDoubleArr, paramGroup);
+            if (compact && BinaryDataUtils.isSinglePrecision(binaryDataType)) {
+                float[] binaryFloatArr = BinaryDataUtils.toFloatArray(binary, binaryDataType, ByteOrder.LITTLE_ENDIAN);
+                newBinaryArr = new BinaryDataArray(dataProcessing, binaryFloatArr, paramGroup, false);
+            } else {
+                double[] binaryDoubleArr = BinaryDataUtils.toDoubleArray(binary, binaryDataType, ByteOrder.LITTLE_ENDIAN);
+                newBinaryArr = new BinaryDataArray(dataProcessing, binaryDoubleArr, paramGroup, false);
+            }
         }
 
         return newBinaryArr;
@@ -530,6 +549,17 @@ public final class MzMLTransformer {
      * @return Chromatogram    chromatogram
      */
     public static Chromatogram transformChromatogram(uk.ac.ebi.jmzml.model.mzml.Chromatogram chroma) {
+        return transformChromatogram(chroma, false);
+    }
+
+    /**
+     * Convert chromatogram
+     *
+     * @param chroma  jmzml chromatogram
+     * @param compact true to keep 32-bit arrays in single precision
+     * @return Chromatogram    chromatogram
+     */
+    public static Chromatogram transformChromatogram(uk.ac.ebi.jmzml.model.mzml.Chromatogram chroma, boolean compact) {
         Chromatogram newChroma = null;
 
         if (chroma != null) {
@@ -537,7 +567,7 @@ public final class MzMLTransformer {
             int index = chroma.getIndex();
             DataProcessing dataProcessing = transformDataProcessing(chroma.getDataProcessing());
             int arrLength = chroma.getDefaultArrayLength();
-            List<BinaryDataArray> binaryArr = transformBinaryDataArrayList(chroma.getBinaryDataArrayList());
+            List<BinaryDataArray> binaryArr = transformBinaryDataArrayList(chroma.getBinaryDataArrayList(), compact);
             ParamGroup paramGroup = transformParamGroup(chroma);
             newChroma = new Chromatogram(paramGroup, id, null, index, dataProcessing, arrLength, binaryArr);
         }
@@ -105,9 +105,9 @@ public final class MzXmlTransformer {
 
         //Todo: How you can know if the intensity correspond with the mz value?
 
-        BinaryDataArray intBinaryArr = new BinaryDataArray(null, intArray, intParam);
+        BinaryDataArray intBinaryArr = new BinaryDataArray(null, intArray, intParam, false);
         binaryDataArrays.add(intBinaryArr);
-        BinaryDataArray mzBinaryArr = new BinaryDataArray(null, mzArray, mzParam);
+        BinaryDataArray mzBinaryArr = new BinaryDataArray(null, mzArray, mzParam, false);
         binaryDataArrays.add(mzBinaryArr);
 
         return binaryDataArrays;
@@ -11,6 +11,7 @@ import uk.ac.ebi.pride.utilities.util.NumberUtilities;
 
 import javax.xml.datatype.XMLGregorianCalendar;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.List;
@@ -52,6 +53,19 @@ public final class PrideXmlTransformer {
      * @return Spectrum    spectrum
      */
     public static Spectrum transformSpectrum(uk.ac.ebi.pride.jaxb.model.Spectrum rawSpec) {
+        return transformSpectrum(rawSpec, false);
+    }
+
+    /**
+     * Convert spectrum
+     * <p/>
+     * Note: supDes, supDataArrayBinary are ignored.
+     *
+     * @param rawSpec pride xml spectrum
+     * @param compact true to keep 32-bit arrays in single precision
+     * @return Spectrum    spectrum
+     */
+    public static Spectrum transformSpectrum(uk.ac.ebi.pride.jaxb.model.Spectrum rawSpec, boolean compact) {
         Spectrum spectrum = null;
 
         if (rawSpec != null) {
@@ -86,13 +100,13 @@ public final class PrideXmlTransformer {
                     }
                 }
 
-                BinaryDataArray mz = transformBinaryDataArray(rawSpec.getMzArrayBinary(), CvTermReference.MZ_ARRAY);
-                BinaryDataArray inten = transformBinaryDataArray(rawSpec.getIntenArrayBinary(), CvTermReference.INTENSITY_ARRAY);
+                BinaryDataArray mz = transformBinaryDataArray(rawSpec.getMzArrayBinary(), CvTermReference.MZ_ARRAY, compact);
+                BinaryDataArray inten = transformBinaryDataArray(rawSpec.getIntenArrayBinary(), CvTermReference.INTENSITY_ARRAY, compact);
                 dataArr = new ArrayList<BinaryDataArray>();
                 dataArr.add(mz);
                 dataArr.add(inten);
 
-                defaultArrLength = mz.getDoubleArray().length;
+                defaultArrLength = mz.size();
             }
             // get spectrum id
             Integer specId = rawSpec.getId();
@@ -318,6 +332,19 @@ public final class PrideXmlTransformer {
      */
     public static BinaryDataArray transformBinaryDataArray(uk.ac.ebi.pride.jaxb.model.PeakListBinary rawArr,
                                                            CvTermReference binaryType) {
+        return transformBinaryDataArray(rawArr, binaryType, false);
+    }
+
+    /**
+     * Transform BinaryDataArray from pride xml to core data model
+     *
+     * @param rawArr     pride xml binary data array
+     * @param binaryType binary type
+     * @param compact    true to keep 32-bit arrays in single precision
+     * @return BinaryDataArray binary data array
+     */
+    public static BinaryDataArray transformBinaryDataArray(uk.ac.ebi.pride.jaxb.model.PeakListBinary rawArr,
+                                                           CvTermReference binaryType, boolean compact) {
 
         uk.ac.ebi.pride.jaxb.model.Data rawData = rawArr.getData();
         byte[] binary = rawData.getValue();
@@ -328,8 +355,6 @@ public final class PrideXmlTransformer {
         //check endianess
         ByteOrder order = "big".equals(rawData.getEndian()) ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
 
-        double[] binaryDoubleArr = BinaryDataUtils.toDoubleArray(binary, dataType, order);
-
         // create param group
         ParamGroup params = new ParamGroup();
         // add precision
@@ -339,7 +364,10 @@ public final class PrideXmlTransformer {
         params.addCvParam(new CvParam(compressionTerm.getAccession(), compressionTerm.getName(), compressionTerm.getCvLabel(), null, null, null, null));
         params.addCvParam(new CvParam(binaryType.getAccession(), binaryType.getName(), binaryType.getCvLabel(), null, null, null, null));
 
-        return new BinaryDataArray(null, binaryDoubleArr, params);
+        if (compact && BinaryDataUtils.isSinglePrecision(dataType)) {
+            return new BinaryDataArray(null, BinaryDataUtils.toFloatArray(ByteBuffer.wrap(binary), dataType, order), params, false);
+        }
+        return new BinaryDataArray(null, BinaryDataUtils.toDoubleArray(binary, dataType, order), params, false);
     }
 
 
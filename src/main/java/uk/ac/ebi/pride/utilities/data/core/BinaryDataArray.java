@@ -2,7 +2,9 @@ package uk.ac.ebi.pride.utilities.data.core;
 
 //~--- JDK imports ------------------------------------------------------------
 
+import java.nio.DoubleBuffer;
 import java.util.Arrays;
+import java.util.function.DoubleConsumer;
 
 /**
  * BinaryDataArray is a slim down version of binaryDataArray in mzML
@@ -24,6 +26,12 @@ import java.util.Arrays;
  * Note: encodedLength is ignored
  * Note: In mzML, binary is always base64 encoded and is always "little endian".
  * <p/>
+ * The values are never modified in place, getDoubleArray returns a copy, while get, asDoubleBuffer and
+ * forEach read the values without copying them.
+ * <p/>
+ * 32-bit values can be kept in single precision (compact storage), they are widened to double on access.
+ * The values can also be read from a buffer, e.g. a view on an off-heap PeakArena.
+ * <p/>
  * @author Rui Wang
  * @author Yasset Perez-Riverol
  */
@@ -31,6 +39,16 @@ public class BinaryDataArray extends ParamGroup {
 
     private double[] binaryDoubleArray;
 
+    /**
+     * values kept in single precision, used instead of binaryDoubleArray for compact storage
+     */
+    private float[] binaryFloatArray;
+
+    /**
+     * values read from a buffer, used instead of binaryDoubleArray for off-heap storage
+     */
+    private DoubleBuffer binaryDoubleBuffer;
+
     private DataProcessing dataProcessing;
 
     /**
@@ -46,20 +64,152 @@ public class BinaryDataArray extends ParamGroup {
         setDoubleArray(binaryDoubleArr);
     }
 
+    /**
+     * Constructor which can take the ownership of the double array, when copy is false the array
+     * is used as it is, so the caller must not modify it afterwards.
+     *
+     * @param dataProcessing  optional.
+     * @param binaryDoubleArr required.
+     * @param params          required, but there is no way of enforce/check it.
+     * @param copy            false to use the given array without copying it.
+     */
+    public BinaryDataArray(DataProcessing dataProcessing, double[] binaryDoubleArr, ParamGroup params, boolean copy) {
+        super(params);
+        setDataProcessing(dataProcessing);
+        if (copy) {
+            setDoubleArray(binaryDoubleArr);
+        } else {
+            this.binaryDoubleArray = binaryDoubleArr;
+        }
+    }
+
+    /**
+     * Constructor for compact storage, the values are kept in single precision and widened on access.
+     * When copy is false the array is used as it is, so the caller must not modify it afterwards.
+     *
+     * @param dataProcessing optional.
+     * @param binaryFloatArr required.
+     * @param params         required, but there is no way of enforce/check it.
+     * @param copy           false to use the given array without copying it.
+     */
+    public BinaryDataArray(DataProcessing dataProcessing, float[] binaryFloatArr, ParamGroup params, boolean copy) {
+        super(params);
+        setDataProcessing(dataProcessing);
+        this.binaryFloatArray = copy ? Arrays.copyOf(binaryFloatArr, binaryFloatArr.length) : binaryFloatArr;
+    }
+
+    /**
+     * Constructor for values read from a buffer, the buffer is not copied, its values
+     * between position and limit are used.
+     *
+     * @param dataProcessing     optional.
+     * @param binaryDoubleBuffer required.
+     * @param params             required, but there is no way of enforce/check it.
+     */
+    public BinaryDataArray(DataProcessing dataProcessing, DoubleBuffer binaryDoubleBuffer, ParamGroup params) {
+        super(params);
+        setDataProcessing(dataProcessing);
+        this.binaryDoubleBuffer = binaryDoubleBuffer.slice();
+    }
+
     public BinaryDataArray(BinaryDataArray binaryDataArray){
         super(binaryDataArray.getCvParams(), binaryDataArray.getUserParams());
         setDataProcessing(binaryDataArray.getDataProcessing());
-        setDoubleArray(binaryDataArray.getDoubleArray());
+        // the values are never modified in place, so they can be shared
+        this.binaryDoubleArray = binaryDataArray.binaryDoubleArray;
+        this.binaryFloatArray = binaryDataArray.binaryFloatArray;
+        this.binaryDoubleBuffer = binaryDataArray.binaryDoubleBuffer;
     }
 
     public double[] getDoubleArray() {
+        if (binaryDoubleBuffer != null) {
+            double[] doubleArr = new double[binaryDoubleBuffer.limit()];
+            binaryDoubleBuffer.duplicate().get(doubleArr);
+            return doubleArr;
+        } else if (binaryFloatArray != null) {
+            double[] doubleArr = new double[binaryFloatArray.length];
+            for (int i = 0; i < doubleArr.length; i++) {
+                doubleArr[i] = binaryFloatArray[i];
+            }
+            return doubleArr;
+        }
         return Arrays.copyOf(binaryDoubleArray, binaryDoubleArray.length);
     }
 
+    /**
+     * Whether the values are kept in single precision
+     *
+     * @return boolean true if compact storage is used
+     */
+    public boolean isCompact() {
+        return binaryFloatArray != null;
+    }
+
+    /**
+     * Get the number of values in the array, without copying it
+     *
+     * @return int number of values
+     */
+    public int size() {
+        if (binaryDoubleBuffer != null) {
+            return binaryDoubleBuffer.limit();
+        }
+        return binaryFloatArray != null ? binaryFloatArray.length : binaryDoubleArray.length;
+    }
+
+    /**
+     * Get a value, without copying the array
+     *
+     * @param index index of the value
+     * @return double  value
+     */
+    public double get(int index) {
+        if (binaryDoubleBuffer != null) {
+            return binaryDoubleBuffer.get(index);
+        }
+        return binaryFloatArray != null ? binaryFloatArray[index] : binaryDoubleArray[index];
+    }
+
+    /**
+     * Get a read-only view of the values, without copying them.
+     * For compact storage the values have to be widened into a new buffer.
+     *
+     * @return DoubleBuffer read-only buffer
+     */
+    public DoubleBuffer asDoubleBuffer() {
+        if (binaryDoubleBuffer != null) {
+            return binaryDoubleBuffer.asReadOnlyBuffer();
+        }
+        return DoubleBuffer.wrap(binaryFloatArray != null ? getDoubleArray() : binaryDoubleArray).asReadOnlyBuffer();
+    }
+
+    /**
+     * Pass each value in order to the consumer, without copying or boxing them
+     *
+     * @param consumer value consumer
+     */
+    public void forEach(DoubleConsumer consumer) {
+        if (binaryDoubleBuffer != null) {
+            for (int i = 0; i < binaryDoubleBuffer.limit(); i++) {
+                consumer.accept(binaryDoubleBuffer.get(i));
+            }
+        } else if (binaryFloatArray != null) {
+            for (float value : binaryFloatArray) {
+                consumer.accept(value);
+            }
+        } else {
+            for (double value : binaryDoubleArray) {
+                consumer.accept(value);
+            }
+        }
+    }
+
     public void setDoubleArray(double[] binaryDoubleArr) {
         //this.binaryDoubleArray = Arrays.copyOf(binaryDoubleArr, binaryDoubleArr.length);
         this.binaryDoubleArray = new double[binaryDoubleArr.length];
         System.arraycopy(binaryDoubleArr, 0, this.binaryDoubleArray, 0, binaryDoubleArr.length);
+        this.binaryFloatArray = null;
+        this.binaryDoubleBuffer = null;
     }
 
     public DataProcessing getDataProcessing() {
@@ -78,17 +228,53 @@ public class BinaryDataArray extends ParamGroup {
 
         BinaryDataArray that = (BinaryDataArray) o;
 
-        return Arrays.equals(binaryDoubleArray, that.binaryDoubleArray) && !(dataProcessing != null ? !dataProcessing.equals(that.dataProcessing) : that.dataProcessing != null);
+        return valuesEqual(that) && !(dataProcessing != null ? !dataProcessing.equals(that.dataProcessing) : that.dataProcessing != null);
 
     }
 
     @Override
     public int hashCode() {
         int result = super.hashCode();
-        result = 31 * result + (binaryDoubleArray != null ? Arrays.hashCode(binaryDoubleArray) : 0);
+        result = 31 * result + valuesHashCode();
         result = 31 * result + (dataProcessing != null ? dataProcessing.hashCode() : 0);
         return result;
     }
+
+    /**
+     * Compare the values as doubles, whatever the storage is
+     */
+    private boolean valuesEqual(BinaryDataArray that) {
+        if (binaryDoubleArray != null && that.binaryDoubleArray != null) {
+            return Arrays.equals(binaryDoubleArray, that.binaryDoubleArray);
+        }
+
+        int size = size();
+        if (size != that.size()) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (Double.doubleToLongBits(get(i)) != Double.doubleToLongBits(that.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same as Arrays.hashCode on the values as doubles, whatever the storage is
+     */
+    private int valuesHashCode() {
+        if (binaryDoubleArray != null) {
+            return Arrays.hashCode(binaryDoubleArray);
+        }
+
+        int result = 1;
+        for (int i = 0; i < size(); i++) {
+            long bits = Double.doubleToLongBits(get(i));
+            result = 31 * result + (int) (bits ^ (bits >>> 32));
+        }
+        return result;
+    }
 }
 
 
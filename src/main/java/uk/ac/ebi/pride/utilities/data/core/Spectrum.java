@@ -155,14 +155,14 @@ public class    Spectrum extends MzGraph implements Cloneable{
 
     public double[][] getMassIntensityMap() {
 
-        double[] ionIntensities = getIntensityBinaryDataArray().getDoubleArray();
-        double[] ionMasses = getMzBinaryDataArray().getDoubleArray();
+        BinaryDataArray ionIntensities = getIntensityBinaryDataArray();
+        BinaryDataArray ionMasses = getMzBinaryDataArray();
 
-        double[][] peakList = new double[ionIntensities.length][2];
+        double[][] peakList = new double[ionIntensities.size()][2];
 
         for (int i = 0; i < peakList.length; i++) {
-            peakList[i][0] = ionMasses[i];
-            peakList[i][1] = ionIntensities[i];
+            peakList[i][0] = ionMasses.get(i);
+            peakList[i][1] = ionIntensities.get(i);
 
         }
         return peakList;
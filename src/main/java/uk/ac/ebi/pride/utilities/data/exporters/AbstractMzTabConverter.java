@@ -20,6 +20,11 @@ import java.io.File;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -50,6 +55,23 @@ public abstract class AbstractMzTabConverter extends ConvertProvider<DataAccessC
 
     public static ModReader modReader;
 
+    /**
+     * Default number of proteins converted by each task of the executor
+     */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    /**
+     * Executor to convert the proteins concurrently, null to convert them on the calling thread
+     */
+    private Executor executor;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    /**
+     * Maximum number of batches converted ahead of the merge
+     */
+    private int batchesPerRound = 2 * Runtime.getRuntime().availableProcessors();
+
     public AbstractMzTabConverter(DataAccessController controller) {
         super(controller, null);
         modReader = ModReader.getInstance();
@@ -397,6 +419,148 @@ public abstract class AbstractMzTabConverter extends ConvertProvider<DataAccessC
     @Override
     protected abstract void fillData();
 
+    /**
+     * Convert the proteins and PSMs on an executor, for example a ForkJoinPool. The mzTab file is the same as the
+     * one converted on the calling thread. The controller is only accessed from the calling thread.
+     *
+     * @param executor executor to convert the proteins, null to convert them on the calling thread
+     */
+    public void setExecutor(Executor executor) {
+        setExecutor(executor, DEFAULT_BATCH_SIZE, 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Convert the proteins and PSMs on an executor
+     *
+     * @param executor        executor to convert the proteins, null to convert them on the calling thread
+     * @param batchSize       number of proteins converted by each task
+     * @param batchesPerRound maximum number of batches converted ahead of the merge, it bounds the number of
+     *                        proteins held in memory
+     */
+    public void setExecutor(Executor executor, int batchSize, int batchesPerRound) {
+        if (batchSize <= 0 || batchesPerRound <= 0) {
+            throw new IllegalArgumentException("Batch size and number of batches per round must be positive");
+        }
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.batchesPerRound = batchesPerRound;
+    }
+
+    /**
+     * Convert a sequence of inputs, each input is converted independently and the results are merged in the
+     * order of the inputs. The merge can run while other inputs are converted.
+     *
+     * @param inputs     inputs to convert, read on the calling thread
+     * @param conversion conversion of an input, must not access the controller
+     * @param merge      merge of a converted input, called on the calling thread in the order of the inputs
+     * @see #convertInOrder(Iterator, Function, Consumer, boolean)
+     */
+    protected <I, R> void convertInOrder(Iterator<I> inputs, final Function<I, R> conversion, Consumer<R> merge) {
+        convertInOrder(inputs, conversion, merge, true);
+    }
+
+    /**
+     * Convert a sequence of inputs, each input is converted independently and the results are merged in the
+     * order of the inputs.
+     * <p/>
+     * The inputs are read on the calling thread, so the iterator can read the controller. Without executor each
+     * input is converted and merged in turn. With an executor the inputs are read in batches, each batch is
+     * converted into its own buffer by the executor while the next batches are read, and the converted batches
+     * are merged on the calling thread in the order of the inputs, as soon as they are done. At most
+     * batchesPerRound batches are converted ahead of the merge, which bounds the number of inputs in memory.
+     * <p/>
+     * The conversion can read the metadata and the column factories, everything that depends on the order of
+     * the rows (ids, new optional columns, metadata updates) must be done by the merge. A merge which changes
+     * state read by the conversion, e.g. adds optional columns, must not run while other inputs are converted:
+     * then the batches are converted in rounds, the next round is read while a round is converted, and a round
+     * is merged once all its batches are done. In both cases the result is the same as the serial conversion.
+     *
+     * @param inputs          inputs to convert, read on the calling thread
+     * @param conversion      conversion of an input, must not access the controller
+     * @param merge           merge of a converted input, called on the calling thread in the order of the inputs
+     * @param concurrentMerge true if the merge only changes state that the conversion does not read
+     */
+    protected <I, R> void convertInOrder(Iterator<I> inputs, final Function<I, R> conversion, Consumer<R> merge,
+                                         boolean concurrentMerge) {
+        if (executor == null) {
+            while (inputs.hasNext()) {
+                merge.accept(conversion.apply(inputs.next()));
+            }
+            return;
+        }
+
+        Deque<CompletableFuture<List<R>>> pending = new ArrayDeque<CompletableFuture<List<R>>>(batchesPerRound);
+        try {
+            if (concurrentMerge) {
+                while (inputs.hasNext()) {
+                    pending.add(convertBatch(readBatch(inputs), conversion));
+                    // merge the batches which are done, wait for the oldest one only when too many are converted
+                    while (!pending.isEmpty() && (pending.size() >= batchesPerRound || pending.peek().isDone())) {
+                        mergeBatch(pending.poll(), merge);
+                    }
+                }
+            } else {
+                List<List<I>> round = readRound(inputs);
+                while (!round.isEmpty()) {
+                    for (List<I> batch : round) {
+                        pending.add(convertBatch(batch, conversion));
+                    }
+                    // read the next round while this one is converted, the merge waits for the whole round
+                    round = readRound(inputs);
+                    CompletableFuture.allOf(pending.toArray(new CompletableFuture[pending.size()])).join();
+                    while (!pending.isEmpty()) {
+                        mergeBatch(pending.poll(), merge);
+                    }
+                }
+            }
+            while (!pending.isEmpty()) {
+                mergeBatch(pending.poll(), merge);
+            }
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new DataAccessException("Failed to convert proteins to mzTab", ex.getCause());
+        } finally {
+            // the batches still pending after a failure are not needed anymore
+            for (CompletableFuture<List<R>> batch : pending) {
+                batch.cancel(false);
+            }
+        }
+    }
+
+    private <I> List<I> readBatch(Iterator<I> inputs) {
+        List<I> batch = new ArrayList<I>(batchSize);
+        while (batch.size() < batchSize && inputs.hasNext()) {
+            batch.add(inputs.next());
+        }
+        return batch;
+    }
+
+    private <I> List<List<I>> readRound(Iterator<I> inputs) {
+        List<List<I>> round = new ArrayList<List<I>>(batchesPerRound);
+        while (round.size() < batchesPerRound && inputs.hasNext()) {
+            round.add(readBatch(inputs));
+        }
+        return round;
+    }
+
+    private <I, R> CompletableFuture<List<R>> convertBatch(final List<I> batch, final Function<I, R> conversion) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<R> buffer = new ArrayList<R>(batch.size());
+            for (I input : batch) {
+                buffer.add(conversion.apply(input));
+            }
+            return buffer;
+        }, executor);
+    }
+
+    private static <R> void mergeBatch(CompletableFuture<List<R>> batch, Consumer<R> merge) {
+        for (R result : batch.join()) {
+            merge.accept(result);
+        }
+    }
+
     /**
      * Only one sample means this file is Identification and Complete. Otherwise, the file is Quantification and Summary.
      */
@@ -11,6 +11,8 @@ import uk.ac.ebi.pride.utilities.data.core.UserParam;
 import uk.ac.ebi.pride.utilities.data.filter.*;
 import uk.ac.ebi.pride.utilities.data.utils.MzTabUtils;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.*;
 
 /**
@@ -40,7 +42,6 @@ public class HQMzIdentMLMzTabConverter extends MzIdentMLMzTabConverter {
 
     public static final String NO_THRESHOLD_MS_AC = "MS:1001494";
     public static final String NO_THRESHOLD = "no threshold";
-    private final MzIdentMLControllerImpl controller;
 
 
     /**
@@ -50,8 +51,6 @@ public class HQMzIdentMLMzTabConverter extends MzIdentMLMzTabConverter {
      */
     public HQMzIdentMLMzTabConverter(MzIdentMLControllerImpl controller) {
         super(controller);
-        this.controller = controller;
-
     }
 
     @Override
@@ -60,6 +59,19 @@ public class HQMzIdentMLMzTabConverter extends MzIdentMLMzTabConverter {
         return proteinColumnFactory;
 
     }
+
+    /**
+     * The filters are applied to the whole set of proteins and protein groups, so the mzTab file is built in memory
+     * before it is written.
+     *
+     * @param out output stream, it is not closed
+     * @throws IOException if the mzTab can not be written
+     */
+    @Override
+    public void writeMzTab(OutputStream out) throws IOException {
+        getMZTabFile().printMZTab(out);
+    }
+
     /**
      * Fill records into model. This method will be called in {@link #getMZTabFile()} method.
      */
@@ -114,79 +126,47 @@ public class HQMzIdentMLMzTabConverter extends MzIdentMLMzTabConverter {
         }
 
 
-        if (source.hasProteinAmbiguityGroup()) {
-            Collection<Comparable> proteinGroupIds = source.getProteinAmbiguityGroupIds();
-            for (Comparable proteinGroupId : proteinGroupIds) {
+        final ProteinFilter groupProteinFilter = proteinFilter;
+        final PeptideFilter groupPeptideFilter = peptideFilter;
 
+        if (source.hasProteinAmbiguityGroup()) {
+            // the groups are read and filtered on this thread, the anchor proteins are converted by the executor
+            Iterator<AmbiguityGroup> identifications = source.getProteinAmbiguityGroupIds().stream().flatMap(proteinGroupId -> {
                 final ProteinGroup proteinAmbiguityGroup = source.getProteinAmbiguityGroupById(proteinGroupId);
                 final List<uk.ac.ebi.pride.utilities.data.core.Protein> proteinDetectionHypothesis = proteinAmbiguityGroup.getProteinDetectionHypothesis();
 
-                List<AmbiguityGroup> identifications = getProteinGroupById(proteinDetectionHypothesis, proteinFilter, peptideFilter);
-                 if(!identifications.isEmpty()) {
-                     for (AmbiguityGroup identification : identifications) {
-                         //We don't have proteins without peptides
-                         uk.ac.ebi.pride.jmztab.model.Protein protein;
-
-//                         if (proteinIds.contains(identification.anchorProtein.getDbSequence().getAccession()))
-//                             throw new DataAccessException("mzTab do not support the same protein as anchor of more than one ambiguity groups.");
-//                         else
-//                             proteinIds.add(identification.anchorProtein.getDbSequence().getAccession());
-
-                         protein = loadProtein(identification.anchorProtein, identification.anchorPeptides);
-
-                         //We retrieve the other members in the group
-                         String membersString = "";
-
-                         for (uk.ac.ebi.pride.utilities.data.core.Protein member : identification.restOfMembers) {
-                             membersString = generateAccession(member) + ",";
-                         }
-
-                         membersString = (membersString.isEmpty()) ? membersString : membersString.substring(0, membersString.length() - 1);
-                         protein.addAmbiguityMembers(membersString);
-
-                         //Loop for spectrum to get all the ms_run to repeat the score at protein level
-                         Set<MsRun> msRuns = new HashSet<MsRun>();
-                         for (int index = 0; index < identification.anchorPeptides.size(); index++) {
-                             Comparable id = controller.getSpectrumIdBySpectrumIdentificationItemId(identification.anchorPeptides.get(index).getSpectrumIdentification().getId());
-                             if (id != null) {
-                                 String[] spectumMap = id.toString().split("!");
-                                 MsRun msRun = metadata.getMsRunMap().get(spectraToRun.get(spectumMap[1]));
-                                 msRuns.add(msRun);
-                             }
-                         }
-                         // See which protein scores are supported
-                         for (CvParam cvPAram : identification.anchorProtein.getCvParams()) {
-                             if (proteinScoreToScoreIndex.containsKey(cvPAram.getAccession())) {
-                                 CVParam param = MzTabUtils.convertCvParamToCVParam(cvPAram);
-                                 int idCount = proteinScoreToScoreIndex.get(cvPAram.getAccession());
-                                 for (MsRun msRun : metadata.getMsRunMap().values()) {
-                                     String value = null;
-                                     if (msRuns.contains(msRun))
-                                         value = param.getValue();
-                                     protein.setSearchEngineScore(idCount, msRun, value);
-                                 }
-                             }
-                         }
-
-                         if(!proteinIds.contains(protein.getAccession())){
-                             proteinIds.add(protein.getAccession());
-                             proteins.add(protein);
-                         }else {
-                             for(uk.ac.ebi.pride.jmztab.model.Protein oldProtein: proteins){
-                                 if(oldProtein.getAccession().equalsIgnoreCase(protein.getAccession())){
-                                     if(protein.getAmbiguityMembers() != null)
-                                         for(String member: protein.getAmbiguityMembers())
-                                             oldProtein.addAmbiguityMembers(member);
-                                 }
-                             }
-                         }
-                         psms.addAll(loadPSMs(identification.anchorProtein, identification.anchorPeptides));
-                     }
-                 } else {
-                     logger.debug("Protein group " + proteinGroupId + " filtered.");
-                 }
-            }
-
+                List<AmbiguityGroup> groups = getProteinGroupById(proteinDetectionHypothesis, groupProteinFilter, groupPeptideFilter);
+                if (groups.isEmpty()) {
+                    logger.debug("Protein group " + proteinGroupId + " filtered.");
+                }
+                for (AmbiguityGroup identification : groups) {
+                    identification.anchor = readProtein(identification.anchorProtein, identification.anchorPeptides, true);
+                }
+                return groups.stream();
+            }).iterator();
+
+            convertInOrder(identifications, this::convertAmbiguityGroup, rows -> {
+                uk.ac.ebi.pride.jmztab.model.Protein protein = rows.protein;
+
+//                if (proteinIds.contains(identification.anchorProtein.getDbSequence().getAccession()))
+//                    throw new DataAccessException("mzTab do not support the same protein as anchor of more than one ambiguity groups.");
+//                else
+//                    proteinIds.add(identification.anchorProtein.getDbSequence().getAccession());
+
+                if(!proteinIds.contains(protein.getAccession())){
+                    proteinIds.add(protein.getAccession());
+                    proteins.add(protein);
+                }else {
+                    for(uk.ac.ebi.pride.jmztab.model.Protein oldProtein: proteins){
+                        if(oldProtein.getAccession().equalsIgnoreCase(protein.getAccession())){
+                            if(protein.getAmbiguityMembers() != null)
+                                for(String member: protein.getAmbiguityMembers())
+                                    oldProtein.addAmbiguityMembers(member);
+                        }
+                    }
+                }
+                psms.addAll(numberPSMs(rows));
+            });
         }
         else { // No ambiguity
              //No PROTEINS PRE FILTER -> NO THRESHOLD AVAILABLE
@@ -195,27 +175,75 @@ public class HQMzIdentMLMzTabConverter extends MzIdentMLMzTabConverter {
             }
             // Iterate over proteins. We assume that there is no threshold information because there is no detection list,
             // so we don't have proteinDetectionProtocol
-            for (Comparable id : source.getProteinIds()) {
+            Iterator<ProteinInput> msProteins = source.getProteinIds().stream().map(id -> {
 
                 // Check the protein and peptides threshold
                 uk.ac.ebi.pride.utilities.data.core.Protein msProtein = source.getProteinById(id);
-                List<Peptide> peptides = peptideFilter.filter(msProtein.getPeptides());
+                List<Peptide> peptides = groupPeptideFilter.filter(msProtein.getPeptides());
 
-                if (peptides != null) {
-                    uk.ac.ebi.pride.jmztab.model.Protein identification = loadProtein(msProtein, peptides);
-                    proteins.add(identification);
-                    psms.addAll(loadPSMs(msProtein, peptides));
-                }
-                else {
+                if (peptides == null) {
                     logger.debug("No peptides pass the threshold for protein: " + id);
+                    return null;
                 }
-            }
+                return readProtein(msProtein, peptides, true);
+            }).filter(Objects::nonNull).iterator();
+
+            convertInOrder(msProteins, this::convertProteinRows, rows -> {
+                proteins.add(rows.protein);
+                psms.addAll(numberPSMs(rows));
+            });
         }
 
         loadMetadataModifications();
 
     }
 
+    /**
+     * Convert the anchor protein of an ambiguity group and its PSMs, the controller is not accessed
+     */
+    private ConvertedProtein convertAmbiguityGroup(AmbiguityGroup identification) {
+        //We don't have proteins without peptides
+        uk.ac.ebi.pride.jmztab.model.Protein protein = convertProtein(identification.anchor);
+
+        //We retrieve the other members in the group
+        String membersString = "";
+
+        for (uk.ac.ebi.pride.utilities.data.core.Protein member : identification.restOfMembers) {
+            membersString = generateAccession(member) + ",";
+        }
+
+        membersString = (membersString.isEmpty()) ? membersString : membersString.substring(0, membersString.length() - 1);
+        protein.addAmbiguityMembers(membersString);
+
+        //Loop for spectrum to get all the ms_run to repeat the score at protein level
+        Set<MsRun> msRuns = new HashSet<MsRun>();
+        for (int index = 0; index < identification.anchorPeptides.size(); index++) {
+            Comparable id = identification.anchor.psmSpectrumIds[index];
+            if (id != null) {
+                String[] spectumMap = id.toString().split("!");
+                MsRun msRun = metadata.getMsRunMap().get(spectraToRun.get(spectumMap[1]));
+                msRuns.add(msRun);
+            }
+        }
+        // See which protein scores are supported
+        for (CvParam cvPAram : identification.anchorProtein.getCvParams()) {
+            if (proteinScoreToScoreIndex.containsKey(cvPAram.getAccession())) {
+                CVParam param = MzTabUtils.convertCvParamToCVParam(cvPAram);
+                int idCount = proteinScoreToScoreIndex.get(cvPAram.getAccession());
+                for (MsRun msRun : metadata.getMsRunMap().values()) {
+                    String value = null;
+                    if (msRuns.contains(msRun))
+                        value = param.getValue();
+                    protein.setSearchEngineScore(idCount, msRun, value);
+                }
+            }
+        }
+
+        ConvertedProtein rows = new ConvertedProtein(null, protein);
+        convertPSMs(identification.anchor, rows);
+        return rows;
+    }
+
     protected List<AmbiguityGroup> getProteinGroupById(List<uk.ac.ebi.pride.utilities.data.core.Protein> proteins, ProteinFilter proteinFilter, PeptideFilter peptidesFilter) {
 
 
@@ -293,6 +321,7 @@ public class HQMzIdentMLMzTabConverter extends MzIdentMLMzTabConverter {
         uk.ac.ebi.pride.utilities.data.core.Protein anchorProtein;
         List<uk.ac.ebi.pride.utilities.data.core.Protein> restOfMembers;
         List<Peptide> anchorPeptides;
+        ProteinInput anchor;
     }
 
 }
@@ -5,120 +5,341 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessController;
 import uk.ac.ebi.pride.utilities.data.controller.DataAccessException;
+import uk.ac.ebi.pride.utilities.data.controller.DataAccessUtilities;
+import uk.ac.ebi.pride.utilities.data.core.BinaryDataArray;
 import uk.ac.ebi.pride.utilities.data.core.ExperimentMetaData;
 import uk.ac.ebi.pride.utilities.data.core.Spectrum;
 import uk.ac.ebi.pride.utilities.data.utils.Constants;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * This class allow to export the DataAccessController spectra to MGF file
+ * <p/>
+ * The spectra are read in bulk, in file order, and formatted in batches into a StringBuilder reused by each
+ * formatting thread, each batch is encoded into its own byte array and written at once. With an executor the batches
+ * are formatted in parallel and written in file order, the output is the same as the serial export. The peaks are
+ * written with the shortest representation of the double values, or with a fixed number of decimals.
+ *
  * @author ypriverol, rwang
  */
 public class MGFConverter {
 
     protected static Logger logger = LoggerFactory.getLogger(MGFConverter.class);
 
+    /**
+     * Write the shortest representation of the double values, the same as Double.toString
+     */
+    public static final int SHORTEST_PRECISION = -1;
+
+    public static final int DEFAULT_BATCH_SIZE = 128;
+
+    private static final int MAX_PRECISION = 9;
+
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L,
+            100000000L, 1000000000L};
+
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+    private static final int PEAK_LINE_LENGTH = 24;
+
+    /**
+     * builders larger than this are not kept by the formatting threads, so a batch of very large spectra does not
+     * pin its memory after the export
+     */
+    private static final int MAX_RETAINED_BUILDER_SIZE = 1 << 20;
+
     private String outputFilePath;
 
     private DataAccessController controller;
 
+    private int precision = SHORTEST_PRECISION;
+
+    private boolean compressed;
+
+    private Executor executor;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private int batchesInFlight;
+
+    private final ThreadLocal<StringBuilder> builders = new ThreadLocal<StringBuilder>();
+
     /**
      * Retrieve spectrum data in an MGF file format
      *
      * @param controller     DataAccessController
-     * @param outputFilePath file to output the result.
+     * @param outputFilePath file to output the result, it is compressed with gzip if it ends with .gz
      */
     public MGFConverter(DataAccessController controller, String outputFilePath) {
         this.outputFilePath = outputFilePath;
         this.controller = controller;
+        this.compressed = outputFilePath.endsWith(".gz");
+    }
+
+    /**
+     * Number of decimals of the peak and precursor m/z and intensity values
+     *
+     * @param precision number of decimals, from 0 to 9, or SHORTEST_PRECISION for the shortest representation
+     */
+    public void setPrecision(int precision) {
+        if (precision != SHORTEST_PRECISION && (precision < 0 || precision > MAX_PRECISION)) {
+            throw new IllegalArgumentException("Precision must be between 0 and " + MAX_PRECISION + ": " + precision);
+        }
+        this.precision = precision;
+    }
+
+    /**
+     * @param compressed true to compress the output file with gzip
+     */
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    /**
+     * Format the spectra on an executor, with the default batch size and two batches per available processor
+     * in flight. The data access controller is only read on the calling thread.
+     *
+     * @param executor executor to format the spectra, null to format them on the calling thread
+     */
+    public void setExecutor(Executor executor) {
+        setExecutor(executor, DEFAULT_BATCH_SIZE, 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Format the spectra on an executor
+     *
+     * @param executor        executor to format the spectra, null to format them on the calling thread
+     * @param batchSize       number of spectra formatted by a task
+     * @param batchesInFlight maximum number of batches read ahead of the output
+     */
+    public void setExecutor(Executor executor, int batchSize, int batchesInFlight) {
+        if (batchSize <= 0 || batchesInFlight <= 0) {
+            throw new IllegalArgumentException("Batch size and batches in flight must be positive");
+        }
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.batchesInFlight = batchesInFlight;
     }
 
     protected void convert() throws Exception {
 
-        PrintWriter writer = null;
+        try (OutputStream out = openOutputStream();
+             Stream<Spectrum> spectra = controller.streamSpectra()) {
 
-        try {
-            writer = new PrintWriter(new FileWriter(new File(outputFilePath)));
+            out.write(getComments().getBytes(StandardCharsets.UTF_8));
+
+            //------- MGF content section -------
+            writeSpectra(spectra.iterator(), out);
+        } catch (DataAccessException e2) {
+            String msg = "Failed to retrieve data from data source";
+            logger.error(msg, e2);
+        } catch (IOException e1) {
+            String msg = "Failed to write data to the output file, please check you have the right permission";
+            logger.error(msg, e1);
+        }
+    }
 
-            ExperimentMetaData exp = controller.getExperimentMetaData();
+    private OutputStream openOutputStream() throws IOException {
+        OutputStream out = new FileOutputStream(new File(outputFilePath));
+        return compressed ? new GZIPOutputStream(out, OUTPUT_BUFFER_SIZE) : new BufferedOutputStream(out, OUTPUT_BUFFER_SIZE);
+    }
 
-            //------- Comment section -------
+    private String getComments() {
+        StringBuilder comments = new StringBuilder();
+        ExperimentMetaData exp = controller.getExperimentMetaData();
 
-            // data source
-            if (controller.getType().equals(DataAccessController.Type.XML_FILE)) {
-                writer.println("# Data source: " + ((File) controller.getSource()).getAbsolutePath());
-            }
+        //------- Comment section -------
+
+        // data source
+        if (controller.getType().equals(DataAccessController.Type.XML_FILE)) {
+            comments.append("# Data source: ").append(((File) controller.getSource()).getAbsolutePath()).append(Constants.LINE_SEPARATOR);
+        }
 
-            // accession if exist
-            String acc = (exp.getId() !=null)?exp.getId().toString():null;
-            if (acc != null) {
-                writer.println("# Experiment accession: " + acc);
+        // accession if exist
+        String acc = (exp.getId() !=null)?exp.getId().toString():null;
+        if (acc != null) {
+            comments.append("# Experiment accession: ").append(acc).append(Constants.LINE_SEPARATOR);
+        }
+
+        String title = exp.getName();
+        if (title != null) {
+            comments.append("# Experiment title: ").append(title).append(Constants.LINE_SEPARATOR);
+        }
+
+        // number of spectrum
+        if (controller.hasSpectrum()) {
+            comments.append("# Number of spectra: ").append(controller.getNumberOfSpectra()).append(Constants.LINE_SEPARATOR);
+        }
+
+        // number of protein identifications
+        if (controller.hasProtein()) {
+            comments.append("# Number of protein identifications: ").append(controller.getNumberOfProteins()).append(Constants.LINE_SEPARATOR);
+        }
+
+        // number of peptides
+        if (controller.hasPeptide()) {
+            comments.append("# Number of peptides: ").append(controller.getNumberOfPeptides()).append(Constants.LINE_SEPARATOR);
+        }
+        return comments.toString();
+    }
+
+    /**
+     * Read the spectra in batches and write them in file order. Without executor each batch is formatted when it is
+     * read, otherwise up to batchesInFlight batches are formatted on the executor while the next ones are read.
+     */
+    private void writeSpectra(Iterator<Spectrum> spectra, OutputStream out) throws IOException, InterruptedException {
+        Deque<CompletableFuture<byte[]>> batches = new ArrayDeque<CompletableFuture<byte[]>>();
+        try {
+            while (spectra.hasNext()) {
+                final List<Spectrum> batch = new ArrayList<Spectrum>(batchSize);
+                while (batch.size() < batchSize && spectra.hasNext()) {
+                    batch.add(spectra.next());
+                }
+
+                if (executor == null) {
+                    out.write(formatSpectra(batch));
+                } else {
+                    if (batches.size() >= batchesInFlight) {
+                        out.write(join(batches.poll()));
+                    }
+                    batches.add(CompletableFuture.supplyAsync(() -> formatSpectra(batch), executor));
+                }
+
+                // this is important for cancelling
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
             }
 
-            String title = exp.getName();
-            if (title != null) {
-                writer.println("# Experiment title: " + title);
+            while (!batches.isEmpty()) {
+                out.write(join(batches.poll()));
+            }
+        } catch (Throwable e) {
+            // the batches which have not started yet are skipped, the output is not written any more
+            for (CompletableFuture<byte[]> batch : batches) {
+                batch.cancel(false);
             }
+            throw e;
+        }
+    }
 
-            // number of spectrum
-            if (controller.hasSpectrum()) {
-                writer.println("# Number of spectra: " + controller.getNumberOfSpectra());
+    private static byte[] join(CompletableFuture<byte[]> batch) {
+        try {
+            return batch.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
             }
+            throw new DataAccessException("Failed to format spectra", ex.getCause());
+        }
+    }
 
-            // number of protein identifications
-            if (controller.hasProtein()) {
-                writer.println("# Number of protein identifications: " + controller.getNumberOfProteins());
+    /**
+     * Format the MS2 spectra of a batch into the StringBuilder of the current thread
+     *
+     * @param spectra spectra
+     * @return byte[]  MGF entries of the spectra, encoded in UTF-8
+     */
+    private byte[] formatSpectra(List<Spectrum> spectra) {
+        int peaks = 0;
+        for (Spectrum spectrum : spectra) {
+            if (spectrum != null && spectrum.getMzBinaryDataArray() != null) {
+                peaks += spectrum.getMzBinaryDataArray().size();
             }
+        }
 
-            // number of peptides
-            if (controller.hasPeptide()) {
-                writer.println("# Number of peptides: " + controller.getNumberOfPeptides());
+        StringBuilder builder = builders.get();
+        if (builder == null) {
+            builder = new StringBuilder(peaks * PEAK_LINE_LENGTH + spectra.size() * 128);
+        } else {
+            builder.setLength(0);
+            builder.ensureCapacity(peaks * PEAK_LINE_LENGTH + spectra.size() * 128);
+        }
+
+        for (Spectrum spectrum : spectra) {
+            if (spectrum != null && DataAccessUtilities.getMsLevel(spectrum) == 2) {
+                formatSpectrum(spectrum, builder);
             }
+        }
+        byte[] bytes = builder.toString().getBytes(StandardCharsets.UTF_8);
 
-            //------- MGF content section -------
-            for (Comparable spectrumId : controller.getSpectrumIds()) {
-                Spectrum spectrum = controller.getSpectrumById(spectrumId);
-                int msLevel = controller.getSpectrumMsLevel(spectrumId);
-                if (msLevel == 2) {
-                    writer.println("BEGIN IONS");
-                    writer.println("TITLE=" + spectrumId);
-                    writer.println("PEPMASS=" + controller.getSpectrumPrecursorMz(spectrumId));
-                    // precursor charge
-                    Integer charge = controller.getSpectrumPrecursorCharge(spectrumId);
-                    if (charge != null) {
-                        writer.println("CHARGE=" + charge + (charge >= 0 ? "+" : "-"));
-                    }
-                    //get both arrays
-                    double[] mzBinaryArray = spectrum.getMzBinaryDataArray().getDoubleArray();
-                    double[] intensityArray = spectrum.getIntensityBinaryDataArray().getDoubleArray();
+        if (builder.capacity() <= MAX_RETAINED_BUILDER_SIZE) {
+            builders.set(builder);
+        } else {
+            builders.remove();
+        }
+        return bytes;
+    }
 
-                    for (int i = 0; i < mzBinaryArray.length; i++) {
-                        writer.println(mzBinaryArray[i] + Constants.TAB + intensityArray[i]);
-                    }
-                    writer.println("END IONS" + Constants.LINE_SEPARATOR);
+    private void formatSpectrum(Spectrum spectrum, StringBuilder builder) {
+        builder.append("BEGIN IONS").append(Constants.LINE_SEPARATOR);
+        builder.append("TITLE=").append(spectrum.getId()).append(Constants.LINE_SEPARATOR);
+        builder.append("PEPMASS=");
+        appendDouble(builder, DataAccessUtilities.getPrecursorMz(spectrum), precision);
+        builder.append(Constants.LINE_SEPARATOR);
+        // precursor charge, from the selected ions first as the controllers do
+        Integer charge = DataAccessUtilities.getPrecursorCharge(spectrum.getPrecursors());
+        if (charge == null) {
+            charge = DataAccessUtilities.getPrecursorChargeParamGroup(spectrum);
+        }
+        if (charge != null) {
+            builder.append("CHARGE=").append(charge).append(charge >= 0 ? '+' : '-').append(Constants.LINE_SEPARATOR);
+        }
+        //get both arrays
+        BinaryDataArray mzBinaryArray = spectrum.getMzBinaryDataArray();
+        BinaryDataArray intensityArray = spectrum.getIntensityBinaryDataArray();
 
-                    // this is important for cancelling
-                    if (Thread.interrupted()) {
-                        throw new InterruptedException();
-                    }
-                    writer.flush();
-                }
-            }
-            writer.flush();
-        } catch (DataAccessException e2) {
-            String msg = "Failed to retrieve data from data source";
-            logger.error(msg, e2);
-        } catch (IOException e1) {
-            String msg = "Failed to write data to the output file, please check you have the right permission";
-            logger.error(msg, e1);
-        } finally {
-            if (writer != null) {
-                writer.close();
+        for (int i = 0; i < mzBinaryArray.size(); i++) {
+            appendDouble(builder, mzBinaryArray.get(i), precision);
+            builder.append(Constants.TAB);
+            appendDouble(builder, intensityArray.get(i), precision);
+            builder.append(Constants.LINE_SEPARATOR);
+        }
+        builder.append("END IONS").append(Constants.LINE_SEPARATOR).append(Constants.LINE_SEPARATOR);
+    }
+
+    /**
+     * Append a double value without creating intermediate strings
+     *
+     * @param builder   StringBuilder to append the value to
+     * @param value     double value
+     * @param precision number of decimals, or SHORTEST_PRECISION for the shortest representation of the value
+     */
+    static void appendDouble(StringBuilder builder, double value, int precision) {
+        if (precision == SHORTEST_PRECISION || Double.isNaN(value) || Double.isInfinite(value)
+                || Math.abs(value) >= Long.MAX_VALUE / POWERS_OF_TEN[precision]) {
+            builder.append(value);
+            return;
+        }
+
+        long scaled = Math.round(Math.abs(value) * POWERS_OF_TEN[precision]);
+        if (value < 0 && scaled != 0) {
+            builder.append('-');
+        }
+        builder.append(scaled / POWERS_OF_TEN[precision]);
+        if (precision > 0) {
+            builder.append('.');
+            long decimals = scaled % POWERS_OF_TEN[precision];
+            for (long power = POWERS_OF_TEN[precision - 1]; power > 1 && decimals < power; power /= 10) {
+                builder.append('0');
             }
+            builder.append(decimals);
         }
     }
 }
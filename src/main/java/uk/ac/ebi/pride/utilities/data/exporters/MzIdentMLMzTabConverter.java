@@ -25,9 +25,12 @@ import uk.ac.ebi.pride.utilities.pridemod.model.PTM;
 import uk.ac.ebi.pride.utilities.term.CvTermReference;
 
 import javax.xml.bind.JAXBException;
+import java.io.*;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -61,6 +64,12 @@ public class MzIdentMLMzTabConverter extends AbstractMzTabConverter {
 
     protected Set<Comparable> proteinIds;
 
+    /**
+     * Comments of the mzTab header, only used by {@link #writeMzTab(OutputStream)}, the comments are otherwise
+     * added to the MZTabFile
+     */
+    private List<Comment> streamingComments;
+
     /**
      * Default constructor
      * @param controller The DataAccessController to be Converted to MzTab
@@ -187,52 +196,411 @@ public class MzIdentMLMzTabConverter extends AbstractMzTabConverter {
         // Get a list of Identification ids
         proteinIds = new HashSet<Comparable>();
 
-        try {
-            if (!source.hasProteinAmbiguityGroup()) {
-                Collection<Comparable> proteinIds = source.getProteinIds();
-                //Iterate over proteins
-                for (Comparable id : proteinIds) {
-                    uk.ac.ebi.pride.utilities.data.core.Protein msProtein = source.getProteinById(id);
-                    List<Peptide> peptides = msProtein.getPeptides();
-                    Protein identification = loadProtein(msProtein, peptides);
+        if (!source.hasProteinAmbiguityGroup()) {
+            //Iterate over proteins
+            convertInOrder(readProteins(), this::convertProteinRows, rows -> {
+                proteins.add(rows.protein);
+                psms.addAll(numberPSMs(rows));
+            });
+        } else {
+            // proteins already added by accession, the ambiguity members of a duplicated accession are merged
+            final Map<String, Protein> proteinByAccession = new HashMap<String, Protein>();
+            convertInOrder(readProteinGroups(), this::convertProteinGroupRows, rows -> {
+                Protein identification = rows.protein;
+                Protein oldProtein = proteinByAccession.get(identification.getAccession());
+                if(oldProtein == null){
+                    proteinIds.add(identification.getAccession());
+                    proteinByAccession.put(identification.getAccession(), identification);
                     proteins.add(identification);
-                    psms.addAll(loadPSMs(msProtein, peptides));
+                }else {
+                    for(String member: identification.getAmbiguityMembers())
+                        oldProtein.addAmbiguityMembers(member);
                 }
-            } else {
-                Collection<Comparable> proteinGroupIds = source.getProteinAmbiguityGroupIds();
-                for (Comparable proteinGroupId : proteinGroupIds) {
-                    Protein identification = getProteinGroupById(proteinGroupId);
-                    if(!proteinIds.contains(identification.getAccession())){
-                        proteinIds.add(identification.getAccession());
-                        proteins.add(identification);
-                    }else {
-                        for(Protein oldProtein: proteins){
-                            if(oldProtein.getAccession().equalsIgnoreCase(identification.getAccession())){
-                                for(String member: identification.getAmbiguityMembers())
-                                    oldProtein.addAmbiguityMembers(member);
-                            }
-                        }
-                    }
-                    psms.addAll(loadPSMs(source.getProteinAmbiguityGroupById(proteinGroupId).getProteinIds()));
+                psms.addAll(numberPSMs(rows));
+            });
+        }
+
+        loadMetadataModifications();
+    }
+
+
+    /**
+     * Streaming conversion: convert the mzIdentML file and write the mzTab to an output stream without building
+     * the MZTabFile in memory.
+     * <p/>
+     * The metadata is converted first, then the PRT and PSM rows are converted while iterating the proteins of the
+     * controller and written as soon as they are created, the protein rows and the PSM rows to two temporary files
+     * which are appended to the metadata at the end. Only the accessions of the protein rows are kept in memory, to
+     * merge the ambiguity members of protein groups sharing the same accession: a protein row with merged members
+     * is converted again when the temporary file is copied.
+     * <p/>
+     * This converter must not be used with {@link #getMZTabFile()} after calling this method.
+     *
+     * @param out output stream, it is not closed
+     * @throws IOException if the mzTab can not be written
+     */
+    public void writeMzTab(OutputStream out) throws IOException {
+        init();
+        metadata = convertMetadata();
+        convertProteinColumnFactory();
+        convertPSMColumnFactory();
+        streamingComments = new ArrayList<Comment>();
+        loadMetadataModifications();
+
+        File proteinFile = File.createTempFile("mztab-prt", ".tmp");
+        File psmFile = File.createTempFile("mztab-psm", ".tmp");
+        try {
+            RowWriter rowWriter = new RowWriter(proteinFile, psmFile);
+            try {
+                if (!source.hasProteinAmbiguityGroup()) {
+                    convertInOrder(readProteins(), this::convertProteinRows, rowWriter);
+                } else {
+                    convertInOrder(readProteinGroups(), this::convertProteinGroupRows, rowWriter);
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                rowWriter.close();
+            }
+
+            // protein rows which have to be converted again with their merged ambiguity members
+            Map<Integer, ProteinRow> mergedRows = new HashMap<Integer, ProteinRow>();
+            for (ProteinRow row : rowWriter.proteinRows.values()) {
+                if (row.ambiguityMembers != null)
+                    mergedRows.put(row.index, row);
+            }
+            rowWriter.proteinRows.clear();
+
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            for (Comment comment : streamingComments)
+                writeRow(writer, comment);
+            writer.write(metadata.toString());
+            writer.newLine();
+
+            if (rowWriter.numberOfProteins > 0) {
+                writeRow(writer, proteinColumnFactory);
+                copyProteinRows(proteinFile, mergedRows, writer);
+                writer.newLine();
+            }
+            if (rowWriter.numberOfPSMs > 0) {
+                writeRow(writer, psmColumnFactory);
+                copyRows(psmFile, writer);
+                writer.newLine();
+            }
+            writer.flush();
+        } finally {
+            streamingComments = null;
+            if (!proteinFile.delete())
+                proteinFile.deleteOnExit();
+            if (!psmFile.delete())
+                psmFile.deleteOnExit();
+        }
+    }
+
+    private void copyProteinRows(File proteinFile, Map<Integer, ProteinRow> mergedRows, BufferedWriter writer) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(proteinFile), StandardCharsets.UTF_8));
+        try {
+            String line;
+            int index = 0;
+            while ((line = reader.readLine()) != null) {
+                ProteinRow row = mergedRows.get(index++);
+                if (row == null) {
+                    writer.write(line);
+                    writer.newLine();
+                } else {
+                    Protein protein = getProteinGroupById(row.proteinGroupId);
+                    for (String member : row.ambiguityMembers)
+                        protein.addAmbiguityMembers(member);
+                    writeRow(writer, protein);
                 }
             }
         } catch (JAXBException e) {
-            throw new DataAccessException("Error try to retrieve the information for own Protein");
+            throw new DataAccessException("Error try to retrieve the information for own Protein", e);
+        } finally {
+            reader.close();
+        }
+    }
 
+    private static void copyRows(File file, BufferedWriter writer) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                writer.write(line);
+                writer.newLine();
+            }
+        } finally {
+            reader.close();
         }
+    }
 
-        loadMetadataModifications();
+    private static void writeRow(BufferedWriter writer, Object row) throws IOException {
+        writer.write(row.toString());
+        writer.newLine();
     }
 
+    /**
+     * Handle of a protein row written by {@link #writeMzTab(OutputStream)}: the protein group it was converted
+     * from, its position in the protein rows and the ambiguity members merged into it afterwards.
+     */
+    private static class ProteinRow {
+
+        private final Comparable proteinGroupId;
+
+        private final int index;
+
+        private List<String> ambiguityMembers;
+
+        private ProteinRow(Comparable proteinGroupId, int index) {
+            this.proteinGroupId = proteinGroupId;
+            this.index = index;
+        }
+
+        private void addAmbiguityMembers(List<String> members) {
+            if (ambiguityMembers == null)
+                ambiguityMembers = new ArrayList<String>();
+            ambiguityMembers.addAll(members);
+        }
+    }
+
+    /**
+     * Writes the rows converted by {@link #writeMzTab(OutputStream)} to the temporary files, the protein row of
+     * an accession is written once and the ambiguity members of the later protein groups are added to its handle.
+     */
+    private class RowWriter implements Consumer<ConvertedProtein> {
+
+        private final BufferedWriter proteinWriter;
+
+        private final BufferedWriter psmWriter;
+
+        private final Map<String, ProteinRow> proteinRows = new HashMap<String, ProteinRow>();
+
+        private int numberOfProteins;
+
+        private int numberOfPSMs;
+
+        private RowWriter(File proteinFile, File psmFile) throws IOException {
+            proteinWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(proteinFile), StandardCharsets.UTF_8));
+            psmWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(psmFile), StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void accept(ConvertedProtein rows) {
+            try {
+                Protein protein = rows.protein;
+                ProteinRow row = (rows.proteinGroupId == null) ? null : proteinRows.get(protein.getAccession());
+                if (row == null) {
+                    if (rows.proteinGroupId != null)
+                        proteinRows.put(protein.getAccession(), new ProteinRow(rows.proteinGroupId, numberOfProteins));
+                    writeRow(proteinWriter, protein);
+                    numberOfProteins++;
+                } else {
+                    row.addAmbiguityMembers(protein.getAmbiguityMembers());
+                }
+                for (PSM psm : numberPSMs(rows)) {
+                    writeRow(psmWriter, psm);
+                    numberOfPSMs++;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void close() throws IOException {
+            try {
+                proteinWriter.close();
+            } finally {
+                psmWriter.close();
+            }
+        }
+    }
+
+    /**
+     * Data of a protein read from the controller, the conversion of a ProteinInput does not access the controller
+     * so it can run on any thread.
+     */
+    protected static class ProteinInput {
+
+        protected final uk.ac.ebi.pride.utilities.data.core.Protein protein;
+
+        protected final List<Peptide> peptides;
+
+        /**
+         * Spectrum id of each peptide, null when the protein row is not converted
+         */
+        protected final Comparable[] peptideSpectrumIds;
+
+        /**
+         * Spectrum id of the spectrum identification of each peptide
+         */
+        protected final Comparable[] psmSpectrumIds;
+
+        protected final List<SpectraData> spectraDatas;
+
+        private ProteinInput(uk.ac.ebi.pride.utilities.data.core.Protein protein, List<Peptide> peptides,
+                             Comparable[] peptideSpectrumIds, Comparable[] psmSpectrumIds, List<SpectraData> spectraDatas) {
+            this.protein = protein;
+            this.peptides = peptides;
+            this.peptideSpectrumIds = peptideSpectrumIds;
+            this.psmSpectrumIds = psmSpectrumIds;
+            this.spectraDatas = spectraDatas;
+        }
+    }
+
+    /**
+     * Data of a protein group read from the controller: the anchor protein and the proteins of the group
+     */
+    private static class ProteinGroupInput {
+
+        private final Comparable proteinGroupId;
+
+        private final ProteinGroup proteinGroup;
+
+        private final ProteinInput anchor;
+
+        private final List<ProteinInput> members;
+
+        private ProteinGroupInput(Comparable proteinGroupId, ProteinGroup proteinGroup, ProteinInput anchor, List<ProteinInput> members) {
+            this.proteinGroupId = proteinGroupId;
+            this.proteinGroup = proteinGroup;
+            this.anchor = anchor;
+            this.members = members;
+        }
+    }
+
+    /**
+     * Protein row and PSM rows converted from a protein or a protein group, the PSMs are numbered by
+     * {@link #numberPSMs(ConvertedProtein)} when they are merged.
+     */
+    protected static class ConvertedProtein {
+
+        /**
+         * Protein group converted, null for a protein
+         */
+        protected final Comparable proteinGroupId;
+
+        protected final Protein protein;
+
+        protected final List<PSM> psms = new ArrayList<PSM>();
+
+        /**
+         * Spectrum identification id of each PSM
+         */
+        protected final List<Comparable> spectrumIdentificationIds = new ArrayList<Comparable>();
+
+        protected ConvertedProtein(Comparable proteinGroupId, Protein protein) {
+            this.proteinGroupId = proteinGroupId;
+            this.protein = protein;
+        }
+    }
 
     private Protein getProteinGroupById(Comparable proteinGroupId) throws JAXBException {
+        return convertProteinGroup(readProteinGroup(proteinGroupId, false));
+    }
+
+    /**
+     * Read the proteins of the controller, one after the other
+     */
+    private Iterator<ProteinInput> readProteins() {
+        return source.getProteinIds().stream().map(id -> {
+            uk.ac.ebi.pride.utilities.data.core.Protein msProtein = source.getProteinById(id);
+            return readProtein(msProtein, msProtein.getPeptides(), true);
+        }).iterator();
+    }
 
+    /**
+     * Read the protein groups of the controller, one after the other
+     */
+    private Iterator<ProteinGroupInput> readProteinGroups() {
+        return source.getProteinAmbiguityGroupIds().stream().map(id -> readProteinGroup(id, true)).iterator();
+    }
+
+    /**
+     * Read from the controller everything needed to convert a protein and its PSMs
+     *
+     * @param msProtein  protein
+     * @param peptides   peptides of the protein to convert
+     * @param proteinRow true to read what is needed to convert the protein row, false to convert only the PSMs
+     * @return ProteinInput  protein data, its conversion does not access the controller
+     */
+    protected ProteinInput readProtein(uk.ac.ebi.pride.utilities.data.core.Protein msProtein, List<Peptide> peptides, boolean proteinRow) {
+        Comparable[] peptideSpectrumIds = null;
+        if (proteinRow) {
+            peptideSpectrumIds = new Comparable[peptides.size()];
+            for (int index = 0; index < peptides.size(); index++)
+                peptideSpectrumIds[index] = source.getPeptideSpectrumId(msProtein.getId(), index);
+        }
+
+        Comparable[] psmSpectrumIds = new Comparable[peptides.size()];
+        for (int index = 0; index < peptides.size(); index++)
+            psmSpectrumIds[index] = controller.getSpectrumIdBySpectrumIdentificationItemId(peptides.get(index).getSpectrumIdentification().getId());
+
+        return new ProteinInput(msProtein, peptides, peptideSpectrumIds, psmSpectrumIds, source.getExperimentMetaData().getSpectraDatas());
+    }
+
+    /**
+     * Read from the controller everything needed to convert a protein group
+     *
+     * @param proteinGroupId protein group id
+     * @param psmRows        true to read the proteins of the group to convert their PSMs
+     * @return ProteinGroupInput  protein group data, its conversion does not access the controller
+     */
+    private ProteinGroupInput readProteinGroup(Comparable proteinGroupId, boolean psmRows) {
         ProteinGroup proteinAmbiguityGroup = source.getProteinAmbiguityGroupById(proteinGroupId);
         //Todo: We will annotated only the first protein, the core protein.
         uk.ac.ebi.pride.utilities.data.core.Protein firstProteinDetectionHypothesis = proteinAmbiguityGroup.getProteinDetectionHypothesis().get(0);
+        ProteinInput anchor = readProtein(firstProteinDetectionHypothesis, firstProteinDetectionHypothesis.getPeptides(), true);
+
+        List<ProteinInput> members = new ArrayList<ProteinInput>();
+        if (psmRows) {
+            for (Comparable id : proteinAmbiguityGroup.getProteinIds()) {
+                uk.ac.ebi.pride.utilities.data.core.Protein protein = source.getProteinById(id);
+                members.add(readProtein(protein, protein.getPeptides(), false));
+            }
+        }
+        return new ProteinGroupInput(proteinGroupId, proteinAmbiguityGroup, anchor, members);
+    }
+
+    protected ConvertedProtein convertProteinRows(ProteinInput input) {
+        ConvertedProtein rows = new ConvertedProtein(null, convertProtein(input));
+        convertPSMs(input, rows);
+        return rows;
+    }
+
+    private ConvertedProtein convertProteinGroupRows(ProteinGroupInput input) {
+        ConvertedProtein rows = new ConvertedProtein(input.proteinGroupId, convertProteinGroup(input));
+        for (ProteinInput member : input.members)
+            convertPSMs(member, rows);
+        return rows;
+    }
+
+    /**
+     * Number the PSMs of a converted protein, the PSMs of the same spectrum identification share the same id.
+     * The ids depend on the order of the PSMs, the converted proteins must be numbered in order.
+     *
+     * @param rows converted protein
+     * @return List<PSM>   numbered PSMs
+     */
+    protected List<PSM> numberPSMs(ConvertedProtein rows) {
+        for (int i = 0; i < rows.psms.size(); i++) {
+            Comparable spectrumIdentificationId = rows.spectrumIdentificationIds.get(i);
+            Integer indexMzTab = indexSpectrumID.get(spectrumIdentificationId);
+            if (indexMzTab == null) {
+                indexMzTab = indexSpectrumID.size() + 1;
+                indexSpectrumID.put(spectrumIdentificationId, indexMzTab);
+            }
+            rows.psms.get(i).setPSM_ID(indexMzTab);
+        }
+        return rows.psms;
+    }
+
+    private Protein convertProteinGroup(ProteinGroupInput input) {
+
+        ProteinGroup proteinAmbiguityGroup = input.proteinGroup;
+        uk.ac.ebi.pride.utilities.data.core.Protein firstProteinDetectionHypothesis = input.anchor.protein;
 
-        List<uk.ac.ebi.pride.utilities.data.core.Peptide> peptides = firstProteinDetectionHypothesis.getPeptides();
-        Protein protein = loadProtein(firstProteinDetectionHypothesis, peptides);
+        List<uk.ac.ebi.pride.utilities.data.core.Peptide> peptides = input.anchor.peptides;
+        Protein protein = convertProtein(input.anchor);
 
         String membersString = "";
         for(int i=1; i < proteinAmbiguityGroup.getProteinDetectionHypothesis().size();i++)
@@ -242,9 +610,9 @@ public class MzIdentMLMzTabConverter extends AbstractMzTabConverter {
 
         //Loop for spectrum to get all the ms_run to repeat the score at protein level
         Set<MsRun> msRuns = new HashSet<MsRun>();
-        for (Peptide peptide : peptides) {
+        for (int index = 0; index < peptides.size(); index++) {
 //            Comparable id = source.getPeptideSpectrumId(firstProteinDetectionHypothesis.getId(), index);
-            Comparable id = controller.getSpectrumIdBySpectrumIdentificationItemId(peptide.getSpectrumIdentification().getId());
+            Comparable id = input.anchor.psmSpectrumIds[index];
 
             if (id != null) {
                 String[] spectumMap = id.toString().split("!");
@@ -377,7 +745,10 @@ public class MzIdentMLMzTabConverter extends AbstractMzTabConverter {
 
         if(metadata.getFixedModMap().isEmpty()){
             Comment comment = new Comment("Only variable modifications can be reported when the original source is a MZIdentML XML file");
-            getMZTabFile().addComment(1, comment);
+            if(streamingComments != null)
+                streamingComments.add(comment);
+            else
+                getMZTabFile().addComment(1, comment);
             metadata.addFixedModParam(1, new CVParam("MS", "MS:1002453", "No fixed modifications searched", null));
         }
         if(metadata.getVariableModMap().isEmpty()){
@@ -594,188 +965,195 @@ public class MzIdentMLMzTabConverter extends AbstractMzTabConverter {
      * Converts the passed Identification object into an MzTab PSM.
      */
     protected List<PSM> loadPSMs(uk.ac.ebi.pride.utilities.data.core.Protein protein, List<Peptide> peptides)  {
-        List<PSM> psmList = new ArrayList<PSM>();
-        for (Peptide oldPSM : peptides) {
-            PSM psm = new PSM(psmColumnFactory, metadata);
-            psm.setSequence(oldPSM.getPeptideSequence().getSequence());
-            psm.setPSM_ID(oldPSM.getSpectrumIdentification().getId().toString());
-            psm.setAccession(removeNewLineAndTab(generateAccession(oldPSM)));
+        ConvertedProtein rows = new ConvertedProtein(null, null);
+        convertPSMs(readProtein(protein, peptides, false), rows);
+        return numberPSMs(rows);
+    }
 
-            ParamGroup nameDatabase = oldPSM.getPeptideEvidence().getDbSequence().getSearchDataBase().getNameDatabase();
-            psm.setDatabase(getDatabaseName(nameDatabase.getCvParams(), nameDatabase.getUserParams()));
+    /**
+     * Converts the peptides of a protein into MzTab PSMs, the PSMs are not numbered
+     */
+    protected void convertPSMs(ProteinInput input, ConvertedProtein rows) {
+        for (int index = 0; index < input.peptides.size(); index++) {
+            Peptide oldPSM = input.peptides.get(index);
+            rows.psms.add(convertPSM(oldPSM, input.psmSpectrumIds[index], input.spectraDatas));
+            rows.spectrumIdentificationIds.add(oldPSM.getSpectrumIdentification().getId());
+        }
+    }
 
-            String dbVersion = oldPSM.getPeptideEvidence().getDbSequence().getSearchDataBase().getVersion();
-            String version = (dbVersion != null && !dbVersion.isEmpty()) ? dbVersion : null;
-            psm.setDatabaseVersion(version);
+    private PSM convertPSM(Peptide oldPSM, Comparable idSpectrum, List<SpectraData> spectraDatas) {
+        PSM psm = new PSM(psmColumnFactory, metadata);
+        psm.setSequence(oldPSM.getPeptideSequence().getSequence());
+        psm.setPSM_ID(oldPSM.getSpectrumIdentification().getId().toString());
+        psm.setAccession(removeNewLineAndTab(generateAccession(oldPSM)));
 
-            if (oldPSM.getPeptideEvidence().getStartPosition() != null && oldPSM.getPeptideEvidence().getStartPosition() >= 0) {
-                psm.setStart(oldPSM.getPeptideEvidence().getStartPosition());
-            }
+        ParamGroup nameDatabase = oldPSM.getPeptideEvidence().getDbSequence().getSearchDataBase().getNameDatabase();
+        psm.setDatabase(getDatabaseName(nameDatabase.getCvParams(), nameDatabase.getUserParams()));
 
-            if (oldPSM.getPeptideEvidence().getEndPosition() != null && oldPSM.getPeptideEvidence().getEndPosition() >= 0) {
-                psm.setEnd(oldPSM.getPeptideEvidence().getEndPosition());
-            }
+        String dbVersion = oldPSM.getPeptideEvidence().getDbSequence().getSearchDataBase().getVersion();
+        String version = (dbVersion != null && !dbVersion.isEmpty()) ? dbVersion : null;
+        psm.setDatabaseVersion(version);
 
-            String pre = String.valueOf(oldPSM.getPeptideEvidence().getPreResidue());
-            String post = String.valueOf(oldPSM.getPeptideEvidence().getPostResidue());
-            psm.setPre((pre == null || pre.isEmpty() || pre.equalsIgnoreCase(String.valueOf('\u0000'))) ? null : pre);
-            psm.setPost((post == null || post.isEmpty() || pre.equalsIgnoreCase(String.valueOf('\u0000'))) ? null : post);
-
-            List<Modification> mods = new ArrayList<Modification>();
-
-            /**
-             * We have only one case of PTM scoring encoded into the an mzIdentML in PXD (PXD001428).
-             * The PTMs localization score is encoded into CVPArams at the PSM level in the way:
-             * <cvParam accession="MS:1001971" cvRef="PSI-MS" value="S(8): 100.0; T(12): 100.0" name="ProteomeDiscoverer:phosphoRS site probabilities"></cvParam>
-             */
-
-            Map<Integer, CvParam> scores = new HashMap<>();
-
-             if(oldPSM.getSpectrumIdentification() != null && oldPSM.getSpectrumIdentification().getCvParams() != null){
-                for( CvParam cvParam: oldPSM.getSpectrumIdentification().getCvParams()){
-                    if(cvParam != null && cvParam.getAccession().equalsIgnoreCase(CvTermReference.MS_phosphoRS_SITE_SCORE.getAccession())){
-                        String[] values  = (cvParam.getValue() != null)? cvParam.getValue().split(";"): null;
-                        if(values != null){
-                            for(String value:values){
-                                value = value.replaceAll("\\s+","");
-                                String[] atributes = value.split(":");
-                                Double score = (atributes.length > 1 && Utils.isParsableAsDouble((atributes[1])))? Double.parseDouble(atributes[1]):null;
-                                Matcher m = SCORE_PSM_POSITION_PATTERN.matcher(atributes[0]);
-                                Integer position = null;
-                                if (m.find()) position = Integer.parseInt(m.group(1));
-                                if(position != null && score != null){
-                                    scores.put(position, MzIdentMLUtils.newCvParam(cvParam, score.toString()));
-                                }
+        if (oldPSM.getPeptideEvidence().getStartPosition() != null && oldPSM.getPeptideEvidence().getStartPosition() >= 0) {
+            psm.setStart(oldPSM.getPeptideEvidence().getStartPosition());
+        }
+
+        if (oldPSM.getPeptideEvidence().getEndPosition() != null && oldPSM.getPeptideEvidence().getEndPosition() >= 0) {
+            psm.setEnd(oldPSM.getPeptideEvidence().getEndPosition());
+        }
+
+        String pre = String.valueOf(oldPSM.getPeptideEvidence().getPreResidue());
+        String post = String.valueOf(oldPSM.getPeptideEvidence().getPostResidue());
+        psm.setPre((pre == null || pre.isEmpty() || pre.equalsIgnoreCase(String.valueOf('\u0000'))) ? null : pre);
+        psm.setPost((post == null || post.isEmpty() || pre.equalsIgnoreCase(String.valueOf('\u0000'))) ? null : post);
+
+        List<Modification> mods = new ArrayList<Modification>();
+
+        /**
+         * We have only one case of PTM scoring encoded into the an mzIdentML in PXD (PXD001428).
+         * The PTMs localization score is encoded into CVPArams at the PSM level in the way:
+         * <cvParam accession="MS:1001971" cvRef="PSI-MS" value="S(8): 100.0; T(12): 100.0" name="ProteomeDiscoverer:phosphoRS site probabilities"></cvParam>
+         */
+
+        Map<Integer, CvParam> scores = new HashMap<>();
+
+         if(oldPSM.getSpectrumIdentification() != null && oldPSM.getSpectrumIdentification().getCvParams() != null){
+            for( CvParam cvParam: oldPSM.getSpectrumIdentification().getCvParams()){
+                if(cvParam != null && cvParam.getAccession().equalsIgnoreCase(CvTermReference.MS_phosphoRS_SITE_SCORE.getAccession())){
+                    String[] values  = (cvParam.getValue() != null)? cvParam.getValue().split(";"): null;
+                    if(values != null){
+                        for(String value:values){
+                            value = value.replaceAll("\\s+","");
+                            String[] atributes = value.split(":");
+                            Double score = (atributes.length > 1 && Utils.isParsableAsDouble((atributes[1])))? Double.parseDouble(atributes[1]):null;
+                            Matcher m = SCORE_PSM_POSITION_PATTERN.matcher(atributes[0]);
+                            Integer position = null;
+                            if (m.find()) position = Integer.parseInt(m.group(1));
+                            if(position != null && score != null){
+                                scores.put(position, MzIdentMLUtils.newCvParam(cvParam, score.toString()));
                             }
                         }
                     }
                 }
             }
+        }
 
-            for (uk.ac.ebi.pride.utilities.data.core.Modification oldMod : oldPSM.getPeptideSequence().getModifications()) {
-                if (oldMod.getCvParams() != null) {
-                    Double mass = (oldMod.getMonoisotopicMassDelta() != null && !oldMod.getMonoisotopicMassDelta().isEmpty()) ? oldMod.getMonoisotopicMassDelta().get(0) : null;
+        for (uk.ac.ebi.pride.utilities.data.core.Modification oldMod : oldPSM.getPeptideSequence().getModifications()) {
+            if (oldMod.getCvParams() != null) {
+                Double mass = (oldMod.getMonoisotopicMassDelta() != null && !oldMod.getMonoisotopicMassDelta().isEmpty()) ? oldMod.getMonoisotopicMassDelta().get(0) : null;
 
-                    for (CvParam param : oldMod.getCvParams()) {
-                        //Try to map it directly (if it fails we know that is an unknown mod)
-                        Modification mzTabMod = MZTabUtils.parseModification(Section.PSM, param.getAccession());
-                        CvParam cv = null;
-                        if(scores.containsKey(oldMod.getLocation())){
-                          cv = scores.get(oldMod.getLocation());
-                        }
+                for (CvParam param : oldMod.getCvParams()) {
+                    //Try to map it directly (if it fails we know that is an unknown mod)
+                    Modification mzTabMod = MZTabUtils.parseModification(Section.PSM, param.getAccession());
+                    CvParam cv = null;
+                    if(scores.containsKey(oldMod.getLocation())){
+                      cv = scores.get(oldMod.getLocation());
+                    }
 
-                        if (mzTabMod != null) {
-                            mzTabMod.addPosition(oldMod.getLocation(), MzTabUtils.convertCvParamToCVParam(cv));
-                            mods.add(mzTabMod);
-
-                        } else if (param.getAccession().equalsIgnoreCase(UNKNOWN_MOD) && mass != null) {  //Unknown mod
-                            //Transform in a CHEMMOD Type modification
-                            mzTabMod = new Modification(Section.PSM, Modification.Type.CHEMMOD, mass.toString());
-                            mzTabMod.addPosition(oldMod.getLocation(), MzTabUtils.convertCvParamToCVParam(cv));
-                            mods.add(mzTabMod);
-                        } else if (param.getAccession().equalsIgnoreCase(CvTermReference.MS_NEUTRAL_LOSS.getAccession())) { //Neutral losses
-                            Double value = 0.0;
-                            if (param.getValue() != null) {
-                                try {
-                                    value = Double.valueOf(param.getValue());
-                                } catch (NumberFormatException e) {
-                                    logger.warn("Neutral loss value: " + param.getValue() + " cannot be converted.");
-                                    value = 0.0;
-                                }
+                    if (mzTabMod != null) {
+                        mzTabMod.addPosition(oldMod.getLocation(), MzTabUtils.convertCvParamToCVParam(cv));
+                        mods.add(mzTabMod);
+
+                    } else if (param.getAccession().equalsIgnoreCase(UNKNOWN_MOD) && mass != null) {  //Unknown mod
+                        //Transform in a CHEMMOD Type modification
+                        mzTabMod = new Modification(Section.PSM, Modification.Type.CHEMMOD, mass.toString());
+                        mzTabMod.addPosition(oldMod.getLocation(), MzTabUtils.convertCvParamToCVParam(cv));
+                        mods.add(mzTabMod);
+                    } else if (param.getAccession().equalsIgnoreCase(CvTermReference.MS_NEUTRAL_LOSS.getAccession())) { //Neutral losses
+                        Double value = 0.0;
+                        if (param.getValue() != null) {
+                            try {
+                                value = Double.valueOf(param.getValue());
+                            } catch (NumberFormatException e) {
+                                logger.warn("Neutral loss value: " + param.getValue() + " cannot be converted.");
+                                value = 0.0;
                             }
+                        }
 
-                            CVParam lost = MzTabUtils.convertCvParamToCVParam(param, value);
-
-                            Modification modNeutral = new Modification(Section.PSM, Modification.Type.NEUTRAL_LOSS, lost.getAccession());
-                            modNeutral.setNeutralLoss(lost);
-                            modNeutral.addPosition(oldMod.getLocation(), null);
-                            mods.add(modNeutral);
-                        } else {
-                            //We have a problem parsing the CvTerm (e.g.: accession "UNIMOD:")
-                            //TODO: Infer the CvTerm using the mass for conversion purposes
-                            logger.warn("Modification with accession: " + param.getAccession() + " cannot be converted.");
+                        CVParam lost = MzTabUtils.convertCvParamToCVParam(param, value);
 
-                        }
+                        Modification modNeutral = new Modification(Section.PSM, Modification.Type.NEUTRAL_LOSS, lost.getAccession());
+                        modNeutral.setNeutralLoss(lost);
+                        modNeutral.addPosition(oldMod.getLocation(), null);
+                        mods.add(modNeutral);
+                    } else {
+                        //We have a problem parsing the CvTerm (e.g.: accession "UNIMOD:")
+                        //TODO: Infer the CvTerm using the mass for conversion purposes
+                        logger.warn("Modification with accession: " + param.getAccession() + " cannot be converted.");
 
                     }
+
                 }
             }
+        }
 
-            for (Modification mod : mods)
-                psm.addModification(mod);
+        for (Modification mod : mods)
+            psm.addModification(mod);
 
-            psm.setExpMassToCharge(oldPSM.getSpectrumIdentification().getExperimentalMassToCharge());
-            psm.setCharge(oldPSM.getSpectrumIdentification().getChargeState());
-            psm.setCalcMassToCharge(oldPSM.getSpectrumIdentification().getCalculatedMassToCharge());
-            Comparable idSpectrum = controller.getSpectrumIdBySpectrumIdentificationItemId(oldPSM.getSpectrumIdentification().getId());
+        psm.setExpMassToCharge(oldPSM.getSpectrumIdentification().getExperimentalMassToCharge());
+        psm.setCharge(oldPSM.getSpectrumIdentification().getChargeState());
+        psm.setCalcMassToCharge(oldPSM.getSpectrumIdentification().getCalculatedMassToCharge());
 
 
-            if (idSpectrum != null) {
-                String[] spectumMap = idSpectrum.toString().split("!");
-                String spectrumReference = null;
-                for (SpectraData spec : source.getExperimentMetaData().getSpectraDatas()) {
-                    if (spec.getId().toString().equalsIgnoreCase(spectumMap[1])) {
-                        spectrumReference = MzTabUtils.getOriginalSpectrumId(spec, spectumMap[0]);
-                    }
+        if (idSpectrum != null) {
+            String[] spectumMap = idSpectrum.toString().split("!");
+            String spectrumReference = null;
+            for (SpectraData spec : spectraDatas) {
+                if (spec.getId().toString().equalsIgnoreCase(spectumMap[1])) {
+                    spectrumReference = MzTabUtils.getOriginalSpectrumId(spec, spectumMap[0]);
                 }
-                if (spectumMap[1] != null && spectrumReference != null)
-                    psm.addSpectraRef(new SpectraRef(metadata.getMsRunMap().get(spectraToRun.get(spectumMap[1])), spectrumReference));
             }
+            if (spectumMap[1] != null && spectrumReference != null)
+                psm.addSpectraRef(new SpectraRef(metadata.getMsRunMap().get(spectraToRun.get(spectumMap[1])), spectrumReference));
+        }
 
-            // See which psm scores are supported
-            for (CvParam cvPAram : oldPSM.getSpectrumIdentification().getCvParams()) {
-                if (psmScoreToScoreIndex.containsKey(cvPAram.getAccession())) {
-                    CVParam param = MzTabUtils.convertCvParamToCVParam(cvPAram);
-                    int idCount = psmScoreToScoreIndex.get(cvPAram.getAccession());
-                    psm.setSearchEngineScore(idCount, param.getValue());
-                }
-            }
-            //loadModifications(psm,peptideEvidenceRef.getPeptideEvidence());
-            if (!indexSpectrumID.containsKey(oldPSM.getSpectrumIdentification().getId())) {
-                int indexMzTab = indexSpectrumID.size() + 1;
-                indexSpectrumID.put(oldPSM.getSpectrumIdentification().getId(), indexMzTab);
+        // See which psm scores are supported
+        for (CvParam cvPAram : oldPSM.getSpectrumIdentification().getCvParams()) {
+            if (psmScoreToScoreIndex.containsKey(cvPAram.getAccession())) {
+                CVParam param = MzTabUtils.convertCvParamToCVParam(cvPAram);
+                int idCount = psmScoreToScoreIndex.get(cvPAram.getAccession());
+                psm.setSearchEngineScore(idCount, param.getValue());
             }
-            //Set Search Engine
+        }
+        //loadModifications(psm,peptideEvidenceRef.getPeptideEvidence());
+        //Set Search Engine
 
-            Set<SearchEngineParam> searchEngines = new HashSet<SearchEngineParam>();
-            List<SearchEngineParam> searchEngineParams = MzIdentMLUtils.getSearchEngineCvTermReferences(oldPSM.getSpectrumIdentification().getCvParams());
-            searchEngines.addAll(searchEngineParams);
+        Set<SearchEngineParam> searchEngines = new HashSet<SearchEngineParam>();
+        List<SearchEngineParam> searchEngineParams = MzIdentMLUtils.getSearchEngineCvTermReferences(oldPSM.getSpectrumIdentification().getCvParams());
+        searchEngines.addAll(searchEngineParams);
 
-            for (SearchEngineParam searchEngineParam : searchEngines)
-                psm.addSearchEngineParam(searchEngineParam.getParam());
-
-            //Set optional parameter
-
-            psm.setPSM_ID(indexSpectrumID.get(oldPSM.getSpectrumIdentification().getId()));
-            psm.setOptionColumnValue(MzTabUtils.OPTIONAL_ID_COLUMN, oldPSM.getSpectrumIdentification().getId());
-            Boolean decoy = oldPSM.getPeptideEvidence().isDecoy();
-            psm.setOptionColumnValue(MzTabUtils.OPTIONAL_DECOY_COLUMN, (!decoy) ? 0 : 1);
-            psm.setOptionColumnValue(MzTabUtils.OPTIONAL_RANK_COLUMN, oldPSM.getSpectrumIdentification().getRank());
-            // check and set additional chromosome information
-            if (hasChromInformation()) {
-                psm.setOptionColumnValue(MzTabUtils.OPTIONAL_CHROM_COLUMN, "null");
-                psm.setOptionColumnValue(MzTabUtils.OPTIONAL_CHROMEND_COLUMN, "null");
-                psm.setOptionColumnValue(MzTabUtils.OPTIONAL_STRAND_COLUMN, "null");
-                psm.setOptionColumnValue(MzTabUtils.OPTIONAL_CHROM_EXON_COUNT_COLUMN, "null");
-                psm.setOptionColumnValue(MzTabUtils.OPTIONAL_CHROM_EXON_SIZES_COLUMN, "null");
-                psm.setOptionColumnValue(MzTabUtils.OPTIONAL_CHROM_EXON_STARTS_COLUMN, "null");
-                psm.setOptionColumnValue(MzTabUtils.OPTIONAL_GENOME_REF_VERSION_COLUMN, "null");
-                psm.setOptionColumnValue(MzTabUtils.OPTIONAL_PSM_FDRSCORE_COLUMN, "null");
-                psm = parseChromCvParamDetails(oldPSM.getPeptideEvidence().getCvParams(), psm);
-                psm = parseChromCvParamDetails(oldPSM.getPeptideEvidence().getDbSequence().getCvParams(), psm);
-                for (CvParam cvParam : oldPSM.getSpectrumIdentification().getCvParams()) {
-                    switch (cvParam.getName()) {
-                        case ("PSM-level combined FDRScore"):
-                            psm.setOptionColumnValue(MzTabUtils.OPTIONAL_PSM_FDRSCORE_COLUMN, cvParam.getValue());
-                            break;
-                        default:
-                            break;
-                    }
+        for (SearchEngineParam searchEngineParam : searchEngines)
+            psm.addSearchEngineParam(searchEngineParam.getParam());
+
+        //Set optional parameter
+
+        psm.setOptionColumnValue(MzTabUtils.OPTIONAL_ID_COLUMN, oldPSM.getSpectrumIdentification().getId());
+        Boolean decoy = oldPSM.getPeptideEvidence().isDecoy();
+        psm.setOptionColumnValue(MzTabUtils.OPTIONAL_DECOY_COLUMN, (!decoy) ? 0 : 1);
+        psm.setOptionColumnValue(MzTabUtils.OPTIONAL_RANK_COLUMN, oldPSM.getSpectrumIdentification().getRank());
+        // check and set additional chromosome information
+        if (hasChromInformation()) {
+            psm.setOptionColumnValue(MzTabUtils.OPTIONAL_CHROM_COLUMN, "null");
+            psm.setOptionColumnValue(MzTabUtils.OPTIONAL_CHROMEND_COLUMN, "null");
+            psm.setOptionColumnValue(MzTabUtils.OPTIONAL_STRAND_COLUMN, "null");
+            psm.setOptionColumnValue(MzTabUtils.OPTIONAL_CHROM_EXON_COUNT_COLUMN, "null");
+            psm.setOptionColumnValue(MzTabUtils.OPTIONAL_CHROM_EXON_SIZES_COLUMN, "null");
+            psm.setOptionColumnValue(MzTabUtils.OPTIONAL_CHROM_EXON_STARTS_COLUMN, "null");
+            psm.setOptionColumnValue(MzTabUtils.OPTIONAL_GENOME_REF_VERSION_COLUMN, "null");
+            psm.setOptionColumnValue(MzTabUtils.OPTIONAL_PSM_FDRSCORE_COLUMN, "null");
+            psm = parseChromCvParamDetails(oldPSM.getPeptideEvidence().getCvParams(), psm);
+            psm = parseChromCvParamDetails(oldPSM.getPeptideEvidence().getDbSequence().getCvParams(), psm);
+            for (CvParam cvParam : oldPSM.getSpectrumIdentification().getCvParams()) {
+                switch (cvParam.getName()) {
+                    case ("PSM-level combined FDRScore"):
+                        psm.setOptionColumnValue(MzTabUtils.OPTIONAL_PSM_FDRSCORE_COLUMN, cvParam.getValue());
+                        break;
+                    default:
+                        break;
                 }
             }
-            psmList.add(psm);
         }
-        return psmList;
+        return psm;
     }
 
     private PSM parseChromCvParamDetails(List<CvParam> cvParams, PSM psm) {
@@ -812,8 +1190,13 @@ public class MzIdentMLMzTabConverter extends AbstractMzTabConverter {
 
 
     protected Protein loadProtein(uk.ac.ebi.pride.utilities.data.core.Protein msProtein, List<Peptide> peptides)  {
+        return convertProtein(readProtein(msProtein, peptides, true));
+    }
 
+    protected Protein convertProtein(ProteinInput input)  {
 
+        uk.ac.ebi.pride.utilities.data.core.Protein msProtein = input.protein;
+        List<Peptide> peptides = input.peptides;
         DBSequence sequence = msProtein.getDbSequence();
 
         // create the protein object
@@ -844,7 +1227,7 @@ public class MzIdentMLMzTabConverter extends AbstractMzTabConverter {
 
         //TODO: Review
         for (int index = 0; index < peptides.size(); index++) {
-            Comparable ref = source.getPeptideSpectrumId(msProtein.getId(), index);
+            Comparable ref = input.peptideSpectrumIds[index];
             if (ref != null)
                 ref = ref.toString().split("!")[1];
             if (spectraToRun.containsKey(ref)) {
@@ -385,28 +385,9 @@ public class PRIDEMzTabConverter extends AbstractMzTabConverter {
 
         if (!ids.isEmpty()) {
             // Iterate over each identification
-            for (Comparable id : ids) {
-                Protein identification = source.getProteinById(id);
-
-                uk.ac.ebi.pride.jmztab.model.Protein protein = loadProtein(identification);
-
-                if (protein != null) {
-                    // we create a check for duplicated proteins ids.
-                    // If the protein is not null, it represents that have been
-                    // already added and we need to merge the information with the original
-                    List<uk.ac.ebi.pride.jmztab.model.Protein> proteinList = accessionProteinMap.get(protein.getAccession());
-                    if (proteinList == null) {
-                        proteinList = new ArrayList<uk.ac.ebi.pride.jmztab.model.Protein>();
-                    }
-                    proteinList.add(protein);
-                    accessionProteinMap.put(protein.getAccession(), proteinList);
-
-                }
-                // convert psm
-                // they don't have problems with duplications
-                List<PSM> psmList = loadPSMs(identification);
-                psms.addAll(psmList);
-            }
+            Iterator<Protein> identifications = ids.stream().map(id -> source.getProteinById(id)).iterator();
+            // the merge adds optional columns to the protein column factory, which the conversion reads
+            convertInOrder(identifications, this::convertIdentification, this::mergeIdentification, false);
 
             if (!accessionProteinMap.isEmpty()) {
                 for (List<uk.ac.ebi.pride.jmztab.model.Protein> proteinList : accessionProteinMap.values()) {
@@ -434,24 +415,33 @@ public class PRIDEMzTabConverter extends AbstractMzTabConverter {
     }
 
     /**
-     * Converts the passed Identification object into an MzTab protein.
+     * Converts the passed Identification object into an MzTab protein and its PSMs. The conversion does not change
+     * the metadata or the column factories, the changes are done by {@link #mergeIdentification(ConvertedProtein)}.
      * @param identification Protein Identification
-     * @return  MzTab Protein Object
+     * @return  converted protein and PSMs
      */
-    private uk.ac.ebi.pride.jmztab.model.Protein loadProtein(Protein identification) {
+    private ConvertedProtein convertIdentification(Protein identification) {
+        ConvertedProtein rows = new ConvertedProtein();
+        rows.decoy = CvUtilities.isDecoyHit(identification) || CvUtilities.isAccessionDecoy(identification);
+        rows.protein = loadProtein(identification, rows);
+        // convert psm
+        // they don't have problems with duplications
+        loadPSMs(identification, rows);
+        return rows;
+    }
 
-        // create the protein object
-        uk.ac.ebi.pride.jmztab.model.Protein protein = new uk.ac.ebi.pride.jmztab.model.Protein(proteinColumnFactory);
+    /**
+     * Merge a converted protein and its PSMs, in the order of the identifications: add the optional columns and
+     * update the metadata, then number the PSMs without spectrum.
+     * @param rows converted protein and PSMs
+     */
+    private void mergeIdentification(ConvertedProtein rows) {
+        uk.ac.ebi.pride.jmztab.model.Protein protein = rows.protein;
         CVParam decoy = MzTabUtils.convertCvParamToCVParam(CvUtilities.getCVTermFromCvReference(CvTermReference.PRIDE_DECOY_HIT,null));
 
-        protein.setAccession(removeNewLineAndTab(generateAccession(identification)));
-        protein.setDatabase(identification.getDbSequence().getSearchDataBase().getName());
-        String version = (identification.getDbSequence().getSearchDataBase().getVersion() != null && ! identification.getDbSequence().getSearchDataBase().getVersion().isEmpty())?identification.getDbSequence().getSearchDataBase().getVersion():null;
-        protein.setDatabaseVersion(version);
-
         // We mark the decoy hits
         // The optional column was added previously
-        if (CvUtilities.isDecoyHit(identification) || CvUtilities.isAccessionDecoy(identification)) {
+        if (rows.decoy) {
             String header = CVParamOptionColumn.getHeader(null, decoy);
             MZTabColumn column = proteinColumnFactory.findColumnByHeader(header);
             if (column != null) {
@@ -473,6 +463,63 @@ public class PRIDEMzTabConverter extends AbstractMzTabConverter {
             }
         }
 
+        for (String[] optionalColumn : rows.optionalColumns) {
+            MzTabUtils.addOptionalColumnValue(protein, proteinColumnFactory, optionalColumn[0], optionalColumn[1]);
+        }
+
+        if (rows.quantificationUnit != null && metadata.getProteinQuantificationUnit() == null) {
+            metadata.setProteinQuantificationUnit(rows.quantificationUnit);
+        }
+
+        // we create a check for duplicated proteins ids.
+        // If the protein is not null, it represents that have been
+        // already added and we need to merge the information with the original
+        List<uk.ac.ebi.pride.jmztab.model.Protein> proteinList = accessionProteinMap.get(protein.getAccession());
+        if (proteinList == null) {
+            proteinList = new ArrayList<uk.ac.ebi.pride.jmztab.model.Protein>();
+        }
+        proteinList.add(protein);
+        accessionProteinMap.put(protein.getAccession(), proteinList);
+
+        CVParam psmDecoy = MzTabUtils.convertCvParamToCVParam(CvUtilities.getCVTermFromCvReference(CvTermReference.MS_DECOY_PEPTIDE, null));
+        String psmHeader = CVParamOptionColumn.getHeader(null, psmDecoy);
+
+        for (int i = 0; i < rows.psms.size(); i++) {
+            PSM psm = rows.psms.get(i);
+
+            if (rows.peptides.get(i).getSpectrum() == null) {
+                psm.setPSM_ID(alternativeId++);
+                logger.debug("There is no spectrum available, using an alternative id as PSM id.");
+            }
+
+            MZTabColumn column = psmColumnFactory.findColumnByHeader(psmHeader);
+            if (column == null) {
+                psmColumnFactory.addOptionalColumn(psmDecoy, MZBoolean.class);
+                logger.debug("The psm decoy column has been added.");
+            }
+            psm.setOptionColumnValue(psmDecoy, rows.decoy ? MZBoolean.True : MZBoolean.False);
+        }
+
+        addVariableModifications(rows.variableModifications);
+        psms.addAll(rows.psms);
+    }
+
+    /**
+     * Converts the passed Identification object into an MzTab protein.
+     * @param identification Protein Identification
+     * @param rows converted protein, it keeps the optional columns and the quantification unit of the protein
+     * @return  MzTab Protein Object
+     */
+    private uk.ac.ebi.pride.jmztab.model.Protein loadProtein(Protein identification, ConvertedProtein rows) {
+
+        // create the protein object
+        uk.ac.ebi.pride.jmztab.model.Protein protein = new uk.ac.ebi.pride.jmztab.model.Protein(proteinColumnFactory);
+
+        protein.setAccession(removeNewLineAndTab(generateAccession(identification)));
+        protein.setDatabase(identification.getDbSequence().getSearchDataBase().getName());
+        String version = (identification.getDbSequence().getSearchDataBase().getVersion() != null && ! identification.getDbSequence().getSearchDataBase().getVersion().isEmpty())?identification.getDbSequence().getSearchDataBase().getVersion():null;
+        protein.setDatabaseVersion(version);
+
         loadSearchEngineScore(protein, identification);
 
         //TODO protein, species and taxid
@@ -539,7 +586,7 @@ public class PRIDEMzTabConverter extends AbstractMzTabConverter {
         if(identification.getGel() != null) {
             String coordinates = "[" + identification.getGel().getXCoordinate() +
                     ", " + identification.getGel().getYCoordinate() + "]";
-            MzTabUtils.addOptionalColumnValue(protein, proteinColumnFactory, GEL_COORDINATES, coordinates);
+            rows.optionalColumns.add(new String[]{GEL_COORDINATES, coordinates});
 
         }
 
@@ -550,8 +597,8 @@ public class PRIDEMzTabConverter extends AbstractMzTabConverter {
                 // check if there's a quant unit set
                 if (!isIdentification() && (QuantCvTermReference.UNIT_RATIO.getAccession().equals(p.getAccession()) || QuantCvTermReference.UNIT_COPIES_PER_CELL.getAccession().equals(p.getAccession()))) {
                     CVParam param = MzTabUtils.convertCvParamToCVParam(p);
-                    if (param != null && metadata.getProteinQuantificationUnit() == null) {
-                        metadata.setProteinQuantificationUnit(param);
+                    if (param != null && rows.quantificationUnit == null) {
+                        rows.quantificationUnit = param;
                     }
                 }
                 // Quantification values
@@ -574,13 +621,13 @@ public class PRIDEMzTabConverter extends AbstractMzTabConverter {
                 } else {
                     // check optional column.
                     if (QuantCvTermReference.EMPAI_VALUE.getAccession().equals(p.getAccession())) {
-                        MzTabUtils.addOptionalColumnValue(protein, proteinColumnFactory, EMPAI, p.getValue());
+                        rows.optionalColumns.add(new String[]{EMPAI, p.getValue()});
                     } else if (CvTermReference.PRIDE_GEL_SPOT_IDENTIFIER.getAccession().equals(p.getAccession())) {
                         // check if there's gel spot identifier
-                        MzTabUtils.addOptionalColumnValue(protein, proteinColumnFactory, GEL_SPOTIDENTIFIER, p.getValue());
+                        rows.optionalColumns.add(new String[]{GEL_SPOTIDENTIFIER, p.getValue()});
                     } else if (CvTermReference.PRIDE_GEL_IDENTIFIER.getAccession().equals(p.getAccession())) {
                         // check if there's gel identifier
-                        MzTabUtils.addOptionalColumnValue(protein, proteinColumnFactory, GEL_IDENTIFIER, p.getValue());
+                        rows.optionalColumns.add(new String[]{GEL_IDENTIFIER, p.getValue()});
                     }
                 }
             }
@@ -703,16 +750,12 @@ public class PRIDEMzTabConverter extends AbstractMzTabConverter {
     }
 
     /**
-     * Converts the passed Identification object into an MzTab PSM.
+     * Converts the passed Identification object into an MzTab PSM. The PSMs without spectrum are numbered, and
+     * the decoy column is set, when they are merged.
      * @param identification Protein Idnetification
-     * @return List of mzTab PSMs
+     * @param rows converted protein, the PSMs are added to it
      */
-    private List<PSM> loadPSMs(Protein identification) {
-
-        List<PSM> psmList = new ArrayList<PSM>();
-        CVParam decoy = MzTabUtils.convertCvParamToCVParam(CvUtilities.getCVTermFromCvReference(CvTermReference.MS_DECOY_PEPTIDE, null));
-
-        String header = CVParamOptionColumn.getHeader(null, decoy);
+    private void loadPSMs(Protein identification, ConvertedProtein rows) {
 
         for (Peptide peptideItem : identification.getPeptides()) {
 
@@ -730,10 +773,6 @@ public class PRIDEMzTabConverter extends AbstractMzTabConverter {
                 psm.addSpectraRef(new SpectraRef(metadata.getMsRunMap().get(1),  spectrumReference));
 
             }
-            else{
-                psm.setPSM_ID(alternativeId++);
-                logger.debug("There is no spectrum available, using an alternative id as PSM id.");
-            }
 
             psm.setAccession(removeNewLineAndTab(generateAccession(identification)));
             psm.setDatabase(identification.getDbSequence().getSearchDataBase().getName());
@@ -742,34 +781,13 @@ public class PRIDEMzTabConverter extends AbstractMzTabConverter {
             psm.setDatabaseVersion(version);
 
 
-            if (CvUtilities.isDecoyHit(identification) || CvUtilities.isAccessionDecoy(identification)) {
-                MZTabColumn column = psmColumnFactory.findColumnByHeader(header);
-                if (column != null) {
-                    psm.setOptionColumnValue(decoy, MZBoolean.True);
-                } else {
-                    psmColumnFactory.addOptionalColumn(decoy, MZBoolean.class);
-                    psm.setOptionColumnValue(decoy, MZBoolean.True);
-                    logger.debug("The psm decoy column has been added.");
-                }
-            } else {
-                MZTabColumn column = psmColumnFactory.findColumnByHeader(header);
-                if (column != null) {
-                    psm.setOptionColumnValue(decoy, MZBoolean.False);
-                } else {
-                    psmColumnFactory.addOptionalColumn(decoy, MZBoolean.class);
-                    psm.setOptionColumnValue(decoy, MZBoolean.False);
-                    logger.debug("The psm decoy column has been added.");
-                }
-            }
-
-
             // set the search engine - if possible
             loadSearchEngineScore(psm, peptideItem);
 
             // set the modifications
             // is not necessary check by ambiguous modifications because are not supported in PRIDEXML
-            // updates the metadata with fixed and variable modifications
-            loadModifications(psm, peptideItem);
+            // the metadata is updated with the variable modifications when the PSMs are merged
+            loadModifications(psm, peptideItem, rows.variableModifications);
 
             // set exp m/z
             int precursorCharge = peptideItem.getPrecursorCharge();
@@ -845,9 +863,9 @@ public class PRIDEMzTabConverter extends AbstractMzTabConverter {
                     }
                 }
             }
-            psmList.add(psm);
+            rows.psms.add(psm);
+            rows.peptides.add(peptideItem);
         }
-        return psmList;
     }
 
     private void loadSearchEngineScore(PSM psm, Peptide peptideItem) {
@@ -884,7 +902,7 @@ public class PRIDEMzTabConverter extends AbstractMzTabConverter {
         }
     }
 
-    private void loadModifications(PSM psm, Peptide item) {
+    private void loadModifications(PSM psm, Peptide item, List<Modification> variableModifications) {
 
         uk.ac.ebi.pride.jmztab.model.Modification mod;
         for (Modification ptm : item.getModifications()) {
@@ -907,36 +925,44 @@ public class PRIDEMzTabConverter extends AbstractMzTabConverter {
                 // if not, we can not convert the modification to the header because we don't store all the mod cv terms
                 // in this moment
                 if (ptm.getCvParams() != null && ptm.getCvParams().size() > 0) {
+                    variableModifications.add(ptm);
+                } else {
+                    logger.warn("A CvParam with the modification information is not provided. The modification can not be propagated to the metadata section.");
+                }
+            } else {
+                logger.warn("A CvParam with the modification information is not provided. The modification can not be propagated to the metadata section.");
+            }
 
-                    for(CvParam param: ptm.getCvParams()){
+        }
+    }
 
-                        Param metadataParam = MzTabUtils.convertCvParamToCVParam(param);
+    /**
+     * Propagate the modifications of the PSMs to the metadata section, in the order of the PSMs
+     * @param variableModifications modifications with a CvParam
+     */
+    private void addVariableModifications(List<Modification> variableModifications) {
+        for (Modification ptm : variableModifications) {
+            for(CvParam param: ptm.getCvParams()){
 
-                        // propagate the modification to the metadata section
-                        boolean found = false;
+                Param metadataParam = MzTabUtils.convertCvParamToCVParam(param);
 
-                        //For PRIDEXML converter all the modifications are considered variables because
-                        // we don't have the information form the original experiment
-                        for (VariableMod variableMod : metadata.getVariableModMap().values()) {
-                            if (variableMod.getParam().getAccession().equals(ptm.getId())) {
-                                found = true;
-                                break;
-                            }
-                        }
-                        if (!found) {
-                            //TODO Add the modification site in the future
-                            metadata.addVariableModParam(metadata.getVariableModMap().size() + 1, metadataParam);
-                        }
+                // propagate the modification to the metadata section
+                boolean found = false;
 
+                //For PRIDEXML converter all the modifications are considered variables because
+                // we don't have the information form the original experiment
+                for (VariableMod variableMod : metadata.getVariableModMap().values()) {
+                    if (variableMod.getParam().getAccession().equals(ptm.getId())) {
+                        found = true;
+                        break;
                     }
-
-                } else {
-                    logger.warn("A CvParam with the modification information is not provided. The modification can not be propagated to the metadata section.");
                 }
-            } else {
-                logger.warn("A CvParam with the modification information is not provided. The modification can not be propagated to the metadata section.");
-            }
+                if (!found) {
+                    //TODO Add the modification site in the future
+                    metadata.addVariableModParam(metadata.getVariableModMap().size() + 1, metadataParam);
+                }
 
+            }
         }
     }
 
@@ -1166,4 +1192,33 @@ public class PRIDEMzTabConverter extends AbstractMzTabConverter {
         }
     }
 
+    /**
+     * Protein and PSMs converted from an identification, with the optional columns and the metadata of the protein
+     * that are added when it is merged
+     */
+    private static class ConvertedProtein {
+
+        private uk.ac.ebi.pride.jmztab.model.Protein protein;
+
+        private boolean decoy;
+
+        /**
+         * Name and value of the optional columns of the protein, in the order they were found
+         */
+        private final List<String[]> optionalColumns = new ArrayList<String[]>();
+
+        private CVParam quantificationUnit;
+
+        private final List<PSM> psms = new ArrayList<PSM>();
+
+        /**
+         * Peptide of each PSM
+         */
+        private final List<Peptide> peptides = new ArrayList<Peptide>();
+
+        /**
+         * Modifications of the PSMs to propagate to the metadata
+         */
+        private final List<Modification> variableModifications = new ArrayList<Modification>();
+    }
 }
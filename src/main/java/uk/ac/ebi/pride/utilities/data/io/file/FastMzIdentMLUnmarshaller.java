@@ -13,9 +13,13 @@ import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
 import javax.xml.transform.sax.SAXSource;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 /**
  * This class converts mzIdentML XML elements into Java objects(so-called unmarshalling) using Java
@@ -23,78 +27,110 @@ import java.io.FileNotFoundException;
  * and SAX parsers. Unlike DOM, SAX does not construct a tree of objects in the memory and SAX is
  * faster. For this implementation, SAX parser has been used.
  *
- * <p>This class designed according to Singleton design pattern. Therefore, mzIdentML object cannot
- * be directly created from the constructor, but with the getInstance public method.
+ * <p>One instance is created per mzIdentML file, so several files can be unmarshalled concurrently in
+ * the same JVM. The JAXBContext is expensive to build and thread safe, it is built once and shared by
+ * all the instances. Unmarshallers are not thread safe, they are borrowed from a small shared pool for
+ * the duration of one unmarshalling.
  *
  * @author Suresh Hewapathirana
  */
 @Slf4j
 public class FastMzIdentMLUnmarshaller {
 
-  private MzIdentML mzIdentML = null;
-  private JAXBContext jaxbContext;
-  private static volatile FastMzIdentMLUnmarshaller fastMzIdentMLUnmarshaller = null;
+  private static final int UNMARSHALLER_POOL_SIZE = Runtime.getRuntime().availableProcessors();
 
+  private static final BlockingQueue<Unmarshaller> unmarshallerPool =
+      new ArrayBlockingQueue<>(UNMARSHALLER_POOL_SIZE);
+
+  private static volatile JAXBContext jaxbContext = null;
+
+  private volatile MzIdentML mzIdentML = null;
+
+  /**
+   * Unmarshall the given mzIdentML file
+   *
+   * @param mzIdentMLFile Input MzIdentML file with .mzid extension
+   */
   @SuppressWarnings("unchecked")
-  private FastMzIdentMLUnmarshaller(File mzIdentMLFile) {
-    try {
-      if (mzIdentMLFile.exists()) {
-        if (mzIdentML == null) {
-          InputSource inputSource = new InputSource(new FileInputStream(mzIdentMLFile));
-          // required for the addition of namespaces to top-level objects
-          MzIdentMLNamespaceFilter xmlFilter = new MzIdentMLNamespaceFilter();
-          // Lazy caching of the JAXB Context.
-          if (jaxbContext == null) {
-            jaxbContext = JAXBContext.newInstance(MzIdentML.class.getPackage().getName());
-          }
-          // create unmarshaller(convert XML to Java objects)
-          Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-          // Create an XMLReader to use with our filter
-          XMLReader xmlReader = XMLReaderFactory.createXMLReader();
-          xmlFilter.setParent(xmlReader);
-          // Create a SAXSource specifying the filter
-          SAXSource source = new SAXSource(xmlFilter, inputSource);
-          // Do unmarshalling
-          JAXBElement<MzIdentML> mzIdentMLJAXBElement =
-              (JAXBElement<MzIdentML>) unmarshaller.unmarshal(source);
-          // get mzIdentML Java object
-          this.mzIdentML = mzIdentMLJAXBElement.getValue();
-          log.debug("mzIdentML Unmarshalling completed!");
-        }
-      }
+  public FastMzIdentMLUnmarshaller(File mzIdentMLFile) {
+    if (!mzIdentMLFile.exists()) {
+      return;
+    }
+
+    try (InputStream inputStream = new BufferedInputStream(new FileInputStream(mzIdentMLFile))) {
+      InputSource inputSource = new InputSource(inputStream);
+      // required for the addition of namespaces to top-level objects
+      MzIdentMLNamespaceFilter xmlFilter = new MzIdentMLNamespaceFilter();
+      // borrow an unmarshaller(convert XML to Java objects)
+      Unmarshaller unmarshaller = borrowUnmarshaller();
+      // Create an XMLReader to use with our filter
+      XMLReader xmlReader = XMLReaderFactory.createXMLReader();
+      xmlFilter.setParent(xmlReader);
+      // Create a SAXSource specifying the filter
+      SAXSource source = new SAXSource(xmlFilter, inputSource);
+      // Do unmarshalling
+      JAXBElement<MzIdentML> mzIdentMLJAXBElement =
+          (JAXBElement<MzIdentML>) unmarshaller.unmarshal(source);
+      // only an unmarshaller which completed successfully goes back to the pool
+      returnUnmarshaller(unmarshaller);
+      // get mzIdentML Java object
+      this.mzIdentML = mzIdentMLJAXBElement.getValue();
+      log.debug("mzIdentML Unmarshalling completed!");
     } catch (JAXBException e) {
       log.error("UnmarshallerFactory.initializeUnmarshaller", e);
       throw new IllegalStateException("Could not initialize unmarshaller!");
     } catch (SAXException e) {
       log.error("UnmarshallerFactory.initializeUnmarshaller", e);
       throw new IllegalStateException("Could not initialize unmarshaller!");
-    } catch (FileNotFoundException e) {
+    } catch (IOException e) {
       log.error("UnmarshallerFactory.initializeUnmarshaller", e);
       throw new IllegalStateException("Input mzIdentML file reading error!");
     }
   }
 
   /**
-   * This is the method should use to instantiate fastMzIdentMLUnmarshaller object. This method is
-   * thread safe and also do a lazy loading because of two reasons: 1. XML parsing from mzIdentML
-   * file is a memory intensive task 2. MzIdentML is an object with high memory consumption
+   * Create a new FastMzIdentMLUnmarshaller for the given file.
    *
    * @param mzIdentMLFile Input MzIdentML file with .mzid extension
    * @return FastMzIdentMLUnmarshaller
+   * @deprecated this is no longer a singleton, use the constructor
    */
+  @Deprecated
   public static FastMzIdentMLUnmarshaller getInstance(File mzIdentMLFile) {
-    try {
-      if (fastMzIdentMLUnmarshaller == null) {
-        synchronized (FastMzIdentMLUnmarshaller.class) {
-          if (fastMzIdentMLUnmarshaller == null) {
-            fastMzIdentMLUnmarshaller = new FastMzIdentMLUnmarshaller(mzIdentMLFile);
-          }
+    return new FastMzIdentMLUnmarshaller(mzIdentMLFile);
+  }
+
+  /**
+   * Lazy caching of the JAXB Context, shared by all the instances.
+   *
+   * @return JAXBContext
+   * @throws JAXBException if the context cannot be created
+   */
+  private static JAXBContext getJaxbContext() throws JAXBException {
+    if (jaxbContext == null) {
+      synchronized (FastMzIdentMLUnmarshaller.class) {
+        if (jaxbContext == null) {
+          jaxbContext = JAXBContext.newInstance(MzIdentML.class.getPackage().getName());
         }
       }
-    } catch (Exception e) {
-      log.error("mzIdentML file access error : " + e.getMessage());
     }
-    return fastMzIdentMLUnmarshaller;
+    return jaxbContext;
+  }
+
+  /**
+   * Borrow an Unmarshaller from the shared pool, it must not be used by more than one thread at a time
+   *
+   * @return Unmarshaller
+   * @throws JAXBException if a new unmarshaller cannot be created
+   */
+  static Unmarshaller borrowUnmarshaller() throws JAXBException {
+    Unmarshaller unmarshaller = unmarshallerPool.poll();
+    return unmarshaller != null ? unmarshaller : getJaxbContext().createUnmarshaller();
+  }
+
+  static void returnUnmarshaller(Unmarshaller unmarshaller) {
+    // the unmarshaller is dropped when the pool is full
+    unmarshallerPool.offer(unmarshaller);
   }
 
   /**
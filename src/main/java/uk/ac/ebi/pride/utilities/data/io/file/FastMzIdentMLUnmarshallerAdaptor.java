@@ -17,27 +17,52 @@ import java.util.stream.Collectors;
 @Slf4j
 public class FastMzIdentMLUnmarshallerAdaptor {
 
-  private FastMzIdentMLUnmarshaller fastMzIdentMLUnmarshaller;
+  private final File mzIdentMLFile;
+  private volatile FastMzIdentMLUnmarshaller fastMzIdentMLUnmarshaller;
+  private volatile boolean closed = false;
   private ModReader modReader;
 
   /**
-   * This method retrieves the MzIdentML object from the FastMzIdentMLUnmarshaller
+   * This method retrieves the MzIdentML object from the FastMzIdentMLUnmarshaller. The file is
+   * unmarshalled the first time its content is accessed.
    *
    * @param mzIdentMLFile MzIdentML file
    * @see FastMzIdentMLUnmarshaller
    */
   public FastMzIdentMLUnmarshallerAdaptor(File mzIdentMLFile) {
-    fastMzIdentMLUnmarshaller = FastMzIdentMLUnmarshaller.getInstance(mzIdentMLFile);
+    this.mzIdentMLFile = mzIdentMLFile;
     modReader = ModReader.getInstance();
   }
 
+  /**
+   * Lazy unmarshalling of the MzIdentML file
+   *
+   * @return FastMzIdentMLUnmarshaller
+   * @throws IllegalStateException if the adaptor has been closed
+   */
+  private FastMzIdentMLUnmarshaller getFastMzIdentMLUnmarshaller() {
+    FastMzIdentMLUnmarshaller unmarshaller = fastMzIdentMLUnmarshaller;
+    if (unmarshaller != null) {
+      return unmarshaller;
+    }
+    synchronized (this) {
+      if (closed) {
+        throw new IllegalStateException("The mzIdentML file is closed: " + mzIdentMLFile.getPath());
+      }
+      if (fastMzIdentMLUnmarshaller == null) {
+        fastMzIdentMLUnmarshaller = new FastMzIdentMLUnmarshaller(mzIdentMLFile);
+      }
+      return fastMzIdentMLUnmarshaller;
+    }
+  }
+
   /**
    * Get the complete MzIdentML object which contains the entire unmarshalled content
    *
    * @return MzIdentML object
    */
   public MzIdentML getMzIdentML() {
-    return fastMzIdentMLUnmarshaller.getMzIdentML();
+    return getFastMzIdentMLUnmarshaller().getMzIdentML();
   }
 
   /**
@@ -58,7 +83,7 @@ public class FastMzIdentMLUnmarshallerAdaptor {
     // if protein inference exists
     if(isProteinAmbiguityGroupsAvailable()){
       for (ProteinAmbiguityGroup proteinAmbiguityGroup :
-          fastMzIdentMLUnmarshaller
+          getFastMzIdentMLUnmarshaller()
               .getMzIdentML()
               .getDataCollection()
               .getAnalysisData()
@@ -69,7 +94,7 @@ public class FastMzIdentMLUnmarshallerAdaptor {
 //        }
       }
     } else { // if no protein inference exists
-      proteinIDs = fastMzIdentMLUnmarshaller
+      proteinIDs = getFastMzIdentMLUnmarshaller()
               .getMzIdentML()
               .getSequenceCollection()
               .getDBSequence()
@@ -89,7 +114,7 @@ public class FastMzIdentMLUnmarshallerAdaptor {
     List<Comparable> peptideIDs = new ArrayList<>();
     if(isProteinAmbiguityGroupsAvailable()){
       for (ProteinAmbiguityGroup proteinAmbiguityGroup :
-              fastMzIdentMLUnmarshaller
+              getFastMzIdentMLUnmarshaller()
                       .getMzIdentML()
                       .getDataCollection()
                       .getAnalysisData()
@@ -106,7 +131,7 @@ public class FastMzIdentMLUnmarshallerAdaptor {
         }
       }
     } else {
-      peptideIDs = fastMzIdentMLUnmarshaller
+      peptideIDs = getFastMzIdentMLUnmarshaller()
               .getMzIdentML()
               .getSequenceCollection()
               .getPeptide()
@@ -146,7 +171,7 @@ public class FastMzIdentMLUnmarshallerAdaptor {
     int modificationCounts = 0;
 
     List<Peptide> peptides =
-        fastMzIdentMLUnmarshaller.getMzIdentML().getSequenceCollection().getPeptide();
+        getFastMzIdentMLUnmarshaller().getMzIdentML().getSequenceCollection().getPeptide();
     for (Peptide peptide : peptides) {
       peptideCounts++;
       for (Modification modification : peptide.getModification()) {
@@ -167,7 +192,7 @@ public class FastMzIdentMLUnmarshallerAdaptor {
    * @return Peptide if matching peptide exists, otherwise return a null
    */
   public Peptide getPeptideById(Comparable peptideID) {
-    return fastMzIdentMLUnmarshaller
+    return getFastMzIdentMLUnmarshaller()
         .getMzIdentML()
         .getSequenceCollection()
         .getPeptide()
@@ -184,7 +209,7 @@ public class FastMzIdentMLUnmarshallerAdaptor {
    * @return PeptideEvidence if matching PeptideEvidence exists, otherwise return a null
    */
   public PeptideEvidence getPeptideEvidenceById(Comparable peptideEvidenceId) {
-    return fastMzIdentMLUnmarshaller
+    return getFastMzIdentMLUnmarshaller()
             .getMzIdentML()
             .getSequenceCollection()
             .getPeptideEvidence()
@@ -200,7 +225,7 @@ public class FastMzIdentMLUnmarshallerAdaptor {
    * @return List of SpectrumIdentificationList
    */
   public List<SpectrumIdentificationList> getSpectrumIdentificationList() {
-    return fastMzIdentMLUnmarshaller
+    return getFastMzIdentMLUnmarshaller()
         .getMzIdentML()
         .getDataCollection()
         .getAnalysisData()
@@ -215,7 +240,7 @@ public class FastMzIdentMLUnmarshallerAdaptor {
    */
   public Collection<CvParam> getIdentifiedUniquePTMs() {
     List<Peptide> peptideList =
-        fastMzIdentMLUnmarshaller.getMzIdentML().getSequenceCollection().getPeptide();
+        getFastMzIdentMLUnmarshaller().getMzIdentML().getSequenceCollection().getPeptide();
     Map<String, CvParam> modifications = new HashMap<>();
     for (Peptide peptide : peptideList) {
       for (Modification modification : peptide.getModification()) {
@@ -257,7 +282,7 @@ public class FastMzIdentMLUnmarshallerAdaptor {
    */
   public Collection<CvParam> getSearchModifications() {
     List<SpectrumIdentificationProtocol> spectrumIdentificationProtocolList =
-        fastMzIdentMLUnmarshaller
+        getFastMzIdentMLUnmarshaller()
             .getMzIdentML()
             .getAnalysisProtocolCollection()
             .getSpectrumIdentificationProtocol();
@@ -302,7 +327,7 @@ public class FastMzIdentMLUnmarshallerAdaptor {
    * @return Map of SpectraData grouped by SpectraData ID
    */
   public Map<Comparable, SpectraData> getSpectraDataMap() {
-    Inputs inputs = fastMzIdentMLUnmarshaller.getMzIdentML().getDataCollection().getInputs();
+    Inputs inputs = getFastMzIdentMLUnmarshaller().getMzIdentML().getDataCollection().getInputs();
     List<SpectraData> spectraDataList = inputs.getSpectraData();
     Map<Comparable, SpectraData> spectraDataMap = null;
     if (spectraDataList != null && spectraDataList.size() > 0) {
@@ -320,7 +345,7 @@ public class FastMzIdentMLUnmarshallerAdaptor {
    * @return List of ProteinAmbiguityGroup
    */
   public List<ProteinAmbiguityGroup> getProteinAmbiguityGroups() {
-    return fastMzIdentMLUnmarshaller
+    return getFastMzIdentMLUnmarshaller()
         .getMzIdentML()
         .getDataCollection()
         .getAnalysisData()
@@ -335,7 +360,7 @@ public class FastMzIdentMLUnmarshallerAdaptor {
    */
   public String getMzIdentMLId() {
 
-    String id = fastMzIdentMLUnmarshaller.getMzIdentML().getId();
+    String id = getFastMzIdentMLUnmarshaller().getMzIdentML().getId();
     if (!id.matches(Constants.MZIDENTML_ID_PATTERN)) {
       log.warn("MzIdentML ID contains special characters which may lead to errors!");
     }
@@ -348,7 +373,7 @@ public class FastMzIdentMLUnmarshallerAdaptor {
    * @return
    */
   public String getMzIdentMLName() {
-    return fastMzIdentMLUnmarshaller.getMzIdentML().getName();
+    return getFastMzIdentMLUnmarshaller().getMzIdentML().getName();
   }
 
   /**
@@ -359,7 +384,7 @@ public class FastMzIdentMLUnmarshallerAdaptor {
    */
   public String getVersion() {
 
-    String version = fastMzIdentMLUnmarshaller.getMzIdentML().getVersion();
+    String version = getFastMzIdentMLUnmarshaller().getMzIdentML().getVersion();
     if (!version.matches(Constants.VERSION_NUMBER)) {
       try {
         throw new Exception("Invalid MzIdentML Version found!");
@@ -376,7 +401,7 @@ public class FastMzIdentMLUnmarshallerAdaptor {
    * @return Collection of Peptide Ids
    */
   public List<Cv> getCvList() {
-    return fastMzIdentMLUnmarshaller.getMzIdentML().getCvList().getCv();
+    return getFastMzIdentMLUnmarshaller().getMzIdentML().getCvList().getCv();
   }
 
   /**
@@ -386,7 +411,7 @@ public class FastMzIdentMLUnmarshallerAdaptor {
    */
   public Date getCreationDate() throws Exception {
     Date dateCreation = null;
-    String dateInString = fastMzIdentMLUnmarshaller.getMzIdentML().getCreationDate();
+    String dateInString = getFastMzIdentMLUnmarshaller().getMzIdentML().getCreationDate();
     try {
       if (dateInString != "") {
         Calendar calendar = javax.xml.bind.DatatypeConverter.parseDateTime(dateInString);
@@ -400,7 +425,7 @@ public class FastMzIdentMLUnmarshallerAdaptor {
   }
 
   public List<SpectraData> getSpectraData() {
-    Inputs inputs = fastMzIdentMLUnmarshaller.getMzIdentML().getDataCollection().getInputs();
+    Inputs inputs = getFastMzIdentMLUnmarshaller().getMzIdentML().getDataCollection().getInputs();
     return (inputs != null) ? inputs.getSpectraData() : null;
   }
 
@@ -412,7 +437,7 @@ public class FastMzIdentMLUnmarshallerAdaptor {
   public List<uk.ac.ebi.pride.utilities.data.core.Software> getSoftwares() {
     List<uk.ac.ebi.pride.utilities.data.core.Software> softwareList = new ArrayList<>();
     for (AnalysisSoftware analysisSoftware :
-        fastMzIdentMLUnmarshaller.getMzIdentML().getAnalysisSoftwareList().getAnalysisSoftware()) {
+        getFastMzIdentMLUnmarshaller().getMzIdentML().getAnalysisSoftwareList().getAnalysisSoftware()) {
       softwareList.add(LightModelsTransformer.transformToSoftware(analysisSoftware));
     }
     return softwareList;
@@ -426,10 +451,10 @@ public class FastMzIdentMLUnmarshallerAdaptor {
   public List<Person> getPersonContacts() {
     List<Person> personList = null;
 
-    AuditCollection auditCollection = fastMzIdentMLUnmarshaller.getMzIdentML().getAuditCollection();
+    AuditCollection auditCollection = getFastMzIdentMLUnmarshaller().getMzIdentML().getAuditCollection();
     if (auditCollection != null) {
       List<Organization> organizations =
-          fastMzIdentMLUnmarshaller.getMzIdentML().getAuditCollection().getOrganization();
+          getFastMzIdentMLUnmarshaller().getMzIdentML().getAuditCollection().getOrganization();
       Map<String, Organization> organizationMap = new HashMap<>(organizations.size());
       for (Organization organization : organizations) {
         organizationMap.put(organization.getId(), organization);
@@ -457,7 +482,7 @@ public class FastMzIdentMLUnmarshallerAdaptor {
    * @return list of organization
    */
   public List<Organization> getOrganizationContacts() {
-    AuditCollection auditCollection = fastMzIdentMLUnmarshaller.getMzIdentML().getAuditCollection();
+    AuditCollection auditCollection = getFastMzIdentMLUnmarshaller().getMzIdentML().getAuditCollection();
     return (auditCollection != null) ? auditCollection.getOrganization() :  null;
   }
 
@@ -467,7 +492,7 @@ public class FastMzIdentMLUnmarshallerAdaptor {
    * @return Provider object
    */
   public Provider getProvider() {
-    return fastMzIdentMLUnmarshaller.getMzIdentML().getProvider();
+    return getFastMzIdentMLUnmarshaller().getMzIdentML().getProvider();
   }
 
   /**
@@ -477,7 +502,7 @@ public class FastMzIdentMLUnmarshallerAdaptor {
    */
   public List<SourceFile> getSourceFiles() {
     return LightModelsTransformer.transformToSourceFiles(
-        fastMzIdentMLUnmarshaller.getMzIdentML().getDataCollection().getInputs().getSourceFile());
+        getFastMzIdentMLUnmarshaller().getMzIdentML().getDataCollection().getInputs().getSourceFile());
   }
 
   /**
@@ -486,7 +511,7 @@ public class FastMzIdentMLUnmarshallerAdaptor {
    * @return BibliographicReference object
    */
   public List<BibliographicReference> getReferences() {
-    return fastMzIdentMLUnmarshaller.getMzIdentML().getBibliographicReference();
+    return getFastMzIdentMLUnmarshaller().getMzIdentML().getBibliographicReference();
   }
 
   public boolean isSpectraDataReferencedByTitle(SpectraData spectraData) {
@@ -505,7 +530,7 @@ public class FastMzIdentMLUnmarshallerAdaptor {
   }
 
   public List<SearchDatabase> getSearchDatabases() {
-    return fastMzIdentMLUnmarshaller
+    return getFastMzIdentMLUnmarshaller()
         .getMzIdentML()
         .getDataCollection()
         .getInputs()
@@ -514,15 +539,15 @@ public class FastMzIdentMLUnmarshallerAdaptor {
 
   public List<Sample> getSampleList() {
     List<Sample> samples = null;
-    if (fastMzIdentMLUnmarshaller.getMzIdentML().getAnalysisSampleCollection() != null) {
-      samples = fastMzIdentMLUnmarshaller.getMzIdentML().getAnalysisSampleCollection().getSample();
+    if (getFastMzIdentMLUnmarshaller().getMzIdentML().getAnalysisSampleCollection() != null) {
+      samples = getFastMzIdentMLUnmarshaller().getMzIdentML().getAnalysisSampleCollection().getSample();
     }
     return samples;
   }
 
   public List<Enzyme> getEnzymes() {
     List<Enzyme> enzymesList = new ArrayList<>();
-    fastMzIdentMLUnmarshaller
+    getFastMzIdentMLUnmarshaller()
         .getMzIdentML()
         .getAnalysisProtocolCollection()
         .getSpectrumIdentificationProtocol()
@@ -533,12 +558,17 @@ public class FastMzIdentMLUnmarshallerAdaptor {
   /**
    * Close FastMzIdentMLUnmarshallerAdaptor by clearing the entire mzIdentML Object.
    *
-   * <p>Warning: This should be carefully used only after performing all the data access operations.
-   * If not, fastMzIdentMLUnmarshaller has to unmarshall MzIdentML file again, which is
-   * computationally expensive.
+   * <p>Warning: This should be used only after performing all the data access operations, any
+   * access after close throws an IllegalStateException instead of unmarshalling the file again.
    */
   public void close() {
-    fastMzIdentMLUnmarshaller.destroy();
+    synchronized (this) {
+      closed = true;
+      if (fastMzIdentMLUnmarshaller != null) {
+        fastMzIdentMLUnmarshaller.destroy();
+        fastMzIdentMLUnmarshaller = null;
+      }
+    }
   }
 
   /**
@@ -547,7 +577,7 @@ public class FastMzIdentMLUnmarshallerAdaptor {
    * @return Number of decoy proteins identified
    */
   public long getNumberOfDecoyProteins() {
-    return fastMzIdentMLUnmarshaller
+    return getFastMzIdentMLUnmarshaller()
         .getMzIdentML()
         .getSequenceCollection()
         .getPeptideEvidence()
@@ -562,7 +592,7 @@ public class FastMzIdentMLUnmarshallerAdaptor {
    */
   public boolean isProteinAmbiguityGroupsAvailable(){
 
-    AnalysisData analysisData = fastMzIdentMLUnmarshaller.getMzIdentML().getDataCollection().getAnalysisData();
+    AnalysisData analysisData = getFastMzIdentMLUnmarshaller().getMzIdentML().getDataCollection().getAnalysisData();
     return analysisData != null
                     && analysisData.getProteinDetectionList() != null
                     && analysisData.getProteinDetectionList().getProteinAmbiguityGroup() != null
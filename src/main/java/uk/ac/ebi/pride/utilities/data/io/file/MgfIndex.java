@@ -0,0 +1,180 @@
+package uk.ac.ebi.pride.utilities.data.io.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * MgfIndex is a byte level index of the spectra of an MGF file: the offset of each BEGIN IONS line,
+ * the offset after each END IONS line and the TITLE of each spectrum, in file order.
+ * <p/>
+ * The file is scanned once through memory-mapped windows. Only the BEGIN IONS, END IONS and TITLE lines
+ * are decoded, the peak lists are skipped byte by byte without being parsed, so building the index runs
+ * at the speed of a sequential read of the file.
+ * <p/>
+ * The title is the trimmed line after TITLE=, null when a spectrum has no title.
+ * <p/>
+ * @author Rui Wang
+ * @author Yasset Perez-Riverol
+ */
+public class MgfIndex {
+
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+    private static final String BEGIN_IONS = "BEGIN IONS";
+
+    private static final String END_IONS = "END IONS";
+
+    private static final String TITLE = "TITLE=";
+
+    private long[] starts = new long[1024];
+
+    private long[] ends = new long[1024];
+
+    private String[] titles = new String[1024];
+
+    private int size;
+
+    /**
+     * state of the scan: offset of the current spectrum, -1 outside of a spectrum
+     */
+    private long currentStart = -1;
+
+    private String currentTitle;
+
+    private MgfIndex() {
+    }
+
+    /**
+     * Scan an MGF file
+     *
+     * @param file MGF file
+     * @return MgfIndex  index of the spectra
+     * @throws IOException if the file cannot be read
+     */
+    public static MgfIndex scan(File file) throws IOException {
+        MgfIndex index = new MgfIndex();
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+
+            // bytes of the current line, only kept for the lines which may be BEGIN IONS, END IONS or TITLE
+            byte[] line = new byte[256];
+            int lineLength = 0;
+            boolean keepLine = true;
+            long lineStart = 0;
+
+            for (long windowStart = 0; windowStart < fileSize; windowStart += WINDOW_SIZE) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart,
+                        Math.min(WINDOW_SIZE, fileSize - windowStart));
+                int limit = window.limit();
+                for (int i = 0; i < limit; i++) {
+                    byte b = window.get(i);
+                    if (b == '\n') {
+                        long nextLineStart = windowStart + i + 1;
+                        if (keepLine) {
+                            index.readLine(line, lineLength, lineStart, nextLineStart);
+                        }
+                        lineLength = 0;
+                        keepLine = true;
+                        lineStart = nextLineStart;
+                    } else if (keepLine) {
+                        if (lineLength == 0 && !isKeyStart(b)) {
+                            // peak or other parameter line
+                            keepLine = false;
+                        } else {
+                            if (lineLength == line.length) {
+                                line = Arrays.copyOf(line, lineLength * 2);
+                            }
+                            line[lineLength++] = b;
+                        }
+                    }
+                }
+            }
+
+            if (keepLine && lineLength > 0) {
+                index.readLine(line, lineLength, lineStart, fileSize);
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * @return int number of spectra
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index position of the spectrum in the file, starting at 0
+     * @return long offset of the BEGIN IONS line
+     */
+    public long getStart(int index) {
+        checkIndex(index);
+        return starts[index];
+    }
+
+    /**
+     * @param index position of the spectrum in the file, starting at 0
+     * @return long offset after the END IONS line
+     */
+    public long getEnd(int index) {
+        checkIndex(index);
+        return ends[index];
+    }
+
+    /**
+     * @param index position of the spectrum in the file, starting at 0
+     * @return String title of the spectrum, null if there is no title
+     */
+    public String getTitle(int index) {
+        checkIndex(index);
+        return titles[index];
+    }
+
+    private void readLine(byte[] line, int length, long lineStart, long nextLineStart) {
+        String value = new String(line, 0, length, StandardCharsets.UTF_8).trim();
+
+        if (BEGIN_IONS.equalsIgnoreCase(value)) {
+            currentStart = lineStart;
+            currentTitle = null;
+        } else if (currentStart >= 0 && END_IONS.equalsIgnoreCase(value)) {
+            add(currentStart, nextLineStart, currentTitle);
+            currentStart = -1;
+            currentTitle = null;
+        } else if (currentStart >= 0 && value.regionMatches(true, 0, TITLE, 0, TITLE.length())) {
+            currentTitle = value.substring(TITLE.length());
+        }
+    }
+
+    private void add(long start, long end, String title) {
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            ends = Arrays.copyOf(ends, size * 2);
+            titles = Arrays.copyOf(titles, size * 2);
+        }
+        starts[size] = start;
+        ends[size] = end;
+        titles[size] = title;
+        size++;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * The first byte of a line which can be BEGIN IONS, END IONS or TITLE, possibly indented
+     */
+    private static boolean isKeyStart(byte b) {
+        return b == 'B' || b == 'E' || b == 'T' || b == 'b' || b == 'e' || b == 't' || b == ' ' || b == '\t';
+    }
+}
@@ -5,6 +5,7 @@ import psidev.psi.tools.xxindex.index.IndexElement;
 import uk.ac.ebi.jmzidml.MzIdentMLElement;
 import uk.ac.ebi.jmzidml.model.mzidml.*;
 import uk.ac.ebi.jmzidml.xml.io.MzIdentMLUnmarshaller;
+import uk.ac.ebi.pride.utilities.data.controller.DataAccessException;
 import uk.ac.ebi.pride.utilities.data.utils.MzIdentMLUtils;
 
 import javax.naming.ConfigurationException;
@@ -26,6 +27,14 @@ public class MzIdentMLUnmarshallerAdaptor extends MzIdentMLUnmarshaller {
 
     private static final int LOOP_THRESHOLD = 20;
 
+    // orders index elements by their offset in the file
+    private static final Comparator<Map.Entry<String, IndexElement>> OFFSET_COMPARATOR = new Comparator<Map.Entry<String, IndexElement>>() {
+        @Override
+        public int compare(Map.Entry<String, IndexElement> o1, Map.Entry<String, IndexElement> o2) {
+            return Long.compare(o1.getValue().getStart(), o2.getValue().getStart());
+        }
+    };
+
     private Map<String, Map<String, List<IndexElement>>> scannedIdMappings;
 
     private Inputs inputs = null;
@@ -37,14 +46,28 @@ public class MzIdentMLUnmarshallerAdaptor extends MzIdentMLUnmarshaller {
 
     public MzIdentMLUnmarshallerAdaptor(File mzIdentMLFile, boolean inMemory) throws ConfigurationException {
         super(mzIdentMLFile, inMemory);
-        scanIdMappings();
-
     }
 
     public MzIdentMLUnmarshallerAdaptor(File mzIdentMLFile, boolean inMemory, boolean avoidProteinInference) throws ConfigurationException{
        super(mzIdentMLFile, inMemory);
        this.avoidProteinInference = avoidProteinInference;
-       scanIdMappings();
+    }
+
+    /**
+     * The id mappings are only needed to build the cache, they are scanned on first use,
+     * so that they are not computed when the cache is restored from a CacheIndexFile.
+     * The cache can be built by several threads, so the mappings are scanned only once.
+     */
+    private synchronized Map<String, Map<String, List<IndexElement>>> getScannedIdMappings() {
+        if (scannedIdMappings == null) {
+            try {
+                scanIdMappings();
+            } catch (ConfigurationException e) {
+                scannedIdMappings = null;
+                throw new DataAccessException("Failed to scan the id mappings of the mzIdentML file", e);
+            }
+        }
+        return scannedIdMappings;
     }
 
     private void scanIdMappings() throws ConfigurationException {
@@ -67,56 +90,107 @@ public class MzIdentMLUnmarshallerAdaptor extends MzIdentMLUnmarshaller {
 
     }
 
+    /**
+     * Assign every SpectrumIdentificationItem to the SpectrumIdentificationResult containing it, and every
+     * PeptideEvidenceRef to the SpectrumIdentificationItem containing it. The index elements are sorted by
+     * their offset in the file and joined in a single sweep, see findParentIndexElements.
+     */
     private void scanForIdMappings(Map<String, IndexElement> spectrumIdentResultIdToIndexElements,
                                    Map<String, IndexElement> spectrumIdentItemIdToIndexElements,
                                    List<IndexElement> peptideEvidenceRefIndexElements,
                                    boolean proteinGroupPresent) {
 
+        List<Map.Entry<String, IndexElement>> spectrumIdentResults = sortByOffset(spectrumIdentResultIdToIndexElements);
+        List<Map.Entry<String, IndexElement>> spectrumIdentItems = sortByOffset(spectrumIdentItemIdToIndexElements);
+        long[] spectrumIdentItemStarts = getOffsets(spectrumIdentItems, true);
+        long[] spectrumIdentItemStops = getOffsets(spectrumIdentItems, false);
 
-        for (String spectrumIdentResultId : spectrumIdentResultIdToIndexElements.keySet()) {
-            IndexElement spectrumIdentResultIndexElement = spectrumIdentResultIdToIndexElements.get(spectrumIdentResultId);
+        int[] spectrumIdentResultOfItem = findParentIndexElements(getOffsets(spectrumIdentResults, true), getOffsets(spectrumIdentResults, false),
+                spectrumIdentItemStarts, spectrumIdentItemStops);
 
-            Iterator<Map.Entry<String, IndexElement>> spectrumIdentItemElementEntryIterator = spectrumIdentItemIdToIndexElements.entrySet().iterator();
-            while (spectrumIdentItemElementEntryIterator.hasNext()) {
-                Map.Entry<String, IndexElement> spectrumIdentItemElementEntry = spectrumIdentItemElementEntryIterator.next();
-                String spectrumIdentItemId = spectrumIdentItemElementEntry.getKey();
-                IndexElement spectrumIdentItemIndexElement = spectrumIdentItemElementEntry.getValue();
-                if (isParentIndexElement(spectrumIdentResultIndexElement, spectrumIdentItemIndexElement)) {
-                    Map<String, List<IndexElement>> spectrumIdentItemWithin = scannedIdMappings.get(spectrumIdentResultId);
-                    if (spectrumIdentItemWithin == null) {
-                        spectrumIdentItemWithin = new HashMap<String, List<IndexElement>>();
-                        scannedIdMappings.put(spectrumIdentResultId, spectrumIdentItemWithin);
-                    }
+        // peptide evidence references of each spectrum identification item, in the order of the file
+        List<List<IndexElement>> peptideEvidenceRefsOfItem = null;
+        if (!proteinGroupPresent) {
+            peptideEvidenceRefsOfItem = new ArrayList<List<IndexElement>>(spectrumIdentItems.size());
+            for (int i = 0; i < spectrumIdentItems.size(); i++) {
+                peptideEvidenceRefsOfItem.add(new ArrayList<IndexElement>(2));
+            }
 
-                    if (proteinGroupPresent) {
-                        spectrumIdentItemWithin.put(spectrumIdentItemId, null);
-                    } else {
-                        spectrumIdentItemWithin.put(spectrumIdentItemId, findPeptideEvidenceRefIndexElements(spectrumIdentItemIndexElement, peptideEvidenceRefIndexElements));
-                    }
+            if (peptideEvidenceRefIndexElements != null && !peptideEvidenceRefIndexElements.isEmpty()) {
+                List<Map.Entry<String, IndexElement>> peptideEvidenceRefs = new ArrayList<Map.Entry<String, IndexElement>>(peptideEvidenceRefIndexElements.size());
+                for (IndexElement peptideEvidenceRefIndexElement : peptideEvidenceRefIndexElements) {
+                    peptideEvidenceRefs.add(new AbstractMap.SimpleImmutableEntry<String, IndexElement>(null, peptideEvidenceRefIndexElement));
+                }
+                Collections.sort(peptideEvidenceRefs, OFFSET_COMPARATOR);
 
-                    spectrumIdentItemElementEntryIterator.remove();
+                int[] itemOfPeptideEvidenceRef = findParentIndexElements(spectrumIdentItemStarts, spectrumIdentItemStops,
+                        getOffsets(peptideEvidenceRefs, true), getOffsets(peptideEvidenceRefs, false));
+                for (int i = 0; i < itemOfPeptideEvidenceRef.length; i++) {
+                    if (itemOfPeptideEvidenceRef[i] >= 0) {
+                        peptideEvidenceRefsOfItem.get(itemOfPeptideEvidenceRef[i]).add(peptideEvidenceRefs.get(i).getValue());
+                    }
                 }
             }
         }
-    }
 
-    private List<IndexElement> findPeptideEvidenceRefIndexElements(IndexElement spectrumIdentItemIndexElement, List<IndexElement> peptideEvidenceRefIndexElements) {
-        List<IndexElement> peptideEvidenceRefIndexElementsFound = new ArrayList<IndexElement>();
+        for (int i = 0; i < spectrumIdentResultOfItem.length; i++) {
+            if (spectrumIdentResultOfItem[i] < 0) {
+                continue;
+            }
 
-        Iterator<IndexElement> peptideEvidenceRefIndexElementIterator = peptideEvidenceRefIndexElements.iterator();
-        while (peptideEvidenceRefIndexElementIterator.hasNext()) {
-            IndexElement peptideEvidenceRefIndexElement = peptideEvidenceRefIndexElementIterator.next();
-            if (isParentIndexElement(spectrumIdentItemIndexElement, peptideEvidenceRefIndexElement)) {
-                peptideEvidenceRefIndexElementsFound.add(peptideEvidenceRefIndexElement);
-                peptideEvidenceRefIndexElementIterator.remove();
+            String spectrumIdentResultId = spectrumIdentResults.get(spectrumIdentResultOfItem[i]).getKey();
+            Map<String, List<IndexElement>> spectrumIdentItemWithin = scannedIdMappings.get(spectrumIdentResultId);
+            if (spectrumIdentItemWithin == null) {
+                spectrumIdentItemWithin = new HashMap<String, List<IndexElement>>();
+                scannedIdMappings.put(spectrumIdentResultId, spectrumIdentItemWithin);
             }
+
+            spectrumIdentItemWithin.put(spectrumIdentItems.get(i).getKey(), proteinGroupPresent ? null : peptideEvidenceRefsOfItem.get(i));
         }
+    }
+
+    private static List<Map.Entry<String, IndexElement>> sortByOffset(Map<String, IndexElement> idToIndexElements) {
+        List<Map.Entry<String, IndexElement>> indexElements = new ArrayList<Map.Entry<String, IndexElement>>(idToIndexElements.entrySet());
+        Collections.sort(indexElements, OFFSET_COMPARATOR);
+        return indexElements;
+    }
 
-        return peptideEvidenceRefIndexElementsFound;
+    private static long[] getOffsets(List<Map.Entry<String, IndexElement>> indexElements, boolean start) {
+        long[] offsets = new long[indexElements.size()];
+        for (int i = 0; i < offsets.length; i++) {
+            IndexElement indexElement = indexElements.get(i).getValue();
+            offsets[i] = start ? indexElement.getStart() : indexElement.getStop();
+        }
+        return offsets;
     }
 
-    private boolean isParentIndexElement(IndexElement parent, IndexElement child) {
-        return parent.getStart() <= child.getStart() && parent.getStop() >= child.getStop();
+    /**
+     * Containment join of two lists of intervals, e.g. the byte ranges of XML elements. Both lists must be
+     * sorted by their start offset, and the parent intervals must not overlap each other, which is the case
+     * for sibling XML elements. Every interval is visited once, the join is linear after sorting.
+     *
+     * @param parentStarts start offsets of the parents, in ascending order
+     * @param parentStops  stop offsets of the parents
+     * @param childStarts  start offsets of the children, in ascending order
+     * @param childStops   stop offsets of the children
+     * @return int[] index of the parent containing each child, -1 if the child is not contained in any parent
+     */
+    static int[] findParentIndexElements(long[] parentStarts, long[] parentStops, long[] childStarts, long[] childStops) {
+        int[] parents = new int[childStarts.length];
+        int parent = 0;
+        for (int child = 0; child < childStarts.length; child++) {
+            // the parents ending before this child can not contain any of the next children
+            while (parent < parentStarts.length && parentStops[parent] < childStarts[child]) {
+                parent++;
+            }
+
+            if (parent < parentStarts.length && parentStarts[parent] <= childStarts[child] && parentStops[parent] >= childStops[child]) {
+                parents[child] = parent;
+            } else {
+                parents[child] = -1;
+            }
+        }
+        return parents;
     }
 
     public List<Sample> getSampleList() {
@@ -265,7 +339,7 @@ public class MzIdentMLUnmarshallerAdaptor extends MzIdentMLUnmarshaller {
     }
 
     public Set<String> getSpectrumIdentificationItemIds(String spectrumIdentResultId) throws JAXBException {
-        Map<String, List<IndexElement>> elementsWithSpectrumIdentResult = scannedIdMappings.get(spectrumIdentResultId);
+        Map<String, List<IndexElement>> elementsWithSpectrumIdentResult = getScannedIdMappings().get(spectrumIdentResultId);
 
         if (elementsWithSpectrumIdentResult != null) {
             return new LinkedHashSet<String>(elementsWithSpectrumIdentResult.keySet());
@@ -275,7 +349,7 @@ public class MzIdentMLUnmarshallerAdaptor extends MzIdentMLUnmarshaller {
     }
 
     public Set<String> getPeptideEvidenceReferences(String spectrumIdentResultId, String spectrumIdentItemId) {
-        Map<String, List<IndexElement>> elementsWithSpectrumIdentResult = scannedIdMappings.get(spectrumIdentResultId);
+        Map<String, List<IndexElement>> elementsWithSpectrumIdentResult = getScannedIdMappings().get(spectrumIdentResultId);
 
         if (elementsWithSpectrumIdentResult != null) {
             List<IndexElement> peptideEvidenceRefIndexElements = elementsWithSpectrumIdentResult.get(spectrumIdentItemId);
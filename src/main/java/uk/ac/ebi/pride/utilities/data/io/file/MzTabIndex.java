@@ -0,0 +1,418 @@
+package uk.ac.ebi.pride.utilities.data.io.file;
+
+import uk.ac.ebi.pride.jmztab.model.*;
+import uk.ac.ebi.pride.jmztab.utils.errors.MZTabErrorList;
+import uk.ac.ebi.pride.jmztab.utils.errors.MZTabException;
+import uk.ac.ebi.pride.jmztab.utils.parser.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * MzTabIndex is an indexed, streaming view of an mzTab file.
+ * <p/>
+ * The file is read once through memory-mapped segments: the metadata section and the protein, peptide and
+ * PSM header lines are parsed, while for each PRT, PEP and PSM line only its line number and byte offset are
+ * recorded in primitive arrays. A row is read from the mapped file and parsed when it is requested, so only
+ * the metadata stays on the heap and a lookup by line number costs a binary search and a seek.
+ * <p/>
+ * The rows are exposed as read only maps from line number to record, in file order, the same maps MZTabFile
+ * returns from getProteinsWithLineNumber, getPeptidesWithLineNumber and getPSMsWithLineNumber. The rows read
+ * by get are kept in a bounded LRU cache per section, so the records returned can be shared and must not be
+ * modified. Iterating over a section parses the rows which are not cached without adding them to the cache.
+ * <p/>
+ * Each thread parses with its own row parsers, so the rows can be read from several threads at a time.
+ * <p/>
+ * @author Yasset Perez-Riverol
+ * @author Rui Wang
+ */
+public class MzTabIndex {
+
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    /**
+     * Maximum number of parsed rows kept per section
+     */
+    private static final int ROW_CACHE_SIZE = 4096;
+
+    private static final String MTD_PREFIX = "MTD";
+    private static final String PRH_PREFIX = "PRH";
+    private static final String PRT_PREFIX = "PRT";
+    private static final String PEH_PREFIX = "PEH";
+    private static final String PEP_PREFIX = "PEP";
+    private static final String PSH_PREFIX = "PSH";
+    private static final String PSM_PREFIX = "PSM";
+
+    private final MappedByteBuffer[] segments;
+
+    private final long fileSize;
+
+    /**
+     * errors of the metadata and the header lines, the rows are parsed when they are read and each parse
+     * uses its own error list, so this list does not grow while the rows are read
+     */
+    private final MZTabErrorList errorList = new MZTabErrorList();
+
+    /**
+     * mzTab file with the metadata and the column factories, without rows
+     */
+    private MZTabFile mzTabFile;
+
+    /**
+     * the row parsers keep the state of the current line, so each thread has its own
+     */
+    private ThreadLocal<PRTLineParser> prtParser;
+
+    private ThreadLocal<PEPLineParser> pepParser;
+
+    private ThreadLocal<PSMLineParser> psmParser;
+
+    private final RowMap<Protein> proteins = new RowMap<Protein>() {
+        @Override
+        Protein parse(int lineNumber, String line) throws MZTabException {
+            PRTLineParser parser = prtParser.get();
+            parser.parse(lineNumber, line, new MZTabErrorList());
+            return parser.getRecord();
+        }
+    };
+
+    private final RowMap<Peptide> peptides = new RowMap<Peptide>() {
+        @Override
+        Peptide parse(int lineNumber, String line) throws MZTabException {
+            PEPLineParser parser = pepParser.get();
+            parser.parse(lineNumber, line, new MZTabErrorList());
+            return parser.getRecord();
+        }
+    };
+
+    private final RowMap<PSM> psms = new RowMap<PSM>() {
+        @Override
+        PSM parse(int lineNumber, String line) throws MZTabException {
+            PSMLineParser parser = psmParser.get();
+            parser.parse(lineNumber, line, new MZTabErrorList());
+            return parser.getRecord();
+        }
+    };
+
+    private MzTabIndex(MappedByteBuffer[] segments, long fileSize) {
+        this.segments = segments;
+        this.fileSize = fileSize;
+    }
+
+    /**
+     * Index an mzTab file
+     *
+     * @param file mzTab file
+     * @return MzTabIndex  index of the file
+     * @throws IOException if the file cannot be read or its metadata or headers are not valid
+     */
+    public static MzTabIndex index(File file) throws IOException {
+        MzTabIndex index;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((fileSize + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = i * SEGMENT_SIZE;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, fileSize - start));
+            }
+            index = new MzTabIndex(segments, fileSize);
+        }
+
+        try {
+            index.scan();
+        } catch (MZTabException e) {
+            throw new IOException("The following errors occurred while parsing mzTab file '" + file.getName() + "'\n" + e.getMessage(), e);
+        }
+        return index;
+    }
+
+    /**
+     * @return MZTabFile  mzTab file with the metadata and the column factories, the rows are not loaded
+     */
+    public MZTabFile getMZTabFile() {
+        return mzTabFile;
+    }
+
+    public Metadata getMetadata() {
+        return mzTabFile.getMetadata();
+    }
+
+    /**
+     * @return MZTabErrorList  errors found in the metadata and the header lines
+     */
+    public MZTabErrorList getErrorList() {
+        return errorList;
+    }
+
+    /**
+     * @return Map<Integer, Protein>   proteins by line number, parsed when they are read
+     */
+    public Map<Integer, Protein> getProteins() {
+        return proteins;
+    }
+
+    /**
+     * @return Map<Integer, Peptide>   peptides by line number, parsed when they are read
+     */
+    public Map<Integer, Peptide> getPeptides() {
+        return peptides;
+    }
+
+    /**
+     * @return Map<Integer, PSM>   PSMs by line number, parsed when they are read
+     */
+    public Map<Integer, PSM> getPSMs() {
+        return psms;
+    }
+
+    /**
+     * Single pass over the file: parse the metadata and headers, and record the offsets of the rows
+     */
+    private void scan() throws MZTabException, IOException {
+        MTDLineParser mtdParser = new MTDLineParser();
+        String proteinHeader = null;
+        String peptideHeader = null;
+        String psmHeader = null;
+        int proteinHeaderLine = 0;
+        int peptideHeaderLine = 0;
+        int psmHeaderLine = 0;
+
+        int lineNumber = 0;
+        long lineStart = 0;
+        while (lineStart < fileSize) {
+            lineNumber++;
+            long lineEnd = findLineEnd(lineStart);
+            String prefix = lineEnd - lineStart >= 3 ? readString(lineStart, lineStart + 3) : "";
+
+            if (PRT_PREFIX.equals(prefix)) {
+                proteins.add(lineNumber, lineStart);
+            } else if (PEP_PREFIX.equals(prefix)) {
+                peptides.add(lineNumber, lineStart);
+            } else if (PSM_PREFIX.equals(prefix)) {
+                psms.add(lineNumber, lineStart);
+            } else if (MTD_PREFIX.equals(prefix)) {
+                mtdParser.parse(lineNumber, readString(lineStart, lineEnd), errorList);
+            } else if (PRH_PREFIX.equals(prefix)) {
+                proteinHeader = readString(lineStart, lineEnd);
+                proteinHeaderLine = lineNumber;
+            } else if (PEH_PREFIX.equals(prefix)) {
+                peptideHeader = readString(lineStart, lineEnd);
+                peptideHeaderLine = lineNumber;
+            } else if (PSH_PREFIX.equals(prefix)) {
+                psmHeader = readString(lineStart, lineEnd);
+                psmHeaderLine = lineNumber;
+            }
+
+            lineStart = lineEnd + 1;
+        }
+
+        mtdParser.refineNormalMetadata();
+        final Metadata metadata = mtdParser.getMetadata();
+        mzTabFile = new MZTabFile(metadata);
+
+        if (proteinHeader != null) {
+            PRHLineParser prhParser = new PRHLineParser(metadata);
+            prhParser.parse(proteinHeaderLine, proteinHeader, errorList);
+            final MZTabColumnFactory factory = prhParser.getFactory();
+            final String header = proteinHeader;
+            mzTabFile.setProteinColumnFactory(factory);
+            prtParser = ThreadLocal.withInitial(() -> new PRTLineParser(factory, new PositionMapping(factory, header), metadata, new MZTabErrorList()));
+            prtParser.get();
+        } else if (!proteins.isEmpty()) {
+            throw new IOException("Protein rows found without protein header line");
+        }
+
+        if (peptideHeader != null) {
+            PEHLineParser pehParser = new PEHLineParser(metadata);
+            pehParser.parse(peptideHeaderLine, peptideHeader, errorList);
+            final MZTabColumnFactory factory = pehParser.getFactory();
+            final String header = peptideHeader;
+            mzTabFile.setPeptideColumnFactory(factory);
+            pepParser = ThreadLocal.withInitial(() -> new PEPLineParser(factory, new PositionMapping(factory, header), metadata, new MZTabErrorList()));
+            pepParser.get();
+        } else if (!peptides.isEmpty()) {
+            throw new IOException("Peptide rows found without peptide header line");
+        }
+
+        if (psmHeader != null) {
+            PSHLineParser pshParser = new PSHLineParser(metadata);
+            pshParser.parse(psmHeaderLine, psmHeader, errorList);
+            final MZTabColumnFactory factory = pshParser.getFactory();
+            final String header = psmHeader;
+            mzTabFile.setPSMColumnFactory(factory);
+            psmParser = ThreadLocal.withInitial(() -> new PSMLineParser(factory, new PositionMapping(factory, header), metadata, new MZTabErrorList()));
+            psmParser.get();
+        } else if (!psms.isEmpty()) {
+            throw new IOException("PSM rows found without PSM header line");
+        }
+    }
+
+    /**
+     * @return long offset of the end of line character, or the file size for the last line
+     */
+    private long findLineEnd(long start) {
+        int segment = (int) (start / SEGMENT_SIZE);
+        int position = (int) (start % SEGMENT_SIZE);
+        for (; segment < segments.length; segment++, position = 0) {
+            MappedByteBuffer buffer = segments[segment];
+            int limit = buffer.limit();
+            for (; position < limit; position++) {
+                if (buffer.get(position) == '\n') {
+                    return segment * SEGMENT_SIZE + position;
+                }
+            }
+        }
+        return fileSize;
+    }
+
+    private String readString(long start, long end) {
+        if (end > start && getByte(end - 1) == '\r') {
+            end--;
+        }
+        byte[] bytes = new byte[(int) (end - start)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = getByte(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private byte getByte(long position) {
+        return segments[(int) (position / SEGMENT_SIZE)].get((int) (position % SEGMENT_SIZE));
+    }
+
+    /**
+     * Rows of a section, the line number and offset of each row are kept in primitive arrays sorted by line number
+     */
+    private abstract class RowMap<T> extends AbstractMap<Integer, T> {
+
+        private int[] lineNumbers = new int[1024];
+
+        private long[] offsets = new long[1024];
+
+        private int size;
+
+        private Set<Entry<Integer, T>> entrySet;
+
+        /**
+         * parsed rows by row index, in access order, guarded by itself
+         */
+        private final Map<Integer, T> cache = new LinkedHashMap<Integer, T>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, T> eldest) {
+                return size() > ROW_CACHE_SIZE;
+            }
+        };
+
+        abstract T parse(int lineNumber, String line) throws MZTabException;
+
+        private void add(int lineNumber, long offset) {
+            if (size == lineNumbers.length) {
+                lineNumbers = Arrays.copyOf(lineNumbers, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            lineNumbers[size] = lineNumber;
+            offsets[size] = offset;
+            size++;
+        }
+
+        /**
+         * @param index row index
+         * @param keep  true to add the row to the cache when it is parsed
+         * @return T    parsed row
+         */
+        private T read(int index, boolean keep) {
+            T row;
+            synchronized (cache) {
+                row = cache.get(index);
+            }
+            if (row != null) {
+                return row;
+            }
+
+            long start = offsets[index];
+            String line = readString(start, findLineEnd(start));
+            try {
+                row = parse(lineNumbers[index], line);
+            } catch (MZTabException e) {
+                throw new IllegalStateException("Failed to parse mzTab line " + lineNumbers[index], e);
+            }
+
+            if (keep) {
+                synchronized (cache) {
+                    cache.put(index, row);
+                }
+            }
+            return row;
+        }
+
+        private int indexOf(Object lineNumber) {
+            if (!(lineNumber instanceof Integer)) {
+                return -1;
+            }
+            int index = Arrays.binarySearch(lineNumbers, 0, size, (Integer) lineNumber);
+            return index < 0 ? -1 : index;
+        }
+
+        @Override
+        public T get(Object lineNumber) {
+            int index = indexOf(lineNumber);
+            return index < 0 ? null : read(index, true);
+        }
+
+        @Override
+        public boolean containsKey(Object lineNumber) {
+            return indexOf(lineNumber) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Set<Entry<Integer, T>> entrySet() {
+            if (entrySet == null) {
+                entrySet = new AbstractSet<Entry<Integer, T>>() {
+                    @Override
+                    public Iterator<Entry<Integer, T>> iterator() {
+                        return new Iterator<Entry<Integer, T>>() {
+
+                            private int next;
+
+                            @Override
+                            public boolean hasNext() {
+                                return next < size;
+                            }
+
+                            @Override
+                            public Entry<Integer, T> next() {
+                                if (next >= size) {
+                                    throw new NoSuchElementException();
+                                }
+                                Entry<Integer, T> entry = new SimpleImmutableEntry<Integer, T>(lineNumbers[next], read(next, false));
+                                next++;
+                                return entry;
+                            }
+
+                            @Override
+                            public void remove() {
+                                throw new UnsupportedOperationException("mzTab rows are read only");
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return size;
+                    }
+                };
+            }
+            return entrySet;
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package uk.ac.ebi.pride.utilities.data.io.file;
 
+import uk.ac.ebi.pride.utilities.data.utils.AccessionIndex;
 import uk.ac.ebi.pride.utilities.data.utils.MzTabUtils;
 import uk.ac.ebi.pride.jmztab.model.*;
 import uk.ac.ebi.pride.jmztab.utils.MZTabFileParser;
+import uk.ac.ebi.pride.jmztab.utils.errors.MZTabErrorList;
 import uk.ac.ebi.pride.utilities.term.QuantCvTermReference;
 import uk.ac.ebi.pride.utilities.util.NumberUtilities;
 import uk.ac.ebi.pride.utilities.util.Tuple;
@@ -15,10 +17,15 @@ import java.util.*;
 
 /**
  * Unmarshaller an MZTab file
+ * <p/>
+ * By default the whole file is parsed into memory with MZTabFileParser. In indexed mode the file is read
+ * through an MzTabIndex instead: only the metadata is kept in memory and the proteins, peptides and PSMs
+ * are parsed from the file when they are requested.
+ *
  * @author Yasset Perez-Riverol
  * @author Rui Wang
  */
-public class MzTabUnmarshallerAdaptor extends MZTabFileParser{
+public class MzTabUnmarshallerAdaptor {
 
     //Todo: mzTab do not have a way to retrieve for each Protein the PSM of peptides
 
@@ -28,13 +35,83 @@ public class MzTabUnmarshallerAdaptor extends MZTabFileParser{
     private int numIdentifiedPeptides;
     private Map<Integer, Peptide> peptides;
 
+    private final MZTabFile mzTabFile;
+
+    private final MZTabErrorList errorList;
+
+    /**
+     * index of the rows, null if the whole file is in memory
+     */
+    private final MzTabIndex index;
+
+    /**
+     * accession of each protein by line number, in file order, read once when the file is opened
+     */
+    private final Map<Integer, String> proteinAccessions;
+
+    /**
+     * PSM ids of each ms run, read once when the file is opened
+     */
+    private final Map<Integer, List<String>> psmToMsRunMap;
+
     public MzTabUnmarshallerAdaptor(File tabFile, OutputStream out) throws IOException {
-        super(tabFile, out);
-        if (getMZTabFile() == null) {
-            String errorMsgs = "";
-            throw new IOException("The following errors occurred while parsing mzTab file '" + tabFile.getName() + "'\n" + getErrorList().toString());
+        this(tabFile, out, false);
+    }
+
+    /**
+     * @param tabFile mzTab file
+     * @param out     output for the errors of the parser, only used when the file is parsed into memory
+     * @param indexed true to index the file and read the rows on demand
+     * @throws IOException if the file or its metadata can not be read
+     */
+    public MzTabUnmarshallerAdaptor(File tabFile, OutputStream out, boolean indexed) throws IOException {
+        if (indexed) {
+            index = MzTabIndex.index(tabFile);
+            mzTabFile = index.getMZTabFile();
+            errorList = index.getErrorList();
+        } else {
+            MZTabFileParser parser = new MZTabFileParser(tabFile, out);
+            if (parser.getMZTabFile() == null) {
+                throw new IOException("The following errors occurred while parsing mzTab file '" + tabFile.getName() + "'\n" + parser.getErrorList().toString());
+            }
+            index = null;
+            mzTabFile = parser.getMZTabFile();
+            errorList = parser.getErrorList();
         }
         proteinPSMMap = new HashMap<Comparable, List<Comparable>>();
+
+        proteinAccessions = new LinkedHashMap<Integer, String>();
+        for (Map.Entry<Integer, Protein> proteinEntry : proteins().entrySet()) {
+            proteinAccessions.put(proteinEntry.getKey(), proteinEntry.getValue().getAccession());
+        }
+        psmToMsRunMap = readPSMtoMsRunMap();
+    }
+
+    /**
+     * @return MZTabFile  the parsed mzTab file, in indexed mode it only contains the metadata and the column factories
+     */
+    public MZTabFile getMZTabFile() {
+        return mzTabFile;
+    }
+
+    public MZTabErrorList getErrorList() {
+        return errorList;
+    }
+
+    public boolean isIndexed() {
+        return index != null;
+    }
+
+    private Map<Integer, Protein> proteins() {
+        return index == null ? mzTabFile.getProteinsWithLineNumber() : index.getProteins();
+    }
+
+    private Map<Integer, Peptide> peptides() {
+        return index == null ? mzTabFile.getPeptidesWithLineNumber() : index.getPeptides();
+    }
+
+    private Map<Integer, PSM> psms() {
+        return index == null ? mzTabFile.getPSMsWithLineNumber() : index.getPSMs();
     }
 
     public Map<Integer,MsRun> getSourceFiles(){
@@ -112,9 +189,16 @@ public class MzTabUnmarshallerAdaptor extends MZTabFileParser{
         return getMZTabFile().getMetadata().getMsRunMap();
     }
 
+    /**
+     * @return Map<Integer, List<String>>  PSM ids of each ms run, read once when the file is opened
+     */
     public Map<Integer, List<String>> getPSMtoMsRunMap() {
+        return psmToMsRunMap;
+    }
+
+    private Map<Integer, List<String>> readPSMtoMsRunMap() {
         Map<Integer, List<String>> psmIds = new HashMap<Integer, List<String>>();
-        Iterator<PSM> psmIterator = getMZTabFile().getPSMs().iterator();
+        Iterator<PSM> psmIterator = psms().values().iterator();
         while(psmIterator.hasNext()){
             PSM psm = psmIterator.next();
             SplitList<SpectraRef> refs = psm.getSpectraRef();
@@ -133,7 +217,7 @@ public class MzTabUnmarshallerAdaptor extends MZTabFileParser{
     }
 
     public Map<Integer, PSM> getPSMs() {
-        return getMZTabFile().getPSMsWithLineNumber();
+        return psms();
     }
     //Todo: The concept of ambiguity members in mzTab is more simple that the concept of mzIdentML for that reason the
     //Todo: present version of ms-data-core-api do not handle this concept as ProteinAmbiguity
@@ -143,15 +227,21 @@ public class MzTabUnmarshallerAdaptor extends MZTabFileParser{
     }
 
     public List<String> getProteinGroupIds() {
-        List<String> accessions = new ArrayList<String>();
-        Collection<Protein> proteins = getMZTabFile().getProteins();
-        for(Protein protein: proteins)
-          accessions.add(protein.getAccession());
-        return accessions;
+        return new ArrayList<String>(proteinAccessions.values());
     }
 
+    /**
+     * @return Map<Integer, Protein>   proteins by line number, in indexed mode the rows are parsed when they are read
+     */
     public Map<Integer, Protein> getAllProteins(){
-        return getMZTabFile().getProteinsWithLineNumber();
+        return proteins();
+    }
+
+    /**
+     * @return Map<Integer, String>   accession of each protein by line number, in file order, without parsing the rows again
+     */
+    public Map<Integer, String> getProteinAccessions() {
+        return Collections.unmodifiableMap(proteinAccessions);
     }
 
     /**
@@ -166,36 +256,19 @@ public class MzTabUnmarshallerAdaptor extends MZTabFileParser{
 
         Map<String, List<String>> proteinPeptideIds = new HashMap<String, List<String>>();
 
-        Map<Integer, Protein> proteinMap = getMZTabFile().getProteinsWithLineNumber();
-
-        for(Map.Entry proteinEntry: proteinMap.entrySet()){
-            String proteinId = proteinEntry.getKey().toString();
-            Protein protein   = (Protein) proteinEntry.getValue();
-
-            for(Map.Entry psmEntry: getMZTabFile().getPSMsWithLineNumber().entrySet()){
-                Integer psmId = (Integer) psmEntry.getKey();
-                PSM psm       = (PSM) psmEntry.getValue();
-                List<String> psmIds = new ArrayList<String>();
-                if(psm.getAccession().equalsIgnoreCase(protein.getAccession())){
-                    if(proteinPSMsIds.containsKey(proteinId))
-                        psmIds = proteinPSMsIds.get(proteinId);
-                    psmIds.add(psmId.toString());
-                    proteinPSMsIds.put(proteinId,psmIds);
-                }
-            }
-            for(Map.Entry psmEntry: getMZTabFile().getPeptidesWithLineNumber().entrySet()){
-                Integer psmId = (Integer) psmEntry.getKey();
-                Peptide psm       = (Peptide) psmEntry.getValue();
-                List<String> psmIds = new ArrayList<String>();
-                if(psm.getAccession().equalsIgnoreCase(protein.getAccession())){
-                    if(proteinPeptideIds.containsKey(proteinId))
-                        psmIds = proteinPeptideIds.get(proteinId);
-                    psmIds.add(psmId.toString());
-                    proteinPeptideIds.put(proteinId,psmIds);
-                }
-            }
+        // index the proteins by accession, then join the PSMs and peptides to the index
+        AccessionIndex proteinIndex = new AccessionIndex(proteinAccessions.size());
+        for(Map.Entry<Integer, String> proteinEntry: proteinAccessions.entrySet()){
+            proteinIndex.add(proteinEntry.getValue(), proteinEntry.getKey().toString());
+        }
 
+        for(Map.Entry<Integer, PSM> psmEntry: psms().entrySet()){
+            proteinIndex.join(psmEntry.getValue().getAccession(), psmEntry.getKey().toString(), proteinPSMsIds);
+        }
+        for(Map.Entry<Integer, Peptide> peptideEntry: peptides().entrySet()){
+            proteinIndex.join(peptideEntry.getValue().getAccession(), peptideEntry.getKey().toString(), proteinPeptideIds);
         }
+
         return new Tuple<Map<String, List<String>>, Map<String, List<String>>>(proteinPeptideIds, proteinPSMsIds);
     }
 
@@ -205,7 +278,7 @@ public class MzTabUnmarshallerAdaptor extends MZTabFileParser{
 
     public Set<Tuple<String, String>> getDatabases() {
         Set<Tuple<String, String>> databases = new HashSet<Tuple<String, String>>();
-        Iterator<Protein> proteinIterator = getMZTabFile().getProteinsWithLineNumber().values().iterator();
+        Iterator<Protein> proteinIterator = proteins().values().iterator();
         int countLoop = 0;
         Integer NUMBER_PROTEIN_LOOP = 10;
         while(proteinIterator.hasNext() && countLoop < NUMBER_PROTEIN_LOOP){
@@ -230,7 +303,7 @@ public class MzTabUnmarshallerAdaptor extends MZTabFileParser{
      */
     public Tuple<Integer, Protein> getProteinById(Comparable proteinId) {
         if(proteinId != null && NumberUtilities.isInteger(proteinId.toString()))
-            return new Tuple<Integer, Protein>(Integer.parseInt(proteinId.toString()), getMZTabFile().getProteinsWithLineNumber().get(Integer.parseInt(proteinId.toString())));
+            return new Tuple<Integer, Protein>(Integer.parseInt(proteinId.toString()), proteins().get(Integer.parseInt(proteinId.toString())));
         return null;
     }
 
@@ -239,7 +312,7 @@ public class MzTabUnmarshallerAdaptor extends MZTabFileParser{
         for(Comparable id: spectrumIdentIds){
            String idTofind = (id.toString().split("!").length > 0)? id.toString().split("!")[0]: (String) id;
            if(idTofind != null && NumberUtilities.isInteger(idTofind)){
-               PSM psm = getMZTabFile().getPSMsWithLineNumber().get(Integer.parseInt(idTofind));
+               PSM psm = psms().get(Integer.parseInt(idTofind));
                if(psm != null)
                    psmList.put(id.toString(), psm);
            }
@@ -252,7 +325,7 @@ public class MzTabUnmarshallerAdaptor extends MZTabFileParser{
     }
 
     public int getNumIdentifiedPeptides() {
-        return getMZTabFile().getPSMsWithLineNumber().size();
+        return psms().size();
     }
 
     public boolean hasQuantitationData() {
@@ -264,7 +337,7 @@ public class MzTabUnmarshallerAdaptor extends MZTabFileParser{
     }
 
     public Map<Integer, Peptide> getPeptides() {
-        return getMZTabFile().getPeptidesWithLineNumber();
+        return peptides();
     }
 
 
@@ -273,7 +346,7 @@ public class MzTabUnmarshallerAdaptor extends MZTabFileParser{
         for(Comparable id: peptideIds){
             String idToFind = (id.toString().split("!").length > 0)? id.toString().split("!")[0]: (String) id;
             if(idToFind != null && NumberUtilities.isInteger(idToFind)){
-                Peptide peptide = getMZTabFile().getPeptidesWithLineNumber().get(Integer.parseInt(idToFind));
+                Peptide peptide = peptides().get(Integer.parseInt(idToFind));
                 if(peptide != null)
                     peptides.put(id.toString(), peptide);
             }
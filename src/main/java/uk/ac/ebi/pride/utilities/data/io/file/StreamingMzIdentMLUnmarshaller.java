@@ -0,0 +1,321 @@
+package uk.ac.ebi.pride.utilities.data.io.file;
+
+import lombok.extern.slf4j.Slf4j;
+import uk.ac.ebi.pride.utilities.data.lightModel.AbstractParam;
+import uk.ac.ebi.pride.utilities.data.lightModel.Cv;
+import uk.ac.ebi.pride.utilities.data.lightModel.CvParam;
+import uk.ac.ebi.pride.utilities.data.lightModel.Peptide;
+import uk.ac.ebi.pride.utilities.data.lightModel.SpectraData;
+import uk.ac.ebi.pride.utilities.data.lightModel.SpectrumIdentificationItem;
+import uk.ac.ebi.pride.utilities.data.lightModel.SpectrumIdentificationResult;
+import uk.ac.ebi.pride.utilities.data.lightModel.UserParam;
+import uk.ac.ebi.pride.utilities.data.utils.Constants;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * This class reads mzIdentML files with a StAX parser, without loading the whole document in memory,
+ * unlike FastMzIdentMLUnmarshaller. The heap usage does not depend on the number of PSMs in the file.
+ *
+ * <p>When it is created, the file is read up to the AnalysisData element: the CvList, the SpectraData
+ * and the Peptides are unmarshalled into lightModel objects, the PeptideEvidences are kept as a compact
+ * map to their Peptide id and the DBSequences are skipped. The SpectrumIdentificationResults are then
+ * streamed one at a time by {@link #readSpectrumIdentificationResults}, with their SpectrumIdentificationItems.
+ *
+ * @author Suresh Hewapathirana
+ */
+@Slf4j
+public class StreamingMzIdentMLUnmarshaller {
+
+  /**
+   * Receives the SpectrumIdentificationResults in the order of the file, a result must not be
+   * retained by the handler unless it is needed afterwards.
+   */
+  public interface SpectrumIdentificationResultHandler {
+    void handle(SpectrumIdentificationResult spectrumIdentificationResult);
+  }
+
+  private static final XMLInputFactory xmlInputFactory = createXMLInputFactory();
+
+  private final File mzIdentMLFile;
+  private final List<Cv> cvList = new ArrayList<>();
+  private final Map<Comparable, SpectraData> spectraDataMap = new LinkedHashMap<>();
+  private final Map<String, Peptide> peptides = new HashMap<>();
+  // PeptideEvidence id -> Peptide id
+  private final Map<String, String> peptideEvidenceToPeptide = new HashMap<>();
+  private Boolean proteinAmbiguityGroupsAvailable = null;
+
+  /**
+   * Read the identification independent content of the file
+   *
+   * @param mzIdentMLFile Input MzIdentML file with .mzid extension
+   */
+  public StreamingMzIdentMLUnmarshaller(File mzIdentMLFile) {
+    this.mzIdentMLFile = mzIdentMLFile;
+    readReferences();
+  }
+
+  private static XMLInputFactory createXMLInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
+
+  /**
+   * Create a reader which maps all the elements to the namespace of the lightModel, as the
+   * MzIdentMLNamespaceFilter does for FastMzIdentMLUnmarshaller.
+   */
+  private static XMLStreamReader createXMLStreamReader(InputStream inputStream) throws XMLStreamException {
+    return new StreamReaderDelegate(xmlInputFactory.createXMLStreamReader(inputStream)) {
+      @Override
+      public String getNamespaceURI() {
+        return isStartElement() || isEndElement() ? Constants.MZIDENTML_NAMESPACE : super.getNamespaceURI();
+      }
+
+      @Override
+      public QName getName() {
+        return new QName(Constants.MZIDENTML_NAMESPACE, getLocalName());
+      }
+    };
+  }
+
+  /**
+   * Read the CvList, the SequenceCollection and the Inputs, which all come before the AnalysisData
+   */
+  private void readReferences() {
+    Unmarshaller unmarshaller = null;
+    try (InputStream inputStream = new BufferedInputStream(new FileInputStream(mzIdentMLFile))) {
+      XMLStreamReader reader = createXMLStreamReader(inputStream);
+      unmarshaller = FastMzIdentMLUnmarshaller.borrowUnmarshaller();
+
+      int event = reader.getEventType();
+      while (event != XMLStreamConstants.END_DOCUMENT) {
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          String name = reader.getLocalName();
+          if ("AnalysisData".equals(name)) {
+            break;
+          } else if ("cv".equals(name)) {
+            cvList.add(unmarshaller.unmarshal(reader, Cv.class).getValue());
+            // the unmarshaller leaves the reader after the end of the element
+            event = reader.getEventType();
+            continue;
+          } else if ("Peptide".equals(name)) {
+            Peptide peptide = unmarshaller.unmarshal(reader, Peptide.class).getValue();
+            peptides.put(peptide.getId(), peptide);
+            event = reader.getEventType();
+            continue;
+          } else if ("SpectraData".equals(name)) {
+            SpectraData spectraData = unmarshaller.unmarshal(reader, SpectraData.class).getValue();
+            spectraDataMap.put(spectraData.getId(), spectraData);
+            event = reader.getEventType();
+            continue;
+          } else if ("PeptideEvidence".equals(name)) {
+            peptideEvidenceToPeptide.put(reader.getAttributeValue(null, "id"),
+                getPeptideId(reader.getAttributeValue(null, "peptide_ref")));
+          }
+        }
+        event = reader.next();
+      }
+
+      reader.close();
+      log.debug("mzIdentML references read: " + peptides.size() + " peptides, "
+          + peptideEvidenceToPeptide.size() + " peptide evidences");
+    } catch (IOException | XMLStreamException | JAXBException e) {
+      log.error("StreamingMzIdentMLUnmarshaller.readReferences", e);
+      throw new IllegalStateException("Input mzIdentML file reading error!", e);
+    } finally {
+      if (unmarshaller != null) {
+        FastMzIdentMLUnmarshaller.returnUnmarshaller(unmarshaller);
+      }
+    }
+  }
+
+  /**
+   * Share the id instance of the Peptide instead of keeping a copy per PeptideEvidence
+   */
+  private String getPeptideId(String peptideRef) {
+    Peptide peptide = peptideRef == null ? null : peptides.get(peptideRef);
+    return peptide != null ? peptide.getId() : peptideRef;
+  }
+
+  /**
+   * Stream all the SpectrumIdentificationResults of the file, only one result is held in memory at a time.
+   * The SpectrumIdentificationItems without peptide_ref get the Peptide of their first PeptideEvidenceRef.
+   * The cvParams and userParams of the results and items, e.g. the scores and the spectrum title, are
+   * unmarshalled with JAXB, the params of the Fragmentation are skipped.
+   *
+   * @param handler handler receiving the results
+   */
+  public void readSpectrumIdentificationResults(SpectrumIdentificationResultHandler handler) {
+    boolean proteinAmbiguityGroupFound = false;
+    Unmarshaller unmarshaller = null;
+
+    try (InputStream inputStream = new BufferedInputStream(new FileInputStream(mzIdentMLFile))) {
+      XMLStreamReader reader = createXMLStreamReader(inputStream);
+      unmarshaller = FastMzIdentMLUnmarshaller.borrowUnmarshaller();
+      SpectrumIdentificationResult spectrumIdentificationResult = null;
+      SpectrumIdentificationItem spectrumIdentificationItem = null;
+      boolean fragmentation = false;
+
+      int event = reader.getEventType();
+      while (event != XMLStreamConstants.END_DOCUMENT) {
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          String name = reader.getLocalName();
+          if (("cvParam".equals(name) || "userParam".equals(name)) && spectrumIdentificationResult != null && !fragmentation) {
+            AbstractParam param = "cvParam".equals(name) ? unmarshaller.unmarshal(reader, CvParam.class).getValue()
+                : unmarshaller.unmarshal(reader, UserParam.class).getValue();
+            if (spectrumIdentificationItem != null) {
+              spectrumIdentificationItem.getParamGroup().add(param);
+            } else {
+              spectrumIdentificationResult.getParamGroup().add(param);
+            }
+            // the unmarshaller leaves the reader after the end of the element
+            event = reader.getEventType();
+            continue;
+          }
+
+          switch (name) {
+            case "SpectrumIdentificationResult":
+              spectrumIdentificationResult = createSpectrumIdentificationResult(reader);
+              break;
+            case "SpectrumIdentificationItem":
+              if (spectrumIdentificationResult != null) {
+                spectrumIdentificationItem = createSpectrumIdentificationItem(reader);
+                spectrumIdentificationResult.getSpectrumIdentificationItem().add(spectrumIdentificationItem);
+              }
+              break;
+            case "PeptideEvidenceRef":
+              if (spectrumIdentificationItem != null && spectrumIdentificationItem.getPeptideRef() == null) {
+                spectrumIdentificationItem.setPeptideRef(
+                    peptideEvidenceToPeptide.get(reader.getAttributeValue(null, "peptideEvidence_ref")));
+              }
+              break;
+            case "Fragmentation":
+              fragmentation = true;
+              break;
+            case "ProteinAmbiguityGroup":
+              proteinAmbiguityGroupFound = true;
+              break;
+            default:
+              break;
+          }
+        } else if (event == XMLStreamConstants.END_ELEMENT) {
+          String name = reader.getLocalName();
+          if ("SpectrumIdentificationItem".equals(name)) {
+            spectrumIdentificationItem = null;
+          } else if ("Fragmentation".equals(name)) {
+            fragmentation = false;
+          } else if ("SpectrumIdentificationResult".equals(name) && spectrumIdentificationResult != null) {
+            handler.handle(spectrumIdentificationResult);
+            spectrumIdentificationResult = null;
+          }
+        }
+        event = reader.next();
+      }
+      reader.close();
+    } catch (IOException | XMLStreamException | JAXBException e) {
+      log.error("StreamingMzIdentMLUnmarshaller.readSpectrumIdentificationResults", e);
+      throw new IllegalStateException("Input mzIdentML file reading error!", e);
+    } finally {
+      if (unmarshaller != null) {
+        FastMzIdentMLUnmarshaller.returnUnmarshaller(unmarshaller);
+      }
+    }
+
+    proteinAmbiguityGroupsAvailable = proteinAmbiguityGroupFound;
+  }
+
+  private SpectrumIdentificationResult createSpectrumIdentificationResult(XMLStreamReader reader) {
+    SpectrumIdentificationResult spectrumIdentificationResult = new SpectrumIdentificationResult();
+    spectrumIdentificationResult.setId(reader.getAttributeValue(null, "id"));
+    spectrumIdentificationResult.setName(reader.getAttributeValue(null, "name"));
+    spectrumIdentificationResult.setSpectrumID(reader.getAttributeValue(null, "spectrumID"));
+    spectrumIdentificationResult.setSpectraDataRef(reader.getAttributeValue(null, "spectraData_ref"));
+    return spectrumIdentificationResult;
+  }
+
+  private SpectrumIdentificationItem createSpectrumIdentificationItem(XMLStreamReader reader) {
+    SpectrumIdentificationItem spectrumIdentificationItem = new SpectrumIdentificationItem();
+    spectrumIdentificationItem.setId(reader.getAttributeValue(null, "id"));
+    spectrumIdentificationItem.setName(reader.getAttributeValue(null, "name"));
+    spectrumIdentificationItem.setPeptideRef(getPeptideId(reader.getAttributeValue(null, "peptide_ref")));
+
+    String chargeState = reader.getAttributeValue(null, "chargeState");
+    if (chargeState != null) {
+      spectrumIdentificationItem.setChargeState(Integer.parseInt(chargeState.trim()));
+    }
+    String experimentalMassToCharge = reader.getAttributeValue(null, "experimentalMassToCharge");
+    if (experimentalMassToCharge != null) {
+      spectrumIdentificationItem.setExperimentalMassToCharge(Double.parseDouble(experimentalMassToCharge));
+    }
+    String calculatedMassToCharge = reader.getAttributeValue(null, "calculatedMassToCharge");
+    if (calculatedMassToCharge != null) {
+      spectrumIdentificationItem.setCalculatedMassToCharge(Double.valueOf(calculatedMassToCharge));
+    }
+    String calculatedPI = reader.getAttributeValue(null, "calculatedPI");
+    if (calculatedPI != null) {
+      spectrumIdentificationItem.setCalculatedPI(Float.valueOf(calculatedPI));
+    }
+    String rank = reader.getAttributeValue(null, "rank");
+    if (rank != null) {
+      spectrumIdentificationItem.setRank(Integer.parseInt(rank.trim()));
+    }
+    spectrumIdentificationItem.setPassThreshold(Boolean.parseBoolean(reader.getAttributeValue(null, "passThreshold")));
+    return spectrumIdentificationItem;
+  }
+
+  /**
+   * Get all the Cv in the CvList in the MzIdentML
+   *
+   * @return List of Cv
+   */
+  public List<Cv> getCvList() {
+    return cvList;
+  }
+
+  /**
+   * Get the SpectraData grouped by SpectraData ID
+   *
+   * @return Map of SpectraData, null if the file does not contain any
+   */
+  public Map<Comparable, SpectraData> getSpectraDataMap() {
+    return spectraDataMap.isEmpty() ? null : spectraDataMap;
+  }
+
+  /**
+   * Get Peptide by peptide ID
+   *
+   * @param peptideID Peptide Reference ID
+   * @return Peptide if matching peptide exists, otherwise return a null
+   */
+  public Peptide getPeptideById(Comparable peptideID) {
+    return peptides.get(peptideID);
+  }
+
+  /**
+   * Check if the mzIdentML file contains any protein ambiguity groups, this is found while the
+   * SpectrumIdentificationResults are read, the file is read if this has not been done yet.
+   *
+   * @return Return true if PGA is available
+   */
+  public boolean isProteinAmbiguityGroupsAvailable() {
+    if (proteinAmbiguityGroupsAvailable == null) {
+      readSpectrumIdentificationResults(spectrumIdentificationResult -> { });
+    }
+    return proteinAmbiguityGroupsAvailable;
+  }
+}
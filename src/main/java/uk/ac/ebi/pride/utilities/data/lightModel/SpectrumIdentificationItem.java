@@ -2,8 +2,12 @@ package uk.ac.ebi.pride.utilities.data.lightModel;
 
 import lombok.Getter;
 import lombok.Setter;
+import uk.ac.ebi.pride.utilities.data.utils.FacadeList;
+
 import javax.xml.bind.annotation.*;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * An identification of a single (poly)peptide, resulting from querying an input spectra, along with the set of confidence values for that identification.
@@ -43,10 +47,15 @@ import java.io.Serializable;
 @XmlType(name = "SpectrumIdentificationItemType")
 @Getter
 @Setter
-public class SpectrumIdentificationItem extends Identifiable implements Serializable {
+public class SpectrumIdentificationItem extends Identifiable implements Serializable, ParamGroupCapable {
 
     private final static long serialVersionUID = 100L;
 
+    @XmlElements({
+            @XmlElement(name = "cvParam", type = CvParam.class),
+            @XmlElement(name = "userParam", type = UserParam.class)
+    })
+    protected List<AbstractParam> paramGroup;
     @XmlAttribute(required = true)
     protected int chargeState;
     @XmlAttribute(required = true)
@@ -63,5 +72,20 @@ public class SpectrumIdentificationItem extends Identifiable implements Serializ
     protected boolean passThreshold;
     @XmlTransient
     protected String formattedSpectrumID;
+
+    public List<AbstractParam> getParamGroup() {
+        if (paramGroup == null) {
+            paramGroup = new ArrayList<>();
+        }
+        return this.paramGroup;
+    }
+
+    public List<CvParam> getCvParam() {
+        return new FacadeList<>(this.getParamGroup(), CvParam.class);
+    }
+
+    public List<UserParam> getUserParam() {
+        return new FacadeList<>(this.getParamGroup(), UserParam.class);
+    }
 }
 
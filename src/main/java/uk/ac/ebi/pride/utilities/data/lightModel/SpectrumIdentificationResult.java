@@ -2,6 +2,8 @@ package uk.ac.ebi.pride.utilities.data.lightModel;
 
 import lombok.Getter;
 import lombok.Setter;
+import uk.ac.ebi.pride.utilities.data.utils.FacadeList;
+
 import javax.xml.bind.annotation.*;
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -31,16 +33,22 @@ import java.util.List;
  */
 @XmlAccessorType(XmlAccessType.FIELD)
 @XmlType(name = "SpectrumIdentificationResultType", propOrder = {
-        "spectrumIdentificationItem"
+        "spectrumIdentificationItem",
+        "paramGroup"
 })
 @Getter
 @Setter
-public class SpectrumIdentificationResult extends Identifiable implements Serializable {
+public class SpectrumIdentificationResult extends Identifiable implements Serializable, ParamGroupCapable {
 
   private final static long serialVersionUID = 100L;
 
   @XmlElement(name = "SpectrumIdentificationItem", required = true)
   protected List<SpectrumIdentificationItem> spectrumIdentificationItem;
+  @XmlElements({
+          @XmlElement(name = "cvParam", type = CvParam.class),
+          @XmlElement(name = "userParam", type = UserParam.class)
+  })
+  protected List<AbstractParam> paramGroup;
   @XmlAttribute(required = true)
   protected String spectrumID;
   @XmlAttribute(name = "spectraData_ref", required = true)
@@ -74,4 +82,19 @@ public class SpectrumIdentificationResult extends Identifiable implements Serial
     }
     return this.spectrumIdentificationItem;
   }
+
+  public List<AbstractParam> getParamGroup() {
+    if (paramGroup == null) {
+      paramGroup = new ArrayList<>();
+    }
+    return this.paramGroup;
+  }
+
+  public List<CvParam> getCvParam() {
+    return new FacadeList<>(this.getParamGroup(), CvParam.class);
+  }
+
+  public List<UserParam> getUserParam() {
+    return new FacadeList<>(this.getParamGroup(), UserParam.class);
+  }
 }
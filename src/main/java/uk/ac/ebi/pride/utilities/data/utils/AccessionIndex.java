@@ -0,0 +1,105 @@
+package uk.ac.ebi.pride.utilities.data.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * AccessionIndex is a hash index of protein ids by accession, used to join the PSMs and peptides of an
+ * mzTab file to their proteins in a single pass instead of comparing every PSM to every protein.
+ * <p/>
+ * Accessions are compared ignoring case, with the same rules as String.equalsIgnoreCase: each character
+ * is normalised to the lower case of its upper case before hashing.
+ * <p/>
+ * @author Yasset Perez-Riverol
+ * @author Rui Wang
+ */
+public class AccessionIndex {
+
+    private final Map<String, List<String>> proteinIds;
+
+    public AccessionIndex() {
+        this(16);
+    }
+
+    public AccessionIndex(int expectedSize) {
+        this.proteinIds = new HashMap<String, List<String>>(Math.max(16, (int) (expectedSize / 0.75f) + 1));
+    }
+
+    /**
+     * Create an index from a map of protein id to accession. The proteins sharing an accession are
+     * joined in the iteration order of the map, so pass an ordered map, e.g. a LinkedHashMap in
+     * protein order, for the join order to be the protein order.
+     *
+     * @param proteinAccessions protein accession of each protein id
+     * @return AccessionIndex  index of the protein ids
+     */
+    public static AccessionIndex create(Map<String, String> proteinAccessions) {
+        AccessionIndex index = new AccessionIndex(proteinAccessions.size());
+        for (Map.Entry<String, String> entry : proteinAccessions.entrySet()) {
+            index.add(entry.getValue(), entry.getKey());
+        }
+        return index;
+    }
+
+    /**
+     * Add a protein to the index, proteins without accession are not indexed
+     *
+     * @param accession protein accession
+     * @param proteinId protein id
+     */
+    public void add(String accession, String proteinId) {
+        if (accession == null) {
+            return;
+        }
+
+        String key = normalise(accession);
+        List<String> ids = proteinIds.get(key);
+        if (ids == null) {
+            ids = new ArrayList<String>(1);
+            proteinIds.put(key, ids);
+        }
+        ids.add(proteinId);
+    }
+
+    /**
+     * @param accession protein accession
+     * @return List<String>    ids of the proteins with the accession, empty if there is none
+     */
+    public List<String> getProteinIds(String accession) {
+        if (accession == null) {
+            return Collections.emptyList();
+        }
+
+        List<String> ids = proteinIds.get(normalise(accession));
+        return ids == null ? Collections.<String>emptyList() : ids;
+    }
+
+    /**
+     * Add an id to the lists of all the proteins with a given accession
+     *
+     * @param accession       protein accession
+     * @param id              PSM or peptide id
+     * @param proteinToIds    lists of ids of each protein id, the lists are created when needed
+     */
+    public void join(String accession, String id, Map<String, List<String>> proteinToIds) {
+        for (String proteinId : getProteinIds(accession)) {
+            List<String> ids = proteinToIds.get(proteinId);
+            if (ids == null) {
+                ids = new ArrayList<String>();
+                proteinToIds.put(proteinId, ids);
+            }
+            ids.add(id);
+        }
+    }
+
+    private static String normalise(String accession) {
+        char[] chars = accession.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+}
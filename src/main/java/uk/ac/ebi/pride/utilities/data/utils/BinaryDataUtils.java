@@ -4,10 +4,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.ac.ebi.pride.utilities.term.CvTermReference;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.nio.*;
+import java.util.Arrays;
 import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
 import java.util.zip.Inflater;
@@ -28,6 +26,31 @@ public final class BinaryDataUtils {
 
     private static final Logger logger = LoggerFactory.getLogger(BinaryDataUtils.class);
 
+    /**
+     * Inflater reused by each thread, it is reset before each use
+     */
+    private static final ThreadLocal<Inflater> INFLATER = new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater();
+        }
+    };
+
+    /**
+     * Largest inflate buffer kept by a thread between two calls, a larger buffer is only used for one array
+     */
+    private static final int MAX_RETAINED_INFLATE_BUFFER = 1 << 20;
+
+    /**
+     * Buffer reused by each thread to hold the decompressed data, it grows up to MAX_RETAINED_INFLATE_BUFFER
+     */
+    private static final ThreadLocal<byte[]> INFLATE_BUFFER = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[8192];
+        }
+    };
+
     /**
      * Private Constructor
      */
@@ -101,16 +124,157 @@ public final class BinaryDataUtils {
      * @return double[] double array
      */
     public static double[] toDoubleArray(byte[] arr, CvTermReference dataType, ByteOrder order) {
-        Number[] numArr = toNumberArray(arr, dataType, order);
-        double[] doubleArr = new double[numArr.length];
+        return toDoubleArray(ByteBuffer.wrap(arr), dataType, order);
+    }
 
-        for (int i = 0; i < numArr.length; i++) {
-            doubleArr[i] = numArr[i].doubleValue();
+    /**
+     * Convert to double array, the values are read through a typed view of the buffer without boxing
+     *
+     * @param buffer   binary data, from its position to its limit, the buffer is not modified
+     * @param dataType data type
+     * @param order    endianess
+     * @return double[] double array
+     */
+    public static double[] toDoubleArray(ByteBuffer buffer, CvTermReference dataType, ByteOrder order) {
+        int numOfByte = dataType == null ? -1 : getNumOfByte(dataType);
+        if (numOfByte <= 0) {
+            logger.error("Unsupported binary data type: " + (dataType == null ? null : dataType.getName()));
+            return new double[0];
         }
 
+        double[] doubleArr = new double[buffer.remaining() / numOfByte];
+        toDoubleArray(buffer, dataType, order, doubleArr, 0);
         return doubleArr;
     }
 
+    /**
+     * Convert into a caller supplied double array, which can be reused between arrays
+     *
+     * @param buffer      binary data, from its position to its limit, the buffer is not modified
+     * @param dataType    data type
+     * @param order       endianess
+     * @param destination double array receiving the values, it must have enough space after the offset
+     * @param offset      index of the first value in the destination
+     * @return int number of values written
+     */
+    public static int toDoubleArray(ByteBuffer buffer, CvTermReference dataType, ByteOrder order,
+                                    double[] destination, int offset) {
+        ByteBuffer source = buffer.duplicate().order(order);
+        int count;
+
+        switch (dataType) {
+            case INT_32_BIT:
+                IntBuffer intBuffer = source.asIntBuffer();
+                count = intBuffer.remaining();
+                for (int i = 0; i < count; i++) {
+                    destination[offset + i] = intBuffer.get(i);
+                }
+                break;
+
+            case FLOAT_16_BIT:
+                ShortBuffer shortBuffer = source.asShortBuffer();
+                count = shortBuffer.remaining();
+                for (int i = 0; i < count; i++) {
+                    destination[offset + i] = halfToFloat(shortBuffer.get(i));
+                }
+                break;
+
+            case FLOAT_32_BIT:
+                FloatBuffer floatBuffer = source.asFloatBuffer();
+                count = floatBuffer.remaining();
+                for (int i = 0; i < count; i++) {
+                    destination[offset + i] = floatBuffer.get(i);
+                }
+                break;
+
+            case INT_64_BIT:
+                LongBuffer longBuffer = source.asLongBuffer();
+                count = longBuffer.remaining();
+                for (int i = 0; i < count; i++) {
+                    destination[offset + i] = longBuffer.get(i);
+                }
+                break;
+
+            case FLOAT_64_BIT:
+                DoubleBuffer doubleBuffer = source.asDoubleBuffer();
+                count = doubleBuffer.remaining();
+                doubleBuffer.get(destination, offset, count);
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unsupported binary data type: " + dataType.getName());
+        }
+
+        return count;
+    }
+
+    /**
+     * Convert to float array, only for data types which fit in single precision (16 and 32-bit float)
+     *
+     * @param buffer   binary data, from its position to its limit, the buffer is not modified
+     * @param dataType data type
+     * @param order    endianess
+     * @return float[] float array
+     */
+    public static float[] toFloatArray(ByteBuffer buffer, CvTermReference dataType, ByteOrder order) {
+        ByteBuffer source = buffer.duplicate().order(order);
+        float[] floatArr;
+
+        switch (dataType) {
+            case FLOAT_16_BIT:
+                ShortBuffer shortBuffer = source.asShortBuffer();
+                floatArr = new float[shortBuffer.remaining()];
+                for (int i = 0; i < floatArr.length; i++) {
+                    floatArr[i] = halfToFloat(shortBuffer.get(i));
+                }
+                break;
+
+            case FLOAT_32_BIT:
+                FloatBuffer floatBuffer = source.asFloatBuffer();
+                floatArr = new float[floatBuffer.remaining()];
+                floatBuffer.get(floatArr);
+                break;
+
+            default:
+                throw new IllegalArgumentException("Binary data type does not fit in single precision: " + dataType.getName());
+        }
+
+        return floatArr;
+    }
+
+    /**
+     * Whether the data type can be stored in single precision without losing information
+     *
+     * @param dataType data type
+     * @return boolean true for 16 and 32-bit float
+     */
+    public static boolean isSinglePrecision(CvTermReference dataType) {
+        return dataType == CvTermReference.FLOAT_16_BIT || dataType == CvTermReference.FLOAT_32_BIT;
+    }
+
+    /**
+     * Convert an IEEE 754 half precision value
+     *
+     * @param half 16 bits value
+     * @return float   value
+     */
+    private static float halfToFloat(short half) {
+        int sign = (half & 0x8000) << 16;
+        int exponent = (half >>> 10) & 0x1f;
+        int mantissa = half & 0x3ff;
+
+        if (exponent == 0x1f) {
+            // infinity or NaN
+            return Float.intBitsToFloat(sign | 0x7f800000 | (mantissa << 13));
+        } else if (exponent == 0) {
+            // zero or subnormal
+            float value = mantissa * 0x1p-24f;
+            return sign == 0 ? value : -value;
+        }
+
+        return Float.intBitsToFloat(sign | ((exponent + 112) << 23) | (mantissa << 13));
+    }
+
     /**
      * Get the number of bytes on a given data type
      *
@@ -160,44 +324,54 @@ public final class BinaryDataUtils {
      * @return byte[]  decompressed data
      */
     public static byte[] decompress(byte[] compressedData) {
-        byte[] decompressedData;
+        ByteBuffer buffer = inflate(compressedData);
+        byte[] decompressedData = new byte[buffer.remaining()];
+        buffer.get(decompressedData);
 
-        // using a ByteArrayOutputStream to not having to define the result array size beforehand
-        Inflater decompressor = new Inflater();
+        return decompressedData;
+    }
 
+    /**
+     * Decompress a compressed byte array into a buffer owned by the current thread, using a pooled Inflater.
+     * <p/>
+     * The returned buffer is only valid until the next call of this method from the same thread,
+     * it is meant to be decoded straight away, e.g. using toDoubleArray. Buffers larger than 1MB are not
+     * kept by the thread, so one very large array does not pin that much memory on every thread.
+     *
+     * @param compressedData compressed byte array
+     * @return ByteBuffer  view of the decompressed data, only valid until the next call from the same thread
+     */
+    public static ByteBuffer inflate(byte[] compressedData) {
+        Inflater decompressor = INFLATER.get();
+        decompressor.reset();
         decompressor.setInput(compressedData);
 
-        // Create an expandable byte array to hold the decompressed data
-        ByteArrayOutputStream bos = new ByteArrayOutputStream(compressedData.length);
-        byte[] buf = new byte[1024];
+        byte[] buf = INFLATE_BUFFER.get();
+        if (buf.length < compressedData.length * 2) {
+            buf = new byte[compressedData.length * 2];
+        }
 
+        int length = 0;
         while (!decompressor.finished()) {
+            if (length == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            }
             try {
-                int count = decompressor.inflate(buf);
-                if (count == 0 && decompressor.needsInput()) {
+                int count = decompressor.inflate(buf, length, buf.length - length);
+                if (count == 0 && (decompressor.needsInput() || decompressor.needsDictionary())) {
                     break;
                 }
-                bos.write(buf, 0, count);
+                length += count;
             } catch (DataFormatException e) {
                 throw new IllegalStateException("Encountered wrong data format "
                         + "while trying to decompress binary data!", e);
             }
         }
-
-        try {
-            bos.close();
-        } catch (IOException e) {
-            logger.error("Error while closing byte array output stream");
+        if (buf.length <= MAX_RETAINED_INFLATE_BUFFER) {
+            INFLATE_BUFFER.set(buf);
         }
 
-        // Get the decompressed data
-        decompressedData = bos.toByteArray();
-
-        if (decompressedData == null) {
-            throw new IllegalStateException("Decompression of binary data prodeuced no result (null)!");
-        }
-
-        return decompressedData;
+        return ByteBuffer.wrap(buf, 0, length).slice();
     }
 
     /**
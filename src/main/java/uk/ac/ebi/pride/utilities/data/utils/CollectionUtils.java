@@ -6,6 +6,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * A utility class to enhance Collections class in JDK
@@ -31,6 +32,10 @@ public final class CollectionUtils {
      * @return int  element index in the collection
      */
     public static <T> int getIndex(Collection<T> collection, T element) {
+        if (collection instanceof IndexedList) {
+            return ((IndexedList<T>) collection).indexOf(element);
+        }
+
         int index = -1;
 
         if (collection != null) {
@@ -49,6 +54,11 @@ public final class CollectionUtils {
     }
 
     public static <T> T getElement(Collection<T> collection, int index) {
+        if (collection instanceof List && collection instanceof RandomAccess) {
+            List<T> list = (List<T>) collection;
+            return index >= 0 && index < list.size() ? list.get(index) : null;
+        }
+
         T element = null;
 
         if (collection != null) {
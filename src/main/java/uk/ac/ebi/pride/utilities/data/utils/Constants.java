@@ -6,6 +6,7 @@ import uk.ac.ebi.pride.utilities.data.core.SpectraData;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Constants contain a set of functions for SpectraData validation and also the constants used by
@@ -220,7 +221,7 @@ public final class Constants {
   }
 
   /**
-   * Check the file type
+   * Check the file type, the file is probed once for all the formats
    *
    * @param file input file
    * @return Class the class type of the data access controller
@@ -228,16 +229,22 @@ public final class Constants {
   public static Class getFileType(File file) {
     Class classType = null;
 
+    // the controllers can not read compressed files
+    if (FileFormatSniffer.isCompressed(file)) {
+      return null;
+    }
+
     // check file type
-    if (MzMLControllerImpl.isValidFormat(file)) {
+    Set<FileFormatSniffer.FileFormat> formats = FileFormatSniffer.getFormats(file);
+    if (formats.contains(FileFormatSniffer.FileFormat.MZML)) {
       classType = MzMLControllerImpl.class;
-    } else if (PrideXmlControllerImpl.isValidFormat(file)) {
+    } else if (formats.contains(FileFormatSniffer.FileFormat.PRIDE_XML)) {
       classType = PrideXmlControllerImpl.class;
-    } else if (MzIdentMLControllerImpl.isValidFormat(file)) {
+    } else if (formats.contains(FileFormatSniffer.FileFormat.MZIDENTML)) {
       classType = MzIdentMLControllerImpl.class;
-    } else if (MzXmlControllerImpl.isValidFormat(file)) {
+    } else if (formats.contains(FileFormatSniffer.FileFormat.MZXML)) {
       classType = MzXmlControllerImpl.class;
-    } else if (MzDataControllerImpl.isValidFormat(file)) {
+    } else if (formats.contains(FileFormatSniffer.FileFormat.MZDATA)) {
       classType = MzDataControllerImpl.class;
     } else if (PeakControllerImpl.isValidFormat(file) != null) {
       classType = PeakControllerImpl.class;
@@ -0,0 +1,286 @@
+package uk.ac.ebi.pride.utilities.data.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * FileFormatSniffer detects the formats of a file from a single bounded read of its beginning.
+ * <p/>
+ * The first PREFIX_SIZE bytes of the file are read once, through a GZIPInputStream when the file starts
+ * with the gzip magic number, and all the format signatures are matched against this prefix: the root
+ * element of the XML formats in the first ten lines, the mzTab sections in the first 200 lines and the
+ * extension of the peak list formats.
+ * <p/>
+ * The verdict is cached per absolute path, and reused as long as the last modified time and the length
+ * of the file do not change, so Constants.getFileType and the isValidFormat methods of the controllers
+ * probe a file only once.
+ * <p/>
+ * @author Rui Wang
+ * @author Yasset Perez-Riverol
+ */
+public final class FileFormatSniffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileFormatSniffer.class);
+
+    /**
+     * The formats which can be detected
+     */
+    public enum FileFormat {
+        MZML, PRIDE_XML, MZIDENTML, MZXML, MZDATA, MZTAB, MGF, DTA, MS2, PKL, APL
+    }
+
+    private static final int PREFIX_SIZE = 256 * 1024;
+
+    private static final int XML_HEADER_LINES = 10;
+
+    private static final int MZTAB_HEADER_LINES = 200;
+
+    private static final int MAX_CACHE_SIZE = 10000;
+
+    private static final String GZIP_EXT = ".gz";
+
+    private static final Pattern mzMLHeaderPattern = Pattern.compile("^[^<]*(<\\?xml [^>]*>\\s*(<!--[^>]*-->\\s*)*)?<(mzML)|(indexedmzML) xmlns=.*", Pattern.MULTILINE);
+
+    private static final Pattern prideXmlHeaderPattern = Pattern.compile("^[^<]*(<\\?xml [^>]*>\\s*(<!--[^>]*-->\\s*)*)?<ExperimentCollection [^>]*>", Pattern.MULTILINE);
+
+    private static final Pattern mzIdentMLHeaderPattern = Pattern.compile("^[^<]*(<\\?xml [^>]*>\\s*(<!--[^>]*-->\\s*)*)?<(MzIdentML)|(indexedmzIdentML) xmlns=.*", Pattern.MULTILINE);
+
+    private static final Pattern mzXmlHeaderPattern = Pattern.compile("^[^<]*(<\\?xml [^>]*>\\s*(<!--[^>]*-->\\s*)*)?<(mzXML) xmlns=.*", Pattern.MULTILINE);
+
+    private static final Pattern mzDataHeaderPattern = Pattern.compile("^[^<]*(<\\?xml [^>]*>\\s*(<!--[^>]*-->\\s*)*)?<(mzData) version=.*", Pattern.MULTILINE);
+
+    private static final Pattern mzTabVersion = Pattern.compile(".*(mzTab-version).*(1.0)");
+
+    private static final Pattern mzTabProteinSection = Pattern.compile(".*(protein_search_engine_score).*");
+
+    private static final Pattern mzTabPSMSection = Pattern.compile(".*(psm_search_engine_score).*");
+
+    private static final Pattern mzTabPeptideSection = Pattern.compile(".*(peptide_search_engine_score).*");
+
+    private static final Map<String, Verdict> verdicts = new ConcurrentHashMap<String, Verdict>();
+
+    /**
+     * Private Constructor
+     */
+    private FileFormatSniffer() {
+
+    }
+
+    /**
+     * Get the formats of a file, a file can match more than one format (e.g. an mzML file with a .mgf extension)
+     *
+     * @param file input file
+     * @return Set<FileFormat>  formats of the file, empty if no format matches
+     */
+    public static Set<FileFormat> getFormats(File file) {
+        return getVerdict(file).formats;
+    }
+
+    /**
+     * Check whether a file is in a given format
+     *
+     * @param file            input file
+     * @param format          format
+     * @param allowCompressed true if a gzip compressed file in the format should match
+     * @return boolean true if the file is in the format
+     */
+    public static boolean isFormat(File file, FileFormat format, boolean allowCompressed) {
+        Verdict verdict = getVerdict(file);
+        return verdict.formats.contains(format) && (allowCompressed || !verdict.compressed);
+    }
+
+    /**
+     * @param file input file
+     * @return boolean true if the file is gzip compressed
+     */
+    public static boolean isCompressed(File file) {
+        return getVerdict(file).compressed;
+    }
+
+    /**
+     * Forget all the cached verdicts
+     */
+    public static void clearCache() {
+        verdicts.clear();
+    }
+
+    private static Verdict getVerdict(File file) {
+        String path = file.getAbsolutePath();
+        long lastModified = file.lastModified();
+        long length = file.length();
+
+        Verdict verdict = verdicts.get(path);
+        if (verdict == null || verdict.lastModified != lastModified || verdict.length != length) {
+            verdict = sniff(file, lastModified, length);
+            if (verdicts.size() >= MAX_CACHE_SIZE) {
+                verdicts.clear();
+            }
+            verdicts.put(path, verdict);
+        }
+        return verdict;
+    }
+
+    private static Verdict sniff(File file, long lastModified, long length) {
+        Set<FileFormat> formats = EnumSet.noneOf(FileFormat.class);
+        boolean compressed = false;
+
+        String filename = file.getName().toLowerCase();
+        List<String> lines = Collections.emptyList();
+        try {
+            byte[] prefix;
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                prefix = readPrefix(channel);
+                compressed = prefix.length >= 2 && (prefix[0] & 0xFF) == 0x1f && (prefix[1] & 0xFF) == 0x8b;
+                if (compressed) {
+                    channel.position(0);
+                    try (InputStream in = new GZIPInputStream(Channels.newInputStream(channel))) {
+                        prefix = readPrefix(in);
+                    }
+                }
+            }
+            lines = splitLines(prefix);
+        } catch (IOException e) {
+            // missing and unreadable files are in no format
+            logger.debug("Failed to read file {}", file, e);
+        } catch (Exception e) {
+            logger.error("Failed to read file", e);
+        }
+
+        if (compressed && filename.endsWith(GZIP_EXT)) {
+            filename = filename.substring(0, filename.length() - GZIP_EXT.length());
+        }
+
+        // xml formats
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < Math.min(XML_HEADER_LINES, lines.size()); i++) {
+            content.append(lines.get(i));
+        }
+        addIfFound(formats, FileFormat.MZML, mzMLHeaderPattern, content);
+        addIfFound(formats, FileFormat.PRIDE_XML, prideXmlHeaderPattern, content);
+        addIfFound(formats, FileFormat.MZIDENTML, mzIdentMLHeaderPattern, content);
+        addIfFound(formats, FileFormat.MZXML, mzXmlHeaderPattern, content);
+        addIfFound(formats, FileFormat.MZDATA, mzDataHeaderPattern, content);
+
+        // mzTab, it should contain the protein and psm sections or the protein and peptide sections
+        if (filename.endsWith(Constants.MZTAB_EXT)) {
+            int quantitationCount = 0;
+            int identificationCount = 0;
+            for (int i = 0; i < Math.min(MZTAB_HEADER_LINES, lines.size()); i++) {
+                String line = lines.get(i);
+                if (mzTabProteinSection.matcher(line).find() || mzTabVersion.matcher(line).find()) {
+                    quantitationCount++;
+                    identificationCount++;
+                }
+                if (mzTabPSMSection.matcher(line).find())
+                    identificationCount++;
+                if (mzTabPeptideSection.matcher(line).find())
+                    quantitationCount++;
+            }
+            if (quantitationCount >= 3 || identificationCount >= 3) {
+                formats.add(FileFormat.MZTAB);
+            }
+        }
+
+        // peak list formats
+        if (filename.endsWith(Constants.DTA_EXT)) {
+            formats.add(FileFormat.DTA);
+        } else if (filename.endsWith(Constants.MGF_EXT)) {
+            formats.add(FileFormat.MGF);
+        } else if (filename.endsWith(Constants.MS2_EXT)) {
+            formats.add(FileFormat.MS2);
+        } else if (filename.endsWith(Constants.PKL_EXT)) {
+            formats.add(FileFormat.PKL);
+        } else if (filename.endsWith(Constants.APL_EXT)) {
+            formats.add(FileFormat.APL);
+        }
+
+        return new Verdict(lastModified, length, Collections.unmodifiableSet(formats), compressed);
+    }
+
+    private static byte[] readPrefix(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(PREFIX_SIZE, channel.size()));
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            // keep reading until the prefix is full or the end of the file
+        }
+        byte[] prefix = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(prefix);
+        return prefix;
+    }
+
+    private static byte[] readPrefix(InputStream in) throws IOException {
+        byte[] prefix = new byte[PREFIX_SIZE];
+        int length = 0;
+        int read;
+        while (length < PREFIX_SIZE && (read = in.read(prefix, length, PREFIX_SIZE - length)) >= 0) {
+            length += read;
+        }
+        byte[] result = new byte[length];
+        System.arraycopy(prefix, 0, result, 0, length);
+        return result;
+    }
+
+    /**
+     * Split the prefix into lines, the header lines of all the formats are ASCII
+     */
+    private static List<String> splitLines(byte[] prefix) {
+        List<String> lines = new ArrayList<String>();
+        String text = new String(prefix, StandardCharsets.ISO_8859_1);
+        int start = 0;
+        while (start < text.length() && lines.size() < MZTAB_HEADER_LINES) {
+            int end = text.indexOf('\n', start);
+            int next = end < 0 ? text.length() : end + 1;
+            if (end < 0) {
+                end = text.length();
+            }
+            if (end > start && text.charAt(end - 1) == '\r') {
+                end--;
+            }
+            lines.add(text.substring(start, end));
+            start = next;
+        }
+        return lines;
+    }
+
+    private static void addIfFound(Set<FileFormat> formats, FileFormat format, Pattern pattern, CharSequence content) {
+        if (pattern.matcher(content).find()) {
+            formats.add(format);
+        }
+    }
+
+    private static class Verdict {
+
+        private final long lastModified;
+
+        private final long length;
+
+        private final Set<FileFormat> formats;
+
+        private final boolean compressed;
+
+        private Verdict(long lastModified, long length, Set<FileFormat> formats, boolean compressed) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.formats = formats;
+            this.compressed = compressed;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package uk.ac.ebi.pride.utilities.data.utils;
+
+import java.util.*;
+
+/**
+ * IndexedList is an ordered list of unique elements, which can be accessed by position and searched
+ * by element in constant time. It keeps the elements in an array and a hash from element to position.
+ * <p/>
+ * Adding an element which is already in the list does not change the list, add returns false.
+ * <p/>
+ * All the methods are synchronized, so the list can be filled and read by different threads.
+ * <p/>
+ * @author Rui Wang
+ * @author Yasset Perez-Riverol
+ */
+public class IndexedList<T> extends AbstractList<T> implements RandomAccess {
+
+    private Object[] elements;
+
+    private int size;
+
+    private final Map<Object, Integer> positions;
+
+    public IndexedList() {
+        this(16);
+    }
+
+    public IndexedList(int capacity) {
+        this.elements = new Object[Math.max(capacity, 1)];
+        this.positions = new HashMap<Object, Integer>(Math.max(capacity * 4 / 3 + 1, 16));
+    }
+
+    public IndexedList(Collection<? extends T> collection) {
+        this(collection.size());
+        addAll(collection);
+    }
+
+    /**
+     * Get an index over a collection, the collection is returned as it is when it is already indexed
+     *
+     * @param collection collection
+     * @return IndexedList  indexed list with the elements of the collection, in iteration order
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> IndexedList<T> of(Collection<T> collection) {
+        if (collection instanceof IndexedList) {
+            return (IndexedList<T>) collection;
+        }
+        return collection == null ? new IndexedList<T>() : new IndexedList<T>(collection);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return (T) elements[index];
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized boolean add(T element) {
+        if (positions.containsKey(element)) {
+            return false;
+        }
+
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size * 2);
+        }
+        positions.put(element, size);
+        elements[size++] = element;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public synchronized boolean addAll(Collection<? extends T> collection) {
+        boolean changed = false;
+        for (T element : collection) {
+            changed |= add(element);
+        }
+        return changed;
+    }
+
+    @Override
+    public synchronized T remove(int index) {
+        T element = get(index);
+        positions.remove(element);
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        elements[--size] = null;
+        for (int i = index; i < size; i++) {
+            positions.put(elements[i], i);
+        }
+        modCount++;
+        return element;
+    }
+
+    @Override
+    public synchronized int indexOf(Object element) {
+        Integer position = positions.get(element);
+        return position == null ? -1 : position;
+    }
+
+    @Override
+    public int lastIndexOf(Object element) {
+        return indexOf(element);
+    }
+
+    @Override
+    public synchronized boolean contains(Object element) {
+        return positions.containsKey(element);
+    }
+
+    @Override
+    public synchronized void clear() {
+        Arrays.fill(elements, 0, size, null);
+        positions.clear();
+        size = 0;
+        modCount++;
+    }
+}
@@ -0,0 +1,139 @@
+package uk.ac.ebi.pride.utilities.data.controller.cache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.pride.utilities.data.core.CVLookup;
+import uk.ac.ebi.pride.utilities.util.Tuple;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class CacheIndexFileTest {
+
+    private File dataFile;
+
+    private CacheIndexFile indexFile;
+
+    @Before
+    public void setUp() throws Exception {
+        dataFile = File.createTempFile("index", ".mzid");
+        try (FileWriter writer = new FileWriter(dataFile)) {
+            writer.write("<MzIdentML></MzIdentML>");
+        }
+        indexFile = new CacheIndexFile(dataFile, "avoidProteinInference=false");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        indexFile.delete();
+        dataFile.delete();
+    }
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        Map<CacheEntry, Object> contents = createContents();
+        assertTrue(indexFile.write(contents));
+        assertTrue(indexFile.getIndexFile().exists());
+
+        Map<CacheEntry, Object> restored = indexFile.read();
+        assertNotNull(restored);
+        assertEquals(contents.get(CacheEntry.PROTEIN_ID), restored.get(CacheEntry.PROTEIN_ID));
+        assertEquals(contents.get(CacheEntry.PROTEIN_TO_PEPTIDE_EVIDENCES), restored.get(CacheEntry.PROTEIN_TO_PEPTIDE_EVIDENCES));
+        assertEquals(contents.get(CacheEntry.PEPTIDE_TO_SPECTRUM), restored.get(CacheEntry.PEPTIDE_TO_SPECTRUM));
+        assertEquals(contents.get(CacheEntry.SPECTRUM_IDENTIFIED), restored.get(CacheEntry.SPECTRUM_IDENTIFIED));
+        assertTrue(((SpectrumIdSet) restored.get(CacheEntry.SPECTRUM_IDENTIFIED)).contains("scan=2", "SD2"));
+        assertEquals(contents.get(CacheEntry.MGF_INDEX_TITLE), restored.get(CacheEntry.MGF_INDEX_TITLE));
+        assertEquals(contents.get(CacheEntry.SPECTRUM_TO_PEPTIDES), restored.get(CacheEntry.SPECTRUM_TO_PEPTIDES));
+        assertEquals(contents.get(CacheEntry.CV_LOOKUP), restored.get(CacheEntry.CV_LOOKUP));
+    }
+
+    @Test
+    public void testLookupsInMappedFile() throws Exception {
+        Map<CacheEntry, Object> contents = new EnumMap<CacheEntry, Object>(CacheEntry.class);
+        Map<Comparable, Tuple<String, String>> peptideToSpectrum = new LinkedHashMap<Comparable, Tuple<String, String>>();
+        List<Comparable> proteinIds = new ArrayList<Comparable>();
+        for (int i = 0; i < 5000; i++) {
+            peptideToSpectrum.put("SII_" + i, new Tuple<String, String>("index=" + (i % 700), "SD" + (i % 3)));
+            proteinIds.add("DBSeq_\u00e9" + i);
+        }
+        contents.put(CacheEntry.PEPTIDE_TO_SPECTRUM, peptideToSpectrum);
+        contents.put(CacheEntry.PROTEIN_ID, proteinIds);
+        assertTrue(indexFile.write(contents));
+
+        Map<CacheEntry, Object> restored = indexFile.read();
+        Map<?, ?> restoredPeptideToSpectrum = (Map<?, ?>) restored.get(CacheEntry.PEPTIDE_TO_SPECTRUM);
+        assertEquals(5000, restoredPeptideToSpectrum.size());
+        for (Map.Entry<Comparable, Tuple<String, String>> entry : peptideToSpectrum.entrySet()) {
+            assertEquals(entry.getValue(), restoredPeptideToSpectrum.get(entry.getKey()));
+        }
+        assertNull(restoredPeptideToSpectrum.get("SII_5000"));
+        assertNull(restoredPeptideToSpectrum.get(1));
+        assertFalse(restoredPeptideToSpectrum.containsKey(null));
+        // entries are read in the order they were written
+        assertEquals(new ArrayList<Comparable>(peptideToSpectrum.keySet()), new ArrayList<Object>(restoredPeptideToSpectrum.keySet()));
+
+        List<?> restoredProteinIds = (List<?>) restored.get(CacheEntry.PROTEIN_ID);
+        assertEquals("DBSeq_\u00e94999", restoredProteinIds.get(4999));
+        assertEquals(proteinIds, restoredProteinIds);
+
+        // the views are read-only
+        try {
+            ((Map<Object, Object>) restoredPeptideToSpectrum).put("SII_5000", null);
+            fail("The restored maps should be read-only");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testStaleIndexIsIgnored() throws Exception {
+        assertTrue(indexFile.write(createContents()));
+        assertTrue(dataFile.setLastModified(dataFile.lastModified() - 10000));
+        assertNull(indexFile.read());
+    }
+
+    @Test
+    public void testOtherVariantIsIgnored() throws Exception {
+        assertTrue(indexFile.write(createContents()));
+        assertNull(new CacheIndexFile(dataFile, "avoidProteinInference=true").read());
+    }
+
+    private Map<CacheEntry, Object> createContents() {
+        Map<CacheEntry, Object> contents = new EnumMap<CacheEntry, Object>(CacheEntry.class);
+        contents.put(CacheEntry.PROTEIN_ID, new ArrayList<Comparable>(Arrays.asList("P1", "P2")));
+
+        Map<Comparable, List<Comparable>> proteinToPeptides = new HashMap<Comparable, List<Comparable>>();
+        proteinToPeptides.put("P1", new ArrayList<Comparable>(Arrays.asList("SII1", "SII2")));
+        contents.put(CacheEntry.PROTEIN_TO_PEPTIDE_EVIDENCES, proteinToPeptides);
+
+        Map<Comparable, Tuple<String, String>> peptideToSpectrum = new HashMap<Comparable, Tuple<String, String>>();
+        peptideToSpectrum.put("SII1", new Tuple<String, String>("scan=1", "SD1"));
+        peptideToSpectrum.put("SII2", new Tuple<String, String>(null, "SD1"));
+        contents.put(CacheEntry.PEPTIDE_TO_SPECTRUM, peptideToSpectrum);
+
+        SpectrumIdSet spectrumIdentified = new SpectrumIdSet();
+        spectrumIdentified.add("scan=1", "SD1");
+        spectrumIdentified.add("scan=2", "SD2");
+        contents.put(CacheEntry.SPECTRUM_IDENTIFIED, spectrumIdentified);
+
+        Map<Tuple<String, String>, Comparable> mgfTitles = new HashMap<Tuple<String, String>, Comparable>();
+        mgfTitles.put(new Tuple<String, String>("title", "SD1"), "title");
+        contents.put(CacheEntry.MGF_INDEX_TITLE, mgfTitles);
+
+        Map<Tuple<String, String>, List<Tuple<Comparable, Comparable>>> spectrumToPeptides =
+                new HashMap<Tuple<String, String>, List<Tuple<Comparable, Comparable>>>();
+        spectrumToPeptides.put(new Tuple<String, String>("scan=1", "SD1"),
+                Collections.singletonList(new Tuple<Comparable, Comparable>("P1", "SII1")));
+        spectrumToPeptides.put(new Tuple<String, String>(null, "SD1"), new ArrayList<Tuple<Comparable, Comparable>>());
+        contents.put(CacheEntry.SPECTRUM_TO_PEPTIDES, spectrumToPeptides);
+
+        Map<String, CVLookup> cvLookups = new HashMap<String, CVLookup>();
+        cvLookups.put("MS", new CVLookup("MS", "PSI-MS", "3.30.0", "https://example.org/psi-ms.obo"));
+        contents.put(CacheEntry.CV_LOOKUP, cvLookups);
+        return contents;
+    }
+}
@@ -0,0 +1,84 @@
+package uk.ac.ebi.pride.utilities.data.controller.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.pride.utilities.data.core.BinaryDataArray;
+import uk.ac.ebi.pride.utilities.data.core.ParamGroup;
+import uk.ac.ebi.pride.utilities.data.core.Spectrum;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentCacheAccessorTest {
+
+    private ConcurrentCacheAccessor cache;
+
+    @Before
+    public void setUp() throws Exception {
+        cache = new ConcurrentCacheAccessor(4);
+    }
+
+    @Test
+    public void testBoundedEntryEvicts() throws Exception {
+        cache.setMaximumSize(CacheEntry.SPECTRUM, 8);
+        for (int i = 0; i < 100; i++) {
+            cache.store(CacheEntry.SPECTRUM, i, "spectrum " + i);
+        }
+        assertTrue(((Map) cache.get(CacheEntry.SPECTRUM)).size() <= 8);
+        assertEquals(100 - ((Map) cache.get(CacheEntry.SPECTRUM)).size(), cache.getStatistics(CacheEntry.SPECTRUM).getEvictionCount());
+        assertEquals("spectrum 99", cache.get(CacheEntry.SPECTRUM, 99));
+        assertEquals(1, cache.getStatistics(CacheEntry.SPECTRUM).getHitCount());
+        assertNull(cache.get(CacheEntry.SPECTRUM, 0));
+        assertEquals(1, cache.getStatistics(CacheEntry.SPECTRUM).getMissCount());
+    }
+
+    @Test
+    public void testWeightedEntryEvicts() throws Exception {
+        cache.setMaximumWeight(CacheEntry.SPECTRUM, 4000000);
+        for (int i = 0; i < 100; i++) {
+            // 10000 peaks are about 80KB per array
+            BinaryDataArray mz = new BinaryDataArray(null, new double[10000], new ParamGroup());
+            BinaryDataArray intensity = new BinaryDataArray(null, new double[10000], new ParamGroup());
+            Spectrum spectrum = new Spectrum(i, null, i, null, 10000, Arrays.asList(mz, intensity),
+                    null, null, null, null, null, null);
+            cache.store(CacheEntry.SPECTRUM, i, spectrum);
+        }
+        assertTrue(cache.getWeight(CacheEntry.SPECTRUM) <= 4000000);
+        assertTrue(cache.getStatistics(CacheEntry.SPECTRUM).getEvictionCount() > 0);
+        assertNotNull(cache.get(CacheEntry.SPECTRUM, 99));
+    }
+
+    @Test
+    public void testNullValueIsNotRetained() throws Exception {
+        cache.store(CacheEntry.PROTEIN_ACCESSION, "protein", "P12345");
+        cache.store(CacheEntry.PROTEIN_ACCESSION, "protein", null);
+        assertNull(cache.get(CacheEntry.PROTEIN_ACCESSION, "protein"));
+    }
+
+    @Test
+    public void testConcurrentStore() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            final int offset = t * 1000;
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = offset; i < offset + 1000; i++) {
+                        cache.store(CacheEntry.SPECTRUM_ID, i);
+                        cache.store(CacheEntry.MS_LEVEL, i, 2);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        assertEquals(8000, ((Collection) cache.get(CacheEntry.SPECTRUM_ID)).size());
+        assertEquals(8000, ((Map) cache.get(CacheEntry.MS_LEVEL)).size());
+    }
+}
@@ -0,0 +1,93 @@
+package uk.ac.ebi.pride.utilities.data.controller.cache;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentCachedMapTest {
+
+    private static final CacheWeigher ENTRY_WEIGHER = (key, value) -> ((byte[]) value).length;
+
+    @Test
+    public void testSmallMapIsLeastRecentlyUsed() throws Exception {
+        ConcurrentCachedMap<Integer, String> map = new ConcurrentCachedMap<Integer, String>(10);
+        for (int i = 0; i < 10; i++) {
+            map.put(i, "value " + i);
+        }
+        // touch the first entry, the second one is now the eldest
+        map.get(0);
+        map.put(10, "value 10");
+
+        assertEquals(10, map.size());
+        assertTrue(map.containsKey(0));
+        assertFalse(map.containsKey(1));
+        assertEquals(1, map.getStatistics().getEvictionCount());
+    }
+
+    @Test
+    public void testCapacityIsNotExceeded() throws Exception {
+        for (int capacity : new int[]{1, 15, 17, 100, 257, 1000}) {
+            ConcurrentCachedMap<Integer, Integer> map = new ConcurrentCachedMap<Integer, Integer>(capacity);
+            for (int i = 0; i < capacity * 20; i++) {
+                map.put(i, i);
+            }
+            assertTrue("Capacity " + capacity + " exceeded: " + map.size(), map.size() <= capacity);
+        }
+    }
+
+    @Test
+    public void testWeightIsNotExceeded() throws Exception {
+        // every entry is heavier than the weight of a segment, maxWeight / 16
+        ConcurrentCachedMap<Integer, byte[]> map = new ConcurrentCachedMap<Integer, byte[]>(1000, ENTRY_WEIGHER, 16, new CacheStatistics());
+        for (int i = 0; i < 500; i++) {
+            map.put(i, new byte[300]);
+            assertTrue("Weight exceeded: " + map.getWeight(), map.getWeight() <= map.getMaxWeight() + 300);
+        }
+        assertEquals(3, map.size());
+        assertEquals(900, map.getWeight());
+        assertTrue(map.containsKey(499));
+
+        // an entry heavier than the whole map is kept alone
+        map.put(-1, new byte[5000]);
+        assertEquals(1, map.size());
+        assertEquals(5000, map.getWeight());
+
+        map.clear();
+        assertEquals(0, map.getWeight());
+    }
+
+    @Test
+    public void testWeightIsNotExceededByConcurrentPuts() throws Exception {
+        final ConcurrentCachedMap<Integer, byte[]> map = new ConcurrentCachedMap<Integer, byte[]>(10000, ENTRY_WEIGHER, 16, new CacheStatistics());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < 4; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        map.put(thread * 2000 + i, new byte[700 + i % 600]);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        long weight = 0;
+        for (byte[] value : map.values()) {
+            weight += value.length;
+        }
+        assertEquals(weight, map.getWeight());
+        assertTrue("Weight exceeded: " + weight, weight <= map.getMaxWeight() + 1300);
+    }
+}
@@ -0,0 +1,69 @@
+package uk.ac.ebi.pride.utilities.data.controller.cache;
+
+import org.junit.Test;
+import uk.ac.ebi.pride.utilities.data.controller.DataAccessUtilities;
+import uk.ac.ebi.pride.utilities.data.core.*;
+import uk.ac.ebi.pride.utilities.term.CvTermReference;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class PeakArenaTest {
+
+    @Test
+    public void testDirectArena() throws Exception {
+        PeakArena arena = new PeakArena(null, 4096);
+        checkArena(arena);
+        arena.close();
+    }
+
+    @Test
+    public void testMappedArena() throws Exception {
+        File file = File.createTempFile("arena", ".bin");
+        PeakArena arena = new PeakArena(file, 4096);
+        checkArena(arena);
+        arena.close();
+        assertFalse(file.exists());
+    }
+
+    private void checkArena(PeakArena arena) {
+        for (int i = 0; i < 100; i++) {
+            assertTrue(arena.add(createSpectrum("spectrum" + i, i * 3, 2)));
+        }
+        // larger than a segment
+        assertTrue(arena.add(createSpectrum("large", 1000, 1)));
+
+        assertEquals(101, arena.size());
+        assertEquals(150, arena.getNumberOfPeaks("spectrum50"));
+        assertNull(arena.getSpectrum("unknown"));
+
+        Spectrum view = arena.getSpectrum("spectrum50");
+        Spectrum expected = createSpectrum("spectrum50", 150, 2);
+        assertEquals(expected.getMzBinaryDataArray(), view.getMzBinaryDataArray());
+        assertEquals(expected.getIntensityBinaryDataArray(), view.getIntensityBinaryDataArray());
+        assertEquals(2, DataAccessUtilities.getMsLevel(view));
+        assertTrue(view.getMzBinaryDataArray().asDoubleBuffer().isReadOnly());
+
+        assertEquals(1998, arena.getSpectrum("large").getIntensityBinaryDataArray().get(999), 0);
+    }
+
+    private Spectrum createSpectrum(String id, int numberOfPeaks, int msLevel) {
+        double[] mz = new double[numberOfPeaks];
+        double[] intensity = new double[numberOfPeaks];
+        for (int i = 0; i < numberOfPeaks; i++) {
+            mz[i] = 100 + i;
+            intensity[i] = i * 2;
+        }
+
+        BinaryDataArray mzArray = new BinaryDataArray(null, mz, createParamGroup(CvTermReference.MZ_ARRAY, null));
+        BinaryDataArray intensityArray = new BinaryDataArray(null, intensity, createParamGroup(CvTermReference.INTENSITY_ARRAY, null));
+        return new Spectrum(createParamGroup(CvTermReference.MS_LEVEL, String.valueOf(msLevel)), id, null, 0, null,
+                numberOfPeaks, Arrays.asList(mzArray, intensityArray), null, null, null, null, null);
+    }
+
+    private ParamGroup createParamGroup(CvTermReference cvTerm, String value) {
+        return new ParamGroup(new CvParam(cvTerm.getAccession(), cvTerm.getName(), cvTerm.getCvLabel(), value, null, null, null), null);
+    }
+}
@@ -0,0 +1,52 @@
+package uk.ac.ebi.pride.utilities.data.controller.cache;
+
+import org.junit.Test;
+import uk.ac.ebi.pride.utilities.util.Tuple;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class PeptideToSpectrumMapTest {
+
+    @Test
+    public void testSameAsHashMap() throws Exception {
+        Map<Comparable, Tuple<String, String>> expected = new HashMap<Comparable, Tuple<String, String>>();
+        for (int i = 0; i < 1000; i++) {
+            // numeric, pooled and null spectrum ids
+            String spectrumId = i % 3 == 0 ? String.valueOf(i) : (i % 3 == 1 ? "controllerType=0 controllerNumber=1 scan=" + i : null);
+            expected.put("SII_" + i, new Tuple<String, String>(spectrumId, "SD" + (i % 2)));
+        }
+        expected.put("SII_null", null);
+        expected.put("SII_zero", new Tuple<String, String>("007", "SD1"));
+
+        PeptideToSpectrumMap map = new PeptideToSpectrumMap(expected);
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        assertEquals(expected.hashCode(), map.hashCode());
+        assertTrue(map.containsKey("SII_null"));
+        assertNull(map.get("SII_null"));
+        assertEquals("007", map.get("SII_zero").getKey());
+        assertNull(map.get("SII_unknown"));
+    }
+
+    @Test
+    public void testPutAndRemove() throws Exception {
+        PeptideToSpectrumMap map = new PeptideToSpectrumMap();
+        assertNull(map.put("SII_1", new Tuple<String, String>("1", "SD1")));
+        assertEquals(new Tuple<String, String>("1", "SD1"), map.put("SII_1", new Tuple<String, String>("2", "SD1")));
+        map.put("SII_2", new Tuple<String, String>("3", "SD2"));
+
+        assertEquals(2, map.size());
+        assertEquals(new Tuple<String, String>("2", "SD1"), map.remove("SII_1"));
+        assertEquals(1, map.size());
+        assertFalse(map.containsKey("SII_1"));
+        assertEquals(1, map.entrySet().size());
+
+        map.put("SII_1", new Tuple<String, String>("4", "SD1"));
+        assertEquals(new Tuple<String, String>("4", "SD1"), map.get("SII_1"));
+        map.clear();
+        assertTrue(map.isEmpty());
+    }
+}
@@ -0,0 +1,50 @@
+package uk.ac.ebi.pride.utilities.data.controller.cache;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class SpectraDataToSpectrumIdsMapTest {
+
+    @Test
+    public void testAdd() throws Exception {
+        SpectraDataToSpectrumIdsMap map = new SpectraDataToSpectrumIdsMap();
+        Map<Comparable, List<Comparable>> expected = new HashMap<Comparable, List<Comparable>>();
+        for (int i = 0; i < 100; i++) {
+            String spectraDataId = "SD" + (i % 3);
+            String spectrumId = i % 2 == 0 ? String.valueOf(i) : "index=" + i;
+            map.add(spectraDataId, spectrumId);
+            if (!expected.containsKey(spectraDataId)) {
+                expected.put(spectraDataId, new ArrayList<Comparable>());
+            }
+            expected.get(spectraDataId).add(spectrumId);
+        }
+
+        assertEquals(expected, map);
+        assertEquals(3, map.size());
+        assertEquals(34, map.get("SD0").size());
+        assertEquals("index=1", map.get("SD1").get(0));
+        assertNull(map.get("SD3"));
+    }
+
+    @Test
+    public void testListViews() throws Exception {
+        SpectraDataToSpectrumIdsMap map = new SpectraDataToSpectrumIdsMap();
+        map.put("SD1", new ArrayList<Comparable>(Arrays.asList("1", "2")));
+
+        List<Comparable> spectrumIds = map.get("SD1");
+        spectrumIds.add("scan=3");
+        assertEquals(Arrays.asList("1", "2", "scan=3"), map.get("SD1"));
+
+        List<Comparable> previous = map.put("SD1", new ArrayList<Comparable>(Collections.singletonList("4")));
+        assertEquals(Arrays.asList("1", "2", "scan=3"), previous);
+        assertTrue(spectrumIds.isEmpty());
+        assertEquals(Collections.singletonList("4"), map.get("SD1"));
+
+        map.remove("SD1");
+        assertFalse(map.containsKey("SD1"));
+        assertTrue(map.isEmpty());
+    }
+}
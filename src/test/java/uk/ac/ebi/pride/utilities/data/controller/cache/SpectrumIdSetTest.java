@@ -0,0 +1,61 @@
+package uk.ac.ebi.pride.utilities.data.controller.cache;
+
+import org.junit.Test;
+import uk.ac.ebi.pride.utilities.util.Tuple;
+
+import static org.junit.Assert.*;
+
+public class SpectrumIdSetTest {
+
+    @Test
+    public void testContains() throws Exception {
+        SpectrumIdSet spectra = new SpectrumIdSet();
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(spectra.add("scan=" + i, "SD" + (i % 3)));
+        }
+        assertFalse(spectra.add(new Tuple<String, String>("scan=3", "SD0")));
+
+        assertEquals(10000, spectra.size());
+        assertEquals(3, spectra.getSpectraDataIds().size());
+        assertTrue(spectra.contains(new Tuple<String, String>("scan=4", "SD1")));
+        assertFalse(spectra.contains(new Tuple<String, String>("scan=4", "SD0")));
+        assertFalse(spectra.contains(new Tuple<String, String>("scan=4", "SD3")));
+        assertFalse(spectra.contains(new Tuple<String, String>("scan=10000", "SD1")));
+        assertFalse(spectra.contains("scan=4"));
+    }
+
+    @Test
+    public void testAddAllAndCopy() throws Exception {
+        SpectrumIdSet first = new SpectrumIdSet();
+        first.add("scan=1", "SD1");
+        first.add(null, "SD1");
+
+        SpectrumIdSet second = new SpectrumIdSet();
+        second.add("scan=1", "SD2");
+        second.addAll(first);
+
+        assertEquals(3, second.size());
+        assertTrue(second.contains(null, "SD1"));
+        assertTrue(second.contains("scan=1", "SD2"));
+
+        // ordinals are not the same in both sets
+        SpectrumIdSet copy = new SpectrumIdSet(second.getSpectraDataIds(), second.getKeys());
+        SpectrumIdSet other = new SpectrumIdSet();
+        other.addAll(first);
+        other.add("scan=1", "SD2");
+        assertEquals(second, copy);
+        assertEquals(second, other);
+        assertEquals(second.hashCode(), other.hashCode());
+        assertFalse(first.equals(second));
+    }
+
+    @Test
+    public void testCacheLookup() throws Exception {
+        Tuple<String, String> spectrum = new Tuple<String, String>("scan=1", "SD1");
+        for (Cache cache : new Cache[]{new CacheAccessor(), new ConcurrentCacheAccessor()}) {
+            cache.store(CacheEntry.SPECTRUM_IDENTIFIED, spectrum);
+            assertEquals(spectrum, cache.get(CacheEntry.SPECTRUM_IDENTIFIED, new Tuple<String, String>("scan=1", "SD1")));
+            assertNull(cache.get(CacheEntry.SPECTRUM_IDENTIFIED, new Tuple<String, String>("scan=2", "SD1")));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package uk.ac.ebi.pride.utilities.data.controller.cache;
+
+import org.junit.Test;
+import uk.ac.ebi.pride.utilities.util.Tuple;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class SpectrumToPeptidesMapTest {
+
+    @Test
+    public void testSameAsHashMap() throws Exception {
+        Map<Tuple<String, String>, List<Tuple<Comparable, Comparable>>> expected =
+                new HashMap<Tuple<String, String>, List<Tuple<Comparable, Comparable>>>();
+        for (int i = 0; i < 1000; i++) {
+            // numeric, pooled and null spectrum ids
+            String spectrumId = i % 3 == 0 ? String.valueOf(i) : (i % 3 == 1 ? "controllerType=0 controllerNumber=1 scan=" + i : null);
+            List<Tuple<Comparable, Comparable>> peptides = new ArrayList<Tuple<Comparable, Comparable>>();
+            for (int j = 0; j < i % 4; j++) {
+                peptides.add(new Tuple<Comparable, Comparable>("PROT_" + (i % 50), "SII_" + i + "_" + j));
+            }
+            expected.put(new Tuple<String, String>(spectrumId, "SD" + (i % 2)), peptides);
+        }
+        expected.put(new Tuple<String, String>("007", "SD1"), null);
+
+        SpectrumToPeptidesMap map = new SpectrumToPeptidesMap(expected);
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        assertEquals(expected.hashCode(), map.hashCode());
+        assertTrue(map.containsKey(new Tuple<String, String>("007", "SD1")));
+        assertNull(map.get(new Tuple<String, String>("007", "SD1")));
+        assertNull(map.get(new Tuple<String, String>("7", "SD1")));
+        assertNull(map.get(new Tuple<String, String>("unknown", "SD1")));
+        assertNull(map.get(new Tuple<String, String>("3", "SD_unknown")));
+        assertNull(map.get("3"));
+    }
+
+    @Test
+    public void testAddPeptides() throws Exception {
+        SpectrumToPeptidesMap map = new SpectrumToPeptidesMap();
+        map.addSpectrum("scan=1", "SD1");
+        map.addPeptide("scan=2", "SD1", "PROT_1", "SII_1");
+        map.addPeptide("scan=2", "SD1", "PROT_2", "SII_1");
+        map.addSpectrum("scan=2", "SD1");
+
+        assertEquals(2, map.size());
+        assertEquals(Collections.emptyList(), map.get(new Tuple<String, String>("scan=1", "SD1")));
+        assertEquals(Arrays.asList(new Tuple<Comparable, Comparable>("PROT_1", "SII_1"), new Tuple<Comparable, Comparable>("PROT_2", "SII_1")),
+                map.get(new Tuple<String, String>("scan=2", "SD1")));
+
+        assertNotNull(map.remove(new Tuple<String, String>("scan=2", "SD1")));
+        assertEquals(1, map.size());
+        assertEquals(1, map.entrySet().size());
+        map.addPeptide("scan=2", "SD1", "PROT_3", "SII_2");
+        assertEquals(Collections.singletonList(new Tuple<Comparable, Comparable>("PROT_3", "SII_2")),
+                map.get(new Tuple<String, String>("scan=2", "SD1")));
+        map.clear();
+        assertTrue(map.isEmpty());
+    }
+}
@@ -0,0 +1,100 @@
+package uk.ac.ebi.pride.utilities.data.controller.impl.ControllerImpl;
+
+import org.junit.Test;
+import uk.ac.ebi.pride.utilities.data.core.Spectrum;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the bulk spectrum methods of the CachedDataAccessController against getSpectrumById
+ */
+public class CachedDataAccessControllerTest {
+
+    @Test
+    public void testGetSpectraByIds() throws Exception {
+        MzMLControllerImpl controller = new MzMLControllerImpl(getFile("tiny.pwiz.1.1.mzML"));
+        Spectrum cached = controller.getSpectrumById("scan=20");
+
+        List<Spectrum> spectra = controller.getSpectraByIds(Arrays.<Comparable>asList(
+                "sample=1 period=1 cycle=22 experiment=1", "unknown", "scan=20", "scan=19", "scan=20"));
+
+        assertEquals(5, spectra.size());
+        assertEquals("sample=1 period=1 cycle=22 experiment=1", spectra.get(0).getId());
+        assertEquals(controller.getSpectrumById("sample=1 period=1 cycle=22 experiment=1"), spectra.get(0));
+        assertNull("Unknown ids should return null", spectra.get(1));
+        assertSame("Cached spectra should come from the cache", cached, spectra.get(2));
+        assertEquals("scan=19", spectra.get(3).getId());
+        assertEquals(controller.getSpectrumById("scan=19"), spectra.get(3));
+        assertSame(cached, spectra.get(4));
+        controller.close();
+    }
+
+    @Test
+    public void testStreamSpectraMzML() throws Exception {
+        MzMLControllerImpl controller = new MzMLControllerImpl(getFile("tiny.pwiz.1.1.mzML"));
+        checkStreamSpectra(controller);
+        controller.close();
+    }
+
+    @Test
+    public void testStreamSpectraMzXML() throws Exception {
+        MzXmlControllerImpl controller = new MzXmlControllerImpl(getFile("testfile.mzXML"));
+        ForkJoinPool pool = new ForkJoinPool(2);
+        controller.setSpectrumExecutor(pool);
+        checkStreamSpectra(controller);
+        controller.close();
+        pool.shutdown();
+    }
+
+    @Test
+    public void testStreamSpectraPeak() throws Exception {
+        PeakControllerImpl controller = new PeakControllerImpl(getFile("small.mgf"));
+        checkStreamSpectra(controller);
+        controller.close();
+    }
+
+    /**
+     * A controller which does not read raw spectra must fall back to getSpectrumById
+     */
+    @Test
+    public void testStreamSpectraWithoutRawSpectra() throws Exception {
+        MzMLControllerImpl controller = new MzMLControllerImpl(getFile("tiny.pwiz.1.1.mzML")) {
+            @Override
+            Object getRawSpectrumById(Comparable id) {
+                return null;
+            }
+        };
+        checkStreamSpectra(controller);
+        assertEquals(controller.getSpectrumById("scan=19"),
+                controller.getSpectraByIds(Arrays.<Comparable>asList("scan=19")).get(0));
+        controller.close();
+    }
+
+    private void checkStreamSpectra(CachedDataAccessController controller) {
+        Iterator<Comparable> ids = controller.getSpectrumIds().iterator();
+        try (Stream<Spectrum> spectra = controller.streamSpectra()) {
+            Iterator<Spectrum> iterator = spectra.iterator();
+            while (iterator.hasNext()) {
+                assertTrue("The stream should not have more spectra than ids", ids.hasNext());
+                assertEquals(controller.getSpectrumById(ids.next()), iterator.next());
+            }
+        }
+        assertFalse("The stream should have a spectrum per id", ids.hasNext());
+    }
+
+    private File getFile(String name) throws Exception {
+        URL url = CachedDataAccessControllerTest.class.getClassLoader().getResource(name);
+        if (url == null) {
+            throw new IllegalStateException("no file for input found!");
+        }
+        return new File(url.toURI());
+    }
+}
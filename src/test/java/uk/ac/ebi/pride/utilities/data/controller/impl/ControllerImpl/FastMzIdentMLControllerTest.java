@@ -172,6 +172,28 @@ public class FastMzIdentMLControllerTest {
         fastMzIdentMLController.getNumberOfIdentifiedSpectra());
   }
 
+  /** The streaming mode should give the same validation results as the in-memory mode */
+  @Test
+  public void streamingSpectraValidation() throws Exception {
+    URL url = FastMzIdentMLControllerTest.class.getClassLoader().getResource("small.mzid");
+    URL urlMgf = MzIdentMLControllerIterativeTest.class.getClassLoader().getResource("small.mgf");
+    FastMzIdentMLController streamingController = new FastMzIdentMLController(new File(url.toURI()), true);
+    streamingController.addMSController(Collections.singletonList(new File(urlMgf.toURI())));
+    streamingController.doSpectraValidation();
+
+    assertEquals(
+        fastMzIdentMLController.getNumberOfIdentifiedSpectra(),
+        streamingController.getNumberOfIdentifiedSpectra());
+    assertEquals(
+        fastMzIdentMLController.getNumberOfMissingSpectra(),
+        streamingController.getNumberOfMissingSpectra());
+    assertEquals(
+        fastMzIdentMLController.hasProteinAmbiguityGroup(),
+        streamingController.hasProteinAmbiguityGroup());
+    assertTrue(streamingController.getSampleDeltaMzErrorRate(100, 4.0) < 4.0);
+    streamingController.close();
+  }
+
   /** Randomly check if the delta mass is within the threshold specified */
   @Test
   public void checkRandomSpectraByDeltaMassThreshold() {
@@ -0,0 +1,59 @@
+package uk.ac.ebi.pride.utilities.data.controller.impl.ControllerImpl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.pride.utilities.data.controller.cache.CacheEntry;
+
+import java.io.File;
+import java.net.URL;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * The parallel pre-scan of an mzIdentML file must build the same cache as the serial one
+ * @author Rui Wang
+ * @author Yasset Perez-Riverol
+ */
+public class MzIdentMLParallelPrescanTest {
+
+    private static final CacheEntry[] PRESCAN_ENTRIES = {
+            CacheEntry.PROTEIN_ID,
+            CacheEntry.PROTEIN_TO_PEPTIDE_EVIDENCES,
+            CacheEntry.SPECTRADATA_TO_SPECTRUMIDS,
+            CacheEntry.PEPTIDE_TO_SPECTRUM,
+            CacheEntry.SPECTRUM_IDENTIFIED
+    };
+
+    private MzIdentMLControllerImpl serialController = null;
+
+    private MzIdentMLControllerImpl parallelController = null;
+
+    @Before
+    public void setUp() throws Exception {
+        URL url = MzIdentMLParallelPrescanTest.class.getClassLoader().getResource("20110827_K1_A (K1A).mzid");
+        if (url == null) {
+            throw new IllegalStateException("no file for input found!");
+        }
+        File inputFile = new File(url.toURI());
+        serialController = new MzIdentMLControllerImpl(inputFile, false, false, null, false, 1);
+        parallelController = new MzIdentMLControllerImpl(inputFile, false, false, null, false, 4);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        serialController.close();
+        parallelController.close();
+    }
+
+    @Test
+    public void testSameCache() throws Exception {
+        for (CacheEntry entry : PRESCAN_ENTRIES) {
+            Object serial = serialController.getCache().get(entry);
+            assertNotNull("Cache entry should be filled: " + entry, serial);
+            assertEquals("Cache entry should be the same: " + entry, serial, parallelController.getCache().get(entry));
+        }
+        assertEquals(serialController.getProteinIds(), parallelController.getProteinIds());
+    }
+}
@@ -0,0 +1,75 @@
+package uk.ac.ebi.pride.utilities.data.controller.impl.ControllerImpl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.pride.utilities.data.controller.cache.CacheEntry;
+import uk.ac.ebi.pride.utilities.data.controller.cache.CacheIndexFile;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A controller opened from a valid index file must build the same cache as one which pre-scans the mzIdentML file
+ * @author Rui Wang
+ * @author Yasset Perez-Riverol
+ */
+public class MzIdentMLPrescanIndexTest {
+
+    private static final CacheEntry[] INDEXED_ENTRIES = {
+            CacheEntry.PROTEIN_ID,
+            CacheEntry.PROTEIN_TO_PEPTIDE_EVIDENCES,
+            CacheEntry.SPECTRADATA_TO_SPECTRUMIDS,
+            CacheEntry.PEPTIDE_TO_SPECTRUM,
+            CacheEntry.SPECTRUM_TO_PEPTIDES,
+            CacheEntry.SPECTRA_DATA
+    };
+
+    private File inputFile = null;
+
+    @Before
+    public void setUp() throws Exception {
+        URL url = MzIdentMLPrescanIndexTest.class.getClassLoader().getResource("MzID_PTMS.scored.mzid");
+        if (url == null) {
+            throw new IllegalStateException("no file for input found!");
+        }
+        inputFile = File.createTempFile("prescan-index", ".mzid");
+        Files.copy(new File(url.toURI()).toPath(), inputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(new File(inputFile.getPath() + CacheIndexFile.INDEX_FILE_EXTENSION).toPath());
+        Files.deleteIfExists(inputFile.toPath());
+    }
+
+    @Test
+    public void testReopenFromIndex() throws Exception {
+        MzIdentMLControllerImpl scanned = new MzIdentMLControllerImpl(inputFile, false, false, null, true);
+        assertTrue(new File(inputFile.getPath() + CacheIndexFile.INDEX_FILE_EXTENSION).exists());
+
+        MzIdentMLControllerImpl restored = new MzIdentMLControllerImpl(inputFile, false, false, null, true);
+        try {
+            for (CacheEntry entry : INDEXED_ENTRIES) {
+                Object expected = scanned.getCache().get(entry);
+                assertNotNull("Cache entry should be filled: " + entry, expected);
+                assertEquals("Cache entry should be the same: " + entry, expected, restored.getCache().get(entry));
+            }
+            assertEquals(scanned.getProteinIds(), restored.getProteinIds());
+            assertEquals(scanned.getNumberOfIdentifiedSpectra(), restored.getNumberOfIdentifiedSpectra());
+            for (Comparable proteinId : restored.getProteinIds()) {
+                assertEquals(scanned.getProteinById(proteinId).getDbSequence().getAccession(),
+                        restored.getProteinById(proteinId).getDbSequence().getAccession());
+            }
+        } finally {
+            scanned.close();
+            restored.close();
+        }
+    }
+}
@@ -3,12 +3,18 @@ package uk.ac.ebi.pride.utilities.data.controller.impl.ControllerImpl;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import uk.ac.ebi.pride.utilities.data.controller.DataAccessUtilities;
+import uk.ac.ebi.pride.utilities.data.controller.cache.PeakArena;
 import uk.ac.ebi.pride.utilities.data.core.*;
 
 import java.io.File;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -108,6 +114,50 @@ public class MzMLControllerImplTest {
         assertEquals("CvTerm Scan List Scan Windows", spectrum.getScanList().getScans().get(0).getScanWindows().get(0).getCvParams().get(0).getName(),"scan window lower limit");
     }
 
+    @Test
+    public void testStreamSpectra() throws Exception {
+        List<Comparable> ids = new ArrayList<Comparable>(mzMLController.getSpectrumIds());
+        ForkJoinPool pool = new ForkJoinPool(2);
+
+        try (Stream<Spectrum> spectra = mzMLController.streamSpectra(pool, 2, true)) {
+            assertEquals("Spectra should be in file order", ids, spectra.map(Spectrum::getId).collect(Collectors.toList()));
+        }
+        try (Stream<Spectrum> spectra = mzMLController.streamSpectra(pool, 1, false)) {
+            assertEquals("All the spectra should be read", new HashSet<Comparable>(ids), spectra.map(Spectrum::getId).collect(Collectors.toSet()));
+        }
+        try (Stream<Spectrum> spectra = mzMLController.streamSpectra(pool, 1, true)) {
+            assertEquals("The stream can be closed early", 1, spectra.limit(1).count());
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void testFillPeakArena() throws Exception {
+        List<Comparable> ids = new ArrayList<Comparable>(mzMLController.getSpectrumIds());
+        PeakArena arena = new PeakArena();
+        assertEquals("All the spectra should be added", ids.size(), mzMLController.fillPeakArena(arena, -1));
+        assertEquals(ids, arena.getSpectrumIds());
+        for (Comparable id : ids) {
+            Spectrum expected = mzMLController.getSpectrumById(id);
+            Spectrum spectrum = arena.getSpectrum(id);
+            assertEquals(expected.getMzBinaryDataArray(), spectrum.getMzBinaryDataArray());
+            assertEquals(expected.getIntensityBinaryDataArray(), spectrum.getIntensityBinaryDataArray());
+            assertEquals(DataAccessUtilities.getMsLevel(expected), DataAccessUtilities.getMsLevel(spectrum));
+        }
+        arena.close();
+
+        int ms2Spectra = 0;
+        for (Comparable id : ids) {
+            if (DataAccessUtilities.getMsLevel(mzMLController.getSpectrumById(id)) == 2) {
+                ms2Spectra++;
+            }
+        }
+        arena = new PeakArena();
+        assertEquals("Only the MS2 spectra should be added", ms2Spectra, mzMLController.fillPeakArena(arena, 2));
+        assertEquals(ms2Spectra, arena.size());
+        arena.close();
+    }
+
     @Test
     public void testGetChromatogramIds() throws Exception {
         List<Comparable> ids = new ArrayList<Comparable>(mzMLController.getChromatogramIds());
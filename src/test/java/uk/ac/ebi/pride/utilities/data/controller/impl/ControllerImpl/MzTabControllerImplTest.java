@@ -4,14 +4,17 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
+import uk.ac.ebi.pride.utilities.data.controller.cache.CacheEntry;
 import uk.ac.ebi.pride.utilities.data.core.*;
 
 import java.io.File;
 import java.net.URL;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -163,4 +166,16 @@ public class MzTabControllerImplTest {
         assertTrue("Is a valid file:", MzTabControllerImpl.isValidFormat((File)mzTabController.getSource()));
     }
 
+    @Test
+    public void testGetPeptidesBySpectrum() throws Exception {
+        Map<Comparable, List<Comparable>> proteinToPsms = (Map<Comparable, List<Comparable>>) mzTabController.getCache().get(CacheEntry.PROTEIN_TO_PEPTIDE_EVIDENCES);
+        Comparable psmId = proteinToPsms.values().iterator().next().get(0);
+        Comparable spectrumId = mzTabController.getSpectrumIdBySpectrumIdentificationItemId(psmId);
+
+        assertTrue("Spectrum should be identified", mzTabController.isIdentifiedSpectrum(spectrumId));
+        assertFalse("Spectrum should not be identified", mzTabController.isIdentifiedSpectrum("unknown!unknown"));
+
+        assertFalse("Spectrum should identify peptides", mzTabController.getPeptidesBySpectrum(spectrumId).isEmpty());
+        assertTrue("Unknown spectrum should not identify any peptide", mzTabController.getPeptidesBySpectrum("unknown!unknown").isEmpty());
+    }
 }
@@ -4,11 +4,17 @@ package uk.ac.ebi.pride.utilities.data.controller.impl.ControllerImpl;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import uk.ac.ebi.pride.utilities.data.controller.cache.CacheEntry;
 import uk.ac.ebi.pride.utilities.data.core.Chromatogram;
 import uk.ac.ebi.pride.utilities.data.core.Spectrum;
 
 import java.io.File;
 import java.net.URL;
+import java.util.Collection;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 public class PeakControllerImplTest{
 
@@ -43,6 +49,20 @@ public class PeakControllerImplTest{
         }
     }
 
+    /**
+     * A title which does not map to a spectrum must not make the title index rebuild on every call
+     */
+    @Test
+    public void testTitleIndexIsBuiltOnce() throws Exception {
+        peakController.getCache().store(CacheEntry.TITLE_MGF_INDEX, "unmapped title", "no such spectrum");
+        Map<Comparable, Comparable> titles = (Map<Comparable, Comparable>) peakController.getCache().get(CacheEntry.TITLE_MGF_INDEX);
+
+        Collection<Comparable> spectrumIds = peakController.getSpectrumIds();
+        assertEquals(titles.size() - 1, spectrumIds.size());
+        assertSame(spectrumIds, peakController.getSpectrumIds());
+        assertSame(peakController.getSpectrumIdIndex(), peakController.getSpectrumIdIndex());
+    }
+
     @After
     public void tearDown() throws Exception {
 
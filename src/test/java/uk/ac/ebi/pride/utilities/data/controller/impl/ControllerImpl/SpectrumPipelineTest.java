@@ -0,0 +1,83 @@
+package uk.ac.ebi.pride.utilities.data.controller.impl.ControllerImpl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.pride.utilities.data.controller.DataAccessException;
+import uk.ac.ebi.pride.utilities.data.core.Spectrum;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test that the failures of the spectrum pipeline reach the consumer instead of blocking it
+ */
+public class SpectrumPipelineTest {
+
+    private File inputFile;
+
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp() throws Exception {
+        URL url = SpectrumPipelineTest.class.getClassLoader().getResource("tiny.pwiz.1.1.mzML");
+        if (url == null) {
+            throw new IllegalStateException("no file for input found!");
+        }
+        inputFile = new File(url.toURI());
+        pool = new ForkJoinPool(2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        pool.shutdown();
+    }
+
+    @Test(timeout = 10000)
+    public void testTransformFailure() throws Exception {
+        MzMLControllerImpl controller = new MzMLControllerImpl(inputFile) {
+            @Override
+            Spectrum transformSpectrum(Object rawSpectrum) {
+                throw new IllegalStateException("broken transform");
+            }
+        };
+
+        for (boolean ordered : new boolean[]{true, false}) {
+            try (Stream<Spectrum> spectra = controller.streamSpectra(pool, 2, ordered)) {
+                spectra.iterator().next();
+                fail("The transform failure should be thrown");
+            } catch (IllegalStateException e) {
+                assertEquals("broken transform", e.getMessage());
+            }
+        }
+        controller.close();
+    }
+
+    @Test(timeout = 10000)
+    public void testReaderFailure() throws Exception {
+        MzMLControllerImpl controller = new MzMLControllerImpl(inputFile) {
+            @Override
+            Object getRawSpectrumById(Comparable id) {
+                if ("scan=20".equals(id)) {
+                    throw new AssertionError("broken reader");
+                }
+                return super.getRawSpectrumById(id);
+            }
+        };
+
+        try (Stream<Spectrum> spectra = controller.streamSpectra(pool, 2, true)) {
+            Iterator<Spectrum> iterator = spectra.iterator();
+            assertEquals("scan=19", iterator.next().getId());
+            iterator.next();
+            fail("The reader failure should be thrown");
+        } catch (DataAccessException e) {
+            assertTrue(e.getCause() instanceof AssertionError);
+        }
+        controller.close();
+    }
+}
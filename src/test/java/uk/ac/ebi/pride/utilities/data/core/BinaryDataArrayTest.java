@@ -0,0 +1,64 @@
+package uk.ac.ebi.pride.utilities.data.core;
+
+import org.junit.Test;
+
+import java.nio.DoubleBuffer;
+import java.nio.ReadOnlyBufferException;
+
+import static org.junit.Assert.*;
+
+public class BinaryDataArrayTest {
+
+    @Test
+    public void testViews() {
+        double[] values = {1.5, 2.5, 3.5};
+        BinaryDataArray array = new BinaryDataArray(null, values, new ParamGroup());
+
+        values[0] = 100;
+        assertEquals(3, array.size());
+        assertEquals(1.5, array.get(0), 0);
+        assertEquals(3.5, array.get(2), 0);
+
+        DoubleBuffer buffer = array.asDoubleBuffer();
+        assertEquals(3, buffer.remaining());
+        assertEquals(2.5, buffer.get(1), 0);
+
+        final double[] sum = {0};
+        array.forEach(value -> sum[0] += value);
+        assertEquals(7.5, sum[0], 0);
+    }
+
+    @Test(expected = ReadOnlyBufferException.class)
+    public void testDoubleBufferIsReadOnly() {
+        new BinaryDataArray(null, new double[]{1}, new ParamGroup()).asDoubleBuffer().put(0, 2);
+    }
+
+    @Test
+    public void testOwnershipTransfer() {
+        double[] values = {1.5, 2.5};
+        BinaryDataArray array = new BinaryDataArray(null, values, new ParamGroup(), false);
+
+        values[0] = 100;
+        assertEquals(100, array.get(0), 0);
+        assertArrayEquals(values, new BinaryDataArray(array).getDoubleArray(), 0);
+    }
+
+    @Test
+    public void testCompactStorage() {
+        BinaryDataArray compact = new BinaryDataArray(null, new float[]{1.5f, 2.25f}, new ParamGroup(), false);
+        BinaryDataArray wide = new BinaryDataArray(null, new double[]{1.5, 2.25}, new ParamGroup());
+
+        assertTrue(compact.isCompact());
+        assertFalse(wide.isCompact());
+        assertEquals(2, compact.size());
+        assertEquals(2.25, compact.get(1), 0);
+        assertArrayEquals(new double[]{1.5, 2.25}, compact.getDoubleArray(), 0);
+        assertEquals(1.5, compact.asDoubleBuffer().get(0), 0);
+        assertEquals(wide, compact);
+        assertEquals(wide.hashCode(), compact.hashCode());
+
+        compact.setDoubleArray(new double[]{3});
+        assertFalse(compact.isCompact());
+        assertEquals(3, compact.get(0), 0);
+    }
+}
@@ -9,8 +9,11 @@ import uk.ac.ebi.pride.utilities.data.controller.impl.ControllerImpl.MzIdentMLCo
 
 import java.io.*;
 import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.*;
 
 /**
  *  The filtering when exporting a mzIdentML to mzTab is done follows the next set of rules:
@@ -62,6 +65,78 @@ public class HQMzIdentMLMzTabConverterTest {
         tmpFile.deleteOnExit();
     }
 
+    /**
+     * The streaming conversion must write the same bytes as the mzTab file converted in memory, with protein
+     * ambiguity groups (K1A) and without them (MzID_PTMS)
+     */
+    @Test
+    public void writeMzTabMatchesInMemoryConversion() throws Exception {
+        assertTrue(mzIdentMLController.hasProteinAmbiguityGroup());
+        assertStreamingMatchesInMemory(mzIdentMLController);
+
+        MzIdentMLControllerImpl controller = new MzIdentMLControllerImpl(getFile("MzID_PTMS.scored.mzid"));
+        assertFalse(controller.hasProteinAmbiguityGroup());
+        assertStreamingMatchesInMemory(controller);
+        controller.close();
+    }
+
+    private void assertStreamingMatchesInMemory(MzIdentMLControllerImpl controller) throws IOException {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        new MzIdentMLMzTabConverter(controller).getMZTabFile().printMZTab(expected);
+
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        new MzIdentMLMzTabConverter(controller).writeMzTab(streamed);
+
+        assertEquals(expected.toString("UTF-8"), streamed.toString("UTF-8"));
+        assertArrayEquals(expected.toByteArray(), streamed.toByteArray());
+    }
+
+    /**
+     * Converting the proteins on an executor, in small batches and rounds, must give the same mzTab as the serial
+     * conversion, with protein ambiguity groups (K1A) and without them (MzID_PTMS)
+     */
+    @Test
+    public void convertToMzTabInParallel() throws Exception {
+        MzIdentMLControllerImpl controller = new MzIdentMLControllerImpl(getFile("MzID_PTMS.scored.mzid"));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (MzIdentMLControllerImpl source : Arrays.asList(mzIdentMLController, controller)) {
+                String serial = printMzTab(new MzIdentMLMzTabConverter(source));
+
+                MzIdentMLMzTabConverter parallel = new MzIdentMLMzTabConverter(source);
+                parallel.setExecutor(executor, 2, 3);
+                assertEquals(serial, printMzTab(parallel));
+
+                MzIdentMLMzTabConverter streaming = new MzIdentMLMzTabConverter(source);
+                streaming.setExecutor(executor, 2, 3);
+                ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+                streaming.writeMzTab(streamed);
+                assertEquals(serial, streamed.toString("UTF-8"));
+
+                HQMzIdentMLMzTabConverter hqParallel = new HQMzIdentMLMzTabConverter(source);
+                hqParallel.setExecutor(executor, 2, 3);
+                assertEquals(printMzTab(new HQMzIdentMLMzTabConverter(source)), printMzTab(hqParallel));
+            }
+        } finally {
+            executor.shutdown();
+            controller.close();
+        }
+    }
+
+    private static String printMzTab(AbstractMzTabConverter converter) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        converter.getMZTabFile().printMZTab(out);
+        return out.toString("UTF-8");
+    }
+
+    private File getFile(String name) throws Exception {
+        URL url = HQMzIdentMLMzTabConverterTest.class.getClassLoader().getResource(name);
+        if (url == null) {
+            throw new IllegalStateException("no file for input found!");
+        }
+        return new File(url.toURI());
+    }
+
     @After
     public void tearDown() throws Exception {
 
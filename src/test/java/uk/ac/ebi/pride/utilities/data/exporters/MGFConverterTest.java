@@ -3,10 +3,25 @@ package uk.ac.ebi.pride.utilities.data.exporters;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import uk.ac.ebi.pride.utilities.data.controller.DataAccessController;
+import uk.ac.ebi.pride.utilities.data.controller.impl.ControllerImpl.MzMLControllerImpl;
 import uk.ac.ebi.pride.utilities.data.controller.impl.ControllerImpl.PrideXmlControllerImpl;
+import uk.ac.ebi.pride.utilities.data.core.Spectrum;
+import uk.ac.ebi.pride.utilities.data.utils.Constants;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
 import java.net.URL;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Test the MGF exporter
@@ -39,4 +54,114 @@ public class MGFConverterTest {
             tempFile.delete();
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testConvertInParallel() throws Exception {
+        File serialFile = File.createTempFile("serial", ".mgf");
+        File parallelFile = File.createTempFile("parallel", ".mgf");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            new MGFConverter(prideController, serialFile.getAbsolutePath()).convert();
+
+            MGFConverter converter = new MGFConverter(prideController, parallelFile.getAbsolutePath());
+            converter.setExecutor(executor, 3, 2);
+            converter.convert();
+
+            byte[] serial = Files.readAllBytes(serialFile.toPath());
+            assertTrue(new String(serial, "UTF-8").contains("BEGIN IONS"));
+            assertArrayEquals(serial, Files.readAllBytes(parallelFile.toPath()));
+        } finally {
+            executor.shutdown();
+            serialFile.delete();
+            parallelFile.delete();
+        }
+    }
+
+    @Test
+    public void testConvertCompressed() throws Exception {
+        File plainFile = File.createTempFile("plain", ".mgf");
+        File compressedFile = File.createTempFile("compressed", ".mgf.gz");
+        try {
+            new MGFConverter(prideController, plainFile.getAbsolutePath()).convert();
+            new MGFConverter(prideController, compressedFile.getAbsolutePath()).convert();
+
+            ByteArrayOutputStream uncompressed = new ByteArrayOutputStream();
+            try (InputStream in = new GZIPInputStream(new FileInputStream(compressedFile))) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) >= 0) {
+                    uncompressed.write(buffer, 0, read);
+                }
+            }
+            assertArrayEquals(Files.readAllBytes(plainFile.toPath()), uncompressed.toByteArray());
+        } finally {
+            plainFile.delete();
+            compressedFile.delete();
+        }
+    }
+
+    @Test
+    public void testConvertMzML() throws Exception {
+        URL url = MGFConverterTest.class.getClassLoader().getResource("tiny.pwiz.1.1.mzML");
+        if (url == null) {
+            throw new IllegalStateException("no file for input found!");
+        }
+        MzMLControllerImpl mzMLController = new MzMLControllerImpl(new File(url.toURI()));
+        File mgfFile = File.createTempFile("mzml", ".mgf");
+        try {
+            new MGFConverter(mzMLController, mgfFile.getAbsolutePath()).convert();
+
+            String mgf = new String(Files.readAllBytes(mgfFile.toPath()), "UTF-8");
+            String expected = getSpectraById(mzMLController);
+            assertTrue(expected.contains("CHARGE=2+"));
+            assertTrue(mgf.endsWith(expected));
+        } finally {
+            mzMLController.close();
+            mgfFile.delete();
+        }
+    }
+
+    /**
+     * MGF entries written one spectrum at a time through the controller, the way the exporter used to do it
+     */
+    private static String getSpectraById(DataAccessController controller) {
+        StringBuilder mgf = new StringBuilder();
+        for (Comparable spectrumId : controller.getSpectrumIds()) {
+            if (controller.getSpectrumMsLevel(spectrumId) == 2) {
+                Spectrum spectrum = controller.getSpectrumById(spectrumId);
+                mgf.append("BEGIN IONS").append(Constants.LINE_SEPARATOR);
+                mgf.append("TITLE=").append(spectrumId).append(Constants.LINE_SEPARATOR);
+                mgf.append("PEPMASS=").append(controller.getSpectrumPrecursorMz(spectrumId)).append(Constants.LINE_SEPARATOR);
+                Integer charge = controller.getSpectrumPrecursorCharge(spectrumId);
+                if (charge != null) {
+                    mgf.append("CHARGE=").append(charge).append(charge >= 0 ? "+" : "-").append(Constants.LINE_SEPARATOR);
+                }
+                double[] mzBinaryArray = spectrum.getMzBinaryDataArray().getDoubleArray();
+                double[] intensityArray = spectrum.getIntensityBinaryDataArray().getDoubleArray();
+                for (int i = 0; i < mzBinaryArray.length; i++) {
+                    mgf.append(mzBinaryArray[i]).append(Constants.TAB).append(intensityArray[i]).append(Constants.LINE_SEPARATOR);
+                }
+                mgf.append("END IONS").append(Constants.LINE_SEPARATOR).append(Constants.LINE_SEPARATOR);
+            }
+        }
+        return mgf.toString();
+    }
+
+    @Test
+    public void testAppendDouble() throws Exception {
+        assertEquals("1234.5678", format(1234.5678, MGFConverter.SHORTEST_PRECISION));
+        assertEquals("1.0E-5", format(0.00001, MGFConverter.SHORTEST_PRECISION));
+        assertEquals("1234.5678", format(1234.56781, 4));
+        assertEquals("0.0012", format(0.00123, 4));
+        assertEquals("-2.50", format(-2.499, 2));
+        assertEquals("0.000", format(-0.0001, 3));
+        assertEquals("3", format(2.5, 0));
+        assertEquals("NaN", format(Double.NaN, 4));
+    }
+
+    private static String format(double value, int precision) {
+        StringBuilder builder = new StringBuilder();
+        MGFConverter.appendDouble(builder, value, precision);
+        return builder.toString();
+    }
+}
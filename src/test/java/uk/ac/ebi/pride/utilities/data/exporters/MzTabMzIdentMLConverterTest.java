@@ -7,10 +7,12 @@ import org.junit.Test;
 import uk.ac.ebi.pride.jmztab.model.MZTabFile;
 import uk.ac.ebi.pride.jmztab.utils.MZTabFileConverter;
 import uk.ac.ebi.pride.utilities.data.controller.impl.ControllerImpl.MzIdentMLControllerImpl;
+import uk.ac.ebi.pride.utilities.data.io.file.MzTabUnmarshallerAdaptor;
 
 import java.io.*;
 import java.net.URL;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -89,6 +91,22 @@ public class MzTabMzIdentMLConverterTest {
         tmpFile.deleteOnExit();
     }
 
+    @Test
+    @Ignore
+    public void convertToMzTabStreaming() throws IOException {
+        MZTabFile mzTabFile = new MzIdentMLMzTabConverter(mzIdentMLController).getMZTabFile();
+
+        File tmpFile = File.createTempFile("temp", "mztab");
+        tmpFile.deleteOnExit();
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(tmpFile));
+        new MzIdentMLMzTabConverter(mzIdentMLController).writeMzTab(out);
+        out.close();
+
+        MzTabUnmarshallerAdaptor streamed = new MzTabUnmarshallerAdaptor(tmpFile, new ByteArrayOutputStream());
+        assertEquals(mzTabFile.getProteins().size(), streamed.getAllProteins().size());
+        assertEquals(mzTabFile.getPSMs().size(), streamed.getPSMs().size());
+    }
+
     @After
     public void tearDown() throws Exception {
 
@@ -9,7 +9,10 @@ import uk.ac.ebi.pride.utilities.data.controller.impl.ControllerImpl.PrideXmlCon
 
 import java.io.*;
 import java.net.URL;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -42,6 +45,23 @@ public class MzTabPRIDEConverterTest {
         assertTrue("No errors reported during the conversion from PRIDE XML to MzTab", checker.getErrorList().size() == 0);
     }
 
+    @Test
+    public void convertPrideToMzTabInParallel() throws Exception {
+        ByteArrayOutputStream serial = new ByteArrayOutputStream();
+        new PRIDEMzTabConverter(prideController).getMZTabFile().printMZTab(serial);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            AbstractMzTabConverter mzTabconverter = new PRIDEMzTabConverter(prideController);
+            mzTabconverter.setExecutor(executor, 2, 3);
+            ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+            mzTabconverter.getMZTabFile().printMZTab(parallel);
+            assertEquals(serial.toString("UTF-8"), parallel.toString("UTF-8"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @After
     public void tearDown() throws Exception {
 
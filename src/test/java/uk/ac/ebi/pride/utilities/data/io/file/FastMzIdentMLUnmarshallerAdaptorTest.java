@@ -4,6 +4,13 @@ import org.junit.*;
 
 import java.io.File;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * @author Suresh Hewapathirana
@@ -39,6 +46,93 @@ public class FastMzIdentMLUnmarshallerAdaptorTest {
     Assert.assertFalse("Spectra of this MzIdentML is not referred by title", fastValidateMzIdentMLUnmarshaller.isSpectraDataReferencedByTitle(fastValidateMzIdentMLUnmarshaller.getSpectraData().get(0)));
   }
 
+  /**
+   * Two different files loaded at the same time must each keep their own content
+   */
+  @Test
+  public void testDifferentFilesConcurrently() throws Exception {
+    File carb = getResource("carb.mzid");
+    File ptms = getResource("MzID_PTMS.scored.mzid");
+    Collection<Comparable> carbProteinIds = loadProteinIds(carb);
+    Collection<Comparable> ptmsProteinIds = loadProteinIds(ptms);
+    Assert.assertNotEquals(carbProteinIds, ptmsProteinIds);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Collection<Comparable>>> carbFutures = new ArrayList<>();
+      List<Future<Collection<Comparable>>> ptmsFutures = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        carbFutures.add(executor.submit(proteinIdsLoader(carb)));
+        ptmsFutures.add(executor.submit(proteinIdsLoader(ptms)));
+      }
+      for (Future<Collection<Comparable>> future : carbFutures) {
+        Assert.assertEquals(carbProteinIds, future.get());
+      }
+      for (Future<Collection<Comparable>> future : ptmsFutures) {
+        Assert.assertEquals(ptmsProteinIds, future.get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Several threads reading the same adaptor must all see the content of its file, unmarshalled once
+   */
+  @Test
+  public void testSameFileFromSeveralThreads() throws Exception {
+    File ptms = getResource("MzID_PTMS.scored.mzid");
+    Collection<Comparable> expected = loadProteinIds(ptms);
+
+    final FastMzIdentMLUnmarshallerAdaptor adaptor = new FastMzIdentMLUnmarshallerAdaptor(ptms);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Collection<Comparable>>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        futures.add(executor.submit(adaptor::getProteinIds));
+      }
+      for (Future<Collection<Comparable>> future : futures) {
+        Assert.assertEquals(expected, future.get());
+      }
+      Assert.assertEquals("MS-GF+", adaptor.getMzIdentMLId());
+    } finally {
+      executor.shutdownNow();
+      adaptor.close();
+    }
+  }
+
+  /**
+   * A closed adaptor must not silently unmarshal its file again
+   */
+  @Test(expected = IllegalStateException.class)
+  public void testAccessAfterClose() throws Exception {
+    FastMzIdentMLUnmarshallerAdaptor adaptor = new FastMzIdentMLUnmarshallerAdaptor(getResource("carb.mzid"));
+    Assert.assertEquals("report", adaptor.getMzIdentMLId());
+    adaptor.close();
+    adaptor.getMzIdentMLId();
+  }
+
+  private static File getResource(String name) throws Exception {
+    URL url = FastMzIdentMLUnmarshallerAdaptorTest.class.getClassLoader().getResource(name);
+    if (url == null) {
+      throw new IllegalStateException("no file for input found!");
+    }
+    return new File(url.toURI());
+  }
+
+  private static Callable<Collection<Comparable>> proteinIdsLoader(final File file) {
+    return () -> loadProteinIds(file);
+  }
+
+  private static Collection<Comparable> loadProteinIds(File file) {
+    FastMzIdentMLUnmarshallerAdaptor adaptor = new FastMzIdentMLUnmarshallerAdaptor(file);
+    try {
+      return adaptor.getProteinIds();
+    } finally {
+      adaptor.close();
+    }
+  }
+
   @After
   public void tearDown() throws Exception {
     fastValidateMzIdentMLUnmarshaller.close();
@@ -0,0 +1,39 @@
+package uk.ac.ebi.pride.utilities.data.io.file;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class MgfIndexTest {
+
+    @Test
+    public void testScan() throws Exception {
+        URL url = MgfIndexTest.class.getClassLoader().getResource("small.mgf");
+        if (url == null) {
+            throw new IllegalStateException("no file for input found!");
+        }
+        File file = new File(url.toURI());
+
+        MgfIndex index = MgfIndex.scan(file);
+        assertEquals(1001, index.size());
+        assertEquals("cluster_id=49050,sequence=[MAGTAFDFENMKR]", index.getTitle(0));
+        assertEquals("cluster_id=49052,sequence=[TLAESALQMLYAAK]", index.getTitle(2));
+
+        // each range is a whole spectrum
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            byte[] bytes = new byte[(int) (index.getEnd(1) - index.getStart(1))];
+            input.seek(index.getStart(1));
+            input.readFully(bytes);
+            String spectrum = new String(bytes, StandardCharsets.UTF_8).trim();
+            assertTrue(spectrum.startsWith("BEGIN IONS"));
+            assertTrue(spectrum.endsWith("END IONS"));
+            assertTrue(spectrum.contains("TITLE=" + index.getTitle(1)));
+        }
+        assertTrue(index.getStart(2) >= index.getEnd(1));
+    }
+}
@@ -0,0 +1,74 @@
+package uk.ac.ebi.pride.utilities.data.io.file;
+
+import org.junit.Test;
+import uk.ac.ebi.jmzidml.MzIdentMLElement;
+import uk.ac.ebi.jmzidml.model.mzidml.PeptideEvidenceRef;
+import uk.ac.ebi.jmzidml.model.mzidml.SpectrumIdentificationItem;
+import uk.ac.ebi.jmzidml.model.mzidml.SpectrumIdentificationResult;
+
+import java.io.File;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the offset containment join used to map SpectrumIdentificationResult, SpectrumIdentificationItem
+ * and PeptideEvidenceRef elements.
+ */
+public class MzIdentMLUnmarshallerAdaptorTest {
+
+    @Test
+    public void testFindParentIndexElements() {
+        long[] parentStarts = {10, 100, 200};
+        long[] parentStops = {90, 150, 300};
+        long[] childStarts = {5, 20, 50, 95, 110, 160, 210, 290};
+        long[] childStops = {8, 40, 90, 98, 120, 170, 250, 310};
+
+        int[] parents = MzIdentMLUnmarshallerAdaptor.findParentIndexElements(parentStarts, parentStops, childStarts, childStops);
+
+        assertArrayEquals(new int[]{-1, 0, 0, -1, 1, -1, 2, -1}, parents);
+    }
+
+    @Test
+    public void testNoParent() {
+        int[] parents = MzIdentMLUnmarshallerAdaptor.findParentIndexElements(new long[0], new long[0], new long[]{1, 2}, new long[]{3, 4});
+        assertArrayEquals(new int[]{-1, -1}, parents);
+    }
+
+    /**
+     * The SpectrumIdentificationItems and PeptideEvidenceRefs found by the offset join must be the ones
+     * JAXB reads inside each SpectrumIdentificationResult.
+     */
+    @Test
+    public void testIdMappingsMatchUnmarshalledElements() throws Exception {
+        URL url = MzIdentMLUnmarshallerAdaptorTest.class.getClassLoader().getResource("carb.mzid");
+        if (url == null) {
+            throw new IllegalStateException("no file for input found!");
+        }
+        MzIdentMLUnmarshallerAdaptor unmarshaller = new MzIdentMLUnmarshallerAdaptor(new File(url.toURI()), false, true);
+
+        int numberOfItems = 0;
+        Iterator<SpectrumIdentificationResult> results = unmarshaller.unmarshalCollectionFromXpath(MzIdentMLElement.SpectrumIdentificationResult);
+        while (results.hasNext()) {
+            SpectrumIdentificationResult result = results.next();
+
+            Set<String> itemIds = new LinkedHashSet<String>();
+            for (SpectrumIdentificationItem item : result.getSpectrumIdentificationItem()) {
+                itemIds.add(item.getId());
+
+                Set<String> peptideEvidenceRefs = new LinkedHashSet<String>();
+                for (PeptideEvidenceRef peptideEvidenceRef : item.getPeptideEvidenceRef()) {
+                    peptideEvidenceRefs.add(peptideEvidenceRef.getPeptideEvidenceRef());
+                }
+                assertEquals(peptideEvidenceRefs, unmarshaller.getPeptideEvidenceReferences(result.getId(), item.getId()));
+                numberOfItems++;
+            }
+            assertEquals(itemIds, new HashSet<String>(unmarshaller.getSpectrumIdentificationItemIds(result.getId())));
+        }
+        assertTrue(numberOfItems > 0);
+    }
+}
@@ -0,0 +1,138 @@
+package uk.ac.ebi.pride.utilities.data.io.file;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.pride.jmztab.model.PSM;
+import uk.ac.ebi.pride.jmztab.model.Protein;
+import uk.ac.ebi.pride.utilities.util.Tuple;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class MzTabIndexTest {
+
+    private MzTabUnmarshallerAdaptor inMemory;
+
+    private MzTabUnmarshallerAdaptor indexed;
+
+    @Before
+    public void setUp() throws Exception {
+        URL url = MzTabIndexTest.class.getClassLoader().getResource("PRIDE_Exp_Complete_Ac_16649.mzTab");
+        if (url == null) {
+            throw new IllegalStateException("no file for input found!");
+        }
+        File inputFile = new File(url.toURI());
+        inMemory = new MzTabUnmarshallerAdaptor(inputFile, new ByteArrayOutputStream());
+        indexed = new MzTabUnmarshallerAdaptor(inputFile, new ByteArrayOutputStream(), true);
+    }
+
+    @Test
+    public void testMetadata() throws Exception {
+        assertTrue(indexed.isIndexed());
+        assertFalse(inMemory.isIndexed());
+        assertEquals(inMemory.getExpAccession(), indexed.getExpAccession());
+        assertEquals(inMemory.getVersion(), indexed.getVersion());
+        assertEquals(inMemory.getMRunMap().size(), indexed.getMRunMap().size());
+    }
+
+    @Test
+    public void testRows() throws Exception {
+        assertEquals(1249, indexed.getAllProteins().size());
+        assertEquals(inMemory.getAllProteins().keySet(), indexed.getAllProteins().keySet());
+        assertEquals(inMemory.getPSMs().keySet(), indexed.getPSMs().keySet());
+        assertEquals(inMemory.getPeptides().keySet(), indexed.getPeptides().keySet());
+        assertEquals(inMemory.getNumIdentifiedPeptides(), indexed.getNumIdentifiedPeptides());
+
+        Iterator<Map.Entry<Integer, PSM>> psms = inMemory.getPSMs().entrySet().iterator();
+        for (Map.Entry<Integer, PSM> entry : indexed.getPSMs().entrySet()) {
+            PSM expected = psms.next().getValue();
+            assertEquals(expected.getPSM_ID(), entry.getValue().getPSM_ID());
+            assertEquals(expected.getAccession(), entry.getValue().getAccession());
+            assertEquals(expected.getSequence(), entry.getValue().getSequence());
+        }
+    }
+
+    @Test
+    public void testRowParsesDoNotGrowErrorList() throws Exception {
+        int errors = indexed.getErrorList().size();
+        for (int i = 0; i < 2; i++) {
+            for (PSM psm : indexed.getPSMs().values()) {
+                assertNotNull(psm);
+            }
+            for (Protein protein : indexed.getAllProteins().values()) {
+                assertNotNull(protein);
+            }
+        }
+        assertEquals(errors, indexed.getErrorList().size());
+    }
+
+    @Test
+    public void testLookups() throws Exception {
+        Integer proteinLine = indexed.getAllProteins().keySet().iterator().next();
+        Tuple<Integer, Protein> protein = indexed.getProteinById(proteinLine);
+        assertEquals(inMemory.getProteinById(proteinLine).getValue().getAccession(), protein.getValue().getAccession());
+
+        Integer psmLine = indexed.getPSMs().keySet().iterator().next();
+        List<Comparable> ids = Arrays.<Comparable>asList(psmLine + "!1", "-1!1");
+        Map<String, PSM> psms = indexed.getSpectrumIdentificationsByIds(ids);
+        assertEquals(1, psms.size());
+        assertEquals(inMemory.getSpectrumIdentificationsByIds(ids).get(psmLine + "!1").getPSM_ID(), psms.get(psmLine + "!1").getPSM_ID());
+    }
+
+    @Test
+    public void testDerivedMaps() throws Exception {
+        assertEquals(inMemory.getPSMtoMsRunMap(), indexed.getPSMtoMsRunMap());
+        assertSame(indexed.getPSMtoMsRunMap(), indexed.getPSMtoMsRunMap());
+        assertEquals(inMemory.getProteinGroupIds(), indexed.getProteinGroupIds());
+        assertEquals(inMemory.getAllProteins().keySet(), indexed.getProteinAccessions().keySet());
+        assertEquals(inMemory.getAllProteinAccessions().getValue(), indexed.getAllProteinAccessions().getValue());
+    }
+
+    @Test
+    public void testRowsAreCached() throws Exception {
+        Integer psmLine = indexed.getPSMs().keySet().iterator().next();
+        assertSame(indexed.getPSMs().get(psmLine), indexed.getPSMs().get(psmLine));
+    }
+
+    /**
+     * Rows read from several threads at a time must be parsed as they are by a single thread
+     */
+    @Test
+    public void testConcurrentLookups() throws Exception {
+        final List<Integer> psmLines = new ArrayList<Integer>(indexed.getPSMs().keySet());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+            for (int thread = 0; thread < 4; thread++) {
+                final int first = thread;
+                futures.add(executor.submit(() -> {
+                    int checked = 0;
+                    for (int i = first; i < psmLines.size(); i += 2) {
+                        PSM expected = inMemory.getPSMs().get(psmLines.get(i));
+                        PSM psm = indexed.getPSMs().get(psmLines.get(i));
+                        assertEquals(expected.getPSM_ID(), psm.getPSM_ID());
+                        assertEquals(expected.getSequence(), psm.getSequence());
+                        checked++;
+                    }
+                    return checked;
+                }));
+            }
+            for (Future<Integer> future : futures) {
+                assertTrue(future.get() > 0);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package uk.ac.ebi.pride.utilities.data.io.file;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.pride.utilities.data.lightModel.AbstractParam;
+import uk.ac.ebi.pride.utilities.data.lightModel.CvParam;
+import uk.ac.ebi.pride.utilities.data.lightModel.SpectrumIdentificationItem;
+import uk.ac.ebi.pride.utilities.data.lightModel.SpectrumIdentificationList;
+import uk.ac.ebi.pride.utilities.data.lightModel.SpectrumIdentificationResult;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the SpectrumIdentificationResults read by the StAX parser with the ones unmarshalled
+ * from the whole document.
+ */
+public class StreamingMzIdentMLUnmarshallerTest {
+
+    private File inputFile;
+
+    @Before
+    public void setUp() throws Exception {
+        URL url = StreamingMzIdentMLUnmarshallerTest.class.getClassLoader().getResource("MzID_PTMS.scored.mzid");
+        if (url == null) {
+            throw new IllegalStateException("no file for input found!");
+        }
+        inputFile = new File(url.toURI());
+    }
+
+    @Test
+    public void testParamsMatchUnmarshalledDocument() throws Exception {
+        Map<String, SpectrumIdentificationResult> expectedResults = new HashMap<String, SpectrumIdentificationResult>();
+        FastMzIdentMLUnmarshaller fastUnmarshaller = new FastMzIdentMLUnmarshaller(inputFile);
+        for (SpectrumIdentificationList list : fastUnmarshaller.getMzIdentML().getDataCollection().getAnalysisData().getSpectrumIdentificationList()) {
+            for (SpectrumIdentificationResult result : list.getSpectrumIdentificationResult()) {
+                expectedResults.put(result.getId(), result);
+            }
+        }
+
+        final List<SpectrumIdentificationResult> results = new ArrayList<SpectrumIdentificationResult>();
+        new StreamingMzIdentMLUnmarshaller(inputFile).readSpectrumIdentificationResults(results::add);
+
+        assertEquals(expectedResults.size(), results.size());
+        boolean scoreFound = false;
+        for (SpectrumIdentificationResult result : results) {
+            SpectrumIdentificationResult expected = expectedResults.get(result.getId());
+            assertNotNull(expected);
+            assertEquals(toStrings(expected.getParamGroup()), toStrings(result.getParamGroup()));
+
+            assertEquals(expected.getSpectrumIdentificationItem().size(), result.getSpectrumIdentificationItem().size());
+            for (int i = 0; i < result.getSpectrumIdentificationItem().size(); i++) {
+                SpectrumIdentificationItem expectedItem = expected.getSpectrumIdentificationItem().get(i);
+                SpectrumIdentificationItem item = result.getSpectrumIdentificationItem().get(i);
+                assertEquals(expectedItem.getId(), item.getId());
+                assertEquals(toStrings(expectedItem.getParamGroup()), toStrings(item.getParamGroup()));
+                assertEquals(expectedItem.getUserParam().size(), item.getUserParam().size());
+                scoreFound |= !item.getCvParam().isEmpty();
+            }
+        }
+        assertTrue(scoreFound);
+    }
+
+    private static List<String> toStrings(List<AbstractParam> params) {
+        List<String> strings = new ArrayList<String>();
+        for (AbstractParam param : params) {
+            String accession = param instanceof CvParam ? ((CvParam) param).getAccession() : null;
+            strings.add(accession + "|" + param.getName() + "|" + param.getValue());
+        }
+        return strings;
+    }
+}
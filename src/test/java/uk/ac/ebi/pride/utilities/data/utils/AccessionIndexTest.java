@@ -0,0 +1,92 @@
+package uk.ac.ebi.pride.utilities.data.utils;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class AccessionIndexTest {
+
+    @Test
+    public void testJoin() throws Exception {
+        LinkedHashMap<String, String> proteinAccessions = new LinkedHashMap<String, String>();
+        proteinAccessions.put("2", "p12345");
+        proteinAccessions.put("1", "P12345");
+        proteinAccessions.put("3", "Q99999");
+        proteinAccessions.put("4", null);
+        AccessionIndex index = AccessionIndex.create(proteinAccessions);
+
+        Map<String, List<String>> proteinPSMIds = new HashMap<String, List<String>>();
+        index.join("P12345", "10!1", proteinPSMIds);
+        index.join("Q99999", "11!1", proteinPSMIds);
+        index.join("Q99999", "11!2", proteinPSMIds);
+        index.join("UNKNOWN", "12!1", proteinPSMIds);
+        index.join(null, "13!1", proteinPSMIds);
+
+        assertEquals(3, proteinPSMIds.size());
+        assertEquals(Arrays.asList("10!1"), proteinPSMIds.get("1"));
+        assertEquals(Arrays.asList("10!1"), proteinPSMIds.get("2"));
+        assertEquals(Arrays.asList("11!1", "11!2"), proteinPSMIds.get("3"));
+        assertEquals("Proteins sharing an accession should be in map order", Arrays.asList("2", "1"), index.getProteinIds("P12345"));
+        assertTrue(index.getProteinIds("unknown").isEmpty());
+    }
+
+    /**
+     * Join a synthetic large mzTab, 20000 proteins sharing 4000 accessions and 1000000 PSMs. Every PSM
+     * must look up its accession once, and be joined to the proteins of that accession only, so the
+     * work grows linearly with the number of PSMs instead of comparing every PSM to every protein.
+     */
+    @Test
+    public void testJoinLooksUpEachAccessionOnce() throws Exception {
+        int numberOfProteins = 20000;
+        int proteinsPerAccession = 5;
+        int numberOfAccessions = numberOfProteins / proteinsPerAccession;
+        int numberOfPSMs = 1000000;
+
+        final int[] lookups = new int[1];
+        AccessionIndex index = new AccessionIndex(numberOfProteins) {
+            @Override
+            public List<String> getProteinIds(String accession) {
+                lookups[0]++;
+                return super.getProteinIds(accession);
+            }
+        };
+        for (int i = 0; i < numberOfProteins; i++) {
+            int accession = i % numberOfAccessions;
+            index.add("sp|P" + accession + "|PROT" + accession + "_HUMAN", Integer.toString(i + 1));
+        }
+
+        Map<String, List<String>> proteinPSMIds = new HashMap<String, List<String>>();
+        int joined = 0;
+        for (int i = 0; i < numberOfPSMs; i++) {
+            int accession = i % numberOfAccessions;
+            String accessionValue = "SP|P" + accession + "|PROT" + accession + "_HUMAN";
+            index.join(accessionValue, i + "!1", proteinPSMIds);
+            joined += index.getProteinIds(accessionValue).size();
+        }
+
+        assertEquals("One lookup per join and one per check", 2 * numberOfPSMs, lookups[0]);
+        assertEquals(numberOfPSMs * proteinsPerAccession, joined);
+        assertEquals(numberOfProteins, proteinPSMIds.size());
+        for (List<String> psmIds : proteinPSMIds.values()) {
+            assertEquals(numberOfPSMs / numberOfAccessions, psmIds.size());
+        }
+        assertEquals("0!1", proteinPSMIds.get("1").get(0));
+        assertEquals(Integer.toString(numberOfAccessions) + "!1", proteinPSMIds.get("1").get(1));
+        assertEquals(Arrays.asList("1", "4001", "8001", "12001", "16001"), index.getProteinIds("sp|p0|prot0_human"));
+    }
+
+    /**
+     * The join order is the iteration order of the map passed to create
+     */
+    @Test
+    public void testCreateFollowsMapOrder() throws Exception {
+        Map<String, String> proteinAccessions = new TreeMap<String, String>(Collections.<String>reverseOrder());
+        proteinAccessions.put("1", "P12345");
+        proteinAccessions.put("2", "P12345");
+        proteinAccessions.put("3", "P12345");
+
+        assertEquals(Arrays.asList("3", "2", "1"), AccessionIndex.create(proteinAccessions).getProteinIds("P12345"));
+    }
+}
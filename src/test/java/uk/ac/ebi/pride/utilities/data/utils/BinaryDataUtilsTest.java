@@ -0,0 +1,91 @@
+package uk.ac.ebi.pride.utilities.data.utils;
+
+import org.junit.Test;
+import uk.ac.ebi.pride.utilities.term.CvTermReference;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BinaryDataUtilsTest {
+
+    private static final ByteOrder[] ORDERS = {ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN};
+
+    @Test
+    public void testDecodeAllDataTypes() {
+        for (ByteOrder order : ORDERS) {
+            byte[] doubles = ByteBuffer.allocate(16).order(order).putDouble(1.5).putDouble(-2.25).array();
+            assertArrayEquals(new double[]{1.5, -2.25}, BinaryDataUtils.toDoubleArray(doubles, CvTermReference.FLOAT_64_BIT, order), 0);
+
+            byte[] floats = ByteBuffer.allocate(8).order(order).putFloat(3.5f).putFloat(-1f).array();
+            assertArrayEquals(new double[]{3.5, -1}, BinaryDataUtils.toDoubleArray(floats, CvTermReference.FLOAT_32_BIT, order), 0);
+
+            byte[] ints = ByteBuffer.allocate(8).order(order).putInt(7).putInt(-8).array();
+            assertArrayEquals(new double[]{7, -8}, BinaryDataUtils.toDoubleArray(ints, CvTermReference.INT_32_BIT, order), 0);
+
+            byte[] longs = ByteBuffer.allocate(16).order(order).putLong(1L << 40).putLong(3).array();
+            assertArrayEquals(new double[]{1L << 40, 3}, BinaryDataUtils.toDoubleArray(longs, CvTermReference.INT_64_BIT, order), 0);
+
+            byte[] halves = ByteBuffer.allocate(6).order(order).putShort((short) 0x3c00).putShort((short) 0xc000).putShort((short) 0x7c00).array();
+            assertArrayEquals(new double[]{1, -2, Double.POSITIVE_INFINITY}, BinaryDataUtils.toDoubleArray(halves, CvTermReference.FLOAT_16_BIT, order), 0);
+        }
+    }
+
+    @Test
+    public void testDecodeIntoDestination() {
+        byte[] doubles = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN).putDouble(1.5).putDouble(-2.25).array();
+        double[] destination = new double[4];
+
+        int count = BinaryDataUtils.toDoubleArray(ByteBuffer.wrap(doubles), CvTermReference.FLOAT_64_BIT, ByteOrder.LITTLE_ENDIAN, destination, 1);
+
+        assertEquals(2, count);
+        assertArrayEquals(new double[]{0, 1.5, -2.25, 0}, destination, 0);
+    }
+
+    @Test
+    public void testInflate() {
+        byte[] data = new byte[1 << 20];
+        new Random(1).nextBytes(data);
+        Arrays.fill(data, 0, data.length / 2, (byte) 0);
+
+        byte[] compressed = BinaryDataUtils.compress(data);
+        assertArrayEquals(data, BinaryDataUtils.decompress(compressed));
+
+        ByteBuffer inflated = BinaryDataUtils.inflate(compressed);
+        assertEquals(data.length, inflated.remaining());
+        double[] values = BinaryDataUtils.toDoubleArray(inflated, CvTermReference.FLOAT_64_BIT, ByteOrder.LITTLE_ENDIAN);
+        assertArrayEquals(BinaryDataUtils.toDoubleArray(data, CvTermReference.FLOAT_64_BIT, ByteOrder.LITTLE_ENDIAN), values, 0);
+    }
+
+    @Test
+    public void testLargeInflateBufferIsNotRetained() {
+        byte[] large = new byte[4 << 20];
+        new Random(2).nextBytes(large);
+        ByteBuffer inflated = BinaryDataUtils.inflate(BinaryDataUtils.compress(large));
+
+        // a buffer over 1MB is not reused, the next array does not overwrite it
+        byte[] small = new byte[1024];
+        Arrays.fill(small, (byte) 7);
+        assertEquals(small.length, BinaryDataUtils.inflate(BinaryDataUtils.compress(small)).remaining());
+
+        byte[] copy = new byte[inflated.remaining()];
+        inflated.get(copy);
+        assertArrayEquals(large, copy);
+    }
+
+    @Test
+    public void testDecodeSinglePrecision() {
+        for (ByteOrder order : ORDERS) {
+            ByteBuffer floats = ByteBuffer.wrap(ByteBuffer.allocate(8).order(order).putFloat(3.5f).putFloat(-1f).array());
+            assertArrayEquals(new float[]{3.5f, -1f}, BinaryDataUtils.toFloatArray(floats, CvTermReference.FLOAT_32_BIT, order), 0);
+
+            ByteBuffer halves = ByteBuffer.wrap(ByteBuffer.allocate(4).order(order).putShort((short) 0x3c00).putShort((short) 0xc000).array());
+            assertArrayEquals(new float[]{1f, -2f}, BinaryDataUtils.toFloatArray(halves, CvTermReference.FLOAT_16_BIT, order), 0);
+        }
+        assertTrue(BinaryDataUtils.isSinglePrecision(CvTermReference.FLOAT_32_BIT));
+        assertFalse(BinaryDataUtils.isSinglePrecision(CvTermReference.FLOAT_64_BIT));
+    }
+}
@@ -0,0 +1,80 @@
+package uk.ac.ebi.pride.utilities.data.utils;
+
+import org.junit.Test;
+import uk.ac.ebi.pride.utilities.data.controller.impl.ControllerImpl.PeakControllerImpl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.EnumSet;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class FileFormatSnifferTest {
+
+    @Test
+    public void testGetFormats() throws Exception {
+        assertEquals(EnumSet.of(FileFormatSniffer.FileFormat.MZML), FileFormatSniffer.getFormats(getFile("tiny.pwiz.1.1.mzML")));
+        assertEquals(EnumSet.of(FileFormatSniffer.FileFormat.MZIDENTML), FileFormatSniffer.getFormats(getFile("20110827_K1_A (K1A).mzid")));
+        assertEquals(EnumSet.of(FileFormatSniffer.FileFormat.MGF), FileFormatSniffer.getFormats(getFile("small.mgf")));
+        assertEquals(EnumSet.of(FileFormatSniffer.FileFormat.MZTAB), FileFormatSniffer.getFormats(getFile("PRIDE_Exp_Complete_Ac_16649.mzTab")));
+        assertFalse(FileFormatSniffer.isCompressed(getFile("small.mgf")));
+    }
+
+    @Test
+    public void testCompressedFile() throws Exception {
+        File file = File.createTempFile("sniffer", ".mzid.gz");
+        file.deleteOnExit();
+        try (InputStream in = new FileInputStream(getFile("20110827_K1_A (K1A).mzid"));
+             OutputStream out = new GZIPOutputStream(new FileOutputStream(file))) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+            }
+        }
+
+        assertTrue(FileFormatSniffer.isCompressed(file));
+        assertTrue(FileFormatSniffer.isFormat(file, FileFormatSniffer.FileFormat.MZIDENTML, true));
+        assertFalse(FileFormatSniffer.isFormat(file, FileFormatSniffer.FileFormat.MZIDENTML, false));
+        assertNull(Constants.getFileType(file));
+    }
+
+    @Test
+    public void testVerdictFollowsFileChanges() throws Exception {
+        File file = File.createTempFile("sniffer", ".xml");
+        file.deleteOnExit();
+        write(file, "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<mzData version=\"1.05\" accessionNumber=\"1\">\n</mzData>\n");
+        assertTrue(FileFormatSniffer.isFormat(file, FileFormatSniffer.FileFormat.MZDATA, false));
+
+        write(file, "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\r\n<mzXML xmlns=\"http://sashimi.sourceforge.net/schema_revision/mzXML_3.2\">\r\n</mzXML>\r\n");
+        assertTrue(FileFormatSniffer.isFormat(file, FileFormatSniffer.FileFormat.MZXML, false));
+        assertFalse(FileFormatSniffer.isFormat(file, FileFormatSniffer.FileFormat.MZDATA, false));
+    }
+
+    @Test
+    public void testMissingFile() throws Exception {
+        File file = new File(System.getProperty("java.io.tmpdir"), "sniffer-missing-" + System.nanoTime() + ".mgf");
+        assertTrue(FileFormatSniffer.getFormats(file).isEmpty());
+        assertFalse(FileFormatSniffer.isCompressed(file));
+        assertNull(PeakControllerImpl.isValidFormat(file));
+    }
+
+    private static void write(File file, String content) throws Exception {
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(content.getBytes("UTF-8"));
+        }
+    }
+
+    private static File getFile(String name) throws Exception {
+        URL url = FileFormatSnifferTest.class.getClassLoader().getResource(name);
+        if (url == null) {
+            throw new IllegalStateException("no file for input found!");
+        }
+        return new File(url.toURI());
+    }
+}
@@ -0,0 +1,45 @@
+package uk.ac.ebi.pride.utilities.data.utils;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class IndexedListTest {
+
+    @Test
+    public void testOrderAndLookup() {
+        IndexedList<Comparable> ids = new IndexedList<Comparable>(Arrays.<Comparable>asList("scan=3", "scan=1", "scan=2", "scan=1"));
+
+        assertEquals(3, ids.size());
+        assertEquals(Arrays.<Comparable>asList("scan=3", "scan=1", "scan=2"), ids);
+        assertEquals("scan=2", ids.get(2));
+        assertEquals(1, ids.indexOf("scan=1"));
+        assertEquals(-1, ids.indexOf("scan=4"));
+        assertFalse(ids.add("scan=3"));
+    }
+
+    @Test
+    public void testRemoveAndClear() {
+        IndexedList<Comparable> ids = new IndexedList<Comparable>(Arrays.<Comparable>asList("a", "b", "c"));
+
+        assertTrue(ids.remove("a"));
+        assertEquals(0, ids.indexOf("b"));
+        assertEquals(1, ids.indexOf("c"));
+
+        ids.clear();
+        assertTrue(ids.isEmpty());
+        assertFalse(ids.contains("b"));
+    }
+
+    @Test
+    public void testCollectionUtils() {
+        IndexedList<Comparable> ids = new IndexedList<Comparable>(Arrays.<Comparable>asList("a", "b", "c"));
+        assertEquals(2, CollectionUtils.getIndex(ids, (Comparable) "c"));
+        assertEquals("b", CollectionUtils.getElement(ids, 1));
+        assertNull(CollectionUtils.getElement(ids, 3));
+        assertSame(ids, IndexedList.of(ids));
+        assertEquals(Arrays.asList("x", "y"), IndexedList.of(new LinkedHashSet<String>(Arrays.asList("x", "y"))));
+    }
+}